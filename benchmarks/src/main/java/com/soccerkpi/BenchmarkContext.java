@@ -0,0 +1,65 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+/** Fixed Context for benchmark invocations; handlers only read the request id. */
+public class BenchmarkContext implements Context {
+
+    @Override
+    public String getAwsRequestId() {
+        return "bench-request-id";
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return "bench";
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return "bench";
+    }
+
+    @Override
+    public String getFunctionName() {
+        return "bench";
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return "$LATEST";
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return "arn:aws:lambda:us-west-2:000000000000:function:bench";
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        return 30_000;
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        return 256;
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return null;
+    }
+}
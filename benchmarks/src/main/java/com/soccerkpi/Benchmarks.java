@@ -0,0 +1,35 @@
+package com.soccerkpi;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/** Setup shared by the benchmark states. */
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Builds the backend named by a {@code store} benchmark parameter: "dynamodb" is the production store over the
+     * in-memory DynamoDB fake, "memory" is {@link InMemoryKpiStore}, and "noop" stores nothing, leaving only
+     * the handler's own cost.
+     */
+    static KpiStore store(String backend, InMemoryDynamoDb fake) {
+        return switch (backend) {
+            case "dynamodb" -> DynamoDbKpiStore.fromEnvironment(fake);
+            case "memory" -> new InMemoryKpiStore();
+            case "noop" -> new NoopKpiStore();
+            default -> throw new IllegalArgumentException("Unknown store: " + backend);
+        };
+    }
+
+    /**
+     * Silences stdout, so the one-line-per-request logs do not turn every benchmark into a console benchmark.
+     * Returns the previous stdout for tear-down.
+     */
+    static PrintStream silenceStdout() {
+        PrintStream previous = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return previous;
+    }
+}
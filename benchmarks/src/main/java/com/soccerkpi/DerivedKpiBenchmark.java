@@ -0,0 +1,60 @@
+package com.soccerkpi;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What derived KPIs add to building a summary from an aggregate: {@code defaults} is the 12 default KPIs,
+ * {@code withDerived} the same plus shot accuracy, conversion rate and a discipline index. The formulas are
+ * parsed and bound during warmup, as in a warm container, so the difference is filling the totals array and
+ * evaluating three small lambda trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DerivedKpiBenchmark {
+
+    private static final String GAME_ID = "0b9c6a64-6f4e-4c55-9a43-3d2f1e8b7a10";
+
+    private Handlers.KpiAggregate aggregate;
+    private List<Handlers.KpiDefinition> defaults;
+    private List<Handlers.KpiDefinition> withDerived;
+
+    @Setup
+    public void setUp() {
+        defaults = Handlers.DefaultKpis.defaultKpisForGame(GAME_ID);
+        withDerived = new ArrayList<>(defaults);
+        withDerived.add(new Handlers.KpiDefinition(GAME_ID, "shot_accuracy", "Shot Accuracy", Handlers.KpiType.DERIVED,
+                "shots_on_target / (shots_on_target + shots_off_target)"));
+        withDerived.add(new Handlers.KpiDefinition(GAME_ID, "conversion_rate", "Conversion Rate", Handlers.KpiType.DERIVED,
+                "goals / (shots_on_target + shots_off_target)"));
+        withDerived.add(new Handlers.KpiDefinition(GAME_ID, "discipline_index", "Discipline Index", Handlers.KpiType.DERIVED,
+                "fouls_committed + 3 * yellow_card + 10 * red_card"));
+
+        aggregate = new Handlers.KpiAggregate();
+        for (int i = 0; i < defaults.size(); i++) {
+            Handlers.KpiDefinition def = defaults.get(i);
+            if (def.getType() == Handlers.KpiType.COUNTER) {
+                aggregate.putCounter(def.getKpiId(), 3 + i * 7);
+            } else {
+                aggregate.putToggle(def.getKpiId(), i % 2 == 0, "2024-01-01T15:" + (10 + i) + ":00.000Z");
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Handlers.KpiSummary> defaults() {
+        return aggregate.toSummaries(defaults);
+    }
+
+    @Benchmark
+    public List<Handlers.KpiSummary> withDerived() {
+        return aggregate.toSummaries(withDerived);
+    }
+}
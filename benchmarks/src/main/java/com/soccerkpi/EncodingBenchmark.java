@@ -0,0 +1,96 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON, Smile and CBOR side by side for the bodies a client can negotiate: the summary, create-game and KPI
+ * definitions responses, and a tap request. Each body's encoded size is printed to stderr during setup, since
+ * bytes over a stadium's cellular link are what the binary formats are for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodingBenchmark {
+
+    private static final String GAME_ID = "0b9c6a64-6f4e-4c55-9a43-3d2f1e8b7a10";
+
+    // a String, since JMH's generated classes live in another package and BodyEncoding is package-private
+    @Param({"JSON", "SMILE", "CBOR"})
+    public String format;
+
+    private BodyEncoding encoding;
+    private Handlers.GameSummaryResponse summary;
+    private Handlers.CreateGameResponse created;
+    private Map<String, List<Handlers.KpiDefinition>> definitions;
+    private byte[] tap;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() throws Exception {
+        stdout = Benchmarks.silenceStdout();
+        encoding = BodyEncoding.valueOf(format);
+        List<Handlers.KpiDefinition> defs = Handlers.DefaultKpis.defaultKpisForGame(GAME_ID);
+        // a mid-game aggregate, so counters carry multi-digit totals as they do in a real poll
+        Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+        for (int i = 0; i < defs.size(); i++) {
+            Handlers.KpiDefinition def = defs.get(i);
+            if (def.getType() == Handlers.KpiType.COUNTER) {
+                aggregate.putCounter(def.getKpiId(), 3 + i * 7);
+            } else {
+                aggregate.putToggle(def.getKpiId(), i % 2 == 0, "2024-01-01T15:" + (10 + i) + ":00.000Z");
+            }
+        }
+        summary = new Handlers.GameSummaryResponse(GAME_ID, aggregate.toSummaries(defs));
+        created = new Handlers.CreateGameResponse(GAME_ID, defs);
+        definitions = Collections.singletonMap("kpis", defs);
+        Handlers.RecordKpiEventRequest request = new Handlers.RecordKpiEventRequest();
+        request.setKpiId("shots_on_target");
+        request.setDelta(1);
+        tap = encoding.write(request);
+
+        System.err.printf("# %s: summary %d B, createGame %d B, definitions %d B, tap %d B%n", format,
+                encoding.write(summary).length, encoding.write(created).length,
+                encoding.write(definitions).length, tap.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public byte[] writeSummary() throws Exception {
+        return encoding.write(summary);
+    }
+
+    @Benchmark
+    public byte[] writeCreateGame() throws Exception {
+        return encoding.write(created);
+    }
+
+    @Benchmark
+    public byte[] writeDefinitions() throws Exception {
+        return encoding.write(definitions);
+    }
+
+    @Benchmark
+    public Handlers.RecordKpiEventRequest readTap() throws Exception {
+        return encoding.read(tap, Handlers.RecordKpiEventRequest.class);
+    }
+
+    /** The whole response as the summary handler builds it, including the base64 step binary bodies add. */
+    @Benchmark
+    public APIGatewayV2HTTPResponse summaryResponse() {
+        return Handlers.encodedResponse(encoding, summary);
+    }
+}
@@ -0,0 +1,74 @@
+package com.soccerkpi;
+
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The kpi_events item layouts side by side: decode alone, and decode folded into an aggregate the way a summary
+ * rebuild reads the log. The average stored item size of each layout is printed to stderr during setup, since
+ * that, not decode time, is what a Query is billed on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventItemBenchmark {
+
+    private static final String GAME_ID = "0b9c6a64-6f4e-4c55-9a43-3d2f1e8b7a10";
+    private static final int EVENTS = 10_000;
+
+    // a String, since JMH's generated classes live in another package and EventItems is package-private
+    @Param({"V1", "V2", "V2_PACKED"})
+    public String format;
+
+    private List<Map<String, AttributeValue>> items;
+
+    @Setup
+    public void setUp() {
+        List<Handlers.KpiDefinition> defs = Handlers.DefaultKpis.defaultKpisForGame(GAME_ID);
+        // a fixed seed keeps the mix of counters and toggles identical between layouts
+        Random random = new Random(42);
+        Instant kickoff = Instant.parse("2024-01-01T15:00:00Z");
+        items = new ArrayList<>(EVENTS);
+        EventItems.Format layout = EventItems.Format.valueOf(format);
+        long bytes = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            Handlers.KpiDefinition def = defs.get(random.nextInt(defs.size()));
+            String ts = EventTimestamps.format(kickoff.plusMillis(i * 537L));
+            Handlers.KpiEvent event = def.getType() == Handlers.KpiType.COUNTER
+                    ? new Handlers.KpiEvent(ts, def.getKpiId(), random.nextInt(10) == 0 ? -1 : 1, null, null)
+                    : new Handlers.KpiEvent(ts, def.getKpiId(), null, random.nextBoolean(), null);
+            Map<String, AttributeValue> item = EventItems.encode(layout, GAME_ID, event);
+            bytes += InMemoryDynamoDb.itemSize(item);
+            items.add(item);
+        }
+        System.err.printf("# %s: %.1f bytes per event item%n", format, (double) bytes / EVENTS);
+    }
+
+    @Benchmark
+    public int decode() {
+        int checksum = 0;
+        for (Map<String, AttributeValue> item : items) {
+            checksum += EventItems.decode(item).getKpiId().length();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public Handlers.KpiAggregate fold() {
+        Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+        for (Map<String, AttributeValue> item : items) {
+            aggregate.applyEvent(item);
+        }
+        return aggregate;
+    }
+}
@@ -0,0 +1,397 @@
+package com.soccerkpi;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * DynamoDB fake holding tables in memory, so benchmarks measure the handlers rather than the network.
+ *
+ * Only the expression shapes Handlers actually sends are understood: key conditions of the form
+ * "hash = :v [AND range op :v]", SET/ADD update clauses, and conditions built from attribute_exists,
+ * attribute_not_exists and comparisons joined by AND/OR. Anything else fails with UnsupportedOperationException
+ * rather than being silently misread. Query pages stop at roughly 1 MB, like the real service.
+ */
+public class InMemoryDynamoDb implements DynamoDbClient {
+
+    private static final int PAGE_LIMIT_BYTES = 1024 * 1024;
+
+    private final Map<String, String> hashKeys = new HashMap<>();
+    private final Map<String, String> rangeKeys = new HashMap<>();
+    private final Set<String> discarded = new HashSet<>();
+    // table -> hash key value -> range key value ("" for hash-only tables) -> item
+    private final Map<String, Map<String, ConcurrentSkipListMap<String, Map<String, AttributeValue>>>> tables = new ConcurrentHashMap<>();
+
+    /** A fake with the key schema of the tables in infra/dynamodb.tf, under the Handlers default names. */
+    public static InMemoryDynamoDb withDefaultTables() {
+        return new InMemoryDynamoDb()
+                .table("games", "gameId", null)
+                .table("kpi_definitions", "gameId", "kpiId")
+                .table("kpi_templates", "templateId", "version")
+                .table("kpi_events", "gameId", "eventTimestamp")
+                .table("kpi_aggregates", "gameId", null)
+                .table("kpi_archives", "gameId", "part");
+    }
+
+    public InMemoryDynamoDb table(String name, String hashKey, String rangeKey) {
+        hashKeys.put(name, hashKey);
+        if (rangeKey != null) rangeKeys.put(name, rangeKey);
+        tables.put(name, new ConcurrentHashMap<>());
+        return this;
+    }
+
+    /**
+     * Accepts writes to the table (conditions are still checked against an empty table) without keeping them,
+     * so write-heavy benchmarks do not grow the heap for the whole run.
+     */
+    public InMemoryDynamoDb discardWritesTo(String name) {
+        discarded.add(name);
+        return this;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        Map<String, AttributeValue> item = find(request.tableName(), request.key());
+        return item == null ? GetItemResponse.builder().build() : GetItemResponse.builder().item(item).build();
+    }
+
+    @Override
+    public synchronized PutItemResponse putItem(PutItemRequest request) {
+        put(request.tableName(), request.item(), request.conditionExpression(),
+                request.expressionAttributeNames(), request.expressionAttributeValues());
+        return PutItemResponse.builder().build();
+    }
+
+    @Override
+    public synchronized UpdateItemResponse updateItem(UpdateItemRequest request) {
+        update(request.tableName(), request.key(), request.updateExpression(), request.conditionExpression(),
+                request.expressionAttributeNames(), request.expressionAttributeValues(),
+                request.returnValuesOnConditionCheckFailure() == ReturnValuesOnConditionCheckFailure.ALL_OLD);
+        return UpdateItemResponse.builder().build();
+    }
+
+    @Override
+    public synchronized DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        delete(request.tableName(), request.key(), request.conditionExpression(),
+                request.expressionAttributeNames(), request.expressionAttributeValues());
+        return DeleteItemResponse.builder().build();
+    }
+
+    @Override
+    public synchronized TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+        List<CancellationReason> reasons = new ArrayList<>();
+        boolean cancelled = false;
+        for (TransactWriteItem action : request.transactItems()) {
+            boolean ok = conditionHolds(action);
+            cancelled |= !ok;
+            CancellationReason.Builder reason = CancellationReason.builder().code(ok ? "None" : "ConditionalCheckFailed");
+            Update u = action.update();
+            ConditionCheck c = action.conditionCheck();
+            if (!ok && u != null && u.returnValuesOnConditionCheckFailure() == ReturnValuesOnConditionCheckFailure.ALL_OLD) {
+                reason.item(find(u.tableName(), u.key()));
+            } else if (!ok && c != null && c.returnValuesOnConditionCheckFailure() == ReturnValuesOnConditionCheckFailure.ALL_OLD) {
+                reason.item(find(c.tableName(), c.key()));
+            }
+            reasons.add(reason.build());
+        }
+        if (cancelled) {
+            throw TransactionCanceledException.builder()
+                    .message("Transaction cancelled")
+                    .cancellationReasons(reasons)
+                    .build();
+        }
+        for (TransactWriteItem action : request.transactItems()) {
+            if (action.put() != null) {
+                Put p = action.put();
+                put(p.tableName(), p.item(), null, null, null);
+            } else if (action.update() != null) {
+                Update u = action.update();
+                update(u.tableName(), u.key(), u.updateExpression(), null,
+                        u.expressionAttributeNames(), u.expressionAttributeValues(), false);
+            } else if (action.delete() != null) {
+                Delete d = action.delete();
+                delete(d.tableName(), d.key(), null, null, null);
+            }
+        }
+        return TransactWriteItemsResponse.builder().build();
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest request) {
+        String table = request.tableName();
+        Map<String, AttributeValue> values = request.expressionAttributeValues();
+        String[] parts = request.keyConditionExpression().split(" AND ");
+        String[] hashTerm = comparison(parts[0]);
+        if (!"=".equals(hashTerm[1])) throw unsupported(request.keyConditionExpression());
+        String hashValue = values.get(hashTerm[2]).s();
+
+        ConcurrentSkipListMap<String, Map<String, AttributeValue>> partition = partition(table, hashValue, false);
+        NavigableMap<String, Map<String, AttributeValue>> range = partition != null ? partition : new TreeMap<>();
+        if (parts.length == 2) {
+            String[] rangeTerm = comparison(parts[1]);
+            String bound = values.get(rangeTerm[2]).s();
+            range = switch (rangeTerm[1]) {
+                case ">" -> range.tailMap(bound, false);
+                case ">=" -> range.tailMap(bound, true);
+                case "<" -> range.headMap(bound, false);
+                case "<=" -> range.headMap(bound, true);
+                case "=" -> range.subMap(bound, true, bound, true);
+                default -> throw unsupported(request.keyConditionExpression());
+            };
+        } else if (parts.length > 2) {
+            throw unsupported(request.keyConditionExpression());
+        }
+        if (Boolean.FALSE.equals(request.scanIndexForward())) {
+            range = range.descendingMap();
+        }
+        if (request.hasExclusiveStartKey()) {
+            String start = rangeValue(table, request.exclusiveStartKey());
+            range = range.tailMap(start, false);
+        }
+
+        int limit = request.limit() != null ? request.limit() : Integer.MAX_VALUE;
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        int bytes = 0;
+        Map<String, AttributeValue> last = null;
+        boolean more = false;
+        for (Map<String, AttributeValue> item : range.values()) {
+            if (items.size() >= limit || bytes >= PAGE_LIMIT_BYTES) {
+                more = true;
+                break;
+            }
+            items.add(item);
+            bytes += itemSize(item);
+            last = item;
+        }
+        QueryResponse.Builder response = QueryResponse.builder().items(items).count(items.size()).scannedCount(items.size());
+        if (more && last != null) {
+            response.lastEvaluatedKey(keyOf(table, last));
+        }
+        return response.build();
+    }
+
+    // ----- Storage -----
+
+    private Map<String, AttributeValue> find(String table, Map<String, AttributeValue> key) {
+        ConcurrentSkipListMap<String, Map<String, AttributeValue>> partition = partition(table, hashValue(table, key), false);
+        return partition == null ? null : partition.get(rangeValue(table, key));
+    }
+
+    private void put(String table, Map<String, AttributeValue> item, String condition,
+                     Map<String, String> names, Map<String, AttributeValue> values) {
+        Map<String, AttributeValue> existing = find(table, item);
+        if (condition != null && !evaluate(condition, existing, names, values)) {
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+        }
+        store(table, item);
+    }
+
+    private void update(String table, Map<String, AttributeValue> key, String expression, String condition,
+                        Map<String, String> names, Map<String, AttributeValue> values, boolean returnOld) {
+        Map<String, AttributeValue> existing = find(table, key);
+        if (condition != null && !evaluate(condition, existing, names, values)) {
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed")
+                    .item(returnOld ? existing : null).build();
+        }
+        Map<String, AttributeValue> item = existing != null ? new HashMap<>(existing) : new HashMap<>(key);
+        applyUpdate(expression, item, names, values);
+        store(table, item);
+    }
+
+    private void delete(String table, Map<String, AttributeValue> key, String condition,
+                        Map<String, String> names, Map<String, AttributeValue> values) {
+        Map<String, AttributeValue> existing = find(table, key);
+        if (condition != null && !evaluate(condition, existing, names, values)) {
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+        }
+        ConcurrentSkipListMap<String, Map<String, AttributeValue>> partition = partition(table, hashValue(table, key), false);
+        if (partition != null) partition.remove(rangeValue(table, key));
+    }
+
+    private void store(String table, Map<String, AttributeValue> item) {
+        if (discarded.contains(table)) return;
+        partition(table, hashValue(table, item), true).put(rangeValue(table, item), Collections.unmodifiableMap(new HashMap<>(item)));
+    }
+
+    private ConcurrentSkipListMap<String, Map<String, AttributeValue>> partition(String table, String hashValue, boolean create) {
+        Map<String, ConcurrentSkipListMap<String, Map<String, AttributeValue>>> partitions = tables.get(table);
+        if (partitions == null) {
+            throw ResourceNotFoundException.builder()
+                    .message("Requested resource not found: " + table).build();
+        }
+        return create ? partitions.computeIfAbsent(hashValue, k -> new ConcurrentSkipListMap<>()) : partitions.get(hashValue);
+    }
+
+    private String hashValue(String table, Map<String, AttributeValue> key) {
+        return key.get(hashKeys.get(table)).s();
+    }
+
+    private String rangeValue(String table, Map<String, AttributeValue> key) {
+        String rangeKey = rangeKeys.get(table);
+        if (rangeKey == null) return "";
+        // a numeric range key (kpi_templates.version) only needs to identify the item; no query ranges over one
+        AttributeValue value = key.get(rangeKey);
+        return value.s() != null ? value.s() : value.n();
+    }
+
+    private Map<String, AttributeValue> keyOf(String table, Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(hashKeys.get(table), item.get(hashKeys.get(table)));
+        String rangeKey = rangeKeys.get(table);
+        if (rangeKey != null) key.put(rangeKey, item.get(rangeKey));
+        return key;
+    }
+
+    private boolean conditionHolds(TransactWriteItem action) {
+        if (action.put() != null) {
+            Put p = action.put();
+            return p.conditionExpression() == null || evaluate(p.conditionExpression(), find(p.tableName(), p.item()),
+                    p.expressionAttributeNames(), p.expressionAttributeValues());
+        }
+        if (action.update() != null) {
+            Update u = action.update();
+            return u.conditionExpression() == null || evaluate(u.conditionExpression(), find(u.tableName(), u.key()),
+                    u.expressionAttributeNames(), u.expressionAttributeValues());
+        }
+        if (action.delete() != null) {
+            Delete d = action.delete();
+            return d.conditionExpression() == null || evaluate(d.conditionExpression(), find(d.tableName(), d.key()),
+                    d.expressionAttributeNames(), d.expressionAttributeValues());
+        }
+        ConditionCheck c = action.conditionCheck();
+        return evaluate(c.conditionExpression(), find(c.tableName(), c.key()),
+                c.expressionAttributeNames(), c.expressionAttributeValues());
+    }
+
+    // ----- Expressions -----
+
+    private static void applyUpdate(String expression, Map<String, AttributeValue> item,
+                                    Map<String, String> names, Map<String, AttributeValue> values) {
+        for (String section : expression.trim().split("\\s+(?=(SET|ADD|REMOVE)\\s)")) {
+            String[] split = section.trim().split("\\s+", 2);
+            if (split.length != 2) throw unsupported(expression);
+            for (String clause : split[1].split("\\s*,\\s*")) {
+                switch (split[0]) {
+                    case "SET" -> {
+                        String[] assignment = clause.split("\\s*=\\s*");
+                        if (assignment.length != 2) throw unsupported(expression);
+                        item.put(name(assignment[0], names), values.get(assignment[1]));
+                    }
+                    case "ADD" -> {
+                        String[] add = clause.split("\\s+");
+                        if (add.length != 2) throw unsupported(expression);
+                        String attr = name(add[0], names);
+                        AttributeValue current = item.get(attr);
+                        BigDecimal base = current != null ? new BigDecimal(current.n()) : BigDecimal.ZERO;
+                        BigDecimal sum = base.add(new BigDecimal(values.get(add[1]).n()));
+                        item.put(attr, AttributeValue.builder().n(sum.toPlainString()).build());
+                    }
+                    case "REMOVE" -> item.remove(name(clause, names));
+                    default -> throw unsupported(expression);
+                }
+            }
+        }
+    }
+
+    private static boolean evaluate(String condition, Map<String, AttributeValue> item,
+                                    Map<String, String> names, Map<String, AttributeValue> values) {
+        for (String disjunct : condition.split("\\s+OR\\s+")) {
+            boolean all = true;
+            for (String term : disjunct.split("\\s+AND\\s+")) {
+                all &= term(term.trim(), item, names, values);
+            }
+            if (all) return true;
+        }
+        return false;
+    }
+
+    private static boolean term(String term, Map<String, AttributeValue> item,
+                                Map<String, String> names, Map<String, AttributeValue> values) {
+        if (term.startsWith("attribute_exists(") && term.endsWith(")")) {
+            return item != null && item.containsKey(name(term.substring(17, term.length() - 1).trim(), names));
+        }
+        if (term.startsWith("attribute_not_exists(") && term.endsWith(")")) {
+            return item == null || !item.containsKey(name(term.substring(21, term.length() - 1).trim(), names));
+        }
+        String[] c = comparison(term);
+        AttributeValue left = item != null ? item.get(name(c[0], names)) : null;
+        AttributeValue right = values.get(c[2]);
+        if (left == null || right == null) return false;
+        int cmp = compare(left, right);
+        return switch (c[1]) {
+            case "=" -> cmp == 0;
+            case "<>" -> cmp != 0;
+            case "<" -> cmp < 0;
+            case "<=" -> cmp <= 0;
+            case ">" -> cmp > 0;
+            case ">=" -> cmp >= 0;
+            default -> throw unsupported(term);
+        };
+    }
+
+    private static String[] comparison(String term) {
+        String[] parts = term.trim().split("\\s+");
+        if (parts.length != 3) throw unsupported(term);
+        return parts;
+    }
+
+    private static int compare(AttributeValue a, AttributeValue b) {
+        if (a.n() != null && b.n() != null) return new BigDecimal(a.n()).compareTo(new BigDecimal(b.n()));
+        if (a.s() != null && b.s() != null) return a.s().compareTo(b.s());
+        if (a.bool() != null && b.bool() != null) return a.bool().compareTo(b.bool());
+        throw new UnsupportedOperationException("Cannot compare " + a + " with " + b);
+    }
+
+    private static String name(String token, Map<String, String> names) {
+        return token.startsWith("#") ? names.get(token) : token;
+    }
+
+    static int itemSize(Map<String, AttributeValue> item) {
+        int size = 0;
+        for (Map.Entry<String, AttributeValue> e : item.entrySet()) {
+            AttributeValue v = e.getValue();
+            size += e.getKey().length() + (v.s() != null ? v.s().length() : v.n() != null ? v.n().length()
+                    : v.b() != null ? v.b().asByteArrayUnsafe().length : 1);
+        }
+        return size;
+    }
+
+    private static UnsupportedOperationException unsupported(String expression) {
+        return new UnsupportedOperationException("Expression not supported by the in-memory fake: " + expression);
+    }
+}
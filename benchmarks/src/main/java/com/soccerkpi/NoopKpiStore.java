@@ -0,0 +1,109 @@
+package com.soccerkpi;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A backend that stores nothing, so a handler benchmark against it measures only the handler's own work
+ * (parsing, validation, response and log line) and its allocation.
+ */
+class NoopKpiStore implements KpiStore {
+
+    @Override
+    public void putGame(Handlers.Game game) {
+    }
+
+    @Override
+    public void createGame(Handlers.Game game) {
+    }
+
+    @Override
+    public Handlers.Game getGame(String gameId) {
+        return null;
+    }
+
+    @Override
+    public List<Handlers.Game> gamesForTeam(String team, String from, String to) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean putTemplate(Handlers.KpiTemplate template) {
+        return true;
+    }
+
+    @Override
+    public Handlers.KpiTemplate loadTemplate(String templateId, int version) {
+        return null;
+    }
+
+    @Override
+    public void putDefinitions(String gameId, List<Handlers.KpiDefinition> definitions) {
+    }
+
+    @Override
+    public List<Handlers.KpiDefinition> loadDefinitions(String gameId) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void recordEvent(String gameId, Handlers.KpiEvent event) {
+    }
+
+    @Override
+    public Map<String, Handlers.BatchEventResult> recordEvents(String gameId, List<Handlers.KpiEvent> events) {
+        Map<String, Handlers.BatchEventResult> results = new LinkedHashMap<>();
+        for (Handlers.KpiEvent e : events) {
+            results.put(e.getEventTimestamp(),
+                    Handlers.BatchEventResult.of(e.getClientEventId(), Handlers.BatchEventResult.CREATED, null));
+        }
+        return results;
+    }
+
+    @Override
+    public Iterable<Handlers.KpiEvent> events(String gameId, String afterTimestamp) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Handlers.KpiAggregate loadAggregate(String gameId) {
+        return null;
+    }
+
+    @Override
+    public void storeAggregate(String gameId, Handlers.KpiAggregate aggregate) {
+    }
+
+    @Override
+    public boolean storeAggregateIfAbsent(String gameId, Handlers.KpiAggregate aggregate) {
+        return true;
+    }
+
+    @Override
+    public void archiveEvents(String gameId, List<Handlers.KpiEvent> log, Handlers.KpiAggregate aggregate) {
+    }
+
+    @Override
+    public void closeAggregate(String gameId) {
+    }
+
+    @Override
+    public List<Handlers.KpiEvent> archivedEvents(String gameId) {
+        return null;
+    }
+
+    @Override
+    public void subscribe(String gameId, String connectionId) {
+    }
+
+    @Override
+    public void unsubscribe(String connectionId) {
+    }
+
+    @Override
+    public List<String> subscribers(String gameId) {
+        return Collections.emptyList();
+    }
+}
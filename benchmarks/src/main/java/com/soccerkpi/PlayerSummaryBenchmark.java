@@ -0,0 +1,80 @@
+package com.soccerkpi;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The player summary fold on its own: a 30-player roster and the 12 default KPIs, with every event credited to a
+ * player. {@code matrix} is the handler's {@link PlayerKpiMatrix}; {@code nestedMaps} is the per-player
+ * {@code HashMap<String, Integer>} merge it replaced, kept as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerSummaryBenchmark {
+
+    private static final String GAME_ID = "0b9c6a64-6f4e-4c55-9a43-3d2f1e8b7a10";
+    private static final int PLAYERS = 30;
+
+    @Param({"10000", "50000"})
+    public int events;
+
+    private List<Handlers.KpiDefinition> defs;
+    private List<Handlers.Player> roster;
+    private List<Handlers.KpiEvent> log;
+
+    @Setup
+    public void setUp() {
+        defs = Handlers.DefaultKpis.defaultKpisForGame(GAME_ID);
+        roster = new ArrayList<>(PLAYERS);
+        for (int p = 0; p < PLAYERS; p++) {
+            roster.add(new Handlers.Player("player-" + p, "Player " + p, p + 1));
+        }
+        Random random = new Random(42);
+        Instant start = Instant.parse("2024-01-01T15:00:00Z");
+        long spacingMillis = 90 * 60 * 1000L / events;
+        log = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            Handlers.KpiDefinition def = defs.get(random.nextInt(defs.size()));
+            String ts = EventTimestamps.format(start.plusMillis(i * spacingMillis));
+            // ids as decoded from an item: a fresh String per event, not the roster's instance
+            String playerId = new String(roster.get(random.nextInt(PLAYERS)).getPlayerId());
+            log.add(def.getType() == Handlers.KpiType.COUNTER
+                    ? new Handlers.KpiEvent(ts, def.getKpiId(), random.nextInt(10) == 0 ? -1 : 1, null, null, playerId)
+                    : new Handlers.KpiEvent(ts, def.getKpiId(), null, random.nextBoolean(), null, playerId));
+        }
+    }
+
+    @Benchmark
+    public Handlers.PlayerSummaryResponse matrix() {
+        PlayerKpiMatrix matrix = new PlayerKpiMatrix();
+        for (Handlers.KpiEvent e : log) {
+            matrix.add(e);
+        }
+        return matrix.toResponse(GAME_ID, roster, defs);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Integer>> nestedMaps() {
+        Map<String, Map<String, Integer>> totals = new HashMap<>();
+        for (Handlers.KpiEvent e : log) {
+            Map<String, Integer> player = totals.computeIfAbsent(e.getPlayerId(), id -> new HashMap<>());
+            if (e.getDelta() != null) {
+                player.merge(e.getKpiId(), e.getDelta(), Integer::sum);
+            } else {
+                player.put(e.getKpiId(), e.getToggleValue() ? 1 : 0);
+            }
+        }
+        return totals;
+    }
+}
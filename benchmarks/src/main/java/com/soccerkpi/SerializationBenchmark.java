@@ -0,0 +1,66 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON and logging pieces of a request on their own: tap body parsing (streaming fast path and the general
+ * databind read it replaced), response serialization, and the structured log line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final String GAME_ID = "bench-game";
+    private static final String COUNTER_BODY = "{\"kpiId\":\"shots_on_target\",\"delta\":1}";
+
+    private Handlers.GameSummaryResponse summary;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() {
+        stdout = Benchmarks.silenceStdout();
+        Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+        summary = new Handlers.GameSummaryResponse(GAME_ID,
+                aggregate.toSummaries(Handlers.DefaultKpis.defaultKpisForGame(GAME_ID)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public Handlers.RecordKpiEventRequest readTapRequest() throws Exception {
+        return Handlers.readTapRequest(COUNTER_BODY);
+    }
+
+    @Benchmark
+    public Handlers.RecordKpiEventRequest readTapRequestDatabind() throws Exception {
+        return Handlers.OBJECT_MAPPER.readValue(COUNTER_BODY, Handlers.RecordKpiEventRequest.class);
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPResponse jsonResponseSummary() {
+        return Handlers.jsonResponse(200, summary);
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPResponse jsonResponseMessage() {
+        return Handlers.jsonResponse(400, Collections.singletonMap("message", "kpiId is required"));
+    }
+
+    @Benchmark
+    public void logStructured() {
+        InvocationMetrics.start();   // so the line carries its embedded metrics, as in a handler
+        Handlers.logStructured("bench-request-id", "recordKpiEvent", GAME_ID, "ok", 200, 3, null, null);
+    }
+}
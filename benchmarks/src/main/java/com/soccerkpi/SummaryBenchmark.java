@@ -0,0 +1,103 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The summary path at different game sizes. foldEvents is the bare aggregation loop over already-read items;
+ * rebuildGameSummary adds reading the event log from the store (paged, for the DynamoDB fake) and the aggregate
+ * write, which is what GetGameSummaryHandler does when no aggregate exists yet. getGameSummary is the steady-state read of the
+ * stored aggregate and should stay flat as the event count grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SummaryBenchmark {
+
+    private static final String GAME_ID = "bench-game";
+
+    @Param({"100", "10000", "100000"})
+    public int events;
+
+    @Param({"dynamodb", "memory"})
+    public String store;
+
+    private final BenchmarkContext context = new BenchmarkContext();
+    private List<Map<String, AttributeValue>> items;
+    private List<Handlers.KpiDefinition> defs;
+    private APIGatewayV2HTTPEvent summaryEvent;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() {
+        stdout = Benchmarks.silenceStdout();
+        KpiStore backend = Benchmarks.store(store, InMemoryDynamoDb.withDefaultTables());
+        Handlers.useStore(backend);
+
+        defs = Handlers.DefaultKpis.defaultKpisForGame(GAME_ID);
+        backend.putDefinitions(GAME_ID, defs);
+
+        // a fixed seed keeps the mix of counters and toggles identical between runs
+        Random random = new Random(42);
+        Instant kickoff = Instant.parse("2024-01-01T15:00:00Z");
+        items = new ArrayList<>(events);
+        List<Handlers.KpiEvent> log = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            Handlers.KpiDefinition def = defs.get(random.nextInt(defs.size()));
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("gameId", s(GAME_ID));
+            item.put("eventTimestamp", s(kickoff.plusMillis(i * 50L).toString()));
+            item.put("kpiId", s(def.getKpiId()));
+            if (def.getType() == Handlers.KpiType.COUNTER) {
+                item.put("delta", AttributeValue.builder().n(random.nextInt(10) == 0 ? "-1" : "1").build());
+            } else {
+                item.put("toggleValue", AttributeValue.builder().bool(random.nextBoolean()).build());
+            }
+            items.add(item);
+            log.add(DynamoDbKpiStore.toEvent(item));
+        }
+        backend.recordEvents(GAME_ID, log);
+
+        summaryEvent = new APIGatewayV2HTTPEvent();
+        summaryEvent.setPathParameters(Collections.singletonMap("gameId", GAME_ID));
+        Handlers.rebuildGameSummary(summaryEvent, context);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public List<Handlers.KpiSummary> foldEvents() {
+        Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+        for (Map<String, AttributeValue> item : items) {
+            aggregate.applyEvent(item);
+        }
+        return aggregate.toSummaries(defs);
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPResponse rebuildGameSummary() {
+        return Handlers.rebuildGameSummary(summaryEvent, context);
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPResponse getGameSummary() {
+        return Handlers.getGameSummary(summaryEvent, context);
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole POST /games/{gameId}/events invocation per backend. With store=noop the result is the handler's own
+ * cost (parse, validate, timestamp, response, log line); gc.alloc.rate.norm there is the per-tap allocation
+ * budget to watch. The store is replaced every iteration so the heap does not grow with the invocation count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TapPathBenchmark {
+
+    private static final String GAME_ID = "bench-game";
+
+    @Param({"dynamodb", "memory", "noop"})
+    public String store;
+
+    private final BenchmarkContext context = new BenchmarkContext();
+    private APIGatewayV2HTTPEvent counterEvent;
+    private APIGatewayV2HTTPEvent toggleEvent;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() {
+        stdout = Benchmarks.silenceStdout();
+        counterEvent = tapEvent("{\"kpiId\":\"shots_on_target\",\"delta\":1}");
+        toggleEvent = tapEvent("{\"kpiId\":\"yellow_card\",\"toggleValue\":true}");
+    }
+
+    @Setup(Level.Iteration)
+    public void freshStore() {
+        Handlers.useStore(Benchmarks.store(store, InMemoryDynamoDb.withDefaultTables().discardWritesTo("kpi_events")));
+        // a warm container has the game's definitions cached, so a tap's kpiId check costs no read
+        Handlers.KPI_DEFINITION_CACHE.put(GAME_ID, Handlers.DefaultKpis.defaultKpisForGame(GAME_ID));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPResponse recordCounterEvent() {
+        return Handlers.recordKpiEvent(counterEvent, context);
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPResponse recordToggleEvent() {
+        return Handlers.recordKpiEvent(toggleEvent, context);
+    }
+
+    private static APIGatewayV2HTTPEvent tapEvent(String body) {
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setPathParameters(Collections.singletonMap("gameId", GAME_ID));
+        event.setBody(body);
+        return event;
+    }
+}
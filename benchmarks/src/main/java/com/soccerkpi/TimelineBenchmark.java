@@ -0,0 +1,63 @@
+package com.soccerkpi;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timeline fold on its own: a busy game's events over 90 minutes into one-minute buckets, then the
+ * column-oriented response serialized, which together are the timeline handler's work besides the event read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimelineBenchmark {
+
+    private static final String GAME_ID = "0b9c6a64-6f4e-4c55-9a43-3d2f1e8b7a10";
+
+    @Param({"1000", "10000"})
+    public int events;
+
+    private List<Handlers.KpiDefinition> defs;
+    private List<Handlers.KpiEvent> log;
+    private long kickoff;
+
+    @Setup
+    public void setUp() {
+        defs = Handlers.DefaultKpis.defaultKpisForGame(GAME_ID);
+        Random random = new Random(42);
+        Instant start = Instant.parse("2024-01-01T15:00:00Z");
+        kickoff = start.getEpochSecond();
+        long spacingMillis = 90 * 60 * 1000L / events;
+        log = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            Handlers.KpiDefinition def = defs.get(random.nextInt(defs.size()));
+            String ts = EventTimestamps.format(start.plusMillis(i * spacingMillis));
+            log.add(def.getType() == Handlers.KpiType.COUNTER
+                    ? new Handlers.KpiEvent(ts, def.getKpiId(), random.nextInt(10) == 0 ? -1 : 1, null, null)
+                    : new Handlers.KpiEvent(ts, def.getKpiId(), null, random.nextBoolean(), null));
+        }
+    }
+
+    @Benchmark
+    public Handlers.GameTimelineResponse fold() {
+        KpiTimeline timeline = new KpiTimeline(60, Handlers.MAX_TIMELINE_BUCKETS);
+        for (Handlers.KpiEvent e : log) {
+            timeline.add(e);
+        }
+        timeline.startAt(kickoff);
+        return timeline.toResponse(GAME_ID, defs);
+    }
+
+    @Benchmark
+    public String foldAndSerialize() throws Exception {
+        return Handlers.OBJECT_MAPPER.writeValueAsString(fold());
+    }
+}
@@ -16,112 +16,149 @@ resource "aws_apigatewayv2_stage" "default" {
   auto_deploy = true
 }
 
-resource "aws_lambda_permission" "api_invoke_create_game" {
-  statement_id  = "AllowAPIGatewayInvokeCreateGame"
+resource "aws_lambda_permission" "api_invoke_api" {
+  statement_id  = "AllowAPIGatewayInvokeApi"
   action        = "lambda:InvokeFunction"
-  function_name = aws_lambda_function.create_game.arn
+  function_name = aws_lambda_function.api.arn
   principal     = "apigateway.amazonaws.com"
   source_arn    = "${aws_apigatewayv2_api.http_api.execution_arn}/*/*"
 }
 
-resource "aws_lambda_permission" "api_invoke_get_kpi_definitions" {
-  statement_id  = "AllowAPIGatewayInvokeGetKpiDefinitions"
-  action        = "lambda:InvokeFunction"
-  function_name = aws_lambda_function.get_kpi_definitions.arn
-  principal     = "apigateway.amazonaws.com"
-  source_arn    = "${aws_apigatewayv2_api.http_api.execution_arn}/*/*"
-}
-
-resource "aws_lambda_permission" "api_invoke_record_kpi_event" {
-  statement_id  = "AllowAPIGatewayInvokeRecordKpiEvent"
-  action        = "lambda:InvokeFunction"
-  function_name = aws_lambda_function.record_kpi_event.arn
-  principal     = "apigateway.amazonaws.com"
-  source_arn    = "${aws_apigatewayv2_api.http_api.execution_arn}/*/*"
+# One integration for every route; Handlers::route dispatches on the routeKey, so each route below must have an
+# entry in its route table
+resource "aws_apigatewayv2_integration" "api" {
+  api_id                 = aws_apigatewayv2_api.http_api.id
+  integration_type       = "AWS_PROXY"
+  integration_uri        = aws_lambda_function.api.arn
+  integration_method     = "POST"
+  payload_format_version = "2.0"
 }
 
-resource "aws_lambda_permission" "api_invoke_get_game_summary" {
-  statement_id  = "AllowAPIGatewayInvokeGetGameSummary"
-  action        = "lambda:InvokeFunction"
-  function_name = aws_lambda_function.get_game_summary.arn
-  principal     = "apigateway.amazonaws.com"
-  source_arn    = "${aws_apigatewayv2_api.http_api.execution_arn}/*/*"
+resource "aws_apigatewayv2_route" "create_game" {
+  api_id    = aws_apigatewayv2_api.http_api.id
+  route_key = "POST /games"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_lambda_permission" "api_invoke_health" {
-  statement_id  = "AllowAPIGatewayInvokeHealth"
-  action        = "lambda:InvokeFunction"
-  function_name = aws_lambda_function.health.arn
-  principal     = "apigateway.amazonaws.com"
-  source_arn    = "${aws_apigatewayv2_api.http_api.execution_arn}/*/*"
+resource "aws_apigatewayv2_route" "create_kpi_template" {
+  api_id    = aws_apigatewayv2_api.http_api.id
+  route_key = "POST /kpi-templates"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_apigatewayv2_integration" "create_game" {
-  api_id                 = aws_apigatewayv2_api.http_api.id
-  integration_type        = "AWS_PROXY"
-  integration_uri         = aws_lambda_function.create_game.arn
-  integration_method      = "POST"
-  payload_format_version  = "2.0"
+resource "aws_apigatewayv2_route" "get_kpi_definitions" {
+  api_id    = aws_apigatewayv2_api.http_api.id
+  route_key = "GET /games/{gameId}/kpis"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_apigatewayv2_integration" "get_kpi_definitions" {
-  api_id                 = aws_apigatewayv2_api.http_api.id
-  integration_type        = "AWS_PROXY"
-  integration_uri         = aws_lambda_function.get_kpi_definitions.arn
-  integration_method      = "GET"
-  payload_format_version  = "2.0"
+resource "aws_apigatewayv2_route" "record_kpi_event" {
+  api_id    = aws_apigatewayv2_api.http_api.id
+  route_key = "POST /games/{gameId}/events"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_apigatewayv2_integration" "record_kpi_event" {
-  api_id                 = aws_apigatewayv2_api.http_api.id
-  integration_type        = "AWS_PROXY"
-  integration_uri         = aws_lambda_function.record_kpi_event.arn
-  integration_method      = "POST"
-  payload_format_version  = "2.0"
+resource "aws_apigatewayv2_route" "record_kpi_event_batch" {
+  api_id    = aws_apigatewayv2_api.http_api.id
+  route_key = "POST /games/{gameId}/events:batch"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_apigatewayv2_integration" "get_game_summary" {
-  api_id                 = aws_apigatewayv2_api.http_api.id
-  integration_type        = "AWS_PROXY"
-  integration_uri         = aws_lambda_function.get_game_summary.arn
-  integration_method      = "GET"
-  payload_format_version  = "2.0"
+resource "aws_apigatewayv2_route" "get_game_summary" {
+  api_id    = aws_apigatewayv2_api.http_api.id
+  route_key = "GET /games/{gameId}/summary"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_apigatewayv2_integration" "health" {
-  api_id                 = aws_apigatewayv2_api.http_api.id
-  integration_type        = "AWS_PROXY"
-  integration_uri         = aws_lambda_function.health.arn
-  integration_method      = "GET"
-  payload_format_version  = "2.0"
+resource "aws_apigatewayv2_route" "get_game_timeline" {
+  api_id    = aws_apigatewayv2_api.http_api.id
+  route_key = "GET /games/{gameId}/timeline"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_apigatewayv2_route" "create_game" {
+resource "aws_apigatewayv2_route" "get_player_summary" {
   api_id    = aws_apigatewayv2_api.http_api.id
-  route_key = "POST /games"
-  target    = "integrations/${aws_apigatewayv2_integration.create_game.id}"
+  route_key = "GET /games/{gameId}/players/summary"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_apigatewayv2_route" "get_kpi_definitions" {
+resource "aws_apigatewayv2_route" "rebuild_game_summary" {
   api_id    = aws_apigatewayv2_api.http_api.id
-  route_key = "GET /games/{gameId}/kpis"
-  target    = "integrations/${aws_apigatewayv2_integration.get_kpi_definitions.id}"
+  route_key = "POST /games/{gameId}/summary/rebuild"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_apigatewayv2_route" "record_kpi_event" {
+resource "aws_apigatewayv2_route" "finalize_game" {
   api_id    = aws_apigatewayv2_api.http_api.id
-  route_key = "POST /games/{gameId}/events"
-  target    = "integrations/${aws_apigatewayv2_integration.record_kpi_event.id}"
+  route_key = "POST /games/{gameId}/finalize"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
-resource "aws_apigatewayv2_route" "get_game_summary" {
+resource "aws_apigatewayv2_route" "get_team_season_summary" {
   api_id    = aws_apigatewayv2_api.http_api.id
-  route_key = "GET /games/{gameId}/summary"
-  target    = "integrations/${aws_apigatewayv2_integration.get_game_summary.id}"
+  route_key = "GET /teams/{team}/season-summary"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
 }
 
 resource "aws_apigatewayv2_route" "health" {
   api_id    = aws_apigatewayv2_api.http_api.id
   route_key = "GET /health"
-  target    = "integrations/${aws_apigatewayv2_integration.health.id}"
+  target    = "integrations/${aws_apigatewayv2_integration.api.id}"
+}
+
+# ----- Live updates (WebSocket) -----
+# Dashboards connect to wss://.../live?gameId=...; nothing is routed from clients, the API only pushes
+
+resource "aws_apigatewayv2_api" "live" {
+  name                       = "${var.project_name}-live"
+  protocol_type              = "WEBSOCKET"
+  route_selection_expression = "$request.body.action"
+}
+
+resource "aws_apigatewayv2_stage" "live" {
+  api_id      = aws_apigatewayv2_api.live.id
+  name        = "live"
+  auto_deploy = true
+}
+
+resource "aws_lambda_permission" "api_invoke_live_connect" {
+  statement_id  = "AllowAPIGatewayInvokeLiveConnect"
+  action        = "lambda:InvokeFunction"
+  function_name = aws_lambda_function.live_connect.arn
+  principal     = "apigateway.amazonaws.com"
+  source_arn    = "${aws_apigatewayv2_api.live.execution_arn}/*/*"
+}
+
+resource "aws_lambda_permission" "api_invoke_live_disconnect" {
+  statement_id  = "AllowAPIGatewayInvokeLiveDisconnect"
+  action        = "lambda:InvokeFunction"
+  function_name = aws_lambda_function.live_disconnect.arn
+  principal     = "apigateway.amazonaws.com"
+  source_arn    = "${aws_apigatewayv2_api.live.execution_arn}/*/*"
+}
+
+resource "aws_apigatewayv2_integration" "live_connect" {
+  api_id             = aws_apigatewayv2_api.live.id
+  integration_type   = "AWS_PROXY"
+  integration_uri    = aws_lambda_function.live_connect.invoke_arn
+  integration_method = "POST"
+}
+
+resource "aws_apigatewayv2_integration" "live_disconnect" {
+  api_id             = aws_apigatewayv2_api.live.id
+  integration_type   = "AWS_PROXY"
+  integration_uri    = aws_lambda_function.live_disconnect.invoke_arn
+  integration_method = "POST"
+}
+
+resource "aws_apigatewayv2_route" "live_connect" {
+  api_id    = aws_apigatewayv2_api.live.id
+  route_key = "$connect"
+  target    = "integrations/${aws_apigatewayv2_integration.live_connect.id}"
+}
+
+resource "aws_apigatewayv2_route" "live_disconnect" {
+  api_id    = aws_apigatewayv2_api.live.id
+  route_key = "$disconnect"
+  target    = "integrations/${aws_apigatewayv2_integration.live_disconnect.id}"
 }
@@ -9,6 +9,37 @@ resource "aws_dynamodb_table" "games" {
     type = "S"
   }
 
+  # Lower-cased team names (see Game.teamKey), written only when the team is set
+  attribute {
+    name = "homeTeamKey"
+    type = "S"
+  }
+
+  attribute {
+    name = "awayTeamKey"
+    type = "S"
+  }
+
+  attribute {
+    name = "kickoffIso"
+    type = "S"
+  }
+
+  # A team's games by kickoff, for the season summary; games without a kickoff are not indexed
+  global_secondary_index {
+    name            = "homeTeam-kickoff"
+    hash_key        = "homeTeamKey"
+    range_key       = "kickoffIso"
+    projection_type = "ALL"
+  }
+
+  global_secondary_index {
+    name            = "awayTeam-kickoff"
+    hash_key        = "awayTeamKey"
+    range_key       = "kickoffIso"
+    projection_type = "ALL"
+  }
+
   point_in_time_recovery {
     enabled = true
   }
@@ -46,6 +77,36 @@ resource "aws_dynamodb_table" "kpi_definitions" {
   }
 }
 
+# Named, versioned KPI sets shared by every game created from them; a version is written once and never changed
+resource "aws_dynamodb_table" "kpi_templates" {
+  name         = "${var.project_name}-kpi-templates"
+  billing_mode = "PAY_PER_REQUEST"
+
+  hash_key  = "templateId"
+  range_key = "version"
+
+  attribute {
+    name = "templateId"
+    type = "S"
+  }
+
+  attribute {
+    name = "version"
+    type = "N"
+  }
+
+  point_in_time_recovery {
+    enabled = true
+  }
+
+  tags = {
+    Project = var.project_name
+    Table   = "kpi_templates"
+  }
+}
+
+# With event_sharding the hash key holds gameId for shard 0 and gameId#N for the others, so one busy
+# game spreads its writes over several partitions. The key schema itself is unchanged.
 resource "aws_dynamodb_table" "kpi_events" {
   name         = "${var.project_name}-kpi-events"
   billing_mode = "PAY_PER_REQUEST"
@@ -63,6 +124,16 @@ resource "aws_dynamodb_table" "kpi_events" {
     type = "S"
   }
 
+  # New events feed the live-update consumer (push_live_updates)
+  stream_enabled   = true
+  stream_view_type = "NEW_IMAGE"
+
+  # Set on the events of a finalized game once they are archived in kpi_archives
+  ttl {
+    attribute_name = "expiresAt"
+    enabled        = true
+  }
+
   point_in_time_recovery {
     enabled = true
   }
@@ -72,3 +143,86 @@ resource "aws_dynamodb_table" "kpi_events" {
     Table   = "kpi_events"
   }
 }
+
+resource "aws_dynamodb_table" "kpi_aggregates" {
+  name         = "${var.project_name}-kpi-aggregates"
+  billing_mode = "PAY_PER_REQUEST"
+
+  hash_key = "gameId"
+
+  attribute {
+    name = "gameId"
+    type = "S"
+  }
+
+  point_in_time_recovery {
+    enabled = true
+  }
+
+  tags = {
+    Project = var.project_name
+    Table   = "kpi_aggregates"
+  }
+}
+
+resource "aws_dynamodb_table" "kpi_archives" {
+  name         = "${var.project_name}-kpi-archives"
+  billing_mode = "PAY_PER_REQUEST"
+
+  hash_key  = "gameId"
+  range_key = "part"
+
+  attribute {
+    name = "gameId"
+    type = "S"
+  }
+
+  attribute {
+    name = "part"
+    type = "N"
+  }
+
+  point_in_time_recovery {
+    enabled = true
+  }
+
+  tags = {
+    Project = var.project_name
+    Table   = "kpi_archives"
+  }
+}
+
+resource "aws_dynamodb_table" "live_connections" {
+  name         = "${var.project_name}-live-connections"
+  billing_mode = "PAY_PER_REQUEST"
+
+  hash_key = "connectionId"
+
+  attribute {
+    name = "connectionId"
+    type = "S"
+  }
+
+  attribute {
+    name = "gameId"
+    type = "S"
+  }
+
+  # The connections watching a game, read once per batch of new events
+  global_secondary_index {
+    name            = "gameId-connections"
+    hash_key        = "gameId"
+    projection_type = "KEYS_ONLY"
+  }
+
+  # Removes connections whose $disconnect never arrived
+  ttl {
+    attribute_name = "expiresAt"
+    enabled        = true
+  }
+
+  tags = {
+    Project = var.project_name
+    Table   = "live_connections"
+  }
+}
@@ -24,17 +24,49 @@ data "aws_iam_policy_document" "lambda_policy_doc" {
       "dynamodb:PutItem",
       "dynamodb:GetItem",
       "dynamodb:UpdateItem",
+      "dynamodb:DeleteItem",
+      "dynamodb:BatchWriteItem",
+      "dynamodb:ConditionCheckItem",
       "dynamodb:Query",
       "dynamodb:Scan"
     ]
 
     resources = [
       aws_dynamodb_table.games.arn,
+      "${aws_dynamodb_table.games.arn}/index/*",
       aws_dynamodb_table.kpi_definitions.arn,
-      aws_dynamodb_table.kpi_events.arn
+      aws_dynamodb_table.kpi_templates.arn,
+      aws_dynamodb_table.kpi_events.arn,
+      aws_dynamodb_table.kpi_aggregates.arn,
+      aws_dynamodb_table.kpi_archives.arn,
+      aws_dynamodb_table.live_connections.arn,
+      "${aws_dynamodb_table.live_connections.arn}/index/*"
     ]
   }
 
+  statement {
+    sid    = "AllowKpiEventsStream"
+    effect = "Allow"
+
+    actions = [
+      "dynamodb:DescribeStream",
+      "dynamodb:GetRecords",
+      "dynamodb:GetShardIterator",
+      "dynamodb:ListStreams"
+    ]
+
+    resources = [aws_dynamodb_table.kpi_events.stream_arn]
+  }
+
+  statement {
+    sid    = "AllowLivePush"
+    effect = "Allow"
+
+    actions = ["execute-api:ManageConnections"]
+
+    resources = ["${aws_apigatewayv2_api.live.execution_arn}/*"]
+  }
+
   statement {
     sid    = "AllowCloudWatchLogs"
     effect = "Allow"
@@ -1,108 +1,113 @@
 locals {
-  lambda_runtime = "java21"
+  # lambda_native switches every function to the GraalVM executable on the custom runtime (mvn -Pnative package)
+  lambda_runtime         = var.lambda_native ? "provided.al2023" : "java21"
+  lambda_package         = var.lambda_native ? var.lambda_native_zip_path : var.lambda_jar_path
+  lambda_memory_mb       = var.lambda_native ? 256 : 512
+  lambda_memory_mb_small = var.lambda_native ? 128 : 256
+
+  lambda_environment = {
+    GAMES_TABLE            = aws_dynamodb_table.games.name
+    KPI_DEFINITIONS_TABLE  = aws_dynamodb_table.kpi_definitions.name
+    KPI_TEMPLATES_TABLE    = aws_dynamodb_table.kpi_templates.name
+    KPI_EVENTS_TABLE       = aws_dynamodb_table.kpi_events.name
+    KPI_AGGREGATES_TABLE   = aws_dynamodb_table.kpi_aggregates.name
+    KPI_ARCHIVES_TABLE     = aws_dynamodb_table.kpi_archives.name
+    LIVE_CONNECTIONS_TABLE = aws_dynamodb_table.live_connections.name
+    EVENT_SHARDING         = tostring(var.event_sharding)
+    DEFAULT_EVENT_SHARDS   = tostring(var.default_event_shards)
+    EVENT_ITEM_FORMAT      = var.event_item_format
+  }
 }
 
-resource "aws_lambda_function" "create_game" {
-  function_name = "${var.project_name}-createGame"
+# Every HTTP route is served by this one function through Handlers::route, so taps, summaries and the rest share
+# warm containers: one cold start per container instead of one per route, and one JIT-warmed JVM and set of caches
+resource "aws_lambda_function" "api" {
+  function_name = "${var.project_name}-api"
   role          = aws_iam_role.lambda_role.arn
   runtime       = local.lambda_runtime
-  handler       = "com.soccerkpi.Handlers::createGame"
+  handler       = "com.soccerkpi.Handlers::route"
 
-  filename         = var.lambda_jar_path
-  source_code_hash = filebase64sha256(var.lambda_jar_path)
+  filename         = local.lambda_package
+  source_code_hash = filebase64sha256(local.lambda_package)
 
   environment {
-    variables = {
-      GAMES_TABLE           = aws_dynamodb_table.games.name
-      KPI_DEFINITIONS_TABLE = aws_dynamodb_table.kpi_definitions.name
-      KPI_EVENTS_TABLE      = aws_dynamodb_table.kpi_events.name
-    }
+    variables = local.lambda_environment
   }
 
-  memory_size = 512
-  timeout     = 15
+  memory_size = local.lambda_memory_mb
+  # the slowest route, finalizeGame, writes one BatchWriteItem per 25 events to set their TTL
+  timeout = 120
 }
 
-resource "aws_lambda_function" "get_kpi_definitions" {
-  function_name = "${var.project_name}-getKpiDefinitions"
+resource "aws_lambda_function" "live_connect" {
+  function_name = "${var.project_name}-liveConnect"
   role          = aws_iam_role.lambda_role.arn
   runtime       = local.lambda_runtime
-  handler       = "com.soccerkpi.Handlers::getKpiDefinitions"
+  handler       = "com.soccerkpi.Handlers::liveConnect"
 
-  filename         = var.lambda_jar_path
-  source_code_hash = filebase64sha256(var.lambda_jar_path)
+  filename         = local.lambda_package
+  source_code_hash = filebase64sha256(local.lambda_package)
 
   environment {
-    variables = {
-      GAMES_TABLE           = aws_dynamodb_table.games.name
-      KPI_DEFINITIONS_TABLE = aws_dynamodb_table.kpi_definitions.name
-      KPI_EVENTS_TABLE      = aws_dynamodb_table.kpi_events.name
-    }
+    variables = local.lambda_environment
   }
 
-  memory_size = 512
-  timeout     = 15
+  memory_size = local.lambda_memory_mb_small
+  timeout     = 10
 }
 
-resource "aws_lambda_function" "record_kpi_event" {
-  function_name = "${var.project_name}-recordKpiEvent"
+resource "aws_lambda_function" "live_disconnect" {
+  function_name = "${var.project_name}-liveDisconnect"
   role          = aws_iam_role.lambda_role.arn
   runtime       = local.lambda_runtime
-  handler       = "com.soccerkpi.Handlers::recordKpiEvent"
+  handler       = "com.soccerkpi.Handlers::liveDisconnect"
 
-  filename         = var.lambda_jar_path
-  source_code_hash = filebase64sha256(var.lambda_jar_path)
+  filename         = local.lambda_package
+  source_code_hash = filebase64sha256(local.lambda_package)
 
   environment {
-    variables = {
-      GAMES_TABLE           = aws_dynamodb_table.games.name
-      KPI_DEFINITIONS_TABLE = aws_dynamodb_table.kpi_definitions.name
-      KPI_EVENTS_TABLE      = aws_dynamodb_table.kpi_events.name
-    }
+    variables = local.lambda_environment
   }
 
-  memory_size = 512
-  timeout     = 15
+  memory_size = local.lambda_memory_mb_small
+  timeout     = 10
 }
 
-resource "aws_lambda_function" "get_game_summary" {
-  function_name = "${var.project_name}-getGameSummary"
+resource "aws_lambda_function" "push_live_updates" {
+  function_name = "${var.project_name}-pushLiveUpdates"
   role          = aws_iam_role.lambda_role.arn
   runtime       = local.lambda_runtime
-  handler       = "com.soccerkpi.Handlers::getGameSummary"
+  handler       = "com.soccerkpi.Handlers::pushLiveUpdates"
 
-  filename         = var.lambda_jar_path
-  source_code_hash = filebase64sha256(var.lambda_jar_path)
+  filename         = local.lambda_package
+  source_code_hash = filebase64sha256(local.lambda_package)
 
   environment {
-    variables = {
-      GAMES_TABLE           = aws_dynamodb_table.games.name
-      KPI_DEFINITIONS_TABLE = aws_dynamodb_table.kpi_definitions.name
-      KPI_EVENTS_TABLE      = aws_dynamodb_table.kpi_events.name
-    }
+    variables = merge(local.lambda_environment, {
+      # the management endpoint of the WebSocket stage: https:// instead of wss://
+      LIVE_CALLBACK_URL = replace(aws_apigatewayv2_stage.live.invoke_url, "wss://", "https://")
+    })
   }
 
-  memory_size = 512
-  timeout     = 20
+  memory_size = local.lambda_memory_mb
+  timeout     = 30
 }
 
-resource "aws_lambda_function" "health" {
-  function_name = "${var.project_name}-health"
-  role          = aws_iam_role.lambda_role.arn
-  runtime       = local.lambda_runtime
-  handler       = "com.soccerkpi.Handlers::health"
-
-  filename         = var.lambda_jar_path
-  source_code_hash = filebase64sha256(var.lambda_jar_path)
-
-  environment {
-    variables = {
-      GAMES_TABLE           = aws_dynamodb_table.games.name
-      KPI_DEFINITIONS_TABLE = aws_dynamodb_table.kpi_definitions.name
-      KPI_EVENTS_TABLE      = aws_dynamodb_table.kpi_events.name
+# New kpi_events items reach the live-update consumer within about a second; archive re-puts (MODIFY) and TTL
+# deletions (REMOVE) are filtered out before they cost an invocation
+resource "aws_lambda_event_source_mapping" "kpi_events_live" {
+  event_source_arn                   = aws_dynamodb_table.kpi_events.stream_arn
+  function_name                      = aws_lambda_function.push_live_updates.arn
+  starting_position                  = "LATEST"
+  batch_size                         = 100
+  maximum_batching_window_in_seconds = 0
+  maximum_retry_attempts             = 2
+  # live deltas are worthless once a minute old; dashboards resync from the summary
+  maximum_record_age_in_seconds = 60
+
+  filter_criteria {
+    filter {
+      pattern = jsonencode({ eventName = ["INSERT"] })
     }
   }
-
-  memory_size = 256
-  timeout     = 5
 }
@@ -0,0 +1,54 @@
+locals {
+  # Namespace and handler names as emitted in the Lambda log lines (Embedded Metric Format, see StructuredLog)
+  metrics_namespace = "SoccerKpi"
+  metric_handlers = [
+    "recordKpiEvent", "recordKpiEventBatch", "getGameSummary", "rebuildGameSummary",
+    "finalizeGame", "getGameTimeline", "getPlayerSummary", "getTeamSeasonSummary", "createGame", "createKpiTemplate",
+    "getKpiDefinitions",
+    "health",
+    "liveConnect", "liveDisconnect", "pushLiveUpdates",
+  ]
+}
+
+resource "aws_cloudwatch_dashboard" "api_latency" {
+  dashboard_name = "${var.project_name}-api-latency"
+
+  dashboard_body = jsonencode({
+    widgets = concat(
+      [for i, h in local.metric_handlers : {
+        type   = "metric"
+        x      = (i % 2) * 12
+        y      = floor(i / 2) * 6
+        width  = 12
+        height = 6
+        properties = {
+          title  = "${h} latency (ms)"
+          region = var.aws_region
+          period = 60
+          view   = "timeSeries"
+          metrics = [
+            [local.metrics_namespace, "Latency", "handler", h, { stat = "p50", label = "p50" }],
+            [".", ".", ".", ".", { stat = "p99", label = "p99" }],
+            [".", "DynamoDbLatency", ".", ".", { stat = "p99", label = "DynamoDB p99" }],
+            [".", "SerializationLatency", ".", ".", { stat = "p99", label = "serialization p99" }],
+          ]
+        }
+      }],
+      [{
+        type   = "metric"
+        x      = 0
+        y      = ceil(length(local.metric_handlers) / 2) * 6
+        width  = 24
+        height = 6
+        properties = {
+          title   = "Cold starts per minute"
+          region  = var.aws_region
+          period  = 60
+          view    = "timeSeries"
+          stacked = true
+          metrics = [for h in local.metric_handlers : [local.metrics_namespace, "ColdStart", "handler", h, { stat = "Sum", label = h }]]
+        }
+      }]
+    )
+  })
+}
@@ -2,3 +2,8 @@ output "http_api_url" {
   description = "Base URL of the HTTP API"
   value       = aws_apigatewayv2_api.http_api.api_endpoint
 }
+
+output "live_url" {
+  description = "WebSocket URL for live dashboard updates (NEXT_PUBLIC_LIVE_URL)"
+  value       = aws_apigatewayv2_stage.live.invoke_url
+}
@@ -21,3 +21,43 @@ variable "lambda_jar_path" {
   description = "Path to the built Lambda uber-jar"
   default     = "../lambda/target/lambda.jar"
 }
+
+variable "lambda_native" {
+  type        = bool
+  description = "Deploy the GraalVM native executable on provided.al2023 instead of the JAR on java21"
+  default     = false
+}
+
+variable "lambda_native_zip_path" {
+  type        = string
+  description = "Path to the native Lambda package (bootstrap + executable) built with mvn -Pnative package"
+  default     = "../lambda/target/lambda-native.zip"
+}
+
+variable "event_sharding" {
+  type        = bool
+  description = "Spread each game's kpi_events and kpi_aggregates items over eventShards partition keys (gameId, gameId#1, ...)"
+  default     = false
+}
+
+variable "default_event_shards" {
+  type        = number
+  description = "Event shards for games created without an explicit eventShards (1 keeps the single-partition layout)"
+  default     = 1
+
+  validation {
+    condition     = var.default_event_shards >= 1 && var.default_event_shards <= 16
+    error_message = "default_event_shards must be between 1 and 16."
+  }
+}
+
+variable "event_item_format" {
+  type        = string
+  description = "Layout of newly written kpi_events items: v1, v2 (short attributes, KPI ordinals) or v2-packed; all are readable"
+  default     = "v1"
+
+  validation {
+    condition     = contains(["v1", "v2", "v2-packed"], var.event_item_format)
+    error_message = "event_item_format must be v1, v2 or v2-packed."
+  }
+}
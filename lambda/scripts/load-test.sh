@@ -0,0 +1,17 @@
+#!/usr/bin/env bash
+# Runs many concurrent games against the handlers and prints per-route throughput and latency percentiles.
+#
+#   scripts/load-test.sh                                         # in-process, in-memory store, 200 games
+#   scripts/load-test.sh -Dload.games=50 -Dload.duration=30
+#   scripts/load-test.sh -Dload.target=http://localhost:8080     # LocalApiServer or a deployed API
+#
+# Every -D option is passed to the JVM; see LoadGenerator for the full list. In-process runs use the
+# in-memory store unless STORE_BACKEND is set (e.g. STORE_BACKEND=dynamodb with DYNAMODB_ENDPOINT for
+# DynamoDB Local). The full percentile distribution of each route is written to target/load-test/*.hgrm.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+mvn -q -B package -DskipTests
+mvn -q -B dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test.classpath
+STORE_BACKEND="${STORE_BACKEND:-memory}" \
+  java "$@" -cp "target/test-classes:target/lambda.jar:$(cat target/test.classpath)" com.soccerkpi.LoadGenerator
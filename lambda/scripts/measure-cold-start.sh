@@ -0,0 +1,18 @@
+#!/usr/bin/env bash
+# Measures time-to-first-response of fresh JVMs for one or more builds of the Lambda JAR.
+#
+#   scripts/measure-cold-start.sh                      # current tree only
+#   scripts/measure-cold-start.sh before=/tmp/old.jar  # compare with another build
+#
+# To build a "before" JAR from an earlier commit:
+#   git worktree add /tmp/before <commit> && (cd /tmp/before/lambda && mvn -q package -DskipTests)
+#   scripts/measure-cold-start.sh before=/tmp/before/lambda/target/lambda.jar
+#
+# PROBE_RUNS sets the number of JVMs per build (default 10). PROBE_SCENARIO=health measures Handlers.health,
+# which works for builds older than the DYNAMODB_ENDPOINT override; the default "tap" scenario records a
+# counter event against a stub DynamoDB served by the probe.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+mvn -q -B package -DskipTests
+java -Dprobe.runs="${PROBE_RUNS:-10}" -Dprobe.scenario="${PROBE_SCENARIO:-tap}" -cp target/test-classes:target/lambda.jar com.soccerkpi.ColdStartProbe "$@" after=target/lambda.jar
@@ -0,0 +1,98 @@
+package com.soccerkpi;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.http.ContentStreamProvider;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.http.auth.aws.signer.AwsV4HttpSigner;
+import software.amazon.awssdk.http.auth.spi.signer.SignedRequest;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Posts to API Gateway WebSocket connections: a SigV4-signed POST of the message to the stage's
+ * {@code @connections/{connectionId}} URL, which answers 410 once the client has gone. This is the one call the
+ * management API client would make, so its SDK module is not worth adding to the package.
+ */
+final class ApiGatewayLivePush implements LivePush {
+
+    private static final int GONE = 410;
+
+    private final SdkHttpClient http;
+    private final AwsCredentialsProvider credentials;
+    private final AwsV4HttpSigner signer = AwsV4HttpSigner.create();
+    private final URI callbackUrl;
+    private final String region;
+
+    ApiGatewayLivePush(SdkHttpClient http, AwsCredentialsProvider credentials, URI callbackUrl, String region) {
+        this.http = http;
+        this.credentials = credentials;
+        this.callbackUrl = callbackUrl;
+        this.region = region;
+    }
+
+    /** LIVE_CALLBACK_URL is the stage's https:// URL, e.g. https://abc123.execute-api.us-west-2.amazonaws.com/live. */
+    static ApiGatewayLivePush fromEnvironment() {
+        String callbackUrl = System.getenv("LIVE_CALLBACK_URL");
+        if (callbackUrl == null || callbackUrl.isEmpty()) {
+            throw new IllegalStateException("LIVE_CALLBACK_URL is not set");
+        }
+        return new ApiGatewayLivePush(UrlConnectionHttpClient.builder().build(), Handlers.credentialsFromEnvironment(),
+                URI.create(callbackUrl.replaceAll("/+$", "")), System.getenv().getOrDefault("AWS_REGION", "us-west-2"));
+    }
+
+    @Override
+    public boolean send(String connectionId, String message) {
+        SdkHttpFullRequest request = SdkHttpFullRequest.builder()
+                .method(SdkHttpMethod.POST)
+                .uri(URI.create(callbackUrl + "/@connections/" + URLEncoder.encode(connectionId, StandardCharsets.UTF_8)))
+                .putHeader("Content-Type", "application/json")
+                .build();
+        SignedRequest signed = signer.sign(r -> r
+                .identity(credentials.resolveCredentials())
+                .request(request)
+                .payload(payload(message))
+                .putProperty(AwsV4HttpSigner.SERVICE_SIGNING_NAME, "execute-api")
+                .putProperty(AwsV4HttpSigner.REGION_NAME, region));
+        try {
+            HttpExecuteResponse response = http.prepareRequest(HttpExecuteRequest.builder()
+                    .request(signed.request())
+                    .contentStreamProvider(signed.payload().orElse(null))
+                    .build()).call();
+            try {
+                int status = response.httpResponse().statusCode();
+                if (status == GONE) return false;
+                if (status / 100 != 2) {
+                    throw new IllegalStateException("Push to " + connectionId + " failed with HTTP " + status);
+                }
+                return true;
+            } finally {
+                // read to the end and closed, the connection can be kept alive for the next send
+                InputStream body = response.responseBody().orElse(null);
+                if (body != null) {
+                    try (body) {
+                        body.transferTo(OutputStream.nullOutputStream());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ContentStreamProvider payload(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return () -> new ByteArrayInputStream(bytes);
+    }
+}
@@ -0,0 +1,111 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The body formats a client can ask for. JSON is the default and the only format of error replies. Low-end phones
+ * can ask for Smile or CBOR with Accept (responses) and Content-Type (tap requests). Both are binary Jackson formats
+ * with the same data model, so every model class reads and writes unchanged. On the API Gateway side, binary bodies
+ * travel base64-encoded in both directions.
+ */
+enum BodyEncoding {
+    JSON("application/json"),
+    SMILE("application/x-jackson-smile"),
+    CBOR("application/cbor");
+
+    // The binary mappers are built on first use, so JSON-only traffic never loads their factories on a cold start
+    private static final class SmileHolder {
+        static final ObjectMapper MAPPER = binaryMapper(new ObjectMapper(new SmileFactory()));
+    }
+
+    private static final class CborHolder {
+        static final ObjectMapper MAPPER = binaryMapper(new ObjectMapper(new CBORFactory()));
+    }
+
+    final String contentType;
+    // the shared JSON headers with this format's Content-Type; Vary, because one URL now has several bodies
+    final Map<String, String> headers;
+
+    BodyEncoding(String contentType) {
+        this.contentType = contentType;
+        Map<String, String> h = new HashMap<>(Handlers.JSON_HEADERS);
+        h.put("Content-Type", contentType);
+        h.put("Vary", "Accept");
+        this.headers = Map.copyOf(h);
+    }
+
+    private static ObjectMapper binaryMapper(ObjectMapper mapper) {
+        return mapper
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    ObjectMapper mapper() {
+        return switch (this) {
+            case JSON -> Handlers.OBJECT_MAPPER;
+            case SMILE -> SmileHolder.MAPPER;
+            case CBOR -> CborHolder.MAPPER;
+        };
+    }
+
+    /**
+     * The format to answer in: the first binary format the Accept header names without q=0, otherwise JSON.
+     * Clients list JSON after it, so replies that are always JSON (errors, taps) still parse.
+     */
+    static BodyEncoding forResponse(APIGatewayV2HTTPEvent event) {
+        String accept = HttpCaching.header(event, "accept");
+        if (accept == null) return JSON;
+        for (String range : accept.split(",")) {
+            String r = range.trim().toLowerCase(Locale.ROOT);
+            int semi = r.indexOf(';');
+            String type = semi < 0 ? r : r.substring(0, semi).trim();
+            if (semi >= 0 && r.substring(semi).replace(" ", "").matches(";q=0(\\.0*)?")) continue;
+            if (type.equals(SMILE.contentType)) return SMILE;
+            if (type.equals(CBOR.contentType)) return CBOR;
+        }
+        return JSON;
+    }
+
+    /** The format of the request body, from its Content-Type; JSON when there is none. */
+    static BodyEncoding forRequest(APIGatewayV2HTTPEvent event) {
+        String contentType = HttpCaching.header(event, "content-type");
+        if (contentType == null) return JSON;
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith(SMILE.contentType)) return SMILE;
+        if (type.startsWith(CBOR.contentType)) return CBOR;
+        return JSON;
+    }
+
+    /** The raw request body; API Gateway base64-encodes binary bodies. */
+    static byte[] requestBytes(APIGatewayV2HTTPEvent event) {
+        String body = event.getBody();
+        if (body == null) return new byte[0];
+        return event.getIsBase64Encoded() ? Base64.getDecoder().decode(body) : body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    byte[] write(Object value) throws IOException {
+        return mapper().writeValueAsBytes(value);
+    }
+
+    <T> T read(byte[] body, Class<T> type) throws IOException {
+        return mapper().readValue(body, type);
+    }
+
+    /** This format's variant of an ETag, so caches never answer a Smile request with a stored JSON body. */
+    String etag(String etag) {
+        if (this == JSON) return etag;
+        return etag.substring(0, etag.length() - 1) + "-" + name().toLowerCase(Locale.ROOT) + "\"";
+    }
+}
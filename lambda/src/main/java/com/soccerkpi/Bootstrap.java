@@ -0,0 +1,138 @@
+package com.soccerkpi;
+
+import org.crac.Core;
+import org.crac.Resource;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Startup priming for the Lambda handlers.
+ *
+ * The first request in a fresh JVM otherwise pays for loading and linking Jackson's serializers for every
+ * model class and the SDK's request marshalling and signing pipeline. {@link #prime()} exercises those paths
+ * with sample data so the cost lands in the init phase (which Lambda runs with a full CPU allocation) instead
+ * of the first user request. It is also registered as a CRaC resource, so with SnapStart the primed state is
+ * captured in the snapshot.
+ *
+ * Environment:
+ *   PRIME_ON_INIT=false   skip priming during class initialization (beforeCheckpoint still primes)
+ *   PRIME_DYNAMODB=false  skip the no-op DynamoDB calls that warm the SDK marshalling and HTTP paths
+ */
+public final class Bootstrap implements Resource {
+
+    private static final Bootstrap INSTANCE = new Bootstrap();
+    private static volatile boolean primed;
+
+    private Bootstrap() {
+    }
+
+    /** Called from Handlers' static initializer. */
+    static void init() {
+        // INSTANCE keeps the resource strongly reachable; CRaC contexts may hold registrations weakly
+        Core.getGlobalContext().register(INSTANCE);
+        if (!"false".equalsIgnoreCase(System.getenv("PRIME_ON_INIT"))) {
+            prime();
+        }
+    }
+
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+        prime();
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+        // nothing to refresh: credentials are re-read per request by the SDK provider
+    }
+
+    /** Warms serialization and SDK paths once per JVM. Failures are ignored; priming is best effort. */
+    public static synchronized void prime() {
+        if (primed) return;
+        primed = true;
+        try {
+            primeSerialization();
+        } catch (Exception ignored) {
+            // a failed warm-up must never stop the function from starting
+        }
+        if (!"false".equalsIgnoreCase(System.getenv("PRIME_DYNAMODB"))) {
+            primeDynamoDb();
+        }
+    }
+
+    private static void primeSerialization() throws Exception {
+        String gameId = "prime";
+        List<Handlers.KpiDefinition> defs = Handlers.DefaultKpis.defaultKpisForGame(gameId);
+
+        Handlers.OBJECT_MAPPER.readValue("{\"homeTeam\":\"A\",\"awayTeam\":\"B\",\"kickoffIso\":\"2024-01-01T10:00:00Z\"}",
+                Handlers.CreateGameRequest.class);
+        Handlers.OBJECT_MAPPER.readValue("{\"kpiId\":\"goals\",\"delta\":1}", Handlers.RecordKpiEventRequest.class);
+        Handlers.OBJECT_MAPPER.readValue("{\"events\":[{\"clientEventId\":\"e1\",\"occurredAt\":\"2024-01-01T10:00:00Z\","
+                + "\"kpiId\":\"red_card\",\"toggleValue\":true}]}", Handlers.RecordKpiEventBatchRequest.class);
+
+        Handlers.jsonResponse(200, new Handlers.CreateGameResponse(gameId, defs));
+        Handlers.jsonResponse(200, Collections.singletonMap("kpis", defs));
+        Handlers.jsonResponse(200, Collections.singletonMap("status", "OK"));
+        Handlers.jsonResponse(200, new Handlers.RecordKpiEventBatchResponse(gameId,
+                List.of(Handlers.BatchEventResult.of("e1", Handlers.BatchEventResult.CREATED, null))));
+        Handlers.jsonResponse(400, Collections.singletonMap("message", "prime"));
+
+        Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+        Map<String, AttributeValue> event = new HashMap<>();
+        event.put("eventTimestamp", AttributeValue.builder().s("2024-01-01T10:00:00Z").build());
+        event.put("kpiId", AttributeValue.builder().s("goals").build());
+        event.put("delta", AttributeValue.builder().n("1").build());
+        aggregate.applyEvent(event);
+        Handlers.KpiAggregate restored = Handlers.KpiAggregate.fromItem(aggregate.toItem(gameId));
+        Handlers.jsonResponse(200, new Handlers.GameSummaryResponse(gameId, restored.toSummaries(defs)));
+    }
+
+    /**
+     * Issues one call per request type used on the hot paths, all against a key that never exists: GetItem,
+     * Query, and a PutItem and UpdateItem whose attribute_exists condition always fails, so nothing is written.
+     * This loads and JIT-warms each request marshaller, SigV4 signing, the HTTP client and response
+     * unmarshalling, and opens a pooled connection to DynamoDB.
+     */
+    private static void primeDynamoDb() {
+        String table = System.getenv("GAMES_TABLE");
+        if (Handlers.DDB == null || table == null || table.isEmpty()) return;
+        Map<String, AttributeValue> key = Collections.singletonMap("gameId", AttributeValue.builder().s("__prime__").build());
+        ignoreFailure(() -> Handlers.DDB.getItem(GetItemRequest.builder()
+                .tableName(table)
+                .key(key)
+                .build()));
+        ignoreFailure(() -> Handlers.DDB.query(QueryRequest.builder()
+                .tableName(table)
+                .keyConditionExpression("gameId = :g")
+                .expressionAttributeValues(Collections.singletonMap(":g", key.get("gameId")))
+                .build()));
+        ignoreFailure(() -> Handlers.DDB.putItem(PutItemRequest.builder()
+                .tableName(table)
+                .item(key)
+                .conditionExpression("attribute_exists(gameId)")
+                .build()));
+        ignoreFailure(() -> Handlers.DDB.updateItem(UpdateItemRequest.builder()
+                .tableName(table)
+                .key(key)
+                .updateExpression("ADD #p :one")
+                .conditionExpression("attribute_exists(gameId)")
+                .expressionAttributeNames(Collections.singletonMap("#p", "prime"))
+                .expressionAttributeValues(Collections.singletonMap(":one", AttributeValue.builder().n("1").build()))
+                .build()));
+    }
+
+    private static void ignoreFailure(Runnable call) {
+        try {
+            call.run();
+        } catch (Exception ignored) {
+            // expected (ConditionalCheckFailed), or no network/permissions at init; the first request warms itself
+        }
+    }
+}
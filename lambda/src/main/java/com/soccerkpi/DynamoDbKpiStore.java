@@ -0,0 +1,1116 @@
+package com.soccerkpi;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The production backend: one DynamoDB table each for games, KPI templates, events and aggregates, plus one
+ * for the compressed event logs of finalized games and one for live-update connections. Games created before
+ * templates keep their definitions in one more table, which is still read for them.
+ *
+ * Event sharding (EVENT_SHARDING=true): a game whose item has eventShards = N spreads its events and aggregate
+ * over the partition keys gameId, gameId#1 .. gameId#(N-1). Shard 0 is the plain gameId, so games created
+ * before sharding (no eventShards) read and write exactly as before. An event's shard is a hash of its
+ * eventTimestamp, so a replayed batch event hits the same item and is still recognized as a duplicate.
+ * Readers query every shard in parallel and merge: events by timestamp, aggregates by summing counters and
+ * keeping the newest toggle. N is cached per container for EVENT_SHARDS_CACHE_TTL_SECONDS; it may be raised
+ * on a live game, but never lowered, since events in the dropped shards would no longer be read.
+ */
+public class DynamoDbKpiStore implements KpiStore {
+
+    // TransactWriteItems allows 100 actions; one is reserved for the aggregate update
+    private static final int TRANSACT_CHUNK_EVENTS = 99;
+    private static final int MAX_BATCH_ATTEMPTS = 5;
+    private static final long BATCH_RETRY_BASE_MS = 50;
+    // BatchWriteItem takes at most 25 puts; archive parts stay well below the 400 KB item limit
+    private static final int BATCH_WRITE_ITEMS = 25;
+    private static final int ARCHIVE_PART_BYTES = 350 * 1024;
+    static final String HOME_TEAM_INDEX = "homeTeam-kickoff";
+    static final String AWAY_TEAM_INDEX = "awayTeam-kickoff";
+    static final String CONNECTIONS_BY_GAME_INDEX = "gameId-connections";
+    // API Gateway closes a WebSocket after 2 hours, so an item whose $disconnect was lost expires soon after
+    private static final long CONNECTION_TTL_SECONDS = 3 * 3600L;
+
+    private final DynamoDbClient ddb;
+    private final String gamesTable;
+    private final String kpiDefinitionsTable;
+    private final String kpiTemplatesTable;
+    private final String kpiEventsTable;
+    private final String kpiAggregatesTable;
+    private final String kpiArchivesTable;
+    private final String liveConnectionsTable;
+    private final long archivedEventTtlSeconds;
+    private final boolean eventSharding;
+    private final LruCache<String, Integer> shardCounts;
+    private final EventItems.Format eventFormat;
+
+    // shard queries of one read run side by side; each blocks on its own HTTP call
+    private static final ExecutorService SHARD_READS = Executors.newVirtualThreadPerTaskExecutor();
+
+    public DynamoDbKpiStore(DynamoDbClient ddb, String gamesTable, String kpiDefinitionsTable,
+                            String kpiEventsTable, String kpiAggregatesTable) {
+        this(ddb, gamesTable, kpiDefinitionsTable, "kpi_templates", kpiEventsTable, kpiAggregatesTable, "kpi_archives",
+                "live_connections", false, 0, EventItems.Format.V1, 7 * 24 * 3600L);
+    }
+
+    /**
+     * @param kpiTemplatesTable       shared KPI templates, keyed by templateId and version
+     * @param kpiArchivesTable        compressed event logs of finalized games
+     * @param liveConnectionsTable    open live-update connections, keyed by connectionId
+     * @param eventSharding           honour each game's eventShards; when false every game uses one partition
+     *                                and the games table is never read on the tap path
+     * @param shardCountTtlMillis     how long a container trusts a game's cached shard count
+     * @param eventFormat             layout of newly written event items; both layouts are always read
+     * @param archivedEventTtlSeconds how long a finalized game's original events are kept before TTL expiry
+     */
+    public DynamoDbKpiStore(DynamoDbClient ddb, String gamesTable, String kpiDefinitionsTable, String kpiTemplatesTable,
+                            String kpiEventsTable, String kpiAggregatesTable, String kpiArchivesTable,
+                            String liveConnectionsTable, boolean eventSharding, long shardCountTtlMillis, EventItems.Format eventFormat,
+                            long archivedEventTtlSeconds) {
+        this.ddb = ddb;
+        this.gamesTable = gamesTable;
+        this.kpiDefinitionsTable = kpiDefinitionsTable;
+        this.kpiTemplatesTable = kpiTemplatesTable;
+        this.kpiEventsTable = kpiEventsTable;
+        this.kpiAggregatesTable = kpiAggregatesTable;
+        this.kpiArchivesTable = kpiArchivesTable;
+        this.liveConnectionsTable = liveConnectionsTable;
+        this.archivedEventTtlSeconds = archivedEventTtlSeconds;
+        this.eventSharding = eventSharding;
+        this.shardCounts = new LruCache<>(eventSharding ? 1024 : 0, shardCountTtlMillis);
+        this.eventFormat = eventFormat;
+    }
+
+    /**
+     * Table names from GAMES_TABLE, KPI_DEFINITIONS_TABLE, KPI_TEMPLATES_TABLE, KPI_EVENTS_TABLE, KPI_AGGREGATES_TABLE,
+     * KPI_ARCHIVES_TABLE and LIVE_CONNECTIONS_TABLE. Terraform always sets these; the defaults only save exporting them for local runs and fakes.
+     * EVENT_SHARDING=true turns on per-game event shards; EVENT_SHARDS_CACHE_TTL_SECONDS (default 60) bounds
+     * how long a raised shard count takes to reach warm containers. EVENT_ITEM_FORMAT picks the event item
+     * layout (see {@link EventItems}). ARCHIVED_EVENT_TTL_DAYS (default 7) is how long a finalized game's raw
+     * events outlive its archive.
+     */
+    public static DynamoDbKpiStore fromEnvironment(DynamoDbClient ddb) {
+        return new DynamoDbKpiStore(ddb,
+                envString("GAMES_TABLE", "games"),
+                envString("KPI_DEFINITIONS_TABLE", "kpi_definitions"),
+                envString("KPI_TEMPLATES_TABLE", "kpi_templates"),
+                envString("KPI_EVENTS_TABLE", "kpi_events"),
+                envString("KPI_AGGREGATES_TABLE", "kpi_aggregates"),
+                envString("KPI_ARCHIVES_TABLE", "kpi_archives"),
+                envString("LIVE_CONNECTIONS_TABLE", "live_connections"),
+                "true".equalsIgnoreCase(System.getenv("EVENT_SHARDING")),
+                Long.parseLong(envString("EVENT_SHARDS_CACHE_TTL_SECONDS", "60")) * 1000L,
+                EventItems.formatFromEnvironment(),
+                Long.parseLong(envString("ARCHIVED_EVENT_TTL_DAYS", "7")) * 24 * 3600L);
+    }
+
+    // ----- Games -----
+
+    @Override
+    public void putGame(Handlers.Game game) {
+        ddb.putItem(PutItemRequest.builder()
+                .tableName(gamesTable)
+                .item(gameItem(game))
+                .build());
+        shardCounts.put(game.getGameId(), game.getEventShards() != null ? game.getEventShards() : 1);
+    }
+
+    /** One TransactWriteItems of the game item and an empty aggregate item per shard, at most MAX_EVENT_SHARDS + 1 puts. */
+    @Override
+    public void createGame(Handlers.Game game) {
+        int shards = eventSharding && game.getEventShards() != null ? Math.max(1, game.getEventShards()) : 1;
+        List<TransactWriteItem> actions = new ArrayList<>(shards + 1);
+        actions.add(TransactWriteItem.builder().put(Put.builder()
+                .tableName(gamesTable)
+                .item(gameItem(game))
+                .build()).build());
+        Handlers.KpiAggregate empty = new Handlers.KpiAggregate();
+        for (int shard = 0; shard < shards; shard++) {
+            actions.add(TransactWriteItem.builder().put(Put.builder()
+                    .tableName(kpiAggregatesTable)
+                    .item(empty.toItem(shardKey(game.getGameId(), shard)))
+                    .build()).build());
+        }
+        ddb.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(actions).build());
+        shardCounts.put(game.getGameId(), game.getEventShards() != null ? game.getEventShards() : 1);
+    }
+
+    private Map<String, AttributeValue> gameItem(Handlers.Game game) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("gameId", s(game.getGameId()));
+        // empty strings are not allowed in index keys, so a missing team is left out rather than stored as ""
+        putTeam(item, "homeTeam", game.getHomeTeam());
+        putTeam(item, "awayTeam", game.getAwayTeam());
+        if (game.getKickoffIso() != null) {
+            item.put("kickoffIso", s(game.getKickoffIso()));
+        }
+        item.put("status", s(game.getStatus()));
+        if (game.getEventShards() != null) {
+            item.put("eventShards", n(game.getEventShards()));
+        }
+        if (game.getRoster() != null && !game.getRoster().isEmpty()) {
+            item.put("roster", rosterAttribute(game.getRoster()));
+        }
+        if (game.getKpiTemplateId() != null) {
+            item.put("kpiTemplateId", s(game.getKpiTemplateId()));
+            item.put("kpiTemplateVersion", n(game.getKpiTemplateVersion()));
+        }
+        if (game.getKpiOverrides() != null && !game.getKpiOverrides().isEmpty()) {
+            item.put("kpiOverrides", definitionsAttribute(game.getKpiOverrides()));
+        }
+        return item;
+    }
+
+    @Override
+    public Handlers.Game getGame(String gameId) {
+        Map<String, AttributeValue> item = ddb.getItem(GetItemRequest.builder()
+                .tableName(gamesTable)
+                .key(Collections.singletonMap("gameId", s(gameId)))
+                .build()).item();
+        if (item == null || item.isEmpty()) return null;
+        return toGame(item);
+    }
+
+    private static Handlers.Game toGame(Map<String, AttributeValue> item) {
+        Handlers.Game game = new Handlers.Game(str(item, "gameId"), emptyToNull(str(item, "homeTeam")),
+                emptyToNull(str(item, "awayTeam")), str(item, "kickoffIso"), str(item, "status"));
+        AttributeValue shards = item.get("eventShards");
+        if (shards != null) {
+            game.setEventShards(Integer.valueOf(shards.n()));
+        }
+        AttributeValue roster = item.get("roster");
+        if (roster != null && roster.hasL()) {
+            game.setRoster(fromRosterAttribute(roster));
+        }
+        AttributeValue templateId = item.get("kpiTemplateId");
+        if (templateId != null) {
+            game.setKpiTemplateId(templateId.s());
+            game.setKpiTemplateVersion(Integer.valueOf(item.get("kpiTemplateVersion").n()));
+        }
+        AttributeValue overrides = item.get("kpiOverrides");
+        if (overrides != null && overrides.hasL()) {
+            game.setKpiOverrides(fromDefinitionsAttribute(overrides));
+        }
+        return game;
+    }
+
+    /** The roster as a list of maps: playerId (S), and name (S) and number (N) when the player has them. */
+    private static AttributeValue rosterAttribute(List<Handlers.Player> roster) {
+        List<AttributeValue> players = new ArrayList<>(roster.size());
+        for (Handlers.Player player : roster) {
+            Map<String, AttributeValue> m = new HashMap<>();
+            m.put("playerId", s(player.getPlayerId()));
+            if (player.getName() != null && !player.getName().isEmpty()) {
+                m.put("name", s(player.getName()));
+            }
+            if (player.getNumber() != null) {
+                m.put("number", n(player.getNumber()));
+            }
+            players.add(AttributeValue.builder().m(m).build());
+        }
+        return AttributeValue.builder().l(players).build();
+    }
+
+    private static List<Handlers.Player> fromRosterAttribute(AttributeValue roster) {
+        List<Handlers.Player> players = new ArrayList<>(roster.l().size());
+        for (AttributeValue p : roster.l()) {
+            Map<String, AttributeValue> m = p.m();
+            AttributeValue number = m.get("number");
+            players.add(new Handlers.Player(str(m, "playerId"), str(m, "name"),
+                    number != null ? Integer.valueOf(number.n()) : null));
+        }
+        return players;
+    }
+
+    /** Stores a team name and its normalized index key, or nothing for a game without that team. */
+    private static void putTeam(Map<String, AttributeValue> item, String attribute, String team) {
+        if (team == null || team.isBlank()) return;
+        item.put(attribute, s(team));
+        item.put(attribute + "Key", s(Handlers.Game.teamKey(team)));
+    }
+
+    /**
+     * Queries the homeTeam and awayTeam kickoff indexes side by side. Both project the whole game item,
+     * which is small, so no GetItem per game follows.
+     */
+    @Override
+    public List<Handlers.Game> gamesForTeam(String team, String from, String to) {
+        Future<List<Handlers.Game>> home = SHARD_READS.submit(InvocationMetrics.propagate(
+                () -> teamGames(HOME_TEAM_INDEX, "homeTeamKey", team, from, to)));
+        Future<List<Handlers.Game>> away = SHARD_READS.submit(InvocationMetrics.propagate(
+                () -> teamGames(AWAY_TEAM_INDEX, "awayTeamKey", team, from, to)));
+        Map<String, Handlers.Game> byId = new LinkedHashMap<>();
+        for (Handlers.Game g : join(home)) byId.put(g.getGameId(), g);
+        for (Handlers.Game g : join(away)) byId.putIfAbsent(g.getGameId(), g);
+        List<Handlers.Game> played = new ArrayList<>(byId.values());
+        played.sort(Comparator.comparing(Handlers.Game::getKickoffIso));
+        return played;
+    }
+
+    private List<Handlers.Game> teamGames(String index, String keyAttribute, String team, String from, String to) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":t", s(Handlers.Game.teamKey(team)));
+        String condition = keyAttribute + " = :t";
+        // "to" is an inclusive prefix: "2024-12-31" must still match kickoffs later that day
+        String upper = to != null ? to + "\uffff" : null;
+        if (from != null && upper != null) {
+            values.put(":from", s(from));
+            values.put(":to", s(upper));
+            condition += " AND kickoffIso BETWEEN :from AND :to";
+        } else if (from != null) {
+            values.put(":from", s(from));
+            condition += " AND kickoffIso >= :from";
+        } else if (upper != null) {
+            values.put(":to", s(upper));
+            condition += " AND kickoffIso <= :to";
+        }
+        List<Handlers.Game> games = new ArrayList<>();
+        for (Map<String, AttributeValue> item : ddb.queryPaginator(QueryRequest.builder()
+                .tableName(gamesTable)
+                .indexName(index)
+                .keyConditionExpression(condition)
+                .expressionAttributeValues(values)
+                .build()).items()) {
+            games.add(toGame(item));
+        }
+        return games;
+    }
+
+    /** What {@link #backfillGameIndexKeys} did: items read, items rewritten, and games whose kickoff it could not read. */
+    public record IndexBackfill(int scanned, int updated, List<String> unreadableKickoffs) {
+    }
+
+    /**
+     * Brings games written before the kickoff indexes up to what {@link #putGame} writes now: the homeTeamKey and
+     * awayTeamKey index keys, and kickoffIso as its {@link Handlers.Game#kickoffKey}. Scans the whole table and
+     * updates only the attributes that differ, so running it again is a no-op. A kickoff that is not an ISO-8601
+     * date-time with a zone is left as it is and reported.
+     */
+    public IndexBackfill backfillGameIndexKeys() {
+        int scanned = 0;
+        int updated = 0;
+        List<String> unreadable = new ArrayList<>();
+        for (Map<String, AttributeValue> item : ddb.scanPaginator(ScanRequest.builder()
+                .tableName(gamesTable)
+                .projectionExpression("gameId, homeTeam, awayTeam, homeTeamKey, awayTeamKey, kickoffIso")
+                .build()).items()) {
+            scanned++;
+            String gameId = str(item, "gameId");
+            Map<String, AttributeValue> values = new HashMap<>();
+            List<String> sets = new ArrayList<>();
+            for (String attribute : List.of("homeTeam", "awayTeam")) {
+                String team = str(item, attribute);
+                if (team == null || team.isBlank()) continue;
+                String key = Handlers.Game.teamKey(team);
+                if (!key.equals(str(item, attribute + "Key"))) {
+                    values.put(":" + attribute, s(key));
+                    sets.add(attribute + "Key = :" + attribute);
+                }
+            }
+            String kickoff = str(item, "kickoffIso");
+            if (kickoff != null) {
+                String key = Handlers.Game.kickoffKey(kickoff);
+                if (key == null) {
+                    unreadable.add(gameId);
+                } else if (!key.equals(kickoff)) {
+                    values.put(":kickoff", s(key));
+                    sets.add("kickoffIso = :kickoff");
+                }
+            }
+            if (sets.isEmpty()) continue;
+            try {
+                ddb.updateItem(UpdateItemRequest.builder()
+                        .tableName(gamesTable)
+                        .key(Collections.singletonMap("gameId", s(gameId)))
+                        .updateExpression("SET " + String.join(", ", sets))
+                        .conditionExpression("attribute_exists(gameId)")
+                        .expressionAttributeValues(values)
+                        .build());
+                updated++;
+            } catch (ConditionalCheckFailedException e) {
+                // deleted since the scan read it; nothing to index
+            }
+        }
+        return new IndexBackfill(scanned, updated, unreadable);
+    }
+
+    // ----- Live-update subscriptions -----
+
+    @Override
+    public void subscribe(String gameId, String connectionId) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("connectionId", s(connectionId));
+        item.put("gameId", s(gameId));
+        item.put("expiresAt", AttributeValue.builder()
+                .n(Long.toString(System.currentTimeMillis() / 1000 + CONNECTION_TTL_SECONDS)).build());
+        ddb.putItem(PutItemRequest.builder().tableName(liveConnectionsTable).item(item).build());
+    }
+
+    @Override
+    public void unsubscribe(String connectionId) {
+        ddb.deleteItem(DeleteItemRequest.builder()
+                .tableName(liveConnectionsTable)
+                .key(Collections.singletonMap("connectionId", s(connectionId)))
+                .build());
+    }
+
+    /** Reads the gameId index, which is eventually consistent: a connection made a moment ago may be missing. */
+    @Override
+    public List<String> subscribers(String gameId) {
+        List<String> connections = new ArrayList<>();
+        for (Map<String, AttributeValue> item : ddb.queryPaginator(QueryRequest.builder()
+                .tableName(liveConnectionsTable)
+                .indexName(CONNECTIONS_BY_GAME_INDEX)
+                .keyConditionExpression("gameId = :g")
+                .expressionAttributeValues(Collections.singletonMap(":g", s(gameId)))
+                .build()).items()) {
+            connections.add(item.get("connectionId").s());
+        }
+        return connections;
+    }
+
+    // ----- KPI definitions -----
+
+    /** A conditional put, so two clients storing the same version cannot overwrite each other's KPIs. */
+    @Override
+    public boolean putTemplate(Handlers.KpiTemplate template) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("templateId", s(template.getTemplateId()));
+        item.put("version", n(template.getVersion()));
+        item.put("kpis", definitionsAttribute(template.getKpis()));
+        try {
+            ddb.putItem(PutItemRequest.builder()
+                    .tableName(kpiTemplatesTable)
+                    .item(item)
+                    .conditionExpression("attribute_not_exists(templateId)")
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Handlers.KpiTemplate loadTemplate(String templateId, int version) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("templateId", s(templateId));
+        key.put("version", n(version));
+        Map<String, AttributeValue> item = ddb.getItem(GetItemRequest.builder()
+                .tableName(kpiTemplatesTable)
+                .key(key)
+                .build()).item();
+        if (item == null || item.isEmpty()) return null;
+        return new Handlers.KpiTemplate(templateId, version, fromDefinitionsAttribute(item.get("kpis")));
+    }
+
+    /** KPIs as a list of maps with kpiId, label, type and a derived KPI's expression (S), for templates and overrides. */
+    private static AttributeValue definitionsAttribute(List<Handlers.KpiDefinition> defs) {
+        List<AttributeValue> kpis = new ArrayList<>(defs.size());
+        for (Handlers.KpiDefinition def : defs) {
+            Map<String, AttributeValue> m = new HashMap<>();
+            m.put("kpiId", s(def.getKpiId()));
+            m.put("label", s(def.getLabel()));
+            m.put("type", s(def.getType().name()));
+            if (def.getExpression() != null) {
+                m.put("expression", s(def.getExpression()));
+            }
+            kpis.add(AttributeValue.builder().m(m).build());
+        }
+        return AttributeValue.builder().l(kpis).build();
+    }
+
+    private static List<Handlers.KpiDefinition> fromDefinitionsAttribute(AttributeValue kpis) {
+        List<Handlers.KpiDefinition> defs = new ArrayList<>(kpis.l().size());
+        for (AttributeValue kpi : kpis.l()) {
+            Map<String, AttributeValue> m = kpi.m();
+            defs.add(new Handlers.KpiDefinition(null, str(m, "kpiId"), str(m, "label"),
+                    Handlers.KpiType.valueOf(str(m, "type")), str(m, "expression")));
+        }
+        return defs;
+    }
+
+    @Override
+    public void putDefinitions(String gameId, List<Handlers.KpiDefinition> definitions) {
+        for (Handlers.KpiDefinition def : definitions) {
+            Map<String, AttributeValue> defItem = new HashMap<>();
+            defItem.put("gameId", s(gameId));
+            defItem.put("kpiId", s(def.getKpiId()));
+            defItem.put("label", s(def.getLabel()));
+            defItem.put("type", s(def.getType().name()));
+            if (def.getExpression() != null) {
+                defItem.put("expression", s(def.getExpression()));
+            }
+            ddb.putItem(PutItemRequest.builder()
+                    .tableName(kpiDefinitionsTable)
+                    .item(defItem)
+                    .build());
+        }
+    }
+
+    /**
+     * One GetItem on the game, whose template is then usually cached; only a game created before templates
+     * also queries its definition rows.
+     */
+    @Override
+    public List<Handlers.KpiDefinition> loadDefinitions(String gameId) {
+        List<Handlers.KpiDefinition> resolved = KpiTemplates.forGame(this, getGame(gameId));
+        if (resolved != null) return resolved;
+
+        QueryRequest query = QueryRequest.builder()
+                .tableName(kpiDefinitionsTable)
+                .keyConditionExpression("gameId = :g")
+                .expressionAttributeValues(Collections.singletonMap(":g", s(gameId)))
+                .build();
+
+        List<Handlers.KpiDefinition> defs = new ArrayList<>();
+        ddb.queryPaginator(query).items().forEach(it -> {
+            String kpiId = it.get("kpiId").s();
+            String label = it.get("label").s();
+            Handlers.KpiType type = Handlers.KpiType.valueOf(it.get("type").s());
+            defs.add(new Handlers.KpiDefinition(gameId, kpiId, label, type, str(it, "expression")));
+        });
+        return defs;
+    }
+
+    // ----- Events and aggregates -----
+
+    /**
+     * Updates the aggregate of the event's shard, then stores the event. In that order an event is only ever in the
+     * log once its shard's aggregate item exists, so a fold of a game that has no aggregate yet holds only events
+     * no aggregate has counted (see {@link #createMissingAggregate}).
+     */
+    @Override
+    public void recordEvent(String gameId, Handlers.KpiEvent event) {
+        String partition = shardKey(gameId, shardOf(event.getEventTimestamp(), shardCount(gameId)));
+        updateAggregate(gameId, partition, event);
+        ddb.putItem(PutItemRequest.builder()
+                .tableName(kpiEventsTable)
+                .item(eventItem(partition, event))
+                .build());
+    }
+
+    /**
+     * Writes the events in chunks of 99, each as a single transaction, then applies the newest inserted
+     * toggle per KPI with the same forward-only guard as single taps. A chunk that fails outright is reported
+     * per event rather than failing the call, since earlier chunks may already be committed.
+     */
+    @Override
+    public Map<String, Handlers.BatchEventResult> recordEvents(String gameId, List<Handlers.KpiEvent> events) {
+        Map<String, Handlers.KpiEvent> byKey = new LinkedHashMap<>();
+        Map<String, Handlers.BatchEventResult> results = new LinkedHashMap<>();
+        for (Handlers.KpiEvent e : events) {
+            byKey.put(e.getEventTimestamp(), e);
+            results.put(e.getEventTimestamp(),
+                    Handlers.BatchEventResult.of(e.getClientEventId(), Handlers.BatchEventResult.FAILED, null));
+        }
+
+        int shards = shardCount(gameId);
+        List<String> keys = new ArrayList<>(byKey.keySet());
+        for (int from = 0; from < keys.size(); from += TRANSACT_CHUNK_EVENTS) {
+            List<String> chunk = keys.subList(from, Math.min(from + TRANSACT_CHUNK_EVENTS, keys.size()));
+            try {
+                writeBatchChunk(gameId, shards, chunk, byKey, results);
+            } catch (SdkException chunkFailure) {
+                markUnwritten(chunk, results, "Not written: " + chunkFailure.getMessage());
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                markUnwritten(keys.subList(from, keys.size()), results, "Not written: interrupted");
+                break;
+            }
+        }
+
+        Map<String, Handlers.KpiEvent> latestToggles = new HashMap<>();
+        for (String key : keys) {
+            Handlers.KpiEvent e = byKey.get(key);
+            if (e.getToggleValue() == null || !Handlers.BatchEventResult.CREATED.equals(results.get(key).getStatus())) continue;
+            Handlers.KpiEvent previous = latestToggles.get(e.getKpiId());
+            if (previous == null || EventTimestamps.compare(previous.getEventTimestamp(), key) < 0) {
+                latestToggles.put(e.getKpiId(), e);
+            }
+        }
+        for (Handlers.KpiEvent toggle : latestToggles.values()) {
+            updateAggregate(gameId, shardKey(gameId, shardOf(toggle.getEventTimestamp(), shards)), toggle);
+        }
+        return results;
+    }
+
+    @Override
+    public Iterable<Handlers.KpiEvent> events(String gameId, String afterTimestamp) {
+        int shards = shardCount(gameId);
+        if (shards == 1) {
+            return shardEvents(gameId, afterTimestamp);
+        }
+        return () -> {
+            List<Iterator<Handlers.KpiEvent>> heads = new ArrayList<>(shards);
+            List<Future<Boolean>> firstPages = new ArrayList<>(shards);
+            for (int shard = 0; shard < shards; shard++) {
+                Iterator<Handlers.KpiEvent> it = shardEvents(shardKey(gameId, shard), afterTimestamp).iterator();
+                heads.add(it);
+                // hasNext() fetches the first page; later pages are fetched as the merge drains each shard
+                firstPages.add(SHARD_READS.submit(InvocationMetrics.propagate(it::hasNext)));
+            }
+            for (Future<Boolean> page : firstPages) {
+                join(page);
+            }
+            return new MergedEvents(heads);
+        };
+    }
+
+    private Iterable<Handlers.KpiEvent> shardEvents(String partition, String afterTimestamp) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":g", s(partition));
+        QueryRequest.Builder query = QueryRequest.builder().tableName(kpiEventsTable);
+        if (afterTimestamp != null) {
+            values.put(":c", s(afterTimestamp));
+            query.keyConditionExpression("gameId = :g AND eventTimestamp > :c");
+        } else {
+            query.keyConditionExpression("gameId = :g");
+        }
+        // pages are fetched as the caller iterates, so a fold never holds more than one page of raw items
+        var items = ddb.queryPaginator(query
+                .projectionExpression(EventItems.READ_PROJECTION)
+                .expressionAttributeValues(values)
+                .build()).items();
+        return () -> items.stream().map(DynamoDbKpiStore::toEvent).iterator();
+    }
+
+    @Override
+    public Handlers.KpiAggregate loadAggregate(String gameId) {
+        int shards = shardCount(gameId);
+        if (shards == 1) {
+            return loadAggregateItem(gameId);
+        }
+        List<Future<Handlers.KpiAggregate>> reads = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            String partition = shardKey(gameId, shard);
+            reads.add(SHARD_READS.submit(InvocationMetrics.propagate(() -> loadAggregateItem(partition))));
+        }
+        Handlers.KpiAggregate merged = null;
+        for (Future<Handlers.KpiAggregate> read : reads) {
+            Handlers.KpiAggregate part = join(read);
+            if (part == null) continue;
+            if (merged == null) merged = new Handlers.KpiAggregate();
+            merged.merge(part);
+        }
+        return merged;
+    }
+
+    private Handlers.KpiAggregate loadAggregateItem(String partition) {
+        Map<String, AttributeValue> item = ddb.getItem(GetItemRequest.builder()
+                .tableName(kpiAggregatesTable)
+                .key(Collections.singletonMap("gameId", s(partition)))
+                .build()).item();
+        if (item == null || item.isEmpty()) return null;
+        return Handlers.KpiAggregate.fromItem(item);
+    }
+
+    @Override
+    public void storeAggregate(String gameId, Handlers.KpiAggregate aggregate) {
+        ddb.putItem(PutItemRequest.builder()
+                .tableName(kpiAggregatesTable)
+                .item(aggregate.toItem(gameId))
+                .build());
+        // the whole total lives in shard 0 now; the other shard items start again from zero, closed if shard 0 is
+        Handlers.KpiAggregate empty = new Handlers.KpiAggregate();
+        if (aggregate.isClosed()) empty.markClosed();
+        int shards = shardCount(gameId);
+        for (int shard = 1; shard < shards; shard++) {
+            ddb.putItem(PutItemRequest.builder()
+                    .tableName(kpiAggregatesTable)
+                    .item(empty.toItem(shardKey(gameId, shard)))
+                    .build());
+        }
+    }
+
+    /**
+     * A conditional put of shard 0. For a sharded game the put is one transaction with a check that no other shard
+     * item exists either, since readers sum the shards and a tap may have created any of them.
+     */
+    @Override
+    public boolean storeAggregateIfAbsent(String gameId, Handlers.KpiAggregate aggregate) {
+        int shards = shardCount(gameId);
+        Map<String, AttributeValue> item = aggregate.toItem(gameId);
+        if (shards == 1) {
+            try {
+                ddb.putItem(PutItemRequest.builder()
+                        .tableName(kpiAggregatesTable)
+                        .item(item)
+                        .conditionExpression("attribute_not_exists(gameId)")
+                        .build());
+                return true;
+            } catch (ConditionalCheckFailedException e) {
+                return false;
+            }
+        }
+        List<TransactWriteItem> actions = new ArrayList<>(shards);
+        actions.add(TransactWriteItem.builder().put(Put.builder()
+                .tableName(kpiAggregatesTable)
+                .item(item)
+                .conditionExpression("attribute_not_exists(gameId)")
+                .build()).build());
+        for (int shard = 1; shard < shards; shard++) {
+            actions.add(TransactWriteItem.builder().conditionCheck(ConditionCheck.builder()
+                    .tableName(kpiAggregatesTable)
+                    .key(Collections.singletonMap("gameId", s(shardKey(gameId, shard))))
+                    .conditionExpression("attribute_not_exists(gameId)")
+                    .build()).build());
+        }
+        try {
+            ddb.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(actions).build());
+            return true;
+        } catch (TransactionCanceledException cancelled) {
+            List<CancellationReason> reasons = cancelled.cancellationReasons();
+            if (reasons != null && reasons.stream().anyMatch(r -> "ConditionalCheckFailed".equals(r.code()))) {
+                return false;
+            }
+            throw cancelled;
+        }
+    }
+
+    /**
+     * Sets "closed" on every shard's aggregate item, creating the ones that do not exist yet. Tap and batch
+     * updates are conditional on its absence, so a tap either lands before its shard is closed, and is counted,
+     * or is refused.
+     */
+    @Override
+    public void closeAggregate(String gameId) {
+        int shards = shardCount(gameId);
+        for (int shard = 0; shard < shards; shard++) {
+            ddb.updateItem(UpdateItemRequest.builder()
+                    .tableName(kpiAggregatesTable)
+                    .key(Collections.singletonMap("gameId", s(shardKey(gameId, shard))))
+                    .updateExpression("SET #cl = :t")
+                    .expressionAttributeNames(Collections.singletonMap("#cl", Handlers.KpiAggregate.CLOSED))
+                    .expressionAttributeValues(Collections.singletonMap(":t", AttributeValue.builder().bool(true).build()))
+                    .build());
+        }
+    }
+
+    /**
+     * Writes the archive as numbered parts (gameId, part) in KPI_ARCHIVES_TABLE, then re-puts every event with an
+     * expiresAt attribute for the table's TTL, then the aggregate with its final summary. Every step is an
+     * idempotent put, so a repeated call after a failure converges on the same items.
+     */
+    @Override
+    public void archiveEvents(String gameId, List<Handlers.KpiEvent> log, Handlers.KpiAggregate aggregate) {
+        byte[] archive = EventArchive.encode(log);
+        int parts = Math.max(1, (archive.length + ARCHIVE_PART_BYTES - 1) / ARCHIVE_PART_BYTES);
+        for (int part = 0; part < parts; part++) {
+            int from = part * ARCHIVE_PART_BYTES;
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("gameId", s(gameId));
+            item.put("part", n(part));
+            item.put("parts", n(parts));
+            item.put("events", n(log.size()));
+            item.put("data", AttributeValue.builder().b(SdkBytes.fromByteArray(
+                    Arrays.copyOfRange(archive, from, Math.min(from + ARCHIVE_PART_BYTES, archive.length)))).build());
+            ddb.putItem(PutItemRequest.builder().tableName(kpiArchivesTable).item(item).build());
+        }
+
+        AttributeValue expiresAt = AttributeValue.builder()
+                .n(Long.toString(System.currentTimeMillis() / 1000 + archivedEventTtlSeconds)).build();
+        int shards = shardCount(gameId);
+        List<WriteRequest> puts = new ArrayList<>(BATCH_WRITE_ITEMS);
+        for (Handlers.KpiEvent e : log) {
+            Map<String, AttributeValue> item = eventItem(shardKey(gameId, shardOf(e.getEventTimestamp(), shards)), e);
+            item.put("expiresAt", expiresAt);
+            puts.add(WriteRequest.builder().putRequest(r -> r.item(item)).build());
+            if (puts.size() == BATCH_WRITE_ITEMS) {
+                batchWrite(kpiEventsTable, puts);
+                puts = new ArrayList<>(BATCH_WRITE_ITEMS);
+            }
+        }
+        if (!puts.isEmpty()) {
+            batchWrite(kpiEventsTable, puts);
+        }
+
+        storeAggregate(gameId, aggregate);
+    }
+
+    /** Queries the parts in order and decodes them as one blob; a game with parts missing has no archive yet. */
+    @Override
+    public List<Handlers.KpiEvent> archivedEvents(String gameId) {
+        var items = ddb.queryPaginator(QueryRequest.builder()
+                .tableName(kpiArchivesTable)
+                .keyConditionExpression("gameId = :g")
+                .expressionAttributeValues(Collections.singletonMap(":g", s(gameId)))
+                .build()).items();
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        int parts = 0;
+        int expected = -1;
+        for (Map<String, AttributeValue> item : items) {
+            expected = Integer.parseInt(item.get("parts").n());
+            archive.writeBytes(item.get("data").b().asByteArrayUnsafe());
+            parts++;
+        }
+        if (parts == 0 || parts != expected) return null;
+        return EventArchive.decode(archive.toByteArray());
+    }
+
+    /** One BatchWriteItem, retrying unprocessed items with the same backoff as batch event writes. */
+    private void batchWrite(String table, List<WriteRequest> requests) {
+        List<WriteRequest> pending = requests;
+        for (int attempt = 1; ; attempt++) {
+            BatchWriteItemResponse response = ddb.batchWriteItem(BatchWriteItemRequest.builder()
+                    .requestItems(Map.of(table, pending))
+                    .build());
+            List<WriteRequest> unprocessed = response.unprocessedItems().getOrDefault(table, List.of());
+            if (unprocessed.isEmpty()) return;
+            if (attempt >= MAX_BATCH_ATTEMPTS) {
+                throw new IllegalStateException(unprocessed.size() + " items of " + table + " left unprocessed");
+            }
+            try {
+                Thread.sleep(BATCH_RETRY_BASE_MS << (attempt - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing " + table, e);
+            }
+            pending = unprocessed;
+        }
+    }
+
+    // ----- Shards -----
+
+    /** A game's event shard count: 1 unless sharding is on and its game item says otherwise. */
+    int shardCount(String gameId) {
+        if (!eventSharding) return 1;
+        Integer cached = shardCounts.get(gameId);
+        if (cached != null) return cached;
+        Map<String, AttributeValue> item = ddb.getItem(GetItemRequest.builder()
+                .tableName(gamesTable)
+                .key(Collections.singletonMap("gameId", s(gameId)))
+                .projectionExpression("eventShards")
+                .build()).item();
+        AttributeValue shards = item != null ? item.get("eventShards") : null;
+        int count = shards != null ? Math.max(1, Integer.parseInt(shards.n())) : 1;
+        shardCounts.put(gameId, count);
+        return count;
+    }
+
+    /** Partition key of one shard; shard 0 is the plain gameId used before sharding existed. */
+    static String shardKey(String gameId, int shard) {
+        return shard == 0 ? gameId : gameId + "#" + shard;
+    }
+
+    static int shardOf(String eventTimestamp, int shards) {
+        return shards == 1 ? 0 : Math.floorMod(eventTimestamp.hashCode(), shards);
+    }
+
+    private static <T> T join(Future<T> read) {
+        try {
+            return read.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading shards", e);
+        }
+    }
+
+    /** Merges per-shard event streams, each already in eventTimestamp order, into one ordered stream. */
+    private static final class MergedEvents implements Iterator<Handlers.KpiEvent> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(
+                Comparator.comparing((Head h) -> h.next.getEventTimestamp(), EventTimestamps::compare));
+
+        private static final class Head {
+            final Iterator<Handlers.KpiEvent> rest;
+            Handlers.KpiEvent next;
+
+            Head(Iterator<Handlers.KpiEvent> rest) {
+                this.rest = rest;
+                this.next = rest.next();
+            }
+        }
+
+        MergedEvents(List<Iterator<Handlers.KpiEvent>> shards) {
+            for (Iterator<Handlers.KpiEvent> shard : shards) {
+                if (shard.hasNext()) heads.add(new Head(shard));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Handlers.KpiEvent next() {
+            Head head = heads.poll();
+            if (head == null) throw new NoSuchElementException();
+            Handlers.KpiEvent event = head.next;
+            if (head.rest.hasNext()) {
+                head.next = head.rest.next();
+                heads.add(head);
+            }
+            return event;
+        }
+    }
+
+    /**
+     * Writes one chunk as a single transaction: a conditional Put per event plus one UpdateItem that ADDs
+     * the chunk's counter deltas to the aggregate. Events that already exist cancel the transaction with
+     * ConditionalCheckFailed; they are marked DUPLICATE and the rest is retried, so the aggregate only
+     * ever counts events that were actually inserted. The update requires the aggregate item to exist, like a
+     * single tap's; a chunk cancelled for lack of one creates it and is retried. A chunk without counter deltas
+     * checks the item instead, so that a closed aggregate refuses every chunk.
+     */
+    private void writeBatchChunk(String gameId, int shards, List<String> chunk, Map<String, Handlers.KpiEvent> byKey,
+                                 Map<String, Handlers.BatchEventResult> results) throws InterruptedException {
+        List<String> pending = new ArrayList<>(chunk);
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            List<TransactWriteItem> actions = new ArrayList<>(pending.size() + 1);
+            Map<String, Integer> counterDeltas = new TreeMap<>();
+            for (String key : pending) {
+                Handlers.KpiEvent e = byKey.get(key);
+                actions.add(TransactWriteItem.builder().put(Put.builder()
+                        .tableName(kpiEventsTable)
+                        .item(eventItem(shardKey(gameId, shardOf(key, shards)), e))
+                        .conditionExpression("attribute_not_exists(eventTimestamp)")
+                        .build()).build());
+                if (e.getDelta() != null) {
+                    counterDeltas.merge(e.getKpiId(), e.getDelta(), Integer::sum);
+                }
+            }
+            counterDeltas.values().removeIf(d -> d == 0);
+            // any shard's aggregate item will do, since readers sum them; the first event's keeps it spread out
+            String aggregatePartition = shardKey(gameId, shardOf(pending.get(0), shards));
+            if (!counterDeltas.isEmpty()) {
+                actions.add(TransactWriteItem.builder().update(aggregateCounterUpdate(aggregatePartition, counterDeltas)).build());
+            } else {
+                actions.add(TransactWriteItem.builder().conditionCheck(ConditionCheck.builder()
+                        .tableName(kpiAggregatesTable)
+                        .key(Collections.singletonMap("gameId", s(aggregatePartition)))
+                        .conditionExpression("attribute_not_exists(#cl)")
+                        .expressionAttributeNames(Collections.singletonMap("#cl", Handlers.KpiAggregate.CLOSED))
+                        .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                        .build()).build());
+            }
+
+            try {
+                ddb.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(actions).build());
+                for (String key : pending) {
+                    results.get(key).setStatus(Handlers.BatchEventResult.CREATED);
+                }
+                return;
+            } catch (TransactionCanceledException cancelled) {
+                List<CancellationReason> reasons = cancelled.cancellationReasons();
+                CancellationReason aggregateReason = reasons != null && reasons.size() > pending.size()
+                        ? reasons.get(pending.size()) : null;
+                if (aggregateReason != null && "ConditionalCheckFailed".equals(aggregateReason.code())) {
+                    if (aggregateReason.hasItem() && aggregateReason.item().containsKey(Handlers.KpiAggregate.CLOSED)) {
+                        throw new GameClosedException(gameId);
+                    }
+                    if (attempt < MAX_BATCH_ATTEMPTS) {
+                        // no event was written; with the aggregate in place the same chunk goes again
+                        createMissingAggregate(gameId, aggregatePartition);
+                        continue;
+                    }
+                }
+                List<String> retry = new ArrayList<>();
+                boolean retryable = false;
+                for (int i = 0; i < pending.size(); i++) {
+                    String code = reasons != null && i < reasons.size() ? reasons.get(i).code() : null;
+                    if ("ConditionalCheckFailed".equals(code)) {
+                        results.get(pending.get(i)).setStatus(Handlers.BatchEventResult.DUPLICATE);
+                    } else {
+                        retry.add(pending.get(i));
+                    }
+                }
+                if (reasons != null) {
+                    for (CancellationReason r : reasons) {
+                        String code = r.code();
+                        if ("TransactionConflict".equals(code) || "ThrottlingError".equals(code)
+                                || "ProvisionedThroughputExceeded".equals(code)) {
+                            retryable = true;
+                        }
+                    }
+                }
+                boolean removedDuplicates = retry.size() < pending.size();
+                if ((!retryable && !removedDuplicates) || attempt >= MAX_BATCH_ATTEMPTS) {
+                    markUnwritten(retry, results, "Not written: " + cancelled.getMessage());
+                    return;
+                }
+                if (retryable) {
+                    Thread.sleep(BATCH_RETRY_BASE_MS << (attempt - 1));
+                }
+                pending = retry;
+            }
+        }
+    }
+
+    private static void markUnwritten(List<String> keys, Map<String, Handlers.BatchEventResult> results, String message) {
+        for (String key : keys) {
+            Handlers.BatchEventResult result = results.get(key);
+            if (Handlers.BatchEventResult.FAILED.equals(result.getStatus())) {
+                result.setMessage(message);
+            }
+        }
+    }
+
+    /**
+     * Applies one recorded event to an aggregate item (the game's, or one shard's) with a single atomic UpdateItem.
+     * Counters use ADD so concurrent taps never lose increments; toggles only move forward in
+     * event time, so a late-arriving older toggle cannot overwrite a newer one. The update never creates the item:
+     * a game with no aggregate yet gets one from {@link #createMissingAggregate} first. A closed item refuses it.
+     */
+    private void updateAggregate(String gameId, String partition, Handlers.KpiEvent event) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#cl", Handlers.KpiAggregate.CLOSED);
+        Map<String, AttributeValue> values = new HashMap<>();
+        UpdateItemRequest.Builder update = UpdateItemRequest.builder()
+                .tableName(kpiAggregatesTable)
+                .key(Collections.singletonMap("gameId", s(partition)))
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD);
+
+        if (event.getDelta() != null) {
+            names.put("#c", Handlers.KpiAggregate.COUNTER_PREFIX + event.getKpiId());
+            values.put(":d", AttributeValue.builder().n(Integer.toString(event.getDelta())).build());
+            update.updateExpression("ADD #c :d")
+                    .conditionExpression("attribute_exists(gameId) AND attribute_not_exists(#cl)");
+        } else {
+            names.put("#t", Handlers.KpiAggregate.TOGGLE_PREFIX + event.getKpiId());
+            names.put("#ts", Handlers.KpiAggregate.TOGGLE_TS_PREFIX + event.getKpiId());
+            values.put(":v", AttributeValue.builder().bool(event.getToggleValue()).build());
+            values.put(":ts", s(event.getEventTimestamp()));
+            // AND binds tighter than OR; a stored #ts implies the item exists
+            update.updateExpression("SET #t = :v, #ts = :ts")
+                    .conditionExpression("attribute_exists(gameId) AND attribute_not_exists(#cl) AND attribute_not_exists(#ts)"
+                            + " OR attribute_not_exists(#cl) AND #ts <= :ts");
+        }
+        UpdateItemRequest request = update
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ddb.updateItem(request);
+                return;
+            } catch (ConditionalCheckFailedException failed) {
+                if (failed.hasItem() && !failed.item().isEmpty()) {
+                    if (failed.item().containsKey(Handlers.KpiAggregate.CLOSED)) {
+                        throw new GameClosedException(gameId);
+                    }
+                    // a newer toggle value is already stored; the event log still has this one
+                    return;
+                }
+                if (attempt > 1) {
+                    throw new IllegalStateException("Aggregate item " + partition + " is missing after it was created");
+                }
+                createMissingAggregate(gameId, partition);
+            }
+        }
+    }
+
+    /**
+     * Creates the aggregate item of a game created before aggregates were kept, or of a shard added to a live game.
+     * Shard 0 gets the fold of the whole log, stored only if no item exists yet. Every event written since
+     * aggregates were kept went in after its aggregate update, so the fold cannot hold one that an aggregate already
+     * counts. Another shard starts empty, since only events recorded since sharding are in it, and each of those
+     * went in after its update too. Losing the race to another tap or a summary read is fine: the item then exists.
+     */
+    private void createMissingAggregate(String gameId, String partition) {
+        if (partition.equals(gameId)) {
+            Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+            for (Handlers.KpiEvent e : events(gameId, null)) {
+                aggregate.applyEvent(e);
+            }
+            storeAggregateIfAbsent(gameId, aggregate);
+            return;
+        }
+        try {
+            ddb.putItem(PutItemRequest.builder()
+                    .tableName(kpiAggregatesTable)
+                    .item(new Handlers.KpiAggregate().toItem(partition))
+                    .conditionExpression("attribute_not_exists(gameId)")
+                    .build());
+        } catch (ConditionalCheckFailedException exists) {
+            // created meanwhile
+        }
+    }
+
+    /** Builds a single aggregate update that ADDs several counter deltas at once. */
+    private Update aggregateCounterUpdate(String partition, Map<String, Integer> counterDeltas) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#cl", Handlers.KpiAggregate.CLOSED);
+        Map<String, AttributeValue> values = new HashMap<>();
+        StringJoiner adds = new StringJoiner(", ", "ADD ", "");
+        int i = 0;
+        for (Map.Entry<String, Integer> e : counterDeltas.entrySet()) {
+            names.put("#c" + i, Handlers.KpiAggregate.COUNTER_PREFIX + e.getKey());
+            values.put(":d" + i, AttributeValue.builder().n(Integer.toString(e.getValue())).build());
+            adds.add("#c" + i + " :d" + i);
+            i++;
+        }
+        return Update.builder()
+                .tableName(kpiAggregatesTable)
+                .key(Collections.singletonMap("gameId", s(partition)))
+                .updateExpression(adds.toString())
+                .conditionExpression("attribute_exists(gameId) AND attribute_not_exists(#cl)")
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build();
+    }
+
+    // ----- Item mapping -----
+
+    private Map<String, AttributeValue> eventItem(String partition, Handlers.KpiEvent event) {
+        return EventItems.encode(eventFormat, partition, event);
+    }
+
+    /** Decodes a kpi_events item in either layout. */
+    static Handlers.KpiEvent toEvent(Map<String, AttributeValue> item) {
+        return EventItems.decode(item);
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue n(int value) {
+        return AttributeValue.builder().n(Integer.toString(value)).build();
+    }
+
+    private static String str(Map<String, AttributeValue> item, String name) {
+        AttributeValue v = item.get(name);
+        return v != null ? v.s() : null;
+    }
+
+    private static String emptyToNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+
+    private static String envString(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+}
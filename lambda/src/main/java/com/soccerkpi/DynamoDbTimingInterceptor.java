@@ -0,0 +1,43 @@
+package com.soccerkpi;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Adds the wall time of every DynamoDB call, retries and backoff included, to the calling invocation's
+ * {@link InvocationMetrics}. The invocation is captured when the call starts, so a call made on another thread
+ * on the invocation's behalf is attributed to it as long as that thread was given the invocation's metrics.
+ */
+final class DynamoDbTimingInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("SoccerKpiStartNanos");
+    private static final ExecutionAttribute<InvocationMetrics> INVOCATION = new ExecutionAttribute<>("SoccerKpiInvocation");
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes attributes) {
+        InvocationMetrics metrics = InvocationMetrics.current();
+        if (metrics == null) return;   // e.g. priming calls at init
+        attributes.putAttribute(INVOCATION, metrics);
+        attributes.putAttribute(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+        record(attributes);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes attributes) {
+        record(attributes);
+    }
+
+    private static void record(ExecutionAttributes attributes) {
+        InvocationMetrics metrics = attributes.getAttribute(INVOCATION);
+        Long start = attributes.getAttribute(START_NANOS);
+        if (metrics != null && start != null) {
+            metrics.addDynamoDbCall(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.soccerkpi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compressed form of a finished game's event log: gzip over one line per event,
+ * "eventTimestamp \t kpiId \t value [\t playerId]", where value is the counter delta or "T"/"F" for a toggle
+ * and the playerId is only written for events credited to a player. Event timestamps, KPI ids and playerIds
+ * never contain tabs or newlines, so no escaping is needed.
+ */
+final class EventArchive {
+
+    private EventArchive() {
+    }
+
+    static byte[] encode(List<Handlers.KpiEvent> events) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            StringBuilder line = new StringBuilder(64);
+            for (Handlers.KpiEvent e : events) {
+                line.setLength(0);
+                line.append(e.getEventTimestamp()).append('\t').append(e.getKpiId()).append('\t');
+                if (e.getDelta() != null) {
+                    line.append(e.getDelta().intValue());
+                } else {
+                    line.append(Boolean.TRUE.equals(e.getToggleValue()) ? 'T' : 'F');
+                }
+                if (e.getPlayerId() != null) {
+                    line.append('\t').append(e.getPlayerId());
+                }
+                line.append('\n');
+                gzip.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<Handlers.KpiEvent> decode(byte[] archive) {
+        String text;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(archive))) {
+            text = new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Handlers.KpiEvent> events = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty()) continue;
+            String[] fields = line.split("\t", 4);
+            String value = fields[2];
+            boolean toggle = "T".equals(value) || "F".equals(value);
+            events.add(new Handlers.KpiEvent(fields[0], fields[1],
+                    toggle ? null : Integer.valueOf(value), toggle ? "T".equals(value) : null, null,
+                    fields.length > 3 ? fields[3] : null));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,215 @@
+package com.soccerkpi;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes kpi_events items. Two layouts live side by side in the table and both always decode:
+ *
+ *   v1  kpiId (S), delta (N) or toggleValue (BOOL), clientEventId (S), playerId (S); no version attribute
+ *   v2  v = 2, then k (N, the KPI's ordinal in {@link Handlers.DefaultKpis}) or ks (S, the id of any other KPI),
+ *       and d (N) or t (BOOL). With packing, p (B) holds [ordinal, op] instead, for a ±1 counter or a toggle
+ *       of a default KPI. clientEventId is dropped, as batch events already carry it in their sort key.
+ *       pl (S) is the playerId, in either form.
+ *
+ * EVENT_ITEM_FORMAT picks what new events are written as: "v1" (default), "v2" or "v2-packed". Ordinals are
+ * positions in the default KPI list, so that list may only ever be appended to.
+ *
+ * Readers project only {@link #READ_PROJECTION}. Query capacity is charged on the stored item size, so the
+ * projection saves transfer and parsing; the smaller v2 items are what save read units.
+ */
+final class EventItems {
+
+    enum Format { V1, V2, V2_PACKED }
+
+    static final String VERSION = "v";
+    static final String KPI_ORDINAL = "k";
+    static final String KPI_STRING = "ks";
+    static final String DELTA = "d";
+    static final String TOGGLE = "t";
+    static final String PACKED = "p";
+    static final String PLAYER = "pl";
+
+    // Everything a fold needs from either layout; gameId and clientEventId are never read back
+    static final String READ_PROJECTION = String.join(", ", List.of(
+            "eventTimestamp", "kpiId", "delta", "toggleValue", "playerId",
+            VERSION, KPI_ORDINAL, KPI_STRING, DELTA, TOGGLE, PACKED, PLAYER));
+
+    private static final byte OP_INCREMENT = 1;
+    private static final byte OP_DECREMENT = 2;
+    private static final byte OP_TOGGLE_ON = 3;
+    private static final byte OP_TOGGLE_OFF = 4;
+
+    private static final String[] KPI_IDS = Handlers.DefaultKpis.defaultKpisForGame("").stream()
+            .map(Handlers.KpiDefinition::getKpiId)
+            .toArray(String[]::new);
+    private static final Map<String, Integer> KPI_ORDINALS = new HashMap<>();
+    // Ordinal attribute values are immutable, so one instance per KPI is shared by every written item
+    private static final AttributeValue[] ORDINAL_VALUES = new AttributeValue[KPI_IDS.length];
+    private static final AttributeValue V2 = AttributeValue.builder().n("2").build();
+    private static final AttributeValue PLUS_ONE = AttributeValue.builder().n("1").build();
+    private static final AttributeValue MINUS_ONE = AttributeValue.builder().n("-1").build();
+
+    static {
+        for (int i = 0; i < KPI_IDS.length; i++) {
+            KPI_ORDINALS.put(KPI_IDS[i], i);
+            ORDINAL_VALUES[i] = AttributeValue.builder().n(Integer.toString(i)).build();
+        }
+    }
+
+    private EventItems() {
+    }
+
+    static Format formatFromEnvironment() {
+        String value = System.getenv("EVENT_ITEM_FORMAT");
+        if (value == null || value.isEmpty() || "v1".equalsIgnoreCase(value)) return Format.V1;
+        if ("v2".equalsIgnoreCase(value)) return Format.V2;
+        if ("v2-packed".equalsIgnoreCase(value)) return Format.V2_PACKED;
+        throw new IllegalArgumentException("EVENT_ITEM_FORMAT must be v1, v2 or v2-packed, not " + value);
+    }
+
+    static Map<String, AttributeValue> encode(Format format, String partition, Handlers.KpiEvent event) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("gameId", AttributeValue.builder().s(partition).build());
+        item.put("eventTimestamp", AttributeValue.builder().s(event.getEventTimestamp()).build());
+        if (format == Format.V1) {
+            item.put("kpiId", AttributeValue.builder().s(event.getKpiId()).build());
+            if (event.getDelta() != null) {
+                item.put("delta", AttributeValue.builder().n(Integer.toString(event.getDelta())).build());
+            }
+            if (event.getToggleValue() != null) {
+                item.put("toggleValue", AttributeValue.builder().bool(event.getToggleValue()).build());
+            }
+            if (event.getClientEventId() != null) {
+                item.put("clientEventId", AttributeValue.builder().s(event.getClientEventId()).build());
+            }
+            if (event.getPlayerId() != null) {
+                item.put("playerId", AttributeValue.builder().s(event.getPlayerId()).build());
+            }
+            return item;
+        }
+
+        item.put(VERSION, V2);
+        if (event.getPlayerId() != null) {
+            item.put(PLAYER, AttributeValue.builder().s(event.getPlayerId()).build());
+        }
+        Integer ordinal = KPI_ORDINALS.get(event.getKpiId());
+        byte op = ordinal != null ? packedOp(event) : 0;
+        if (format == Format.V2_PACKED && op != 0) {
+            item.put(PACKED, AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[]{ordinal.byteValue(), op})).build());
+            return item;
+        }
+        if (ordinal != null) {
+            item.put(KPI_ORDINAL, ORDINAL_VALUES[ordinal]);
+        } else {
+            item.put(KPI_STRING, AttributeValue.builder().s(event.getKpiId()).build());
+        }
+        Integer delta = event.getDelta();
+        if (delta != null) {
+            item.put(DELTA, delta == 1 ? PLUS_ONE : delta == -1 ? MINUS_ONE
+                    : AttributeValue.builder().n(Integer.toString(delta)).build());
+        }
+        if (event.getToggleValue() != null) {
+            item.put(TOGGLE, AttributeValue.builder().bool(event.getToggleValue()).build());
+        }
+        return item;
+    }
+
+    static Handlers.KpiEvent decode(Map<String, AttributeValue> item) {
+        String ts = eventTimestamp(item);
+        AttributeValue clientEventId = item.get("clientEventId");
+        return new Handlers.KpiEvent(ts, kpiId(item), delta(item), toggleValue(item),
+                clientEventId != null ? clientEventId.s() : clientEventIdOf(ts), playerId(item));
+    }
+
+    static String eventTimestamp(Map<String, AttributeValue> item) {
+        AttributeValue ts = item.get("eventTimestamp");
+        return ts != null ? ts.s() : null;
+    }
+
+    static String kpiId(Map<String, AttributeValue> item) {
+        AttributeValue v1 = item.get("kpiId");
+        if (v1 != null) return v1.s();
+        AttributeValue packed = item.get(PACKED);
+        if (packed != null) return kpiIdAt(packed.b().asByteArrayUnsafe()[0]);
+        AttributeValue ordinal = item.get(KPI_ORDINAL);
+        if (ordinal != null) return kpiIdAt(parseSmallInt(ordinal.n()));
+        AttributeValue other = item.get(KPI_STRING);
+        return other != null ? other.s() : null;
+    }
+
+    static Integer delta(Map<String, AttributeValue> item) {
+        AttributeValue n = item.get("delta");
+        if (n == null) n = item.get(DELTA);
+        if (n != null) return parseSmallInt(n.n());
+        AttributeValue packed = item.get(PACKED);
+        if (packed == null) return null;
+        return switch (packed.b().asByteArrayUnsafe()[1]) {
+            case OP_INCREMENT -> 1;
+            case OP_DECREMENT -> -1;
+            default -> null;
+        };
+    }
+
+    static Boolean toggleValue(Map<String, AttributeValue> item) {
+        AttributeValue b = item.get("toggleValue");
+        if (b == null) b = item.get(TOGGLE);
+        if (b != null) return b.bool();
+        AttributeValue packed = item.get(PACKED);
+        if (packed == null) return null;
+        return switch (packed.b().asByteArrayUnsafe()[1]) {
+            case OP_TOGGLE_ON -> Boolean.TRUE;
+            case OP_TOGGLE_OFF -> Boolean.FALSE;
+            default -> null;
+        };
+    }
+
+    static String playerId(Map<String, AttributeValue> item) {
+        AttributeValue player = item.get("playerId");
+        if (player == null) player = item.get(PLAYER);
+        return player != null ? player.s() : null;
+    }
+
+    private static byte packedOp(Handlers.KpiEvent event) {
+        Integer delta = event.getDelta();
+        Boolean toggle = event.getToggleValue();
+        if (delta != null && toggle == null) {
+            return delta == 1 ? OP_INCREMENT : delta == -1 ? OP_DECREMENT : 0;
+        }
+        if (toggle != null && delta == null) {
+            return toggle ? OP_TOGGLE_ON : OP_TOGGLE_OFF;
+        }
+        return 0;
+    }
+
+    private static String kpiIdAt(int ordinal) {
+        // an ordinal this build does not know (written by a newer one) is skipped like a missing kpiId
+        return ordinal >= 0 && ordinal < KPI_IDS.length ? KPI_IDS[ordinal] : null;
+    }
+
+    /** Integer.parseInt for the one- and two-character numbers that make up nearly every delta and ordinal. */
+    private static int parseSmallInt(String n) {
+        int len = n.length();
+        if (len == 1) {
+            char c = n.charAt(0);
+            if (c >= '0' && c <= '9') return c - '0';
+        } else if (len == 2) {
+            char c0 = n.charAt(0);
+            char c1 = n.charAt(1);
+            if (c0 == '-' && c1 >= '0' && c1 <= '9') return '0' - c1;
+            if (c0 >= '1' && c0 <= '9' && c1 >= '0' && c1 <= '9') return (c0 - '0') * 10 + (c1 - '0');
+        }
+        return Integer.parseInt(n);
+    }
+
+    /** The clientEventId carried in a batch event's "occurredAt#clientEventId" sort key, or null for a tap. */
+    private static String clientEventIdOf(String eventTimestamp) {
+        if (eventTimestamp == null) return null;
+        int hash = eventTimestamp.indexOf('#');
+        return hash < 0 ? null : eventTimestamp.substring(hash + 1);
+    }
+}
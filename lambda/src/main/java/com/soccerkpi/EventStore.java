@@ -0,0 +1,68 @@
+package com.soccerkpi;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage for the per-game event log and the running aggregate that is kept in step with it.
+ * Events are keyed by (gameId, eventTimestamp) and read back in eventTimestamp order.
+ */
+public interface EventStore {
+
+    /** Appends one tap to the log and applies it to the game's aggregate; throws GameClosedException once closed. */
+    void recordEvent(String gameId, Handlers.KpiEvent event);
+
+    /**
+     * Inserts the events whose eventTimestamp is not stored yet and applies exactly those to the aggregate.
+     * Returns one result per event, keyed by eventTimestamp: CREATED, DUPLICATE if the key already existed,
+     * or FAILED with a message if the event could not be written. Throws GameClosedException once the game is
+     * closed, even if chunks written before the close were kept.
+     */
+    Map<String, Handlers.BatchEventResult> recordEvents(String gameId, List<Handlers.KpiEvent> events);
+
+    /**
+     * The game's events in eventTimestamp order, only those after {@code afterTimestamp} when it is not null.
+     * Implementations may read lazily while the caller iterates.
+     */
+    Iterable<Handlers.KpiEvent> events(String gameId, String afterTimestamp);
+
+    /** Returns the stored aggregate for a game, or null if none has been written yet. */
+    Handlers.KpiAggregate loadAggregate(String gameId);
+
+    /** Replaces the stored aggregate, e.g. after a rebuild from the event log. */
+    void storeAggregate(String gameId, Handlers.KpiAggregate aggregate);
+
+    /**
+     * Stores the aggregate only if the game has none yet; returns false, without writing, if one exists. Taps
+     * create and update the aggregate with atomic adds, so this never overwrites one that landed in between.
+     */
+    boolean storeAggregateIfAbsent(String gameId, Handlers.KpiAggregate aggregate);
+
+    /**
+     * Freezes a finished game: keeps {@code log} as one compressed archive, lets the original events expire and
+     * stores {@code aggregate}, which carries the final summary, as the game's aggregate. The aggregate is
+     * written last, so a failed call can simply be repeated.
+     */
+    void archiveEvents(String gameId, List<Handlers.KpiEvent> log, Handlers.KpiAggregate aggregate);
+
+    /**
+     * Stops the game's aggregate from taking events, the first step of finalizing it. Every event recorded before
+     * is counted by the aggregate, and the record methods refuse the ones after. Repeating the call is harmless.
+     */
+    void closeAggregate(String gameId);
+
+    /**
+     * The log kept by {@link #archiveEvents}, in eventTimestamp order, or null if the game has not been archived.
+     * A finalized game's full-log reads use this, since its original events expire.
+     */
+    List<Handlers.KpiEvent> archivedEvents(String gameId);
+
+    /** A tap for a game whose aggregate is closed, i.e. one that is being or has been finalized. */
+    class GameClosedException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public GameClosedException(String gameId) {
+            super("Game " + gameId + " is final");
+        }
+    }
+}
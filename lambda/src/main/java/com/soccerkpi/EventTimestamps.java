@@ -0,0 +1,140 @@
+package com.soccerkpi;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Formats event timestamps as ISO-8601 instants with exactly nine fraction digits, e.g. 2024-01-01T15:00:14.000000000Z,
+ * without going through DateTimeFormatter on every tap. They are sort keys and the newest toggle wins by comparing
+ * them, so every timestamp must have the same width: {@link Instant#toString()} drops trailing zero groups, and
+ * "...:14Z" sorts after "...:14.123456Z". The "yyyy-MM-ddTHH:mm:ss" prefix changes once a second and is cached;
+ * each call only appends the fraction and the zone designator.
+ */
+final class EventTimestamps {
+
+    // 0000-01-01T00:00:00Z and 9999-12-31T23:59:59Z: outside this range Instant.toString adds a sign or more digits
+    private static final long MIN_SECOND = -62167219200L;
+    private static final long MAX_SECOND = 253402300799L;
+
+    private static final class SecondPrefix {
+        final long epochSecond;
+        final String prefix;
+
+        SecondPrefix(long epochSecond, String prefix) {
+            this.epochSecond = epochSecond;
+            this.prefix = prefix;
+        }
+    }
+
+    private static volatile SecondPrefix cached = new SecondPrefix(Long.MIN_VALUE, null);
+
+    private EventTimestamps() {
+    }
+
+    static String now() {
+        return format(Instant.now());
+    }
+
+    static String format(Instant instant) {
+        long second = instant.getEpochSecond();
+        if (second < MIN_SECOND || second > MAX_SECOND) return instant.toString();
+
+        SecondPrefix p = cached;
+        if (p.epochSecond != second) {
+            String full = Instant.ofEpochSecond(second).toString();
+            p = new SecondPrefix(second, full.substring(0, full.length() - 1));
+            cached = p;
+        }
+
+        int nano = instant.getNano();
+        StringBuilder sb = new StringBuilder(p.prefix.length() + 11).append(p.prefix).append('.');
+        for (int divisor = 100_000_000; divisor > 0; divisor /= 10) {
+            sb.append((char) ('0' + (nano / divisor) % 10));
+        }
+        return sb.append('Z').toString();
+    }
+
+    /**
+     * Orders eventTimestamps by the instant they name, then by the whole string, so "#suffix" keys of one instant
+     * keep a stable order; strings that are not timestamps at all compare as strings. Timestamps written by
+     * {@link #format} compare as plain strings; the parse is only for ones stored before every timestamp had nine
+     * fraction digits.
+     */
+    static int compare(String a, String b) {
+        if (isFixedWidth(a) && isFixedWidth(b)) return a.compareTo(b);
+        try {
+            int bySecond = Long.compare(epochSecond(a), epochSecond(b));
+            if (bySecond != 0) return bySecond;
+            int byNano = Integer.compare(nanoOfSecond(a), nanoOfSecond(b));
+            if (byNano != 0) return byNano;
+        } catch (DateTimeParseException notATimestamp) {
+            // not written by this service; string order is all there is
+        }
+        return a.compareTo(b);
+    }
+
+    private static boolean isFixedWidth(String ts) {
+        return ts.length() >= 30 && ts.charAt(19) == '.' && ts.charAt(29) == 'Z';
+    }
+
+    /** The fraction of an eventTimestamp in nanoseconds, however many digits it was written with. */
+    private static int nanoOfSecond(String ts) {
+        if (ts.length() > 19 && ts.charAt(19) == 'Z') return 0;
+        if (ts.length() > 19 && ts.charAt(19) == '.') {
+            int nano = 0;
+            int scale = 100_000_000;
+            for (int i = 20; i < ts.length() && scale > 0; i++, scale /= 10) {
+                char c = ts.charAt(i);
+                if (c < '0' || c > '9') break;
+                nano += (c - '0') * scale;
+            }
+            return nano;
+        }
+        int hash = ts.indexOf('#');
+        return Instant.parse(hash < 0 ? ts : ts.substring(0, hash)).getNano();
+    }
+
+    /**
+     * The epoch second of an eventTimestamp, ignoring the fraction and any "#clientEventId" suffix. The usual
+     * "yyyy-MM-ddTHH:mm:ss" prefix is read digit by digit; anything else goes through {@link Instant#parse}.
+     */
+    static long epochSecond(String eventTimestamp) {
+        String ts = eventTimestamp;
+        if (ts.length() >= 20 && ts.charAt(4) == '-' && ts.charAt(7) == '-' && ts.charAt(10) == 'T'
+                && ts.charAt(13) == ':' && ts.charAt(16) == ':' && (ts.charAt(19) == 'Z' || ts.charAt(19) == '.')) {
+            int year = digits(ts, 0, 4);
+            int month = digits(ts, 5, 2);
+            int day = digits(ts, 8, 2);
+            int hour = digits(ts, 11, 2);
+            int minute = digits(ts, 14, 2);
+            int second = digits(ts, 17, 2);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31
+                    && hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60) {
+                return epochDay(year, month, day) * 86400L + hour * 3600 + minute * 60 + second;
+            }
+        }
+        int hash = ts.indexOf('#');
+        return Instant.parse(hash < 0 ? ts : ts.substring(0, hash)).getEpochSecond();
+    }
+
+    /** The decimal number in {@code s[from, from + count)}, or -1 if any of those characters is not a digit. */
+    private static int digits(String s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /** Days since 1970-01-01 of a proleptic Gregorian date, like LocalDate.toEpochDay but without the object. */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
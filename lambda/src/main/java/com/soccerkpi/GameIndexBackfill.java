@@ -0,0 +1,29 @@
+package com.soccerkpi;
+
+/**
+ * One-off migration for games created before the homeTeam-kickoff and awayTeam-kickoff indexes: writes the
+ * team keys those indexes are keyed on and rewrites each kickoff in its stored form (see
+ * {@link DynamoDbKpiStore#backfillGameIndexKeys}), so the games show up in season summaries. Safe to run again.
+ *
+ *   GAMES_TABLE=games PRIME_ON_INIT=false java -cp target/lambda.jar com.soccerkpi.GameIndexBackfill
+ *
+ * Table names and DYNAMODB_ENDPOINT are read as in the Lambda function. Prints the games whose kickoff could
+ * not be read; they stay out of order in the indexes until their kickoffIso is corrected and this is run again.
+ */
+public final class GameIndexBackfill {
+
+    private GameIndexBackfill() {
+    }
+
+    public static void main(String[] args) {
+        if (Handlers.DDB == null) {
+            System.err.println("GameIndexBackfill needs the DynamoDB store; unset STORE_BACKEND");
+            System.exit(2);
+        }
+        DynamoDbKpiStore.IndexBackfill result = DynamoDbKpiStore.fromEnvironment(Handlers.DDB).backfillGameIndexKeys();
+        System.out.println("Scanned " + result.scanned() + " games, updated " + result.updated());
+        for (String gameId : result.unreadableKickoffs()) {
+            System.out.println("Unreadable kickoffIso: " + gameId);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.soccerkpi;
+
+import java.util.List;
+
+/** Storage for game metadata. */
+public interface GameStore {
+
+    void putGame(Handlers.Game game);
+
+    /**
+     * Stores a new game together with an empty aggregate item for each of its event shards, as one write, so a
+     * game is never seen without its aggregate.
+     */
+    void createGame(Handlers.Game game);
+
+    /** Returns the game, or null if it does not exist. */
+    Handlers.Game getGame(String gameId);
+
+    /**
+     * Games in which {@code team} (compared as {@link Handlers.Game#teamKey}) played at home or away, with a
+     * kickoff between {@code from} and {@code to}, ordered by kickoff. The bounds are ISO-8601 prefixes, both
+     * inclusive, and either may be null. Games without a kickoff time are not listed.
+     */
+    List<Handlers.Game> gamesForTeam(String team, String from, String to);
+}
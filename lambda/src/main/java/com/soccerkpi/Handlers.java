@@ -4,22 +4,39 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2WebSocketEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2WebSocketResponse;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.ObjectReader;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 
+import java.io.IOException;
+import java.net.URI;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 /**
  * Single entry class hosting all HTTP API Lambda handlers.
@@ -29,26 +46,197 @@ import java.util.stream.Collectors;
  */
 public class Handlers {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
-            .registerModule(new JavaTimeModule())
+    // Models only use strings for times, so no JavaTimeModule (and its class loading) is needed
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
             .setSerializationInclusion(JsonInclude.Include.NON_NULL);
 
-    private static final DynamoDbClient DDB = DynamoDbClient.builder()
-            .region(Region.of(System.getenv().getOrDefault("AWS_REGION", "us-west-2")))
-            .credentialsProvider(DefaultCredentialsProvider.create())
-            .build();
+    private static final ObjectReader RECORD_KPI_EVENT_READER = OBJECT_MAPPER.readerFor(RecordKpiEventRequest.class);
+
+    // Every response carries the same headers, so one immutable map is shared instead of building one per reply
+    static final Map<String, String> JSON_HEADERS = Map.of(
+            "Content-Type", "application/json",
+            "Access-Control-Allow-Origin", "*",
+            "Access-Control-Allow-Headers", "*",
+            "Access-Control-Allow-Methods", "GET,POST,OPTIONS");
+    private static final String TAP_OK_BODY = "{\"status\":\"OK\"}";
+
+    // "dynamodb" (default) or "memory"; the in-memory store lives and dies with the JVM, for local runs and load tests
+    private static final boolean IN_MEMORY_STORE = "memory".equalsIgnoreCase(System.getenv("STORE_BACKEND"));
+
+    // null with the in-memory store, so no SDK client is built (or primed) that nothing would use
+    static final DynamoDbClient DDB = IN_MEMORY_STORE ? null : buildDynamoDbClient();
+
+    private static volatile KpiStore store = IN_MEMORY_STORE ? new InMemoryKpiStore() : DynamoDbKpiStore.fromEnvironment(DDB);
+
+    // "aggregate" (default) reads the kpi_aggregates item; "events" folds kpi_events with the incremental cache below
+    private static final boolean SUMMARY_FROM_EVENTS = "events".equalsIgnoreCase(System.getenv("SUMMARY_SOURCE"));
+    // Each cached game holds one total per KPI plus its cursor, roughly 1-2 KB for the default KPI set
+    private static final LruCache<String, PartialSummary> SUMMARY_CACHE = new LruCache<>(
+            envInt("SUMMARY_CACHE_MAX_GAMES", 256),
+            envInt("SUMMARY_CACHE_MAX_AGE_SECONDS", 300) * 1000L);
+    // Events newer than this are re-read on every poll, so writes still in flight are not skipped by the cursor
+    private static final long SUMMARY_CACHE_SETTLE_MILLIS = envInt("SUMMARY_CACHE_SETTLE_SECONDS", 5) * 1000L;
+
+    // KPI definitions never change once a game is created, so a long TTL only bounds how long a deleted game lingers
+    static final LruCache<String, List<KpiDefinition>> KPI_DEFINITION_CACHE = new LruCache<>(
+            envInt("KPI_DEFINITION_CACHE_MAX_GAMES", 512),
+            envInt("KPI_DEFINITION_CACHE_TTL_SECONDS", 3600) * 1000L);
+
+    // A finalized game's summary never changes, so it is served from here without any read; the bound is only memory
+    private static final LruCache<String, String> FINAL_SUMMARY_CACHE = new LruCache<>(
+            envInt("FINAL_SUMMARY_CACHE_MAX_GAMES", 1024), 24 * 3600 * 1000L);
+    // The same snapshots as Smile or CBOR clients get them, base64 as sent, keyed "gameId#ENCODING"
+    private static final LruCache<String, String> FINAL_SUMMARY_BINARY_CACHE = new LruCache<>(
+            envInt("FINAL_SUMMARY_CACHE_MAX_GAMES", 1024), 24 * 3600 * 1000L);
+
+    // Per-game summaries of finished games for the season fan-out; they never change once a game is final
+    private static final LruCache<String, List<KpiSummary>> SEASON_GAME_CACHE = new LruCache<>(
+            envInt("SEASON_GAME_CACHE_MAX_GAMES", 2048), 24 * 3600 * 1000L);
+    // Games summarized at once by one season request, so a long season does not burst past the table's capacity
+    private static final int SEASON_FANOUT_CONCURRENCY = envInt("SEASON_FANOUT_CONCURRENCY", 16);
+    static final int MAX_SEASON_GAMES = 200;
+
+    static final int DEFAULT_TIMELINE_BUCKET_SECONDS = 60;
+    static final int MIN_TIMELINE_BUCKET_SECONDS = 10;
+    // a day of one-minute buckets; a timeline that needs more must use a larger bucket
+    static final int MAX_TIMELINE_BUCKETS = 1440;
+
+    static final int MAX_BATCH_EVENTS = 500;
+
+    // a tap counted by a closed aggregate writes its event a few milliseconds later; finalize waits this long for it
+    private static final int FINALIZE_FOLD_ATTEMPTS = 5;
+    private static final long FINALIZE_FOLD_RETRY_MS = 100;
+
+    // a matchday squad with room for staff; the player summary holds one row of KPI totals per player
+    static final int MAX_ROSTER_PLAYERS = 60;
+    static final int MAX_PLAYER_ID_LENGTH = 64;
+
+    // a template, or a game's overrides, may list at most this many KPIs; the defaults are 12
+    static final int MAX_TEMPLATE_KPIS = 64;
+    static final int MAX_KPI_ID_LENGTH = 64;
+
+    // Pushes in flight at once per game; API Gateway's management API throttles bursts per account and region
+    private static final int LIVE_PUSH_CONCURRENCY = envInt("LIVE_PUSH_CONCURRENCY", 64);
+    // built on first use, so only the stream consumer ever creates a management API client
+    private static volatile LivePush livePush;
+
+    // Event partitions per game (see DynamoDbKpiStore); one keeps the original single-partition layout
+    static final int MAX_EVENT_SHARDS = 16;
+    private static final int DEFAULT_EVENT_SHARDS = envInt("DEFAULT_EVENT_SHARDS", 1);
+
+    // Independent reads of one request overlap on virtual threads; they block on the sync client's I/O, not a pool slot
+    private static final ExecutorService PARALLEL_READS = Executors.newVirtualThreadPerTaskExecutor();
+
+    static {
+        Bootstrap.init();
+    }
+
+    /**
+     * Builds the client with everything resolved up front: region and credentials from the environment and an
+     * explicit URL connection HTTP client, so the SDK does no provider-chain or HTTP implementation discovery.
+     * DYNAMODB_ENDPOINT points the client at DynamoDB Local or a stub instead of the regional endpoint.
+     * Every call is timed into the invocation's metrics by {@link DynamoDbTimingInterceptor}.
+     */
+    private static DynamoDbClient buildDynamoDbClient() {
+        DynamoDbClientBuilder builder = DynamoDbClient.builder()
+                .region(Region.of(System.getenv().getOrDefault("AWS_REGION", "us-west-2")))
+                .credentialsProvider(credentialsFromEnvironment())
+                .httpClient(UrlConnectionHttpClient.builder().build())
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .addExecutionInterceptor(new DynamoDbTimingInterceptor())
+                        .build());
+        String endpoint = System.getenv("DYNAMODB_ENDPOINT");
+        if (endpoint != null && !endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Lambda always exports the function's credentials as environment variables, so reading them directly
+     * skips the default provider chain (profile files, container and instance metadata lookups). Outside
+     * Lambda, e.g. on a laptop with a named profile, fall back to the default chain.
+     */
+    static AwsCredentialsProvider credentialsFromEnvironment() {
+        if (System.getenv("AWS_ACCESS_KEY_ID") != null) {
+            return EnvironmentVariableCredentialsProvider.create();
+        }
+        return DefaultCredentialsProvider.create();
+    }
 
-    private static final String GAMES_TABLE = System.getenv("GAMES_TABLE");
-    private static final String KPI_DEFINITIONS_TABLE = System.getenv("KPI_DEFINITIONS_TABLE");
-    private static final String KPI_EVENTS_TABLE = System.getenv("KPI_EVENTS_TABLE");
+    /** The backend used by handlers constructed without explicit stores, which is every Lambda invocation. */
+    public static KpiStore store() {
+        return store;
+    }
+
+    /**
+     * Replaces the default backend, e.g. with an {@link InMemoryKpiStore} in load tests, local servers and
+     * benchmarks. The per-process caches are cleared so nothing read from the previous backend leaks across.
+     */
+    public static void useStore(KpiStore replacement) {
+        store = replacement;
+        KPI_DEFINITION_CACHE.clear();
+        KpiTemplates.clear();
+        SUMMARY_CACHE.clear();
+        FINAL_SUMMARY_CACHE.clear();
+        FINAL_SUMMARY_BINARY_CACHE.clear();
+        SEASON_GAME_CACHE.clear();
+    }
 
     // ----- Public handler entry points -----
 
+    /** The shape of every HTTP entry point below, so the route table can refer to them directly. */
+    @FunctionalInterface
+    interface HttpEntryPoint {
+        APIGatewayV2HTTPResponse handle(APIGatewayV2HTTPEvent event, Context context);
+    }
+
+    // Keyed by the route's routeKey as API Gateway sends it ("GET /games/{gameId}/summary"), so dispatch is one
+    // hash lookup and never parses the path; infra/api_gateway.tf declares the same routes
+    private static final Map<String, HttpEntryPoint> ROUTES = Map.ofEntries(
+            Map.entry("POST /games", Handlers::createGame),
+            Map.entry("POST /kpi-templates", Handlers::createKpiTemplate),
+            Map.entry("GET /games/{gameId}/kpis", Handlers::getKpiDefinitions),
+            Map.entry("POST /games/{gameId}/events", Handlers::recordKpiEvent),
+            Map.entry("POST /games/{gameId}/events:batch", Handlers::recordKpiEventBatch),
+            Map.entry("GET /games/{gameId}/summary", Handlers::getGameSummary),
+            Map.entry("POST /games/{gameId}/summary/rebuild", Handlers::rebuildGameSummary),
+            Map.entry("POST /games/{gameId}/finalize", Handlers::finalizeGame),
+            Map.entry("GET /games/{gameId}/timeline", Handlers::getGameTimeline),
+            Map.entry("GET /games/{gameId}/players/summary", Handlers::getPlayerSummary),
+            Map.entry("GET /teams/{team}/season-summary", Handlers::getTeamSeasonSummary),
+            Map.entry("GET /health", Handlers::health));
+
+    /**
+     * Single entry point for every HTTP route, so all routes can be deployed as one function and share its warm
+     * containers, JIT state and caches. Each request is handed to the per-route entry point for its routeKey,
+     * which logs and measures it under its own handler name as before.
+     */
+    public static APIGatewayV2HTTPResponse route(APIGatewayV2HTTPEvent event, Context context) {
+        String routeKey = event != null ? event.getRouteKey() : null;
+        HttpEntryPoint target = routeKey != null ? ROUTES.get(routeKey) : null;
+        if (target == null) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            logStructured(requestId, "route", null, "error", 404, millisSince(start), null, "No route for " + routeKey);
+            return errorJson(404, "Not found");
+        }
+        return target.handle(event, context);
+    }
+
+    static Set<String> routeKeys() {
+        return ROUTES.keySet();
+    }
+
     public static APIGatewayV2HTTPResponse createGame(APIGatewayV2HTTPEvent event, Context context) {
         return new CreateGameHandler().handleRequest(event, context);
     }
 
+    public static APIGatewayV2HTTPResponse createKpiTemplate(APIGatewayV2HTTPEvent event, Context context) {
+        return new CreateKpiTemplateHandler().handleRequest(event, context);
+    }
+
     public static APIGatewayV2HTTPResponse getKpiDefinitions(APIGatewayV2HTTPEvent event, Context context) {
         return new GetKpiDefinitionsHandler().handleRequest(event, context);
     }
@@ -57,10 +245,46 @@ public class Handlers {
         return new RecordKpiEventHandler().handleRequest(event, context);
     }
 
+    public static APIGatewayV2HTTPResponse recordKpiEventBatch(APIGatewayV2HTTPEvent event, Context context) {
+        return new RecordKpiEventBatchHandler().handleRequest(event, context);
+    }
+
     public static APIGatewayV2HTTPResponse getGameSummary(APIGatewayV2HTTPEvent event, Context context) {
         return new GetGameSummaryHandler().handleRequest(event, context);
     }
 
+    public static APIGatewayV2HTTPResponse rebuildGameSummary(APIGatewayV2HTTPEvent event, Context context) {
+        return new RebuildGameSummaryHandler().handleRequest(event, context);
+    }
+
+    public static APIGatewayV2HTTPResponse finalizeGame(APIGatewayV2HTTPEvent event, Context context) {
+        return new FinalizeGameHandler().handleRequest(event, context);
+    }
+
+    public static APIGatewayV2HTTPResponse getGameTimeline(APIGatewayV2HTTPEvent event, Context context) {
+        return new GetGameTimelineHandler().handleRequest(event, context);
+    }
+
+    public static APIGatewayV2HTTPResponse getPlayerSummary(APIGatewayV2HTTPEvent event, Context context) {
+        return new GetPlayerSummaryHandler().handleRequest(event, context);
+    }
+
+    public static APIGatewayV2HTTPResponse getTeamSeasonSummary(APIGatewayV2HTTPEvent event, Context context) {
+        return new GetTeamSeasonSummaryHandler().handleRequest(event, context);
+    }
+
+    public static APIGatewayV2WebSocketResponse liveConnect(APIGatewayV2WebSocketEvent event, Context context) {
+        return new LiveConnectHandler().handleRequest(event, context);
+    }
+
+    public static APIGatewayV2WebSocketResponse liveDisconnect(APIGatewayV2WebSocketEvent event, Context context) {
+        return new LiveDisconnectHandler().handleRequest(event, context);
+    }
+
+    public static void pushLiveUpdates(DynamodbEvent event, Context context) {
+        new PushLiveUpdatesHandler().handleRequest(event, context);
+    }
+
     public static APIGatewayV2HTTPResponse health(APIGatewayV2HTTPEvent event, Context context) {
         return new HealthHandler().handleRequest(event, context);
     }
@@ -70,23 +294,35 @@ public class Handlers {
     public static class HealthHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
         @Override
         public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
-            long start = System.currentTimeMillis();
+            long start = InvocationMetrics.start();
             String requestId = context != null ? context.getAwsRequestId() : null;
             try {
                 APIGatewayV2HTTPResponse res = okJson(Collections.singletonMap("status", "ok"));
-                logStructured(requestId, "health", null, "ok", 200, System.currentTimeMillis() - start, null, null);
+                logStructured(requestId, "health", null, "ok", 200, millisSince(start), null, null);
                 return res;
             } catch (Exception e) {
-                logStructured(requestId, "health", null, "error", 500, System.currentTimeMillis() - start, e.getClass().getSimpleName(), e.getMessage());
+                logStructured(requestId, "health", null, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
                 return errorJson(500, "Health check failed");
             }
         }
     }
 
     public static class CreateGameHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final GameStore games;
+        private final KpiDefinitionStore definitions;
+
+        public CreateGameHandler() {
+            this(store(), store());
+        }
+
+        public CreateGameHandler(GameStore games, KpiDefinitionStore definitions) {
+            this.games = games;
+            this.definitions = definitions;
+        }
+
         @Override
         public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
-            long start = System.currentTimeMillis();
+            long start = InvocationMetrics.start();
             String requestId = context != null ? context.getAwsRequestId() : null;
             try {
                 CreateGameRequest request;
@@ -96,326 +332,896 @@ public class Handlers {
                     request = new CreateGameRequest();
                 }
 
+                int eventShards = request.getEventShards() != null ? request.getEventShards() : DEFAULT_EVENT_SHARDS;
+                if (eventShards < 1 || eventShards > MAX_EVENT_SHARDS) {
+                    logStructured(requestId, "createGame", null, "error", 400, millisSince(start), "Validation", "eventShards must be between 1 and " + MAX_EVENT_SHARDS);
+                    return errorJson(400, "eventShards must be between 1 and " + MAX_EVENT_SHARDS);
+                }
+                String invalidRoster = validateRoster(request.getRoster());
+                if (invalidRoster != null) {
+                    logStructured(requestId, "createGame", null, "error", 400, millisSince(start), "Validation", invalidRoster);
+                    return errorJson(400, invalidRoster);
+                }
+                String kickoff = Game.kickoffKey(request.getKickoffIso());
+                if (request.getKickoffIso() != null && kickoff == null) {
+                    logStructured(requestId, "createGame", null, "error", 400, millisSince(start), "Validation", "Invalid kickoffIso");
+                    return errorJson(400, "kickoffIso must be an ISO-8601 date-time with a zone, e.g. 2024-06-01T15:00:00Z");
+                }
+                String invalidOverrides = validateKpiDefinitions("kpiOverrides", request.getKpiOverrides());
+                if (invalidOverrides != null) {
+                    logStructured(requestId, "createGame", null, "error", 400, millisSince(start), "Validation", invalidOverrides);
+                    return errorJson(400, invalidOverrides);
+                }
+                String templateId = request.getKpiTemplateId() != null ? request.getKpiTemplateId() : KpiTemplates.DEFAULT_ID;
+                int templateVersion = request.getKpiTemplateVersion() != null ? request.getKpiTemplateVersion() : KpiTemplates.DEFAULT_VERSION;
+                KpiTemplate template = KpiTemplates.get(definitions, templateId, templateVersion);
+                if (template == null) {
+                    String message = "Unknown KPI template " + templateId + " version " + templateVersion;
+                    logStructured(requestId, "createGame", null, "error", 400, millisSince(start), "Validation", message);
+                    return errorJson(400, message);
+                }
+
                 String gameId = UUID.randomUUID().toString();
+                List<KpiDefinition> defs = Collections.unmodifiableList(
+                        KpiTemplates.resolve(gameId, template, request.getKpiOverrides()));
+                // an override may use the template's KPIs in a formula, so references are checked on the result
+                String invalidFormula = validateDerivedReferences("kpiOverrides", defs);
+                if (invalidFormula != null) {
+                    logStructured(requestId, "createGame", null, "error", 400, millisSince(start), "Validation", invalidFormula);
+                    return errorJson(400, invalidFormula);
+                }
+
                 Game game = new Game(
                         gameId,
                         request.getHomeTeam(),
                         request.getAwayTeam(),
-                        request.getKickoffIso(),
-                        "CREATED"
+                        kickoff,
+                        Game.CREATED
                 );
-
-                // persist game
-                Map<String, AttributeValue> item = new HashMap<>();
-                item.put("gameId", AttributeValue.builder().s(game.getGameId()).build());
-                item.put("homeTeam", AttributeValue.builder().s(nullToEmpty(game.getHomeTeam())).build());
-                item.put("awayTeam", AttributeValue.builder().s(nullToEmpty(game.getAwayTeam())).build());
-                if (game.getKickoffIso() != null) {
-                    item.put("kickoffIso", AttributeValue.builder().s(game.getKickoffIso()).build());
+                if (eventShards > 1) {
+                    game.setEventShards(eventShards);
+                }
+                if (request.getRoster() != null && !request.getRoster().isEmpty()) {
+                    game.setRoster(request.getRoster());
+                }
+                game.setKpiTemplateId(templateId);
+                game.setKpiTemplateVersion(templateVersion);
+                if (request.getKpiOverrides() != null && !request.getKpiOverrides().isEmpty()) {
+                    game.setKpiOverrides(request.getKpiOverrides());
                 }
-                item.put("status", AttributeValue.builder().s(game.getStatus()).build());
 
-                DDB.putItem(PutItemRequest.builder()
-                        .tableName(GAMES_TABLE)
-                        .item(item)
-                        .build());
+                // no definition rows are written: the game's definitions are the template's, resolved on read;
+                // the game and its empty aggregate go in together, so taps only ever add to an existing aggregate
+                games.createGame(game);
 
-                // seed default KPI definitions for this game
-                List<KpiDefinition> defaults = DefaultKpis.defaultKpisForGame(gameId);
-                for (KpiDefinition def : defaults) {
-                    Map<String, AttributeValue> defItem = new HashMap<>();
-                    defItem.put("gameId", AttributeValue.builder().s(def.getGameId()).build());
-                    defItem.put("kpiId", AttributeValue.builder().s(def.getKpiId()).build());
-                    defItem.put("label", AttributeValue.builder().s(def.getLabel()).build());
-                    defItem.put("type", AttributeValue.builder().s(def.getType().name()).build());
-                    DDB.putItem(PutItemRequest.builder()
-                            .tableName(KPI_DEFINITIONS_TABLE)
-                            .item(defItem)
-                            .build());
-                }
-
-                CreateGameResponse response = new CreateGameResponse(gameId, defaults);
-                logStructured(requestId, "createGame", gameId, "ok", 200, System.currentTimeMillis() - start, null, null);
-                return okJson(response);
+                // the scorer's first tap usually lands on this container, so its definitions are already known
+                KPI_DEFINITION_CACHE.put(gameId, defs);
+
+                CreateGameResponse response = new CreateGameResponse(gameId, defs);
+                logStructured(requestId, "createGame", gameId, "ok", 200, millisSince(start), null, null);
+                return encodedResponse(BodyEncoding.forResponse(event), response);
             } catch (Exception e) {
-                logStructured(requestId, "createGame", null, "error", 500, System.currentTimeMillis() - start, e.getClass().getSimpleName(), e.getMessage());
+                logStructured(requestId, "createGame", null, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
                 return errorJson(500, "Failed to create game: " + e.getMessage());
             }
         }
     }
 
+    /**
+     * Stores a new version of a shared KPI template. Versions are immutable: games refer to a version instead of
+     * copying its KPIs, and containers cache every version they read, so changing a set means a new version.
+     */
+    public static class CreateKpiTemplateHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final KpiDefinitionStore definitions;
+
+        public CreateKpiTemplateHandler() {
+            this(store());
+        }
+
+        public CreateKpiTemplateHandler(KpiDefinitionStore definitions) {
+            this.definitions = definitions;
+        }
+
+        @Override
+        public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            try {
+                if (event.getBody() == null || event.getBody().isEmpty()) {
+                    logStructured(requestId, "createKpiTemplate", null, "error", 400, millisSince(start), "Validation", "Missing body");
+                    return errorJson(400, "Missing body");
+                }
+                KpiTemplate template = OBJECT_MAPPER.readValue(event.getBody(), KpiTemplate.class);
+                String invalid = validateTemplate(template);
+                if (invalid != null) {
+                    logStructured(requestId, "createKpiTemplate", null, "error", 400, millisSince(start), "Validation", invalid);
+                    return errorJson(400, invalid);
+                }
+
+                KpiTemplate stored = new KpiTemplate(template.getTemplateId(), template.getVersion(), new ArrayList<>());
+                for (KpiDefinition def : template.getKpis()) {
+                    stored.getKpis().add(def.forGame(null));
+                }
+                if (KpiTemplates.isBuiltIn(stored.getTemplateId(), stored.getVersion()) || !definitions.putTemplate(stored)) {
+                    String message = "KPI template " + stored.getTemplateId() + " version " + stored.getVersion()
+                            + " already exists; templates are immutable, so store a new version";
+                    logStructured(requestId, "createKpiTemplate", null, "error", 409, millisSince(start), "Conflict", message);
+                    return errorJson(409, message);
+                }
+
+                logStructured(requestId, "createKpiTemplate", null, "ok", 200, millisSince(start), null, null);
+                return okJson(stored);
+            } catch (Exception e) {
+                logStructured(requestId, "createKpiTemplate", null, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return errorJson(500, "Failed to create KPI template: " + e.getMessage());
+            }
+        }
+    }
+
     public static class GetKpiDefinitionsHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final KpiDefinitionStore definitions;
+
+        public GetKpiDefinitionsHandler() {
+            this(store());
+        }
+
+        public GetKpiDefinitionsHandler(KpiDefinitionStore definitions) {
+            this.definitions = definitions;
+        }
+
         @Override
         public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
-            long start = System.currentTimeMillis();
+            long start = InvocationMetrics.start();
             String requestId = context != null ? context.getAwsRequestId() : null;
             try {
                 String gameId = pathParam(event, "gameId");
                 if (gameId == null || gameId.isEmpty()) {
-                    logStructured(requestId, "getKpiDefinitions", null, "error", 400, System.currentTimeMillis() - start, "Validation", "Missing gameId in path");
+                    logStructured(requestId, "getKpiDefinitions", null, "error", 400, millisSince(start), "Validation", "Missing gameId in path");
                     return errorJson(400, "Missing gameId in path");
                 }
 
-                List<KpiDefinition> defs = loadKpisForGame(gameId);
-                logStructured(requestId, "getKpiDefinitions", gameId, "ok", 200, System.currentTimeMillis() - start, null, null);
-                return okJson(Collections.singletonMap("kpis", defs));
+                List<KpiDefinition> defs = loadKpisForGame(definitions, gameId);
+                logStructured(requestId, "getKpiDefinitions", gameId, "ok", 200, millisSince(start), null, null);
+                return encodedResponse(BodyEncoding.forResponse(event), Collections.singletonMap("kpis", defs));
             } catch (Exception e) {
                 String gameId = pathParam(event, "gameId");
-                logStructured(requestId, "getKpiDefinitions", gameId, "error", 500, System.currentTimeMillis() - start, e.getClass().getSimpleName(), e.getMessage());
+                logStructured(requestId, "getKpiDefinitions", gameId, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
                 return errorJson(500, "Failed to load KPI definitions: " + e.getMessage());
             }
         }
     }
 
+    /**
+     * Records one tap. Its kpiId must be a counter or toggle of the game; the definitions come from the per-container
+     * cache, so a warm container checks it without a read.
+     */
     public static class RecordKpiEventHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final KpiDefinitionStore definitions;
+        private final EventStore events;
+
+        public RecordKpiEventHandler() {
+            this(store(), store());
+        }
+
+        public RecordKpiEventHandler(KpiDefinitionStore definitions, EventStore events) {
+            this.definitions = definitions;
+            this.events = events;
+        }
+
         @Override
         public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
-            long start = System.currentTimeMillis();
+            long start = InvocationMetrics.start();
             String requestId = context != null ? context.getAwsRequestId() : null;
             String gameId = pathParam(event, "gameId");
             try {
                 if (gameId == null || gameId.isEmpty()) {
-                    logStructured(requestId, "recordKpiEvent", null, "error", 400, System.currentTimeMillis() - start, "Validation", "Missing gameId in path");
+                    logStructured(requestId, "recordKpiEvent", null, "error", 400, millisSince(start), "Validation", "Missing gameId in path");
                     return errorJson(400, "Missing gameId in path");
                 }
 
                 String body = event.getBody();
                 if (body == null || body.trim().isEmpty()) {
-                    logStructured(requestId, "recordKpiEvent", gameId, "error", 400, System.currentTimeMillis() - start, "Validation", "Request body is required");
+                    logStructured(requestId, "recordKpiEvent", gameId, "error", 400, millisSince(start), "Validation", "Request body is required");
                     return errorJson(400, "Request body is required");
                 }
 
-                RecordKpiEventRequest request = OBJECT_MAPPER.readValue(body, RecordKpiEventRequest.class);
-                if (request.getKpiId() == null || request.getKpiId().isEmpty()) {
-                    logStructured(requestId, "recordKpiEvent", gameId, "error", 400, System.currentTimeMillis() - start, "Validation", "kpiId is required");
-                    return errorJson(400, "kpiId is required");
+                BodyEncoding encoding = BodyEncoding.forRequest(event);
+                RecordKpiEventRequest request = encoding == BodyEncoding.JSON ? readTapRequest(body)
+                        : encoding.read(BodyEncoding.requestBytes(event), RecordKpiEventRequest.class);
+                String invalid = validateEvent(request);
+                if (invalid != null) {
+                    logStructured(requestId, "recordKpiEvent", gameId, "error", 400, millisSince(start), "Validation", invalid);
+                    return errorJson(400, invalid);
                 }
-                if (request.getDelta() != null && request.getDelta() != 1 && request.getDelta() != -1) {
-                    logStructured(requestId, "recordKpiEvent", gameId, "error", 400, System.currentTimeMillis() - start, "Validation", "delta must be 1 or -1");
-                    return errorJson(400, "delta must be 1 or -1 for counter events");
+                List<KpiDefinition> defs = loadKpisForGame(definitions, gameId);
+                if (defs.isEmpty()) {
+                    logStructured(requestId, "recordKpiEvent", gameId, "error", 404, millisSince(start), "NotFound", "Game not found");
+                    return errorJson(404, "Game not found");
                 }
-                if (request.getDelta() != null && request.getToggleValue() != null) {
-                    logStructured(requestId, "recordKpiEvent", gameId, "error", 400, System.currentTimeMillis() - start, "Validation", "Provide delta or toggleValue not both");
-                    return errorJson(400, "Provide either delta (counter) or toggleValue (toggle), not both");
+                invalid = validateKpiReference(request, defs);
+                if (invalid != null) {
+                    logStructured(requestId, "recordKpiEvent", gameId, "error", 400, millisSince(start), "Validation", invalid);
+                    return errorJson(400, invalid);
                 }
-                if (request.getDelta() == null && request.getToggleValue() == null) {
-                    logStructured(requestId, "recordKpiEvent", gameId, "error", 400, System.currentTimeMillis() - start, "Validation", "Provide delta or toggleValue");
-                    return errorJson(400, "Provide either delta (counter) or toggleValue (toggle)");
+
+                events.recordEvent(gameId, KpiEvent.of(EventTimestamps.now(), request));
+
+                logStructured(requestId, "recordKpiEvent", gameId, "ok", 200, millisSince(start), null, null);
+                return jsonBodyResponse(200, TAP_OK_BODY);
+            } catch (EventStore.GameClosedException e) {
+                logStructured(requestId, "recordKpiEvent", gameId, "error", 409, millisSince(start), "Conflict", e.getMessage());
+                return errorJson(409, "Game is final; it no longer takes events");
+            } catch (Exception e) {
+                logStructured(requestId, "recordKpiEvent", gameId, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return errorJson(500, "Failed to record KPI event: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Records many events in one call, e.g. when a sideline tablet flushes taps queued while offline.
+     * Every event carries a client-generated clientEventId and its occurredAt time; together they form the
+     * event's sort key, so a replayed event hits the same key and is reported as DUPLICATE instead of being
+     * counted twice. Events whose kpiId is not a counter or toggle of the game are REJECTED.
+     */
+    public static class RecordKpiEventBatchHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final KpiDefinitionStore definitions;
+        private final EventStore eventStore;
+
+        public RecordKpiEventBatchHandler() {
+            this(store(), store());
+        }
+
+        public RecordKpiEventBatchHandler(KpiDefinitionStore definitions, EventStore eventStore) {
+            this.definitions = definitions;
+            this.eventStore = eventStore;
+        }
+
+        @Override
+        public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            String gameId = pathParam(event, "gameId");
+            try {
+                if (gameId == null || gameId.isEmpty()) {
+                    logStructured(requestId, "recordKpiEventBatch", null, "error", 400, millisSince(start), "Validation", "Missing gameId in path");
+                    return errorJson(400, "Missing gameId in path");
                 }
 
-                String timestamp = Instant.now().toString();
+                String body = event.getBody();
+                if (body == null || body.trim().isEmpty()) {
+                    logStructured(requestId, "recordKpiEventBatch", gameId, "error", 400, millisSince(start), "Validation", "Request body is required");
+                    return errorJson(400, "Request body is required");
+                }
 
-                Map<String, AttributeValue> item = new HashMap<>();
-                item.put("gameId", AttributeValue.builder().s(gameId).build());
-                item.put("eventTimestamp", AttributeValue.builder().s(timestamp).build());
-                item.put("kpiId", AttributeValue.builder().s(request.getKpiId()).build());
-                if (request.getDelta() != null) {
-                    item.put("delta", AttributeValue.builder().n(Integer.toString(request.getDelta())).build());
+                RecordKpiEventBatchRequest request = OBJECT_MAPPER.readValue(body, RecordKpiEventBatchRequest.class);
+                List<BatchKpiEvent> events = request.getEvents();
+                if (events == null || events.isEmpty()) {
+                    logStructured(requestId, "recordKpiEventBatch", gameId, "error", 400, millisSince(start), "Validation", "events is required");
+                    return errorJson(400, "events must contain at least one event");
                 }
-                if (request.getToggleValue() != null) {
-                    item.put("toggleValue", AttributeValue.builder().bool(request.getToggleValue()).build());
+                if (events.size() > MAX_BATCH_EVENTS) {
+                    logStructured(requestId, "recordKpiEventBatch", gameId, "error", 400, millisSince(start), "Validation", "Too many events");
+                    return errorJson(400, "At most " + MAX_BATCH_EVENTS + " events per batch");
                 }
 
-                DDB.putItem(PutItemRequest.builder()
-                        .tableName(KPI_EVENTS_TABLE)
-                        .item(item)
-                        .build());
+                List<KpiDefinition> defs = null;
+                List<BatchEventResult> results = new ArrayList<>(events.size());
+                Map<String, BatchKpiEvent> accepted = new LinkedHashMap<>();
+                Map<String, BatchEventResult> resultsByKey = new HashMap<>();
+                for (BatchKpiEvent e : events) {
+                    String clientEventId = e != null ? e.getClientEventId() : null;
+                    String invalid = e == null ? "event must not be null" : validateBatchEvent(e);
+                    if (invalid == null) {
+                        // read at the first well-formed event, so a batch of malformed ones costs no read
+                        if (defs == null) {
+                            defs = loadKpisForGame(definitions, gameId);
+                            if (defs.isEmpty()) {
+                                logStructured(requestId, "recordKpiEventBatch", gameId, "error", 404, millisSince(start), "NotFound", "Game not found");
+                                return errorJson(404, "Game not found");
+                            }
+                        }
+                        invalid = validateKpiReference(e, defs);
+                    }
+                    if (invalid != null) {
+                        results.add(BatchEventResult.of(clientEventId, BatchEventResult.REJECTED, invalid));
+                        continue;
+                    }
+                    String key = batchEventTimestamp(e);
+                    if (accepted.containsKey(key)) {
+                        results.add(BatchEventResult.of(clientEventId, BatchEventResult.DUPLICATE, "Repeated within this batch"));
+                        continue;
+                    }
+                    BatchEventResult result = BatchEventResult.of(clientEventId, BatchEventResult.FAILED, null);
+                    accepted.put(key, e);
+                    resultsByKey.put(key, result);
+                    results.add(result);
+                }
+
+                if (!accepted.isEmpty()) {
+                    List<KpiEvent> toWrite = new ArrayList<>(accepted.size());
+                    accepted.forEach((key, e) -> toWrite.add(KpiEvent.of(key, e)));
+                    Map<String, BatchEventResult> written = eventStore.recordEvents(gameId, toWrite);
+                    resultsByKey.forEach((key, result) -> {
+                        BatchEventResult outcome = written.get(key);
+                        if (outcome != null) {
+                            result.setStatus(outcome.getStatus());
+                            result.setMessage(outcome.getMessage());
+                        }
+                    });
+                    forgetCursorBehind(gameId, written);
+                }
 
-                logStructured(requestId, "recordKpiEvent", gameId, "ok", 200, System.currentTimeMillis() - start, null, null);
-                return okJson(Collections.singletonMap("status", "OK"));
+                logStructured(requestId, "recordKpiEventBatch", gameId, "ok", 200, millisSince(start), null, null);
+                return okJson(new RecordKpiEventBatchResponse(gameId, results));
+            } catch (EventStore.GameClosedException e) {
+                logStructured(requestId, "recordKpiEventBatch", gameId, "error", 409, millisSince(start), "Conflict", e.getMessage());
+                return errorJson(409, "Game is final; it no longer takes events");
             } catch (Exception e) {
-                logStructured(requestId, "recordKpiEvent", gameId, "error", 500, System.currentTimeMillis() - start, e.getClass().getSimpleName(), e.getMessage());
-                return errorJson(500, "Failed to record KPI event: " + e.getMessage());
+                logStructured(requestId, "recordKpiEventBatch", gameId, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return errorJson(500, "Failed to record KPI events: " + e.getMessage());
             }
         }
     }
 
     public static class GetGameSummaryHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final KpiDefinitionStore definitions;
+        private final EventStore events;
+
+        public GetGameSummaryHandler() {
+            this(store(), store());
+        }
+
+        public GetGameSummaryHandler(KpiDefinitionStore definitions, EventStore events) {
+            this.definitions = definitions;
+            this.events = events;
+        }
+
         @Override
         public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
-            long start = System.currentTimeMillis();
+            long start = InvocationMetrics.start();
             String requestId = context != null ? context.getAwsRequestId() : null;
             try {
                 String gameId = pathParam(event, "gameId");
                 if (gameId == null || gameId.isEmpty()) {
-                    logStructured(requestId, "getGameSummary", null, "error", 400, System.currentTimeMillis() - start, "Validation", "Missing gameId in path");
+                    logStructured(requestId, "getGameSummary", null, "error", 400, millisSince(start), "Validation", "Missing gameId in path");
                     return errorJson(400, "Missing gameId in path");
                 }
 
-                // Load definitions
-                List<KpiDefinition> defs = loadKpisForGame(gameId);
-                Map<String, KpiDefinition> defsById = defs.stream()
-                        .collect(Collectors.toMap(KpiDefinition::getKpiId, d -> d));
-
-                // Load all events for game
-                QueryRequest query = QueryRequest.builder()
-                        .tableName(KPI_EVENTS_TABLE)
-                        .keyConditionExpression("gameId = :g")
-                        .expressionAttributeValues(Collections.singletonMap(
-                                ":g", AttributeValue.builder().s(gameId).build()))
-                        .build();
-
-                List<Map<String, AttributeValue>> items = DDB.queryPaginator(query)
-                        .items()
-                        .stream()
-                        .collect(Collectors.toList());
-
-                Map<String, Integer> counterTotals = new HashMap<>();
-                Map<String, Boolean> toggleStates = new HashMap<>();
-
-                for (Map<String, AttributeValue> it : items) {
-                    String kpiId = it.getOrDefault("kpiId", AttributeValue.builder().s("").build()).s();
-                    if (kpiId.isEmpty()) continue;
+                BodyEncoding encoding = BodyEncoding.forResponse(event);
+                String frozen = FINAL_SUMMARY_CACHE.get(gameId);
+                if (frozen != null) {
+                    return frozenSummary(event, encoding, requestId, gameId, start, frozen);
+                }
 
-                    KpiDefinition def = defsById.get(kpiId);
-                    if (def == null) continue;
+                // the definitions query runs alongside the aggregate or event read, so the two round trips overlap
+                Future<List<KpiDefinition>> defs = loadKpisForGameAsync(definitions, gameId);
 
-                    if (def.getType() == KpiType.COUNTER && it.containsKey("delta")) {
-                        int delta = Integer.parseInt(it.get("delta").n());
-                        counterTotals.merge(kpiId, delta, Integer::sum);
-                    } else if (def.getType() == KpiType.TOGGLE && it.containsKey("toggleValue")) {
-                        toggleStates.put(kpiId, it.get("toggleValue").bool());
+                KpiAggregate aggregate;
+                if (SUMMARY_FROM_EVENTS) {
+                    // a finalized game's events expire, so a full scan first checks the aggregate item for its snapshot
+                    aggregate = SUMMARY_CACHE.get(gameId) == null ? events.loadAggregate(gameId) : null;
+                    if (aggregate == null || aggregate.getFinalSummary() == null) {
+                        aggregate = summarizeFromEvents(events, gameId);
+                    }
+                } else {
+                    // Read the running aggregate; games created before aggregates existed are rebuilt once from the log
+                    aggregate = events.loadAggregate(gameId);
+                    if (aggregate == null) {
+                        aggregate = rebuildMissingAggregate(events, gameId);
                     }
                 }
 
-                List<KpiSummary> summaries = new ArrayList<>();
-                for (KpiDefinition def : defs) {
-                    if (def.getType() == KpiType.COUNTER) {
-                        int total = counterTotals.getOrDefault(def.getKpiId(), 0);
-                        summaries.add(KpiSummary.counter(def.getKpiId(), def.getLabel(), total));
-                    } else {
-                        boolean value = toggleStates.getOrDefault(def.getKpiId(), false);
-                        summaries.add(KpiSummary.toggle(def.getKpiId(), def.getLabel(), value));
-                    }
+                if (aggregate.getFinalSummary() != null) {
+                    defs.cancel(true);
+                    FINAL_SUMMARY_CACHE.put(gameId, aggregate.getFinalSummary());
+                    return frozenSummary(event, encoding, requestId, gameId, start, aggregate.getFinalSummary());
+                }
+
+                // definitions never change, so the totals alone tell whether the body would differ from the client's
+                String etag = encoding.etag(HttpCaching.etag(aggregate.fingerprint()));
+                if (HttpCaching.notModified(event, etag)) {
+                    defs.cancel(true);
+                    logStructured(requestId, "getGameSummary", gameId, "ok", 304, millisSince(start), null, null);
+                    return HttpCaching.notModifiedResponse(encoding.headers, etag);
                 }
 
+                List<KpiSummary> summaries = aggregate.toSummaries(await(defs));
+
                 GameSummaryResponse response = new GameSummaryResponse(gameId, summaries);
-                logStructured(requestId, "getGameSummary", gameId, "ok", 200, System.currentTimeMillis() - start, null, null);
-                return okJson(response);
+                logStructured(requestId, "getGameSummary", gameId, "ok", 200, millisSince(start), null, null);
+                return HttpCaching.withEtag(event, encodedResponse(encoding, response), etag);
             } catch (Exception e) {
                 String gameId = pathParam(event, "gameId");
-                logStructured(requestId, "getGameSummary", gameId, "error", 500, System.currentTimeMillis() - start, e.getClass().getSimpleName(), e.getMessage());
+                logStructured(requestId, "getGameSummary", gameId, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
                 return errorJson(500, "Failed to calculate game summary: " + e.getMessage());
             }
         }
     }
 
-    // ----- Models -----
+    private static APIGatewayV2HTTPResponse frozenSummary(APIGatewayV2HTTPEvent event, BodyEncoding encoding,
+                                                          String requestId, String gameId, long start, String body)
+            throws IOException {
+        String etag = encoding.etag(HttpCaching.etag(body));
+        if (HttpCaching.notModified(event, etag)) {
+            logStructured(requestId, "getGameSummary", gameId, "ok", 304, millisSince(start), null, null);
+            return HttpCaching.notModifiedResponse(encoding.headers, etag);
+        }
+        logStructured(requestId, "getGameSummary", gameId, "ok", 200, millisSince(start), null, null);
+        if (encoding == BodyEncoding.JSON) {
+            APIGatewayV2HTTPResponse response = jsonBodyResponse(200, body);
+            response.setHeaders(encoding.headers);
+            return HttpCaching.withEtag(event, response, etag);
+        }
+        // the snapshot is stored as JSON; binary clients get it re-encoded once per container and format
+        String key = gameId + "#" + encoding.name();
+        String encoded = FINAL_SUMMARY_BINARY_CACHE.get(key);
+        if (encoded == null) {
+            GameSummaryResponse snapshot = OBJECT_MAPPER.readValue(body, GameSummaryResponse.class);
+            long serializeStart = System.nanoTime();
+            encoded = Base64.getEncoder().encodeToString(encoding.write(snapshot));
+            InvocationMetrics.addSerialization(System.nanoTime() - serializeStart);
+            FINAL_SUMMARY_BINARY_CACHE.put(key, encoded);
+        }
+        return HttpCaching.withEtag(event, binaryBodyResponse(encoding, encoded), etag);
+    }
 
-    public static class CreateGameRequest {
-        private String homeTeam;
-        private String awayTeam;
-        private String kickoffIso; // ISO-8601 string, optional
+    /**
+     * Recomputes the per-game aggregate from the raw event log and overwrites the stored aggregate item.
+     * Use it to repair drift, e.g. after an aggregate update failed once the event itself was written.
+     */
+    public static class RebuildGameSummaryHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final KpiDefinitionStore definitions;
+        private final EventStore events;
 
-        public String getHomeTeam() {
-            return homeTeam;
+        public RebuildGameSummaryHandler() {
+            this(store(), store());
         }
 
-        public void setHomeTeam(String homeTeam) {
-            this.homeTeam = homeTeam;
+        public RebuildGameSummaryHandler(KpiDefinitionStore definitions, EventStore events) {
+            this.definitions = definitions;
+            this.events = events;
         }
 
-        public String getAwayTeam() {
-            return awayTeam;
-        }
+        @Override
+        public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            String gameId = pathParam(event, "gameId");
+            try {
+                if (gameId == null || gameId.isEmpty()) {
+                    logStructured(requestId, "rebuildGameSummary", null, "error", 400, millisSince(start), "Validation", "Missing gameId in path");
+                    return errorJson(400, "Missing gameId in path");
+                }
 
-        public void setAwayTeam(String awayTeam) {
-            this.awayTeam = awayTeam;
-        }
+                KpiAggregate stored = events.loadAggregate(gameId);
+                if (stored != null && stored.getFinalSummary() != null) {
+                    // the snapshot is final and the raw events may already have expired
+                    logStructured(requestId, "rebuildGameSummary", gameId, "error", 409, millisSince(start), "Validation", "Game is final");
+                    return errorJson(409, "Game is final; its summary can no longer be rebuilt");
+                }
 
-        public String getKickoffIso() {
-            return kickoffIso;
-        }
+                Future<List<KpiDefinition>> defs = loadKpisForGameAsync(definitions, gameId);
+                KpiAggregate aggregate = rebuildAggregate(events, gameId);
 
-        public void setKickoffIso(String kickoffIso) {
-            this.kickoffIso = kickoffIso;
+                GameSummaryResponse response = new GameSummaryResponse(gameId, aggregate.toSummaries(await(defs)));
+                logStructured(requestId, "rebuildGameSummary", gameId, "ok", 200, millisSince(start), null, null);
+                return okJson(response);
+            } catch (Exception e) {
+                logStructured(requestId, "rebuildGameSummary", gameId, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return errorJson(500, "Failed to rebuild game summary: " + e.getMessage());
+            }
         }
     }
 
-    public static class CreateGameResponse {
-        private String gameId;
-        private List<KpiDefinition> kpis;
+    /**
+     * Ends a game: folds its whole event log once, stores the summary as an immutable snapshot on the aggregate
+     * item, archives the log as one compressed blob (see {@link EventStore#archiveEvents}) and sets the game to
+     * FINAL. From then on the summary is served from the snapshot. Finalizing a FINAL game returns the snapshot.
+     * The aggregate is closed before the fold, so every accepted tap is in the snapshot and later ones get a 409.
+     * A tap counted just before the close may still be on its way into the log; while the fold falls short of the
+     * closed aggregate, the log is read again.
+     */
+    public static class FinalizeGameHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final GameStore games;
+        private final KpiDefinitionStore definitions;
+        private final EventStore events;
 
-        public CreateGameResponse() {
+        public FinalizeGameHandler() {
+            this(store(), store(), store());
         }
 
-        public CreateGameResponse(String gameId, List<KpiDefinition> kpis) {
-            this.gameId = gameId;
-            this.kpis = kpis;
+        public FinalizeGameHandler(GameStore games, KpiDefinitionStore definitions, EventStore events) {
+            this.games = games;
+            this.definitions = definitions;
+            this.events = events;
         }
 
-        public String getGameId() {
-            return gameId;
-        }
+        @Override
+        public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            String gameId = pathParam(event, "gameId");
+            try {
+                if (gameId == null || gameId.isEmpty()) {
+                    logStructured(requestId, "finalizeGame", null, "error", 400, millisSince(start), "Validation", "Missing gameId in path");
+                    return errorJson(400, "Missing gameId in path");
+                }
 
-        public void setGameId(String gameId) {
-            this.gameId = gameId;
-        }
+                Game game = games.getGame(gameId);
+                if (game == null) {
+                    logStructured(requestId, "finalizeGame", gameId, "error", 404, millisSince(start), "NotFound", "Game not found");
+                    return errorJson(404, "Game not found");
+                }
 
-        public List<KpiDefinition> getKpis() {
-            return kpis;
-        }
+                KpiAggregate stored = events.loadAggregate(gameId);
+                String body = stored != null ? stored.getFinalSummary() : null;
+                if (body == null) {
+                    Future<List<KpiDefinition>> defs = loadKpisForGameAsync(definitions, gameId);
+                    events.closeAggregate(gameId);
+                    // a game without an aggregate before the close is folded from its log alone
+                    KpiAggregate closed = stored != null ? events.loadAggregate(gameId) : null;
+                    List<KpiEvent> log = new ArrayList<>();
+                    KpiAggregate aggregate = new KpiAggregate();
+                    for (int attempt = 1; ; attempt++) {
+                        for (KpiEvent e : events.events(gameId, null)) {
+                            aggregate.applyEvent(e);
+                            log.add(e);
+                        }
+                        if (closed == null || aggregate.fingerprint() == closed.fingerprint()
+                                || attempt >= FINALIZE_FOLD_ATTEMPTS) break;
+                        Thread.sleep(FINALIZE_FOLD_RETRY_MS);
+                        log.clear();
+                        aggregate = new KpiAggregate();
+                    }
+                    body = OBJECT_MAPPER.writeValueAsString(new GameSummaryResponse(gameId, aggregate.toSummaries(await(defs))));
+                    aggregate.setFinalSummary(body);
+                    events.archiveEvents(gameId, log, aggregate);
+                }
 
-        public void setKpis(List<KpiDefinition> kpis) {
-            this.kpis = kpis;
+                if (!Game.FINAL.equals(game.getStatus())) {
+                    game.setStatus(Game.FINAL);
+                    games.putGame(game);
+                }
+                SUMMARY_CACHE.invalidate(gameId);
+                FINAL_SUMMARY_CACHE.put(gameId, body);
+
+                logStructured(requestId, "finalizeGame", gameId, "ok", 200, millisSince(start), null, null);
+                return jsonBodyResponse(200, body);
+            } catch (Exception e) {
+                logStructured(requestId, "finalizeGame", gameId, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return errorJson(500, "Failed to finalize game: " + e.getMessage());
+            }
         }
     }
 
-    public static class RecordKpiEventRequest {
-        private String kpiId;
-        private Integer delta;           // for counters: +1 / -1
-        private Boolean toggleValue;     // for toggles: true / false
+    /**
+     * Per-bucket KPI values for one game, e.g. goals per minute, from a single pass over its event log into
+     * primitive columns (see {@link KpiTimeline}). The first bucket is the one holding kickoff, or the first event
+     * for a game without a kickoff time. The definitions read overlaps the game read and the event read; a
+     * finalized game's events come from its archive.
+     */
+    public static class GetGameTimelineHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final GameStore games;
+        private final KpiDefinitionStore definitions;
+        private final EventStore events;
 
-        public String getKpiId() {
-            return kpiId;
+        public GetGameTimelineHandler() {
+            this(store(), store(), store());
         }
 
-        public void setKpiId(String kpiId) {
-            this.kpiId = kpiId;
+        public GetGameTimelineHandler(GameStore games, KpiDefinitionStore definitions, EventStore events) {
+            this.games = games;
+            this.definitions = definitions;
+            this.events = events;
         }
 
-        public Integer getDelta() {
-            return delta;
-        }
+        @Override
+        public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            String gameId = pathParam(event, "gameId");
+            try {
+                if (gameId == null || gameId.isEmpty()) {
+                    logStructured(requestId, "getGameTimeline", null, "error", 400, millisSince(start), "Validation", "Missing gameId in path");
+                    return errorJson(400, "Missing gameId in path");
+                }
+                int bucketSeconds = parseBucketSeconds(queryParam(event, "bucket"));
+                if (bucketSeconds < 0) {
+                    logStructured(requestId, "getGameTimeline", gameId, "error", 400, millisSince(start), "Validation", "Invalid bucket");
+                    return errorJson(400, "bucket must be a number of seconds or minutes, e.g. 60s or 5m, of at least "
+                            + MIN_TIMELINE_BUCKET_SECONDS + "s");
+                }
 
-        public void setDelta(Integer delta) {
-            this.delta = delta;
-        }
+                Future<Game> game = PARALLEL_READS.submit(InvocationMetrics.propagate(() -> games.getGame(gameId)));
+                Future<List<KpiDefinition>> defs = loadKpisForGameAsync(definitions, gameId);
 
-        public Boolean getToggleValue() {
-            return toggleValue;
-        }
+                KpiTimeline timeline = new KpiTimeline(bucketSeconds, MAX_TIMELINE_BUCKETS);
+                Game g = await(game);
+                boolean fits = true;
+                for (KpiEvent e : fullLog(events, g, gameId)) {
+                    if (!timeline.add(e)) {
+                        fits = false;
+                        break;
+                    }
+                }
+                Long kickoff = kickoffSecond(g);
+                if (fits && kickoff != null) {
+                    fits = timeline.startAt(kickoff);
+                }
+                if (!fits) {
+                    defs.cancel(true);
+                    logStructured(requestId, "getGameTimeline", gameId, "error", 400, millisSince(start), "Validation", "Too many buckets");
+                    return errorJson(400, "Timeline is longer than " + MAX_TIMELINE_BUCKETS + " buckets; use a larger bucket");
+                }
 
-        public void setToggleValue(Boolean toggleValue) {
-            this.toggleValue = toggleValue;
+                GameTimelineResponse response = timeline.toResponse(gameId, await(defs));
+                logStructured(requestId, "getGameTimeline", gameId, "ok", 200, millisSince(start), null, null);
+                return okJson(response);
+            } catch (Exception e) {
+                logStructured(requestId, "getGameTimeline", gameId, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return errorJson(500, "Failed to build game timeline: " + e.getMessage());
+            }
         }
     }
 
-    public static class Game {
-        private String gameId;
-        private String homeTeam;
-        private String awayTeam;
-        private String kickoffIso;
-        private String status;
-
-        public Game() {
-        }
+    /**
+     * KPI totals per player, from one pass over the game's events into a {@link PlayerKpiMatrix}, or over its
+     * archive once it is final. The definitions are read alongside the game (for its roster) and the events.
+     * Events without a playerId only count towards the team summary.
+     */
+    public static class GetPlayerSummaryHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final GameStore games;
+        private final KpiDefinitionStore definitions;
+        private final EventStore events;
 
-        public Game(String gameId, String homeTeam, String awayTeam, String kickoffIso, String status) {
-            this.gameId = gameId;
-            this.homeTeam = homeTeam;
-            this.awayTeam = awayTeam;
-            this.kickoffIso = kickoffIso;
-            this.status = status;
+        public GetPlayerSummaryHandler() {
+            this(store(), store(), store());
         }
 
-        public String getGameId() {
-            return gameId;
+        public GetPlayerSummaryHandler(GameStore games, KpiDefinitionStore definitions, EventStore events) {
+            this.games = games;
+            this.definitions = definitions;
+            this.events = events;
         }
 
-        public void setGameId(String gameId) {
-            this.gameId = gameId;
+        @Override
+        public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            String gameId = pathParam(event, "gameId");
+            try {
+                if (gameId == null || gameId.isEmpty()) {
+                    logStructured(requestId, "getPlayerSummary", null, "error", 400, millisSince(start), "Validation", "Missing gameId in path");
+                    return errorJson(400, "Missing gameId in path");
+                }
+
+                Future<Game> game = PARALLEL_READS.submit(InvocationMetrics.propagate(() -> games.getGame(gameId)));
+                Future<List<KpiDefinition>> defs = loadKpisForGameAsync(definitions, gameId);
+
+                PlayerKpiMatrix matrix = new PlayerKpiMatrix();
+                Game g = await(game);
+                for (KpiEvent e : fullLog(events, g, gameId)) {
+                    matrix.add(e);
+                }
+
+                PlayerSummaryResponse response = matrix.toResponse(gameId, g != null ? g.getRoster() : null, await(defs));
+                logStructured(requestId, "getPlayerSummary", gameId, "ok", 200, millisSince(start), null, null);
+                return okJson(response);
+            } catch (Exception e) {
+                logStructured(requestId, "getPlayerSummary", gameId, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return errorJson(500, "Failed to build player summary: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Totals for one team across its games, home or away, with a kickoff between the optional {@code from} and
+     * {@code to} query parameters (ISO-8601 dates or instants, both inclusive). The games are summarized in
+     * parallel, at most SEASON_FANOUT_CONCURRENCY at a time, so a season costs about as long as its slowest game.
+     * Counters are summed; a toggle's total is the number of games it ended switched on.
+     */
+    public static class GetTeamSeasonSummaryHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+        private final GameStore games;
+        private final KpiDefinitionStore definitions;
+        private final EventStore events;
+
+        public GetTeamSeasonSummaryHandler() {
+            this(store(), store(), store());
+        }
+
+        public GetTeamSeasonSummaryHandler(GameStore games, KpiDefinitionStore definitions, EventStore events) {
+            this.games = games;
+            this.definitions = definitions;
+            this.events = events;
+        }
+
+        @Override
+        public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            try {
+                String team = pathParam(event, "team");
+                if (team == null || team.isBlank()) {
+                    logStructured(requestId, "getTeamSeasonSummary", null, "error", 400, millisSince(start), "Validation", "Missing team in path");
+                    return errorJson(400, "Missing team in path");
+                }
+                String from = queryParam(event, "from");
+                String to = queryParam(event, "to");
+                if (!isIsoDateOrInstant(from) || !isIsoDateOrInstant(to)) {
+                    logStructured(requestId, "getTeamSeasonSummary", null, "error", 400, millisSince(start), "Validation", "Invalid from/to");
+                    return errorJson(400, "from and to must be ISO-8601 dates or instants");
+                }
+
+                // stored kickoffs are whole seconds, so an instant bound is compared in the same form
+                List<Game> played = games.gamesForTeam(team, rangeKey(from), rangeKey(to));
+                if (played.size() > MAX_SEASON_GAMES) {
+                    logStructured(requestId, "getTeamSeasonSummary", null, "error", 400, millisSince(start), "Validation", "Too many games");
+                    return errorJson(400, "More than " + MAX_SEASON_GAMES + " games in range; narrow from/to");
+                }
+
+                Semaphore permits = new Semaphore(SEASON_FANOUT_CONCURRENCY);
+                List<Future<List<KpiSummary>>> perGame = new ArrayList<>(played.size());
+                for (Game game : played) {
+                    perGame.add(PARALLEL_READS.submit(InvocationMetrics.propagate(() -> {
+                        permits.acquire();
+                        try {
+                            return seasonGameSummaries(definitions, events, game.getGameId());
+                        } finally {
+                            permits.release();
+                        }
+                    })));
+                }
+                Map<String, KpiSummary> merged = new LinkedHashMap<>();
+                List<String> gameIds = new ArrayList<>(played.size());
+                for (int i = 0; i < played.size(); i++) {
+                    mergeSeason(merged, await(perGame.get(i)));
+                    gameIds.add(played.get(i).getGameId());
+                }
+
+                TeamSeasonSummaryResponse response = new TeamSeasonSummaryResponse(team, from, to, gameIds, new ArrayList<>(merged.values()));
+                logStructured(requestId, "getTeamSeasonSummary", null, "ok", 200, millisSince(start), null, null);
+                return okJson(response);
+            } catch (Exception e) {
+                logStructured(requestId, "getTeamSeasonSummary", null, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return errorJson(500, "Failed to calculate season summary: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * $connect of the live WebSocket API: {@code wss://.../live?gameId=...} subscribes the new connection to that
+     * game's updates. Refusing the connect (400) keeps clients without a game from holding a socket open.
+     */
+    public static class LiveConnectHandler implements RequestHandler<APIGatewayV2WebSocketEvent, APIGatewayV2WebSocketResponse> {
+        private final SubscriptionStore subscriptions;
+
+        public LiveConnectHandler() {
+            this(store());
+        }
+
+        public LiveConnectHandler(SubscriptionStore subscriptions) {
+            this.subscriptions = subscriptions;
+        }
+
+        @Override
+        public APIGatewayV2WebSocketResponse handleRequest(APIGatewayV2WebSocketEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            Map<String, String> query = event.getQueryStringParameters();
+            String gameId = query != null ? query.get("gameId") : null;
+            try {
+                String connectionId = event.getRequestContext() != null ? event.getRequestContext().getConnectionId() : null;
+                if (gameId == null || gameId.isEmpty() || connectionId == null) {
+                    logStructured(requestId, "liveConnect", null, "error", 400, millisSince(start), "Validation", "Missing gameId or connectionId");
+                    return webSocketResponse(400);
+                }
+                subscriptions.subscribe(gameId, connectionId);
+                logStructured(requestId, "liveConnect", gameId, "ok", 200, millisSince(start), null, null);
+                return webSocketResponse(200);
+            } catch (Exception e) {
+                logStructured(requestId, "liveConnect", gameId, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return webSocketResponse(500);
+            }
+        }
+    }
+
+    /** $disconnect of the live WebSocket API: forgets the connection. */
+    public static class LiveDisconnectHandler implements RequestHandler<APIGatewayV2WebSocketEvent, APIGatewayV2WebSocketResponse> {
+        private final SubscriptionStore subscriptions;
+
+        public LiveDisconnectHandler() {
+            this(store());
+        }
+
+        public LiveDisconnectHandler(SubscriptionStore subscriptions) {
+            this.subscriptions = subscriptions;
+        }
+
+        @Override
+        public APIGatewayV2WebSocketResponse handleRequest(APIGatewayV2WebSocketEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            try {
+                String connectionId = event.getRequestContext() != null ? event.getRequestContext().getConnectionId() : null;
+                if (connectionId != null) {
+                    subscriptions.unsubscribe(connectionId);
+                }
+                logStructured(requestId, "liveDisconnect", null, "ok", 200, millisSince(start), null, null);
+                return webSocketResponse(200);
+            } catch (Exception e) {
+                logStructured(requestId, "liveDisconnect", null, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                return webSocketResponse(500);
+            }
+        }
+    }
+
+    /**
+     * Consumer of the kpi_events stream: groups the newly inserted events by game and pushes each game's deltas
+     * to its live connections (see {@link LiveUpdates}). Only INSERTs count; the re-puts of archived events and
+     * TTL deletions are not new taps, and Terraform filters them out before they reach the function.
+     */
+    public static class PushLiveUpdatesHandler implements RequestHandler<DynamodbEvent, Void> {
+        private final SubscriptionStore subscriptions;
+        private final LivePush push;
+
+        public PushLiveUpdatesHandler() {
+            this(store(), livePush());
+        }
+
+        public PushLiveUpdatesHandler(SubscriptionStore subscriptions, LivePush push) {
+            this.subscriptions = subscriptions;
+            this.push = push;
+        }
+
+        @Override
+        public Void handleRequest(DynamodbEvent event, Context context) {
+            long start = InvocationMetrics.start();
+            String requestId = context != null ? context.getAwsRequestId() : null;
+            Map<String, List<KpiEvent>> byGame = new LinkedHashMap<>();
+            for (DynamodbEvent.DynamodbStreamRecord record : event.getRecords()) {
+                if (!"INSERT".equals(record.getEventName()) || record.getDynamodb() == null) continue;
+                Map<String, com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue> image =
+                        record.getDynamodb().getNewImage();
+                if (image == null || image.get("gameId") == null) continue;
+                String partition = image.get("gameId").getS();
+                // a sharded game's partitions are gameId#n
+                int hash = partition.indexOf('#');
+                String gameId = hash < 0 ? partition : partition.substring(0, hash);
+                byGame.computeIfAbsent(gameId, g -> new ArrayList<>()).add(EventItems.decode(streamItem(image)));
+            }
+            try {
+                LiveUpdates.Result result = new LiveUpdates(subscriptions, push, LIVE_PUSH_CONCURRENCY).publish(byGame);
+                String gameId = byGame.size() == 1 ? byGame.keySet().iterator().next() : null;
+                if (result.failed() > 0) {
+                    logStructured(requestId, "pushLiveUpdates", gameId, "error", 200, millisSince(start), "PushFailed",
+                            result.failed() + " of " + (result.delivered() + result.gone() + result.failed()) + " pushes failed");
+                } else {
+                    logStructured(requestId, "pushLiveUpdates", gameId, "ok", 200, millisSince(start), null, null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logStructured(requestId, "pushLiveUpdates", null, "error", 500, millisSince(start), "Interrupted", e.getMessage());
+            } catch (RuntimeException e) {
+                // e.g. the subscriber lookup failed; the stream retries the batch, so viewers may see its deltas twice
+                logStructured(requestId, "pushLiveUpdates", null, "error", 500, millisSince(start), e.getClass().getSimpleName(), e.getMessage());
+                throw e;
+            }
+            return null;
         }
+    }
+
+    // ----- Models -----
+
+    public static class CreateGameRequest {
+        private String homeTeam;
+        private String awayTeam;
+        private String kickoffIso; // ISO-8601 string, optional
+        private Integer eventShards; // optional, DEFAULT_EVENT_SHARDS when absent
+        private List<Player> roster; // optional, the players events may be credited to
+        private String kpiTemplateId; // optional, KpiTemplates.DEFAULT_ID when absent
+        private Integer kpiTemplateVersion; // optional, KpiTemplates.DEFAULT_VERSION when absent
+        private List<KpiDefinition> kpiOverrides; // optional, replace or add to the template's KPIs
 
         public String getHomeTeam() {
             return homeTeam;
@@ -429,165 +1235,1211 @@ public class Handlers {
             return awayTeam;
         }
 
-        public void setAwayTeam(String awayTeam) {
-            this.awayTeam = awayTeam;
+        public void setAwayTeam(String awayTeam) {
+            this.awayTeam = awayTeam;
+        }
+
+        public String getKickoffIso() {
+            return kickoffIso;
+        }
+
+        public void setKickoffIso(String kickoffIso) {
+            this.kickoffIso = kickoffIso;
+        }
+
+        public Integer getEventShards() {
+            return eventShards;
+        }
+
+        public void setEventShards(Integer eventShards) {
+            this.eventShards = eventShards;
+        }
+
+        public List<Player> getRoster() {
+            return roster;
+        }
+
+        public void setRoster(List<Player> roster) {
+            this.roster = roster;
+        }
+
+        public String getKpiTemplateId() {
+            return kpiTemplateId;
+        }
+
+        public void setKpiTemplateId(String kpiTemplateId) {
+            this.kpiTemplateId = kpiTemplateId;
+        }
+
+        public Integer getKpiTemplateVersion() {
+            return kpiTemplateVersion;
+        }
+
+        public void setKpiTemplateVersion(Integer kpiTemplateVersion) {
+            this.kpiTemplateVersion = kpiTemplateVersion;
+        }
+
+        public List<KpiDefinition> getKpiOverrides() {
+            return kpiOverrides;
+        }
+
+        public void setKpiOverrides(List<KpiDefinition> kpiOverrides) {
+            this.kpiOverrides = kpiOverrides;
+        }
+    }
+
+    public static class CreateGameResponse {
+        private String gameId;
+        private List<KpiDefinition> kpis;
+
+        public CreateGameResponse() {
+        }
+
+        public CreateGameResponse(String gameId, List<KpiDefinition> kpis) {
+            this.gameId = gameId;
+            this.kpis = kpis;
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        public void setGameId(String gameId) {
+            this.gameId = gameId;
+        }
+
+        public List<KpiDefinition> getKpis() {
+            return kpis;
+        }
+
+        public void setKpis(List<KpiDefinition> kpis) {
+            this.kpis = kpis;
+        }
+    }
+
+    public static class RecordKpiEventRequest {
+        private String kpiId;
+        private Integer delta;           // for counters: +1 / -1
+        private Boolean toggleValue;     // for toggles: true / false
+        private String playerId;         // optional: the rostered player the event is credited to
+
+        public String getKpiId() {
+            return kpiId;
+        }
+
+        public void setKpiId(String kpiId) {
+            this.kpiId = kpiId;
+        }
+
+        public Integer getDelta() {
+            return delta;
+        }
+
+        public void setDelta(Integer delta) {
+            this.delta = delta;
+        }
+
+        public Boolean getToggleValue() {
+            return toggleValue;
+        }
+
+        public void setToggleValue(Boolean toggleValue) {
+            this.toggleValue = toggleValue;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        public void setPlayerId(String playerId) {
+            this.playerId = playerId;
+        }
+    }
+
+    /**
+     * A single event in a batch. clientEventId must be unique per event on the client, and occurredAt (ISO-8601)
+     * must be sent unchanged when the event is replayed.
+     */
+    public static class BatchKpiEvent extends RecordKpiEventRequest {
+        private String clientEventId;
+        private String occurredAt;
+
+        public String getClientEventId() {
+            return clientEventId;
+        }
+
+        public void setClientEventId(String clientEventId) {
+            this.clientEventId = clientEventId;
+        }
+
+        public String getOccurredAt() {
+            return occurredAt;
+        }
+
+        public void setOccurredAt(String occurredAt) {
+            this.occurredAt = occurredAt;
+        }
+    }
+
+    public static class RecordKpiEventBatchRequest {
+        private List<BatchKpiEvent> events;
+
+        public List<BatchKpiEvent> getEvents() {
+            return events;
+        }
+
+        public void setEvents(List<BatchKpiEvent> events) {
+            this.events = events;
+        }
+    }
+
+    public static class BatchEventResult {
+        public static final String CREATED = "CREATED";
+        public static final String DUPLICATE = "DUPLICATE";
+        public static final String REJECTED = "REJECTED";
+        public static final String FAILED = "FAILED";
+
+        private String clientEventId;
+        private String status;
+        private String message;
+
+        public BatchEventResult() {
+        }
+
+        public static BatchEventResult of(String clientEventId, String status, String message) {
+            BatchEventResult r = new BatchEventResult();
+            r.clientEventId = clientEventId;
+            r.status = status;
+            r.message = message;
+            return r;
+        }
+
+        public String getClientEventId() {
+            return clientEventId;
+        }
+
+        public void setClientEventId(String clientEventId) {
+            this.clientEventId = clientEventId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+
+    public static class RecordKpiEventBatchResponse {
+        private String gameId;
+        private List<BatchEventResult> results;
+
+        public RecordKpiEventBatchResponse() {
+        }
+
+        public RecordKpiEventBatchResponse(String gameId, List<BatchEventResult> results) {
+            this.gameId = gameId;
+            this.results = results;
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        public void setGameId(String gameId) {
+            this.gameId = gameId;
+        }
+
+        public List<BatchEventResult> getResults() {
+            return results;
+        }
+
+        public void setResults(List<BatchEventResult> results) {
+            this.results = results;
+        }
+    }
+
+    public static class Game {
+        public static final String CREATED = "CREATED";
+        public static final String FINAL = "FINAL";
+
+        /** How team names are compared when listing a team's games: trimmed and case-insensitive. */
+        public static String teamKey(String team) {
+            return team == null ? "" : team.trim().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * How a kickoff is stored: the UTC instant to the second, e.g. "2024-06-01T13:00:00Z". Every stored kickoff
+         * then has the same width, so the kickoff indexes sort them in time order. Accepts an ISO-8601 date-time
+         * with "Z" or an offset; anything else, including a date-time without a zone, returns null.
+         */
+        public static String kickoffKey(String kickoffIso) {
+            if (kickoffIso == null) return null;
+            try {
+                String key = OffsetDateTime.parse(kickoffIso).toInstant().truncatedTo(ChronoUnit.SECONDS).toString();
+                return key.length() == 20 ? key : null;   // years outside 0000-9999 do not sort as text
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+
+        private String gameId;
+        private String homeTeam;
+        private String awayTeam;
+        private String kickoffIso;
+        private String status;
+        private Integer eventShards; // null for the single partition every game had before sharding
+        private List<Player> roster; // null for a game created without one
+        private String kpiTemplateId; // null for a game created before templates, which has its own definition rows
+        private Integer kpiTemplateVersion;
+        private List<KpiDefinition> kpiOverrides; // null when the game uses its template unchanged
+
+        public Game() {
+        }
+
+        public Game(String gameId, String homeTeam, String awayTeam, String kickoffIso, String status) {
+            this.gameId = gameId;
+            this.homeTeam = homeTeam;
+            this.awayTeam = awayTeam;
+            this.kickoffIso = kickoffIso;
+            this.status = status;
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        public void setGameId(String gameId) {
+            this.gameId = gameId;
+        }
+
+        public String getHomeTeam() {
+            return homeTeam;
+        }
+
+        public void setHomeTeam(String homeTeam) {
+            this.homeTeam = homeTeam;
+        }
+
+        public String getAwayTeam() {
+            return awayTeam;
+        }
+
+        public void setAwayTeam(String awayTeam) {
+            this.awayTeam = awayTeam;
+        }
+
+        public String getKickoffIso() {
+            return kickoffIso;
+        }
+
+        public void setKickoffIso(String kickoffIso) {
+            this.kickoffIso = kickoffIso;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public Integer getEventShards() {
+            return eventShards;
+        }
+
+        public void setEventShards(Integer eventShards) {
+            this.eventShards = eventShards;
+        }
+
+        public List<Player> getRoster() {
+            return roster;
+        }
+
+        public void setRoster(List<Player> roster) {
+            this.roster = roster;
+        }
+
+        public String getKpiTemplateId() {
+            return kpiTemplateId;
+        }
+
+        public void setKpiTemplateId(String kpiTemplateId) {
+            this.kpiTemplateId = kpiTemplateId;
+        }
+
+        public Integer getKpiTemplateVersion() {
+            return kpiTemplateVersion;
+        }
+
+        public void setKpiTemplateVersion(Integer kpiTemplateVersion) {
+            this.kpiTemplateVersion = kpiTemplateVersion;
+        }
+
+        public List<KpiDefinition> getKpiOverrides() {
+            return kpiOverrides;
+        }
+
+        public void setKpiOverrides(List<KpiDefinition> kpiOverrides) {
+            this.kpiOverrides = kpiOverrides;
+        }
+    }
+
+    /** A player on a game's roster; events credit a player through its playerId. */
+    public static class Player {
+        private String playerId;
+        private String name;
+        private Integer number;
+
+        public Player() {
+        }
+
+        public Player(String playerId, String name, Integer number) {
+            this.playerId = playerId;
+            this.name = name;
+            this.number = number;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        public void setPlayerId(String playerId) {
+            this.playerId = playerId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getNumber() {
+            return number;
+        }
+
+        public void setNumber(Integer number) {
+            this.number = number;
+        }
+    }
+
+    /** A named set of KPIs that games are created from; each version is immutable once stored. */
+    public static class KpiTemplate {
+        private String templateId;
+        private Integer version;
+        private List<KpiDefinition> kpis;
+
+        public KpiTemplate() {
+        }
+
+        public KpiTemplate(String templateId, Integer version, List<KpiDefinition> kpis) {
+            this.templateId = templateId;
+            this.version = version;
+            this.kpis = kpis;
+        }
+
+        public String getTemplateId() {
+            return templateId;
+        }
+
+        public void setTemplateId(String templateId) {
+            this.templateId = templateId;
+        }
+
+        public Integer getVersion() {
+            return version;
+        }
+
+        public void setVersion(Integer version) {
+            this.version = version;
+        }
+
+        public List<KpiDefinition> getKpis() {
+            return kpis;
+        }
+
+        public void setKpis(List<KpiDefinition> kpis) {
+            this.kpis = kpis;
+        }
+    }
+
+    public enum KpiType {
+        COUNTER,
+        TOGGLE,
+        DERIVED // computed from other KPIs' totals by its expression (see KpiExpression); never tapped
+    }
+
+    public static class KpiDefinition {
+        private String gameId;
+        private String kpiId;
+        private String label;
+        private KpiType type;
+        private String expression; // DERIVED only
+
+        public KpiDefinition() {
+        }
+
+        public KpiDefinition(String gameId, String kpiId, String label, KpiType type) {
+            this(gameId, kpiId, label, type, null);
+        }
+
+        public KpiDefinition(String gameId, String kpiId, String label, KpiType type, String expression) {
+            this.gameId = gameId;
+            this.kpiId = kpiId;
+            this.label = label;
+            this.type = type;
+            this.expression = expression;
+        }
+
+        /** The same KPI under another game, or under none for a template. */
+        KpiDefinition forGame(String gameId) {
+            return new KpiDefinition(gameId, kpiId, label, type, expression);
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        public void setGameId(String gameId) {
+            this.gameId = gameId;
+        }
+
+        public String getKpiId() {
+            return kpiId;
+        }
+
+        public void setKpiId(String kpiId) {
+            this.kpiId = kpiId;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        public KpiType getType() {
+            return type;
+        }
+
+        public void setType(KpiType type) {
+            this.type = type;
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+
+        public void setExpression(String expression) {
+            this.expression = expression;
+        }
+    }
+
+    public static class KpiSummary {
+        private String kpiId;
+        private String label;
+        private Integer total;   // for counters
+        private Boolean value;   // for toggles
+        private Double result;   // for derived KPIs; absent while undefined, e.g. a ratio before its first shot
+
+        public KpiSummary() {
+        }
+
+        public static KpiSummary counter(String kpiId, String label, int total) {
+            KpiSummary s = new KpiSummary();
+            s.kpiId = kpiId;
+            s.label = label;
+            s.total = total;
+            return s;
+        }
+
+        public static KpiSummary toggle(String kpiId, String label, boolean value) {
+            KpiSummary s = new KpiSummary();
+            s.kpiId = kpiId;
+            s.label = label;
+            s.value = value;
+            return s;
+        }
+
+        public static KpiSummary derived(String kpiId, String label, Double result) {
+            KpiSummary s = new KpiSummary();
+            s.kpiId = kpiId;
+            s.label = label;
+            s.result = result;
+            return s;
+        }
+
+        public String getKpiId() {
+            return kpiId;
+        }
+
+        public void setKpiId(String kpiId) {
+            this.kpiId = kpiId;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        public Integer getTotal() {
+            return total;
+        }
+
+        public void setTotal(Integer total) {
+            this.total = total;
+        }
+
+        public Boolean getValue() {
+            return value;
+        }
+
+        public void setValue(Boolean value) {
+            this.value = value;
+        }
+
+        public Double getResult() {
+            return result;
+        }
+
+        public void setResult(Double result) {
+            this.result = result;
+        }
+    }
+
+    public static class TeamSeasonSummaryResponse {
+        private String team;
+        private String from;
+        private String to;
+        private List<String> gameIds;
+        private List<KpiSummary> kpis;
+
+        public TeamSeasonSummaryResponse() {
+        }
+
+        public TeamSeasonSummaryResponse(String team, String from, String to, List<String> gameIds, List<KpiSummary> kpis) {
+            this.team = team;
+            this.from = from;
+            this.to = to;
+            this.gameIds = gameIds;
+            this.kpis = kpis;
+        }
+
+        public String getTeam() {
+            return team;
+        }
+
+        public void setTeam(String team) {
+            this.team = team;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public void setFrom(String from) {
+            this.from = from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public void setTo(String to) {
+            this.to = to;
+        }
+
+        public List<String> getGameIds() {
+            return gameIds;
+        }
+
+        public void setGameIds(List<String> gameIds) {
+            this.gameIds = gameIds;
+        }
+
+        public List<KpiSummary> getKpis() {
+            return kpis;
+        }
+
+        public void setKpis(List<KpiSummary> kpis) {
+            this.kpis = kpis;
+        }
+    }
+
+    public static class GameSummaryResponse {
+        private String gameId;
+        private List<KpiSummary> kpis;
+
+        public GameSummaryResponse() {
+        }
+
+        public GameSummaryResponse(String gameId, List<KpiSummary> kpis) {
+            this.gameId = gameId;
+            this.kpis = kpis;
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        public void setGameId(String gameId) {
+            this.gameId = gameId;
+        }
+
+        public List<KpiSummary> getKpis() {
+            return kpis;
+        }
+
+        public void setKpis(List<KpiSummary> kpis) {
+            this.kpis = kpis;
+        }
+    }
+
+    /** Column-oriented timeline: {@code kpis[k].values[b]} is KPI k in the bucket starting at start + b * bucketSeconds. */
+    public static class GameTimelineResponse {
+        private String gameId;
+        private String start;
+        private int bucketSeconds;
+        private int buckets;
+        private List<KpiTimelineSeries> kpis;
+
+        public GameTimelineResponse() {
+        }
+
+        public GameTimelineResponse(String gameId, String start, int bucketSeconds, int buckets, List<KpiTimelineSeries> kpis) {
+            this.gameId = gameId;
+            this.start = start;
+            this.bucketSeconds = bucketSeconds;
+            this.buckets = buckets;
+            this.kpis = kpis;
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        public void setGameId(String gameId) {
+            this.gameId = gameId;
+        }
+
+        public String getStart() {
+            return start;
+        }
+
+        public void setStart(String start) {
+            this.start = start;
+        }
+
+        public int getBucketSeconds() {
+            return bucketSeconds;
+        }
+
+        public void setBucketSeconds(int bucketSeconds) {
+            this.bucketSeconds = bucketSeconds;
+        }
+
+        public int getBuckets() {
+            return buckets;
+        }
+
+        public void setBuckets(int buckets) {
+            this.buckets = buckets;
+        }
+
+        public List<KpiTimelineSeries> getKpis() {
+            return kpis;
+        }
+
+        public void setKpis(List<KpiTimelineSeries> kpis) {
+            this.kpis = kpis;
+        }
+    }
+
+    /** One KPI's column: per-bucket delta sums for a counter, the 1/0 state at the end of each bucket for a toggle. */
+    public static class KpiTimelineSeries {
+        private String kpiId;
+        private String label;
+        private KpiType type;
+        private int[] values;
+
+        public KpiTimelineSeries() {
+        }
+
+        public KpiTimelineSeries(String kpiId, String label, KpiType type, int[] values) {
+            this.kpiId = kpiId;
+            this.label = label;
+            this.type = type;
+            this.values = values;
+        }
+
+        public String getKpiId() {
+            return kpiId;
+        }
+
+        public void setKpiId(String kpiId) {
+            this.kpiId = kpiId;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        public KpiType getType() {
+            return type;
+        }
+
+        public void setType(KpiType type) {
+            this.type = type;
+        }
+
+        public int[] getValues() {
+            return values;
+        }
+
+        public void setValues(int[] values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * Per-player totals: one row per player, whose values[k] belongs to kpis[k]; a counter's total, or a
+     * toggle's last state (1 or 0). Rostered players come first, in roster order, then ids that events
+     * credited without being on the roster.
+     */
+    public static class PlayerSummaryResponse {
+        private String gameId;
+        private List<KpiDefinition> kpis;
+        private List<PlayerKpiTotals> players;
+
+        public PlayerSummaryResponse() {
+        }
+
+        public PlayerSummaryResponse(String gameId, List<KpiDefinition> kpis, List<PlayerKpiTotals> players) {
+            this.gameId = gameId;
+            this.kpis = kpis;
+            this.players = players;
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        public void setGameId(String gameId) {
+            this.gameId = gameId;
+        }
+
+        public List<KpiDefinition> getKpis() {
+            return kpis;
+        }
+
+        public void setKpis(List<KpiDefinition> kpis) {
+            this.kpis = kpis;
+        }
+
+        public List<PlayerKpiTotals> getPlayers() {
+            return players;
+        }
+
+        public void setPlayers(List<PlayerKpiTotals> players) {
+            this.players = players;
+        }
+    }
+
+    public static class PlayerKpiTotals {
+        private String playerId;
+        private String name;
+        private Integer number;
+        private boolean onRoster;
+        private int[] values;
+
+        public PlayerKpiTotals() {
+        }
+
+        public PlayerKpiTotals(String playerId, String name, Integer number, boolean onRoster, int[] values) {
+            this.playerId = playerId;
+            this.name = name;
+            this.number = number;
+            this.onRoster = onRoster;
+            this.values = values;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        public void setPlayerId(String playerId) {
+            this.playerId = playerId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getNumber() {
+            return number;
+        }
+
+        public void setNumber(Integer number) {
+            this.number = number;
+        }
+
+        public boolean isOnRoster() {
+            return onRoster;
+        }
+
+        public void setOnRoster(boolean onRoster) {
+            this.onRoster = onRoster;
+        }
+
+        public int[] getValues() {
+            return values;
+        }
+
+        public void setValues(int[] values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * Pushed to live connections when a game's events change it: counter deltas to add to the shown totals and
+     * the new state of each toggle that changed.
+     */
+    public static class LiveUpdateMessage {
+        private String type = "kpiDelta";
+        private String gameId;
+        private Map<String, Integer> counters;
+        private Map<String, Boolean> toggles;
+
+        public LiveUpdateMessage() {
+        }
+
+        public LiveUpdateMessage(String gameId, Map<String, Integer> counters, Map<String, Boolean> toggles) {
+            this.gameId = gameId;
+            this.counters = counters;
+            this.toggles = toggles;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        public void setGameId(String gameId) {
+            this.gameId = gameId;
         }
 
-        public String getKickoffIso() {
-            return kickoffIso;
+        public Map<String, Integer> getCounters() {
+            return counters;
         }
 
-        public void setKickoffIso(String kickoffIso) {
-            this.kickoffIso = kickoffIso;
+        public void setCounters(Map<String, Integer> counters) {
+            this.counters = counters;
         }
 
-        public String getStatus() {
-            return status;
+        public Map<String, Boolean> getToggles() {
+            return toggles;
         }
 
-        public void setStatus(String status) {
-            this.status = status;
+        public void setToggles(Map<String, Boolean> toggles) {
+            this.toggles = toggles;
         }
     }
 
-    public enum KpiType {
-        COUNTER,
-        TOGGLE
-    }
-
-    public static class KpiDefinition {
-        private String gameId;
-        private String kpiId;
-        private String label;
-        private KpiType type;
+    /** One entry of a game's event log, as passed between the handlers and the {@link EventStore}. */
+    public static final class KpiEvent {
+        private final String eventTimestamp;
+        private final String kpiId;
+        private final Integer delta;
+        private final Boolean toggleValue;
+        private final String clientEventId;   // batch events only
+        private final String playerId;        // null for a team-level event
 
-        public KpiDefinition() {
+        public KpiEvent(String eventTimestamp, String kpiId, Integer delta, Boolean toggleValue, String clientEventId) {
+            this(eventTimestamp, kpiId, delta, toggleValue, clientEventId, null);
         }
 
-        public KpiDefinition(String gameId, String kpiId, String label, KpiType type) {
-            this.gameId = gameId;
+        public KpiEvent(String eventTimestamp, String kpiId, Integer delta, Boolean toggleValue, String clientEventId,
+                        String playerId) {
+            this.eventTimestamp = eventTimestamp;
             this.kpiId = kpiId;
-            this.label = label;
-            this.type = type;
+            this.delta = delta;
+            this.toggleValue = toggleValue;
+            this.clientEventId = clientEventId;
+            this.playerId = playerId;
         }
 
-        public String getGameId() {
-            return gameId;
+        public static KpiEvent of(String eventTimestamp, RecordKpiEventRequest request) {
+            String clientEventId = request instanceof BatchKpiEvent b ? b.getClientEventId() : null;
+            return new KpiEvent(eventTimestamp, request.getKpiId(), request.getDelta(), request.getToggleValue(), clientEventId,
+                    request.getPlayerId());
         }
 
-        public void setGameId(String gameId) {
-            this.gameId = gameId;
+        public String getEventTimestamp() {
+            return eventTimestamp;
         }
 
         public String getKpiId() {
             return kpiId;
         }
 
-        public void setKpiId(String kpiId) {
-            this.kpiId = kpiId;
-        }
-
-        public String getLabel() {
-            return label;
+        public Integer getDelta() {
+            return delta;
         }
 
-        public void setLabel(String label) {
-            this.label = label;
+        public Boolean getToggleValue() {
+            return toggleValue;
         }
 
-        public KpiType getType() {
-            return type;
+        public String getClientEventId() {
+            return clientEventId;
         }
 
-        public void setType(KpiType type) {
-            this.type = type;
+        public String getPlayerId() {
+            return playerId;
         }
     }
 
-    public static class KpiSummary {
-        private String kpiId;
-        private String label;
-        private Integer total;   // for counters
-        private Boolean value;   // for toggles
+    /**
+     * Running KPI totals for one game. The stored form is a single item in KPI_AGGREGATES_TABLE with one
+     * attribute per KPI: "c#{kpiId}" (counter total), "t#{kpiId}" (latest toggle value) and
+     * "ts#{kpiId}" (event timestamp of that toggle value). A finalized game's item also holds
+     * "finalSummary", the serialized summary response that is served from then on. "closed" marks every
+     * aggregate item of a game that is being or has been finalized; taps are refused from then on.
+     */
+    public static class KpiAggregate {
+        static final String COUNTER_PREFIX = "c#";
+        static final String TOGGLE_PREFIX = "t#";
+        static final String TOGGLE_TS_PREFIX = "ts#";
+        static final String FINAL_SUMMARY = "finalSummary";
+        static final String CLOSED = "closed";
 
-        public KpiSummary() {
-        }
+        private final Map<String, Integer> counterTotals = new HashMap<>();
+        private final Map<String, Boolean> toggleStates = new HashMap<>();
+        private final Map<String, String> toggleTimestamps = new HashMap<>();
+        private String finalSummary;
+        private boolean closed;
 
-        public static KpiSummary counter(String kpiId, String label, int total) {
-            KpiSummary s = new KpiSummary();
-            s.kpiId = kpiId;
-            s.label = label;
-            s.total = total;
-            return s;
+        public KpiAggregate copy() {
+            KpiAggregate c = new KpiAggregate();
+            c.counterTotals.putAll(counterTotals);
+            c.toggleStates.putAll(toggleStates);
+            c.toggleTimestamps.putAll(toggleTimestamps);
+            c.finalSummary = finalSummary;
+            c.closed = closed;
+            return c;
         }
 
-        public static KpiSummary toggle(String kpiId, String label, boolean value) {
-            KpiSummary s = new KpiSummary();
-            s.kpiId = kpiId;
-            s.label = label;
-            s.value = value;
-            return s;
+        /** The frozen GameSummaryResponse body of a finalized game, or null while the game is live. */
+        public String getFinalSummary() {
+            return finalSummary;
         }
 
-        public String getKpiId() {
-            return kpiId;
+        void setFinalSummary(String finalSummary) {
+            this.finalSummary = finalSummary;
         }
 
-        public void setKpiId(String kpiId) {
-            this.kpiId = kpiId;
+        /** True once the game is being finalized; a final summary implies it. */
+        public boolean isClosed() {
+            return closed || finalSummary != null;
         }
 
-        public String getLabel() {
-            return label;
+        void markClosed() {
+            closed = true;
         }
 
-        public void setLabel(String label) {
-            this.label = label;
+        /** Folds one raw kpi_events item, in either {@link EventItems} layout, into the totals. */
+        public void applyEvent(Map<String, AttributeValue> it) {
+            apply(EventItems.kpiId(it), EventItems.delta(it), EventItems.toggleValue(it), EventItems.eventTimestamp(it));
         }
 
-        public Integer getTotal() {
-            return total;
+        /** Folds one event read from an {@link EventStore} into the totals. */
+        public void applyEvent(KpiEvent e) {
+            apply(e.getKpiId(), e.getDelta(), e.getToggleValue(), e.getEventTimestamp());
         }
 
-        public void setTotal(Integer total) {
-            this.total = total;
-        }
+        private void apply(String kpiId, Integer delta, Boolean toggleValue, String eventTimestamp) {
+            if (kpiId == null || kpiId.isEmpty()) return;
 
-        public Boolean getValue() {
-            return value;
+            if (delta != null) {
+                counterTotals.merge(kpiId, delta, Integer::sum);
+            } else if (toggleValue != null) {
+                String ts = eventTimestamp != null ? eventTimestamp : "";
+                putToggle(kpiId, toggleValue, ts);
+            }
         }
 
-        public void setValue(Boolean value) {
-            this.value = value;
+        /** Adds another partial aggregate, e.g. one shard's item: counters sum, the newest toggle wins. */
+        void merge(KpiAggregate other) {
+            other.counterTotals.forEach((kpiId, total) -> counterTotals.merge(kpiId, total, Integer::sum));
+            other.toggleStates.forEach((kpiId, value) ->
+                    putToggle(kpiId, value, other.toggleTimestamps.getOrDefault(kpiId, "")));
+            if (other.finalSummary != null) {
+                finalSummary = other.finalSummary;
+            }
+            closed |= other.closed;
         }
-    }
 
-    public static class GameSummaryResponse {
-        private String gameId;
-        private List<KpiSummary> kpis;
+        /** Sets a counter total, for stores that keep their own running totals. */
+        void putCounter(String kpiId, int total) {
+            counterTotals.put(kpiId, total);
+        }
 
-        public GameSummaryResponse() {
+        /** Records a toggle value unless a newer one (by event timestamp) is already held. */
+        void putToggle(String kpiId, boolean value, String eventTimestamp) {
+            String previous = toggleTimestamps.get(kpiId);
+            if (previous == null || EventTimestamps.compare(previous, eventTimestamp) <= 0) {
+                toggleStates.put(kpiId, value);
+                toggleTimestamps.put(kpiId, eventTimestamp);
+            }
         }
 
-        public GameSummaryResponse(String gameId, List<KpiSummary> kpis) {
-            this.gameId = gameId;
-            this.kpis = kpis;
+        Map<String, Integer> counterTotals() {
+            return Collections.unmodifiableMap(counterTotals);
         }
 
-        public String getGameId() {
-            return gameId;
+        Map<String, Boolean> toggleStates() {
+            return Collections.unmodifiableMap(toggleStates);
         }
 
-        public void setGameId(String gameId) {
-            this.gameId = gameId;
+        Map<String, String> toggleTimestamps() {
+            return Collections.unmodifiableMap(toggleTimestamps);
         }
 
-        public List<KpiSummary> getKpis() {
-            return kpis;
+        /**
+         * A 64-bit hash of everything {@link #toSummaries} reads: counter totals and toggle states. Equal aggregates
+         * hash equally whatever order their maps were filled in or which container computed them, so with a game's
+         * fixed definitions it identifies the summary body without building it. Toggle timestamps are left out.
+         */
+        long fingerprint() {
+            long h = 0;
+            // entries are mixed one by one and summed, so the map's iteration order does not matter
+            for (Map.Entry<String, Integer> e : counterTotals.entrySet()) {
+                h += HttpCaching.mix(((long) e.getKey().hashCode() << 32) ^ (e.getValue() & 0xFFFFFFFFL));
+            }
+            for (Map.Entry<String, Boolean> e : toggleStates.entrySet()) {
+                h += HttpCaching.mix(~(((long) e.getKey().hashCode() << 32) | (e.getValue() ? 1 : 2)));
+            }
+            return h;
+        }
+
+        /**
+         * One summary per definition, in definition order. Derived KPIs are evaluated last, by the plan bound to
+         * this definitions list, over the counter totals and toggle states (1 or 0) gathered on the way.
+         */
+        public List<KpiSummary> toSummaries(List<KpiDefinition> defs) {
+            List<KpiSummary> summaries = new ArrayList<>(defs.size());
+            boolean derived = false;
+            for (KpiDefinition def : defs) {
+                if (def.getType() == KpiType.COUNTER) {
+                    int total = counterTotals.getOrDefault(def.getKpiId(), 0);
+                    summaries.add(KpiSummary.counter(def.getKpiId(), def.getLabel(), total));
+                } else if (def.getType() == KpiType.TOGGLE) {
+                    boolean value = toggleStates.getOrDefault(def.getKpiId(), false);
+                    summaries.add(KpiSummary.toggle(def.getKpiId(), def.getLabel(), value));
+                } else {
+                    derived = true;
+                    summaries.add(null);
+                }
+            }
+            if (derived) {
+                double[] totals = new double[defs.size()];
+                for (int i = 0; i < totals.length; i++) {
+                    KpiSummary summary = summaries.get(i);
+                    if (summary == null) continue;
+                    totals[i] = summary.getTotal() != null ? summary.getTotal() : summary.getValue() ? 1 : 0;
+                }
+                Double[] results = KpiExpression.plan(defs).evaluate(totals);
+                for (int i = 0; i < totals.length; i++) {
+                    if (summaries.get(i) == null) {
+                        KpiDefinition def = defs.get(i);
+                        summaries.set(i, KpiSummary.derived(def.getKpiId(), def.getLabel(), results[i]));
+                    }
+                }
+            }
+            return summaries;
+        }
+
+        public static KpiAggregate fromItem(Map<String, AttributeValue> item) {
+            KpiAggregate agg = new KpiAggregate();
+            for (Map.Entry<String, AttributeValue> e : item.entrySet()) {
+                String name = e.getKey();
+                if (name.startsWith(COUNTER_PREFIX)) {
+                    agg.counterTotals.put(name.substring(COUNTER_PREFIX.length()), Integer.parseInt(e.getValue().n()));
+                } else if (name.startsWith(TOGGLE_PREFIX)) {
+                    agg.toggleStates.put(name.substring(TOGGLE_PREFIX.length()), e.getValue().bool());
+                } else if (name.startsWith(TOGGLE_TS_PREFIX)) {
+                    agg.toggleTimestamps.put(name.substring(TOGGLE_TS_PREFIX.length()), e.getValue().s());
+                } else if (name.equals(FINAL_SUMMARY)) {
+                    agg.finalSummary = e.getValue().s();
+                } else if (name.equals(CLOSED)) {
+                    agg.closed = true;
+                }
+            }
+            return agg;
+        }
+
+        public Map<String, AttributeValue> toItem(String gameId) {
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("gameId", AttributeValue.builder().s(gameId).build());
+            counterTotals.forEach((kpiId, total) ->
+                    item.put(COUNTER_PREFIX + kpiId, AttributeValue.builder().n(Integer.toString(total)).build()));
+            toggleStates.forEach((kpiId, value) ->
+                    item.put(TOGGLE_PREFIX + kpiId, AttributeValue.builder().bool(value).build()));
+            toggleTimestamps.forEach((kpiId, ts) ->
+                    item.put(TOGGLE_TS_PREFIX + kpiId, AttributeValue.builder().s(ts).build()));
+            if (finalSummary != null) {
+                item.put(FINAL_SUMMARY, AttributeValue.builder().s(finalSummary).build());
+            }
+            if (isClosed()) {
+                item.put(CLOSED, AttributeValue.builder().bool(true).build());
+            }
+            return item;
         }
+    }
 
-        public void setKpis(List<KpiSummary> kpis) {
-            this.kpis = kpis;
+    /**
+     * Totals folded from the event log up to and including the event at {@code cursor} (an eventTimestamp).
+     * Instances are never mutated once cached; a poll builds a new one and replaces the entry.
+     */
+    static final class PartialSummary {
+        final KpiAggregate aggregate;
+        final String cursor;
+
+        PartialSummary(KpiAggregate aggregate, String cursor) {
+            this.aggregate = aggregate;
+            this.cursor = cursor;
         }
     }
 
@@ -614,21 +2466,53 @@ public class Handlers {
 
     // ----- Helpers -----
 
-    private static void logStructured(String requestId, String handler, String gameId, String status, int statusCode, long durationMs, String errorType, String errorMessage) {
-        try {
-            Map<String, Object> log = new HashMap<>();
-            log.put("requestId", requestId);
-            log.put("handler", handler);
-            if (gameId != null) log.put("gameId", gameId);
-            log.put("status", status);
-            log.put("statusCode", statusCode);
-            log.put("durationMs", durationMs);
-            if (errorType != null) log.put("errorType", errorType);
-            if (errorMessage != null) log.put("errorMessage", errorMessage);
-            System.out.println(OBJECT_MAPPER.writeValueAsString(log));
-        } catch (JsonProcessingException ignored) {
-            System.err.println("{\"message\":\"Failed to serialize log\"}");
+    /** Logs the request's outcome; the same line carries the invocation's metrics (see {@link InvocationMetrics}). */
+    static void logStructured(String requestId, String handler, String gameId, String status, int statusCode, long durationMs, String errorType, String errorMessage) {
+        InvocationMetrics metrics = InvocationMetrics.finish();
+        StructuredLog.write(System.out, requestId, handler, gameId, status, statusCode, durationMs, errorType, errorMessage,
+                InvocationMetrics.ENABLED ? metrics : null);
+    }
+
+    private static APIGatewayV2WebSocketResponse webSocketResponse(int statusCode) {
+        APIGatewayV2WebSocketResponse response = new APIGatewayV2WebSocketResponse();
+        response.setStatusCode(statusCode);
+        return response;
+    }
+
+    private static LivePush livePush() {
+        LivePush push = livePush;
+        if (push == null) {
+            synchronized (Handlers.class) {
+                push = livePush;
+                if (push == null) {
+                    push = ApiGatewayLivePush.fromEnvironment();
+                    livePush = push;
+                }
+            }
         }
+        return push;
+    }
+
+    /** A stream image in the SDK's attribute model, so {@link EventItems} decodes it like a queried item. */
+    private static Map<String, AttributeValue> streamItem(
+            Map<String, com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue> image) {
+        Map<String, AttributeValue> item = new HashMap<>(image.size() * 2);
+        image.forEach((name, v) -> {
+            if (v.getS() != null) {
+                item.put(name, AttributeValue.builder().s(v.getS()).build());
+            } else if (v.getN() != null) {
+                item.put(name, AttributeValue.builder().n(v.getN()).build());
+            } else if (v.getB() != null) {
+                item.put(name, AttributeValue.builder().b(SdkBytes.fromByteBuffer(v.getB())).build());
+            } else if (v.getBOOL() != null) {
+                item.put(name, AttributeValue.builder().bool(v.getBOOL()).build());
+            }
+        });
+        return item;
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
     }
 
     private static APIGatewayV2HTTPResponse okJson(Object bodyObj) {
@@ -636,25 +2520,15 @@ public class Handlers {
     }
 
     private static APIGatewayV2HTTPResponse errorJson(int status, String message) {
-        Map<String, Object> body = new HashMap<>();
-        body.put("message", message);
-        return jsonResponse(status, body);
+        return jsonResponse(status, Collections.singletonMap("message", message));
     }
 
-    private static APIGatewayV2HTTPResponse jsonResponse(int statusCode, Object bodyObj) {
+    static APIGatewayV2HTTPResponse jsonResponse(int statusCode, Object bodyObj) {
         try {
+            long start = System.nanoTime();
             String body = OBJECT_MAPPER.writeValueAsString(bodyObj);
-            Map<String, String> headers = new HashMap<>();
-            headers.put("Content-Type", "application/json");
-            headers.put("Access-Control-Allow-Origin", "*");
-            headers.put("Access-Control-Allow-Headers", "*");
-            headers.put("Access-Control-Allow-Methods", "GET,POST,OPTIONS");
-
-            return APIGatewayV2HTTPResponse.builder()
-                    .withStatusCode(statusCode)
-                    .withHeaders(headers)
-                    .withBody(body)
-                    .build();
+            InvocationMetrics.addSerialization(System.nanoTime() - start);
+            return jsonBodyResponse(statusCode, body);
         } catch (JsonProcessingException e) {
             return APIGatewayV2HTTPResponse.builder()
                     .withStatusCode(500)
@@ -663,32 +2537,461 @@ public class Handlers {
         }
     }
 
+    /**
+     * A 200 in the format the client negotiated (see {@link BodyEncoding}); binary bodies go out base64-encoded.
+     * Serialization time is counted as for {@link #jsonResponse}.
+     */
+    static APIGatewayV2HTTPResponse encodedResponse(BodyEncoding encoding, Object bodyObj) {
+        if (encoding == BodyEncoding.JSON) {
+            APIGatewayV2HTTPResponse response = okJson(bodyObj);
+            if (response.getStatusCode() == 200) response.setHeaders(encoding.headers);
+            return response;
+        }
+        try {
+            long start = System.nanoTime();
+            byte[] body = encoding.write(bodyObj);
+            InvocationMetrics.addSerialization(System.nanoTime() - start);
+            return binaryBodyResponse(encoding, Base64.getEncoder().encodeToString(body));
+        } catch (IOException e) {
+            return errorJson(500, "Failed to serialize response");
+        }
+    }
+
+    /** A 200 around an already encoded Smile or CBOR body, given base64 as API Gateway expects it. */
+    private static APIGatewayV2HTTPResponse binaryBodyResponse(BodyEncoding encoding, String base64Body) {
+        APIGatewayV2HTTPResponse response = new APIGatewayV2HTTPResponse();
+        response.setStatusCode(200);
+        response.setHeaders(encoding.headers);
+        response.setBody(base64Body);
+        response.setIsBase64Encoded(true);
+        return response;
+    }
+
+    /** A JSON response around an already serialized body, e.g. a constant for a common reply. */
+    static APIGatewayV2HTTPResponse jsonBodyResponse(int statusCode, String body) {
+        APIGatewayV2HTTPResponse response = new APIGatewayV2HTTPResponse();
+        response.setStatusCode(statusCode);
+        response.setHeaders(JSON_HEADERS);
+        response.setBody(body);
+        return response;
+    }
+
+    /** Parses a tap body: the allocation-free fast path for the usual shape, the regular reader for anything else. */
+    static RecordKpiEventRequest readTapRequest(String body) throws IOException {
+        RecordKpiEventRequest request = TapRequestParser.parse(body);
+        return request != null ? request : RECORD_KPI_EVENT_READER.readValue(body);
+    }
+
     private static String pathParam(APIGatewayV2HTTPEvent event, String name) {
         Map<String, String> pathParams = event.getPathParameters();
         if (pathParams == null) return null;
         return pathParams.get(name);
     }
 
-    private static String nullToEmpty(String s) {
-        return s == null ? "" : s;
+    /** A query string parameter, or null when it is absent or empty. */
+    private static String queryParam(APIGatewayV2HTTPEvent event, String name) {
+        Map<String, String> query = event.getQueryStringParameters();
+        if (query == null) return null;
+        String value = query.get(name);
+        return value == null || value.isEmpty() ? null : value;
     }
 
-    private static List<KpiDefinition> loadKpisForGame(String gameId) {
-        QueryRequest query = QueryRequest.builder()
-                .tableName(KPI_DEFINITIONS_TABLE)
-                .keyConditionExpression("gameId = :g")
-                .expressionAttributeValues(Collections.singletonMap(
-                        ":g", AttributeValue.builder().s(gameId).build()))
-                .build();
+    /**
+     * The timeline bucket size in seconds from "90", "90s" or "5m"; the default for null, and -1 for anything
+     * unparseable or shorter than MIN_TIMELINE_BUCKET_SECONDS.
+     */
+    static int parseBucketSeconds(String value) {
+        if (value == null) return DEFAULT_TIMELINE_BUCKET_SECONDS;
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        int unit = 1;
+        if (v.endsWith("s")) {
+            v = v.substring(0, v.length() - 1);
+        } else if (v.endsWith("m")) {
+            v = v.substring(0, v.length() - 1);
+            unit = 60;
+        }
+        try {
+            int seconds = Math.multiplyExact(Integer.parseInt(v), unit);
+            return seconds >= MIN_TIMELINE_BUCKET_SECONDS ? seconds : -1;
+        } catch (NumberFormatException | ArithmeticException e) {
+            return -1;
+        }
+    }
 
-        List<KpiDefinition> defs = new ArrayList<>();
-        DDB.queryPaginator(query).items().forEach(it -> {
-            String kpiId = it.get("kpiId").s();
-            String label = it.get("label").s();
-            KpiType type = KpiType.valueOf(it.get("type").s());
-            defs.add(new KpiDefinition(gameId, kpiId, label, type));
-        });
+    /** The game's kickoff as an epoch second, or null when the game is unknown or has no parseable kickoff. */
+    private static Long kickoffSecond(Game game) {
+        if (game == null || game.getKickoffIso() == null || game.getKickoffIso().isEmpty()) return null;
+        try {
+            return Instant.parse(game.getKickoffIso()).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /** A validated from/to as it is compared with stored kickoffs: a date as is, an instant as its {@link Game#kickoffKey}. */
+    private static String rangeKey(String value) {
+        return value == null || value.length() == 10 ? value : Game.kickoffKey(value);
+    }
+
+    /** True for null (an open bound), an ISO-8601 date or an ISO-8601 instant. */
+    private static boolean isIsoDateOrInstant(String value) {
+        if (value == null) return true;
+        if (value.length() != 10) return Game.kickoffKey(value) != null;
+        try {
+            LocalDate.parse(value);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /** Returns a client-facing validation message, or null if the event is well formed. */
+    private static String validateEvent(RecordKpiEventRequest request) {
+        if (request.getKpiId() == null || request.getKpiId().isEmpty()) {
+            return "kpiId is required";
+        }
+        if (!validIdentifier(request.getKpiId(), MAX_KPI_ID_LENGTH)) {
+            return "kpiId must be 1 to " + MAX_KPI_ID_LENGTH + " characters without control characters";
+        }
+        if (request.getDelta() != null && request.getDelta() != 1 && request.getDelta() != -1) {
+            return "delta must be 1 or -1 for counter events";
+        }
+        if (request.getDelta() != null && request.getToggleValue() != null) {
+            return "Provide either delta (counter) or toggleValue (toggle), not both";
+        }
+        if (request.getDelta() == null && request.getToggleValue() == null) {
+            return "Provide either delta (counter) or toggleValue (toggle)";
+        }
+        if (request.getPlayerId() != null && !validPlayerId(request.getPlayerId())) {
+            return "playerId must be 1 to " + MAX_PLAYER_ID_LENGTH + " characters without control characters";
+        }
+        return null;
+    }
+
+    /**
+     * The problem with a well-formed event's kpiId, or null if it names a counter of the game and carries a delta,
+     * or a toggle and carries a toggleValue. Each aggregate item holds one attribute per kpiId, so this also keeps
+     * it within DynamoDB's item size.
+     */
+    private static String validateKpiReference(RecordKpiEventRequest request, List<KpiDefinition> defs) {
+        for (KpiDefinition def : defs) {
+            if (!def.getKpiId().equals(request.getKpiId())) continue;
+            if (def.getType() == KpiType.COUNTER) {
+                return request.getDelta() != null ? null : "KPI " + def.getKpiId() + " is a counter; send a delta";
+            }
+            if (def.getType() == KpiType.TOGGLE) {
+                return request.getToggleValue() != null ? null : "KPI " + def.getKpiId() + " is a toggle; send a toggleValue";
+            }
+            return "KPI " + def.getKpiId() + " is derived from other KPIs and takes no events";
+        }
+        return "Unknown kpiId for this game: " + request.getKpiId();
+    }
+
+    private static boolean validPlayerId(String playerId) {
+        return validIdentifier(playerId, MAX_PLAYER_ID_LENGTH);
+    }
+
+    /** Bounded and free of control characters, which the event archive uses as separators. */
+    private static boolean validIdentifier(String id, int maxLength) {
+        if (id == null || id.isEmpty() || id.length() > maxLength) return false;
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) < 0x20) return false;
+        }
+        return true;
+    }
+
+    /** The template problem to report, or null if it names a version and lists at least one valid KPI. */
+    private static String validateTemplate(KpiTemplate template) {
+        if (!validIdentifier(template.getTemplateId(), MAX_KPI_ID_LENGTH)) {
+            return "templateId must be 1 to " + MAX_KPI_ID_LENGTH + " characters without control characters";
+        }
+        if (template.getVersion() == null || template.getVersion() < 1) {
+            return "version must be a positive integer";
+        }
+        if (template.getKpis() == null || template.getKpis().isEmpty()) {
+            return "kpis must list at least one KPI";
+        }
+        String invalid = validateKpiDefinitions("kpis", template.getKpis());
+        return invalid != null ? invalid : validateDerivedReferences("kpis", template.getKpis());
+    }
+
+    /** The problem to report with a list of KPIs, or null if each has a valid kpiId, a label and a type, once. */
+    private static String validateKpiDefinitions(String field, List<KpiDefinition> kpis) {
+        if (kpis == null) return null;
+        if (kpis.size() > MAX_TEMPLATE_KPIS) {
+            return field + " may list at most " + MAX_TEMPLATE_KPIS + " KPIs";
+        }
+        Set<String> seen = new HashSet<>();
+        for (KpiDefinition def : kpis) {
+            if (def == null || !validIdentifier(def.getKpiId(), MAX_KPI_ID_LENGTH)) {
+                return "Every KPI in " + field + " needs a kpiId of 1 to " + MAX_KPI_ID_LENGTH
+                        + " characters without control characters";
+            }
+            if (def.getLabel() == null || def.getLabel().isBlank() || def.getType() == null) {
+                return "KPI " + def.getKpiId() + " in " + field + " needs a label and a type";
+            }
+            if ((def.getType() == KpiType.DERIVED) != (def.getExpression() != null)) {
+                return "KPI " + def.getKpiId() + " in " + field + " needs an expression if and only if its type is DERIVED";
+            }
+            if (def.getType() == KpiType.DERIVED) {
+                try {
+                    KpiExpression.parse(def.getExpression());
+                } catch (IllegalArgumentException e) {
+                    return "KPI " + def.getKpiId() + " in " + field + ": " + e.getMessage();
+                }
+            }
+            if (!seen.add(def.getKpiId())) {
+                return "Duplicate kpiId in " + field + ": " + def.getKpiId();
+            }
+        }
+        return null;
+    }
+
+    /** The roster problem to report, or null if every player has a unique, valid playerId. */
+    private static String validateRoster(List<Player> roster) {
+        if (roster == null) return null;
+        if (roster.size() > MAX_ROSTER_PLAYERS) {
+            return "roster may list at most " + MAX_ROSTER_PLAYERS + " players";
+        }
+        Set<String> seen = new HashSet<>();
+        for (Player player : roster) {
+            String id = player != null ? player.getPlayerId() : null;
+            if (!validPlayerId(id)) {
+                return "Every roster player needs a playerId of 1 to " + MAX_PLAYER_ID_LENGTH
+                        + " characters without control characters";
+            }
+            if (!seen.add(id)) {
+                return "Duplicate playerId in roster: " + id;
+            }
+        }
+        return null;
+    }
+
+    /** The problem to report if a derived KPI's formula reads a KPI that is not a counter or toggle of the same list. */
+    private static String validateDerivedReferences(String field, List<KpiDefinition> defs) {
+        Map<String, KpiType> types = new HashMap<>();
+        for (KpiDefinition def : defs) {
+            types.put(def.getKpiId(), def.getType());
+        }
+        for (KpiDefinition def : defs) {
+            if (def.getType() != KpiType.DERIVED) continue;
+            for (String kpiId : KpiExpression.parse(def.getExpression()).references()) {
+                KpiType type = types.get(kpiId);
+                if (type == null || type == KpiType.DERIVED) {
+                    return "KPI " + def.getKpiId() + " in " + field + " refers to " + kpiId
+                            + ", which is not a counter or toggle of the game";
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String validateBatchEvent(BatchKpiEvent e) {
+        if (e.getClientEventId() == null || e.getClientEventId().isEmpty()) {
+            return "clientEventId is required";
+        }
+        if (e.getOccurredAt() == null || e.getOccurredAt().isEmpty()) {
+            return "occurredAt is required";
+        }
+        try {
+            Instant.parse(e.getOccurredAt());
+        } catch (DateTimeParseException ex) {
+            return "occurredAt must be an ISO-8601 instant";
+        }
+        return validateEvent(e);
+    }
+
+    /** Sort key for a batch event: normalized occurredAt plus clientEventId, stable across replays. */
+    private static String batchEventTimestamp(BatchKpiEvent e) {
+        return EventTimestamps.format(Instant.parse(e.getOccurredAt())) + "#" + e.getClientEventId();
+    }
+
+    private static List<KpiDefinition> loadKpisForGame(KpiDefinitionStore definitions, String gameId) {
+        List<KpiDefinition> cached = KPI_DEFINITION_CACHE.get(gameId);
+        if (cached != null) return cached;
+
+        List<KpiDefinition> defs = definitions.loadDefinitions(gameId);
+        // an empty result may just mean the game is still being seeded, so only cache real definitions
+        if (!defs.isEmpty()) {
+            defs = Collections.unmodifiableList(defs);
+            KPI_DEFINITION_CACHE.put(gameId, defs);
+        }
         return defs;
     }
-}
 
+    /** {@link #loadKpisForGame} on a virtual thread; a cache hit completes immediately without starting one. */
+    private static Future<List<KpiDefinition>> loadKpisForGameAsync(KpiDefinitionStore definitions, String gameId) {
+        List<KpiDefinition> cached = KPI_DEFINITION_CACHE.get(gameId);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return PARALLEL_READS.submit(InvocationMetrics.propagate(() -> loadKpisForGame(definitions, gameId)));
+    }
+
+    /**
+     * One game's summaries for the season fan-out, read like {@link GetGameSummaryHandler} does. A finalized
+     * game's are taken from its snapshot and kept for later season requests.
+     */
+    private static List<KpiSummary> seasonGameSummaries(KpiDefinitionStore definitions, EventStore events, String gameId) throws Exception {
+        List<KpiSummary> cached = SEASON_GAME_CACHE.get(gameId);
+        if (cached != null) return cached;
+
+        String frozen = FINAL_SUMMARY_CACHE.get(gameId);
+        if (frozen == null) {
+            Future<List<KpiDefinition>> defs = loadKpisForGameAsync(definitions, gameId);
+            KpiAggregate aggregate = events.loadAggregate(gameId);
+            if (aggregate == null) {
+                aggregate = rebuildMissingAggregate(events, gameId);
+            }
+            frozen = aggregate.getFinalSummary();
+            if (frozen == null) {
+                return aggregate.toSummaries(await(defs));
+            }
+            defs.cancel(true);
+            FINAL_SUMMARY_CACHE.put(gameId, frozen);
+        }
+        List<KpiSummary> summaries = OBJECT_MAPPER.readValue(frozen, GameSummaryResponse.class).getKpis();
+        SEASON_GAME_CACHE.put(gameId, summaries);
+        return summaries;
+    }
+
+    /** Adds one game's summaries to the season totals: counters sum, toggles count the games they ended on. */
+    static void mergeSeason(Map<String, KpiSummary> season, List<KpiSummary> game) {
+        for (KpiSummary k : game) {
+            // a derived KPI's per-game results do not add up to a season value
+            if (k.getTotal() == null && k.getValue() == null) continue;
+            KpiSummary total = season.get(k.getKpiId());
+            if (total == null) {
+                total = KpiSummary.counter(k.getKpiId(), k.getLabel(), 0);
+                season.put(k.getKpiId(), total);
+            }
+            if (k.getTotal() != null) {
+                total.setTotal(total.getTotal() + k.getTotal());
+            } else if (Boolean.TRUE.equals(k.getValue())) {
+                total.setTotal(total.getTotal() + 1);
+                total.setValue(true);
+            } else if (total.getValue() == null) {
+                total.setValue(false);
+            }
+        }
+    }
+
+    /** Waits for a parallel read and rethrows its failure as if the read had run on this thread. */
+    private static <T> T await(Future<T> read) throws Exception {
+        try {
+            return read.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Folds the event log into totals, reading only events after the cached cursor for this game.
+     * Events older than the settle window advance the cursor; newer ones are folded into this response only
+     * and read again next time, in case a concurrent write with an earlier timestamp has not landed yet.
+     *
+     * The cursor is an eventTimestamp, and a batch event's is its occurredAt, which can be far older than the
+     * cursor. A batch recorded by this container drops the entry (see {@link #forgetCursorBehind}); one recorded
+     * by another container is missing from this container's totals until the entry expires
+     * (SUMMARY_CACHE_MAX_AGE_SECONDS) and the log is read again from the start. That is the staleness window.
+     */
+    static KpiAggregate summarizeFromEvents(EventStore events, String gameId) {
+        PartialSummary cached = SUMMARY_CACHE.get(gameId);
+        KpiAggregate settled = cached != null ? cached.aggregate.copy() : new KpiAggregate();
+        String cursor = cached != null ? cached.cursor : null;
+
+        Instant settleBoundary = Instant.now().minusMillis(SUMMARY_CACHE_SETTLE_MILLIS);
+        List<KpiEvent> unsettled = new ArrayList<>();
+        for (KpiEvent e : events.events(gameId, cursor)) {
+            String ts = e.getEventTimestamp();
+            if (unsettled.isEmpty() && !eventTime(ts).isAfter(settleBoundary)) {
+                settled.applyEvent(e);
+                cursor = ts;
+            } else {
+                unsettled.add(e);
+            }
+        }
+
+        if (cursor != null) {
+            SUMMARY_CACHE.update(gameId, new PartialSummary(settled, cursor));
+        }
+        if (unsettled.isEmpty()) {
+            return settled;
+        }
+        KpiAggregate current = settled.copy();
+        for (KpiEvent e : unsettled) {
+            current.applyEvent(e);
+        }
+        return current;
+    }
+
+    /** Drops the game's partial totals if the batch created an event at or before their cursor. */
+    private static void forgetCursorBehind(String gameId, Map<String, BatchEventResult> written) {
+        PartialSummary partial = SUMMARY_CACHE.get(gameId);
+        if (partial == null) return;
+        for (Map.Entry<String, BatchEventResult> e : written.entrySet()) {
+            if (BatchEventResult.CREATED.equals(e.getValue().getStatus())
+                    && EventTimestamps.compare(e.getKey(), partial.cursor) <= 0) {
+                SUMMARY_CACHE.invalidate(gameId);
+                return;
+            }
+        }
+    }
+
+    /** Parses the time part of an eventTimestamp, which may carry a "#clientEventId" suffix for batch events. */
+    private static Instant eventTime(String eventTimestamp) {
+        int hash = eventTimestamp.indexOf('#');
+        return Instant.parse(hash < 0 ? eventTimestamp : eventTimestamp.substring(0, hash));
+    }
+
+    private static int envInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) return defaultValue;
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * The whole event log of a game for a fold. A finalized game's comes from its archive, since the original
+     * events expire (in memory they are dropped at once); taps stored after the game was finalized are left out,
+     * as they are from its summary. The game is read first to tell, so these folds no longer overlap that read.
+     */
+    private static Iterable<KpiEvent> fullLog(EventStore events, Game game, String gameId) {
+        if (game != null && Game.FINAL.equals(game.getStatus())) {
+            List<KpiEvent> archived = events.archivedEvents(gameId);
+            if (archived != null) return archived;
+        }
+        return events.events(gameId, null);
+    }
+
+    /**
+     * Recomputes the aggregate by folding the full event log and stores it. Taps recorded while the
+     * rebuild is running may be overwritten; run it again (or when the game is quiet) if that matters.
+     * Only the explicit rebuild endpoint overwrites; reads use {@link #rebuildMissingAggregate}.
+     */
+    private static KpiAggregate rebuildAggregate(EventStore events, String gameId) {
+        KpiAggregate aggregate = foldEvents(events, gameId);
+        events.storeAggregate(gameId, aggregate);
+        SUMMARY_CACHE.invalidate(gameId);
+        return aggregate;
+    }
+
+    /**
+     * The aggregate of a game that has no stored one, i.e. a game created before CreateGame wrote an empty one.
+     * The fold is stored only if still no aggregate exists. A tap never creates the item by itself: its store
+     * folds the log the same way first, so whichever fold wins, the older events are in it.
+     */
+    static KpiAggregate rebuildMissingAggregate(EventStore events, String gameId) {
+        KpiAggregate aggregate = foldEvents(events, gameId);
+        if (events.storeAggregateIfAbsent(gameId, aggregate)) {
+            SUMMARY_CACHE.invalidate(gameId);
+        }
+        return aggregate;
+    }
+
+    private static KpiAggregate foldEvents(EventStore events, String gameId) {
+        KpiAggregate aggregate = new KpiAggregate();
+        for (KpiEvent e : events.events(gameId, null)) {
+            aggregate.applyEvent(e);
+        }
+        return aggregate;
+    }
+}
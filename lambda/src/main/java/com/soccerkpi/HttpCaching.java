@@ -0,0 +1,141 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Conditional GETs and response compression for polled resources. The ETag is computed from the data a body
+ * would be built from, not from the body, so a poll that matches If-None-Match gets its 304 before the summary
+ * is assembled or serialized. ETags are weak ({@code W/"..."}): the same version is served gzip-compressed or
+ * not, depending on the client's Accept-Encoding.
+ */
+final class HttpCaching {
+
+    // below this a gzip body, with its ~20-byte framing and the base64 round trip, saves next to nothing
+    static final int GZIP_MIN_BYTES = 512;
+
+    private HttpCaching() {
+    }
+
+    /** The ETag of a version identified by a 64-bit fingerprint, e.g. {@link Handlers.KpiAggregate#fingerprint()}. */
+    static String etag(long fingerprint) {
+        return "W/\"" + Long.toHexString(fingerprint) + "\"";
+    }
+
+    /** The ETag of a body that never changes, e.g. a finalized game's summary snapshot. */
+    static String etag(String body) {
+        // FNV-1a; the "f" keeps these apart from aggregate fingerprints
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < body.length(); i++) {
+            h = (h ^ body.charAt(i)) * 0x100000001b3L;
+        }
+        return "W/\"f" + Long.toHexString(h) + "\"";
+    }
+
+    /** Spreads the bits of one map entry before entries are summed into a fingerprint (the SplitMix64 finalizer). */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /** True if the request's If-None-Match lists {@code etag} (weak comparison) or is "*". */
+    static boolean notModified(APIGatewayV2HTTPEvent event, String etag) {
+        String ifNoneMatch = header(event, "if-none-match");
+        if (ifNoneMatch == null) return false;
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*") || opaque(c).equals(opaque)) return true;
+        }
+        return false;
+    }
+
+    /** A 304 without a body; it repeats the ETag and caching headers a 200 would have carried. */
+    static APIGatewayV2HTTPResponse notModifiedResponse(Map<String, String> headers, String etag) {
+        APIGatewayV2HTTPResponse response = new APIGatewayV2HTTPResponse();
+        response.setStatusCode(304);
+        response.setHeaders(cachingHeaders(headers, etag));
+        return response;
+    }
+
+    /**
+     * Adds the ETag to a 200 and gzips its body when the client accepts gzip and the body is large enough. The body
+     * is returned base64-encoded, which API Gateway decodes before sending it on.
+     */
+    static APIGatewayV2HTTPResponse withEtag(APIGatewayV2HTTPEvent event, APIGatewayV2HTTPResponse response, String etag) {
+        if (response.getStatusCode() != 200) return response;
+        Map<String, String> headers = cachingHeaders(response.getHeaders(), etag);
+        response.setHeaders(headers);
+        String body = response.getBody();
+        if (body == null || body.length() < GZIP_MIN_BYTES || !acceptsGzip(event)) return response;
+
+        byte[] raw = response.getIsBase64Encoded() ? Base64.getDecoder().decode(body) : body.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < GZIP_MIN_BYTES) return response;
+        byte[] compressed = gzip(raw);
+        headers.put("Content-Encoding", "gzip");
+        response.setBody(Base64.getEncoder().encodeToString(compressed));
+        response.setIsBase64Encoded(true);
+        return response;
+    }
+
+    static boolean acceptsGzip(APIGatewayV2HTTPEvent event) {
+        String accept = header(event, "accept-encoding");
+        if (accept == null) return false;
+        for (String coding : accept.split(",")) {
+            String c = coding.trim().toLowerCase(Locale.ROOT);
+            int semi = c.indexOf(';');
+            String name = semi < 0 ? c : c.substring(0, semi).trim();
+            if (!name.equals("gzip") && !name.equals("*")) continue;
+            // "gzip;q=0" explicitly refuses it
+            return semi < 0 || !c.substring(semi).replace(" ", "").matches(";q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 3 + 32);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out, 1024)) {
+            gz.write(data);
+        } catch (IOException e) {
+            // a ByteArrayOutputStream does not fail
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /** A request header by name; API Gateway lower-cases header names, other callers may not. */
+    static String header(APIGatewayV2HTTPEvent event, String lowerCaseName) {
+        Map<String, String> headers = event != null ? event.getHeaders() : null;
+        if (headers == null) return null;
+        String value = headers.get(lowerCaseName);
+        if (value != null) return value;
+        for (Map.Entry<String, String> e : headers.entrySet()) {
+            if (e.getKey().equalsIgnoreCase(lowerCaseName)) return e.getValue();
+        }
+        return null;
+    }
+
+    private static Map<String, String> cachingHeaders(Map<String, String> base, String etag) {
+        Map<String, String> headers = base != null ? new HashMap<>(base) : new HashMap<>();
+        headers.put("ETag", etag);
+        // browsers keep the body but revalidate on every poll, which is what turns repeat polls into 304s
+        headers.put("Cache-Control", "no-cache");
+        headers.merge("Vary", "Accept-Encoding", (a, b) -> a + ", " + b);
+        headers.put("Access-Control-Expose-Headers", "ETag");
+        return headers;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,270 @@
+package com.soccerkpi;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps everything in this JVM, for local servers, load tests and benchmarks that should measure our code
+ * rather than DynamoDB. Nothing survives a restart.
+ *
+ * The tap path takes no locks: each game's log is a ConcurrentSkipListMap keyed by eventTimestamp (putIfAbsent
+ * gives the same insert-once rule as the conditional writes in DynamoDB), counters are LongAdders, which
+ * stripe contended increments across cells, and toggles are swapped in with a forward-only merge.
+ *
+ * Listeners registered with {@link #onEventsRecorded} stand in for the kpi_events stream: they see every newly
+ * stored event, on the recording thread, after it has been applied to the totals.
+ */
+public class InMemoryKpiStore implements KpiStore {
+
+    private final ConcurrentMap<String, Handlers.Game> games = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<Handlers.KpiDefinition>> definitions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Handlers.KpiTemplate> templates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentSkipListMap<String, Handlers.KpiEvent>> events = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Totals> totals = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> finalSummaries = new ConcurrentHashMap<>();
+    private final Set<String> closedGames = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, byte[]> archives = new ConcurrentHashMap<>();
+    private final AtomicLong collisions = new AtomicLong();
+    private final ConcurrentMap<String, String> connectionGames = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> gameConnections = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, List<Handlers.KpiEvent>>> listeners = new CopyOnWriteArrayList<>();
+
+    /** Running totals of one game. */
+    private static final class Totals {
+        final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+        final ConcurrentMap<String, Toggle> toggles = new ConcurrentHashMap<>();
+
+        void apply(Handlers.KpiEvent e) {
+            if (e.getKpiId() == null || e.getKpiId().isEmpty()) return;
+            if (e.getDelta() != null) {
+                counters.computeIfAbsent(e.getKpiId(), k -> new LongAdder()).add(e.getDelta());
+            } else if (e.getToggleValue() != null) {
+                Toggle next = new Toggle(e.getToggleValue(), e.getEventTimestamp());
+                toggles.merge(e.getKpiId(), next, (current, candidate) ->
+                        EventTimestamps.compare(current.timestamp, candidate.timestamp) <= 0 ? candidate : current);
+            }
+        }
+
+        Handlers.KpiAggregate snapshot() {
+            Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+            counters.forEach((kpiId, total) -> aggregate.putCounter(kpiId, total.intValue()));
+            toggles.forEach((kpiId, t) -> aggregate.putToggle(kpiId, t.value, t.timestamp));
+            return aggregate;
+        }
+    }
+
+    private static final class Toggle {
+        final boolean value;
+        final String timestamp;
+
+        Toggle(boolean value, String timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+
+    // ----- Games -----
+
+    @Override
+    public void putGame(Handlers.Game game) {
+        games.put(game.getGameId(), game);
+    }
+
+    /** The totals go in first, so a game that can be read always has them. */
+    @Override
+    public void createGame(Handlers.Game game) {
+        totals(game.getGameId());
+        games.put(game.getGameId(), game);
+    }
+
+    @Override
+    public Handlers.Game getGame(String gameId) {
+        return games.get(gameId);
+    }
+
+    @Override
+    public List<Handlers.Game> gamesForTeam(String team, String from, String to) {
+        String key = Handlers.Game.teamKey(team);
+        List<Handlers.Game> played = new ArrayList<>();
+        for (Handlers.Game game : games.values()) {
+            String kickoff = game.getKickoffIso();
+            if (kickoff == null) continue;
+            if (!key.equals(Handlers.Game.teamKey(game.getHomeTeam())) && !key.equals(Handlers.Game.teamKey(game.getAwayTeam()))) continue;
+            if (from != null && kickoff.compareTo(from) < 0) continue;
+            if (to != null && kickoff.compareTo(to) > 0 && !kickoff.startsWith(to)) continue;
+            played.add(game);
+        }
+        played.sort(Comparator.comparing(Handlers.Game::getKickoffIso));
+        return played;
+    }
+
+    // ----- KPI definitions -----
+
+    @Override
+    public boolean putTemplate(Handlers.KpiTemplate template) {
+        return templates.putIfAbsent(template.getTemplateId() + "@" + template.getVersion(), template) == null;
+    }
+
+    @Override
+    public Handlers.KpiTemplate loadTemplate(String templateId, int version) {
+        return templates.get(templateId + "@" + version);
+    }
+
+    @Override
+    public void putDefinitions(String gameId, List<Handlers.KpiDefinition> defs) {
+        definitions.put(gameId, List.copyOf(defs));
+    }
+
+    @Override
+    public List<Handlers.KpiDefinition> loadDefinitions(String gameId) {
+        List<Handlers.KpiDefinition> resolved = KpiTemplates.forGame(this, games.get(gameId));
+        if (resolved != null) return resolved;
+        return definitions.getOrDefault(gameId, Collections.emptyList());
+    }
+
+    // ----- Events and aggregates -----
+
+    @Override
+    public void recordEvent(String gameId, Handlers.KpiEvent event) {
+        if (closedGames.contains(gameId)) throw new GameClosedException(gameId);
+        ConcurrentSkipListMap<String, Handlers.KpiEvent> log = log(gameId);
+        Handlers.KpiEvent stored = event;
+        // taps in the same microsecond would share a key; the "#n" suffix has the same form as batch event keys
+        while (log.putIfAbsent(stored.getEventTimestamp(), stored) != null) {
+            stored = new Handlers.KpiEvent(event.getEventTimestamp() + "#" + collisions.incrementAndGet(), event.getKpiId(),
+                    event.getDelta(), event.getToggleValue(), event.getClientEventId(), event.getPlayerId());
+        }
+        totals(gameId).apply(stored);
+        notifyListeners(gameId, List.of(stored));
+    }
+
+    @Override
+    public Map<String, Handlers.BatchEventResult> recordEvents(String gameId, List<Handlers.KpiEvent> batch) {
+        if (closedGames.contains(gameId)) throw new GameClosedException(gameId);
+        ConcurrentSkipListMap<String, Handlers.KpiEvent> log = log(gameId);
+        Totals gameTotals = totals(gameId);
+        Map<String, Handlers.BatchEventResult> results = new LinkedHashMap<>();
+        List<Handlers.KpiEvent> created = new ArrayList<>(batch.size());
+        for (Handlers.KpiEvent e : batch) {
+            boolean inserted = log.putIfAbsent(e.getEventTimestamp(), e) == null;
+            if (inserted) {
+                gameTotals.apply(e);
+                created.add(e);
+            }
+            results.put(e.getEventTimestamp(), Handlers.BatchEventResult.of(e.getClientEventId(),
+                    inserted ? Handlers.BatchEventResult.CREATED : Handlers.BatchEventResult.DUPLICATE, null));
+        }
+        if (!created.isEmpty()) notifyListeners(gameId, created);
+        return results;
+    }
+
+    @Override
+    public Iterable<Handlers.KpiEvent> events(String gameId, String afterTimestamp) {
+        ConcurrentSkipListMap<String, Handlers.KpiEvent> log = events.get(gameId);
+        if (log == null) return Collections.emptyList();
+        // a live view: events recorded while the caller iterates may or may not be seen, as with a paged query
+        return afterTimestamp == null ? log.values() : log.tailMap(afterTimestamp, false).values();
+    }
+
+    @Override
+    public Handlers.KpiAggregate loadAggregate(String gameId) {
+        Totals gameTotals = totals.get(gameId);
+        if (gameTotals == null) return null;
+        Handlers.KpiAggregate aggregate = gameTotals.snapshot();
+        aggregate.setFinalSummary(finalSummaries.get(gameId));
+        if (closedGames.contains(gameId)) aggregate.markClosed();
+        return aggregate;
+    }
+
+    @Override
+    public void storeAggregate(String gameId, Handlers.KpiAggregate aggregate) {
+        totals.put(gameId, toTotals(aggregate));
+        if (aggregate.getFinalSummary() != null) {
+            finalSummaries.put(gameId, aggregate.getFinalSummary());
+        }
+    }
+
+    @Override
+    public boolean storeAggregateIfAbsent(String gameId, Handlers.KpiAggregate aggregate) {
+        if (totals.putIfAbsent(gameId, toTotals(aggregate)) != null) return false;
+        if (aggregate.getFinalSummary() != null) {
+            finalSummaries.put(gameId, aggregate.getFinalSummary());
+        }
+        return true;
+    }
+
+    private static Totals toTotals(Handlers.KpiAggregate aggregate) {
+        Totals replacement = new Totals();
+        aggregate.counterTotals().forEach((kpiId, total) ->
+                replacement.counters.computeIfAbsent(kpiId, k -> new LongAdder()).add(total));
+        aggregate.toggleStates().forEach((kpiId, value) -> replacement.toggles.put(kpiId,
+                new Toggle(value, aggregate.toggleTimestamps().getOrDefault(kpiId, ""))));
+        return replacement;
+    }
+
+    @Override
+    public void closeAggregate(String gameId) {
+        closedGames.add(gameId);
+    }
+
+    /** Keeps the compressed log and drops the live one right away; there is no TTL to wait for in memory. */
+    @Override
+    public void archiveEvents(String gameId, List<Handlers.KpiEvent> log, Handlers.KpiAggregate aggregate) {
+        archives.put(gameId, EventArchive.encode(log));
+        events.remove(gameId);
+        storeAggregate(gameId, aggregate);
+    }
+
+    @Override
+    public List<Handlers.KpiEvent> archivedEvents(String gameId) {
+        byte[] archive = archives.get(gameId);
+        return archive != null ? EventArchive.decode(archive) : null;
+    }
+
+    /** Registers a listener for newly stored events, called with the gameId and the events it just stored. */
+    void onEventsRecorded(BiConsumer<String, List<Handlers.KpiEvent>> listener) {
+        listeners.add(listener);
+    }
+
+    private void notifyListeners(String gameId, List<Handlers.KpiEvent> stored) {
+        for (BiConsumer<String, List<Handlers.KpiEvent>> listener : listeners) {
+            listener.accept(gameId, stored);
+        }
+    }
+
+    // ----- Live-update subscriptions -----
+
+    @Override
+    public void subscribe(String gameId, String connectionId) {
+        connectionGames.put(connectionId, gameId);
+        gameConnections.computeIfAbsent(gameId, g -> ConcurrentHashMap.newKeySet()).add(connectionId);
+    }
+
+    @Override
+    public void unsubscribe(String connectionId) {
+        String gameId = connectionGames.remove(connectionId);
+        if (gameId == null) return;
+        Set<String> connections = gameConnections.get(gameId);
+        if (connections != null) connections.remove(connectionId);
+    }
+
+    @Override
+    public List<String> subscribers(String gameId) {
+        Set<String> connections = gameConnections.get(gameId);
+        return connections == null ? Collections.emptyList() : List.copyOf(connections);
+    }
+
+    private ConcurrentSkipListMap<String, Handlers.KpiEvent> log(String gameId) {
+        return events.computeIfAbsent(gameId, g -> new ConcurrentSkipListMap<>());
+    }
+
+    private Totals totals(String gameId) {
+        return totals.computeIfAbsent(gameId, g -> new Totals());
+    }
+}
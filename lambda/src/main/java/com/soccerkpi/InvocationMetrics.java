@@ -0,0 +1,108 @@
+package com.soccerkpi;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings of the invocation running on the current thread, emitted with its log line as CloudWatch Embedded
+ * Metric Format (see {@link StructuredLog}). CloudWatch builds the per-handler latency distributions from the
+ * one value per invocation, so p50/p99 need no log queries and no PutMetricData calls.
+ *
+ * One instance per thread is reset by {@link #start()} rather than allocated per request. The counters are
+ * atomic so work handed to other threads on behalf of the invocation can still add to them.
+ *
+ * Environment:
+ *   EMIT_METRICS=false   log lines without the metric fields
+ *   METRICS_NAMESPACE    CloudWatch namespace (default SoccerKpi)
+ */
+final class InvocationMetrics {
+
+    static final boolean ENABLED = !"false".equalsIgnoreCase(System.getenv("EMIT_METRICS"));
+    static final String NAMESPACE = System.getenv().getOrDefault("METRICS_NAMESPACE", "SoccerKpi");
+
+    private static final ThreadLocal<InvocationMetrics> CURRENT = ThreadLocal.withInitial(InvocationMetrics::new);
+    // priming in Bootstrap never goes through a handler, so the first invocation in the JVM still takes this
+    private static final AtomicBoolean COLD = new AtomicBoolean(true);
+
+    private boolean started;
+    private long startNanos;
+    private boolean coldStart;
+    private final AtomicLong dynamoDbNanos = new AtomicLong();
+    private final AtomicInteger dynamoDbCalls = new AtomicInteger();
+    private final AtomicLong serializationNanos = new AtomicLong();
+
+    private InvocationMetrics() {
+    }
+
+    /** Resets this thread's metrics for a new invocation and returns its start as System.nanoTime(). */
+    static long start() {
+        InvocationMetrics m = CURRENT.get();
+        m.started = true;
+        m.coldStart = COLD.get() && COLD.getAndSet(false);
+        m.dynamoDbNanos.set(0);
+        m.dynamoDbCalls.set(0);
+        m.serializationNanos.set(0);
+        m.startNanos = System.nanoTime();
+        return m.startNanos;
+    }
+
+    /** The metrics of this thread's invocation, or null outside one (priming, benchmarks calling helpers). */
+    static InvocationMetrics current() {
+        InvocationMetrics m = CURRENT.get();
+        return m.started ? m : null;
+    }
+
+    /** Ends the invocation; returns its metrics for the log line, or null if none was started. */
+    static InvocationMetrics finish() {
+        InvocationMetrics m = CURRENT.get();
+        if (!m.started) return null;
+        m.started = false;
+        return m;
+    }
+
+    /** Wraps a task so that, on whichever thread runs it, its DynamoDB calls count toward this thread's invocation. */
+    static <T> Callable<T> propagate(Callable<T> task) {
+        InvocationMetrics metrics = current();
+        if (metrics == null) return task;
+        return () -> {
+            CURRENT.set(metrics);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    static void addSerialization(long nanos) {
+        InvocationMetrics m = current();
+        if (m != null) m.serializationNanos.addAndGet(nanos);
+    }
+
+    void addDynamoDbCall(long nanos) {
+        dynamoDbNanos.addAndGet(nanos);
+        dynamoDbCalls.incrementAndGet();
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    boolean coldStart() {
+        return coldStart;
+    }
+
+    long dynamoDbNanos() {
+        return dynamoDbNanos.get();
+    }
+
+    int dynamoDbCalls() {
+        return dynamoDbCalls.get();
+    }
+
+    long serializationNanos() {
+        return serializationNanos.get();
+    }
+}
@@ -0,0 +1,25 @@
+package com.soccerkpi;
+
+import java.util.List;
+
+/**
+ * Storage for KPI definitions. A game created today records a template id and version plus its own overrides
+ * (see {@link KpiTemplates}); games created before templates have one definition row per KPI instead.
+ */
+public interface KpiDefinitionStore {
+
+    /** Stores a new template version; returns false, without writing, if that version already exists. */
+    boolean putTemplate(Handlers.KpiTemplate template);
+
+    /** Returns the stored template version, or null if there is none. The built-in default is never stored. */
+    Handlers.KpiTemplate loadTemplate(String templateId, int version);
+
+    /** Per-game definition rows, as every game had before templates. */
+    void putDefinitions(String gameId, List<Handlers.KpiDefinition> definitions);
+
+    /**
+     * Returns the game's definitions: its template with overrides applied, or its own rows for an older game.
+     * An empty list means none are stored (yet).
+     */
+    List<Handlers.KpiDefinition> loadDefinitions(String gameId);
+}
@@ -0,0 +1,274 @@
+package com.soccerkpi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The formula of a {@link Handlers.KpiType#DERIVED} KPI: numbers, kpiIds, + - * /, unary minus and parentheses,
+ * e.g. "shots_on_target / (shots_on_target + shots_off_target)". A counter contributes its total and a toggle
+ * 1 or 0. A derived KPI may not refer to another derived KPI, so formulas cannot form cycles.
+ *
+ * Formulas are parsed once per container into a tree whose leaves name KPIs. A {@link Plan} then binds the
+ * tree once per definitions list: each name becomes the KPI's position in that list, and the tree becomes
+ * nested lambdas over a primitive array of totals in definition order. A summary request evaluates those
+ * lambdas and never touches the formula text. A result that is not a finite number, such as a division by
+ * zero before the first shot, is reported as no value rather than as an error.
+ */
+final class KpiExpression {
+
+    static final int MAX_LENGTH = 256;
+
+    /** A bound formula; {@code totals[i]} is the total of the i-th definition. */
+    @FunctionalInterface
+    interface Evaluator {
+        double eval(double[] totals);
+    }
+
+    /** A node of the parsed tree, bound to positions by {@link #bind}. */
+    private sealed interface Term permits Num, Ref, Neg, Binary {
+    }
+
+    private record Num(double value) implements Term {
+    }
+
+    private record Ref(String kpiId) implements Term {
+    }
+
+    private record Neg(Term operand) implements Term {
+    }
+
+    private record Binary(char op, Term left, Term right) implements Term {
+    }
+
+    // parsed trees hold no positions, so games sharing a template share its entries
+    private static final LruCache<String, KpiExpression> PARSED = new LruCache<>(1024, 24 * 3600 * 1000L);
+    private static final LruCache<List<Handlers.KpiDefinition>, Plan> PLANS = new LruCache<>(512, 3600 * 1000L);
+
+    private final Term root;
+    private final List<String> references;
+
+    private KpiExpression(Term root, List<String> references) {
+        this.root = root;
+        this.references = references;
+    }
+
+    /** The parsed formula, from the cache when this container has parsed it before. */
+    static KpiExpression parse(String source) {
+        KpiExpression parsed = PARSED.get(source);
+        if (parsed == null) {
+            parsed = new Parser(source).parse();
+            PARSED.put(source, parsed);
+        }
+        return parsed;
+    }
+
+    /** The kpiIds the formula reads, each once, in order of first use. */
+    List<String> references() {
+        return references;
+    }
+
+    /** The derived KPIs of one definitions list, bound to its positions; built once per list. */
+    static Plan plan(List<Handlers.KpiDefinition> defs) {
+        Plan plan = PLANS.get(defs);
+        if (plan == null) {
+            plan = new Plan(defs);
+            PLANS.put(defs, plan);
+        }
+        return plan;
+    }
+
+    static final class Plan {
+        private static final Evaluator UNDEFINED = totals -> Double.NaN;
+
+        // positions of the derived definitions, and the formula of each
+        private final int[] slots;
+        private final Evaluator[] evaluators;
+
+        private Plan(List<Handlers.KpiDefinition> defs) {
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < defs.size(); i++) {
+                Handlers.KpiType type = defs.get(i).getType();
+                if (type == Handlers.KpiType.COUNTER || type == Handlers.KpiType.TOGGLE) {
+                    positions.putIfAbsent(defs.get(i).getKpiId(), i);
+                }
+            }
+            List<Integer> derived = new ArrayList<>();
+            for (int i = 0; i < defs.size(); i++) {
+                if (defs.get(i).getType() == Handlers.KpiType.DERIVED) derived.add(i);
+            }
+            slots = new int[derived.size()];
+            evaluators = new Evaluator[derived.size()];
+            for (int d = 0; d < slots.length; d++) {
+                slots[d] = derived.get(d);
+                evaluators[d] = bindOrUndefined(defs.get(slots[d]).getExpression(), positions);
+            }
+        }
+
+        /** Each derived KPI's value, or null where it is undefined; indexed like the definitions. */
+        Double[] evaluate(double[] totals) {
+            Double[] values = new Double[totals.length];
+            for (int d = 0; d < slots.length; d++) {
+                double v = evaluators[d].eval(totals);
+                values[slots[d]] = Double.isFinite(v) ? v : null;
+            }
+            return values;
+        }
+
+        // creation validates formulas, so this only guards definitions stored some other way
+        private static Evaluator bindOrUndefined(String expression, Map<String, Integer> positions) {
+            if (expression == null) return UNDEFINED;
+            try {
+                return bind(parse(expression).root, positions);
+            } catch (IllegalArgumentException e) {
+                return UNDEFINED;
+            }
+        }
+    }
+
+    /** Lambdas over the totals array; constant subtrees are folded, so "100 * x" costs one multiply. */
+    private static Evaluator bind(Term term, Map<String, Integer> positions) {
+        if (term instanceof Num n) {
+            double value = n.value();
+            return totals -> value;
+        }
+        if (term instanceof Ref r) {
+            Integer position = positions.get(r.kpiId());
+            if (position == null) return Plan.UNDEFINED;
+            int slot = position;
+            return totals -> totals[slot];
+        }
+        if (term instanceof Neg neg) {
+            if (neg.operand() instanceof Num n) return bind(new Num(-n.value()), positions);
+            Evaluator operand = bind(neg.operand(), positions);
+            return totals -> -operand.eval(totals);
+        }
+        Binary b = (Binary) term;
+        if (b.left() instanceof Num l && b.right() instanceof Num r) {
+            return bind(new Num(apply(b.op(), l.value(), r.value())), positions);
+        }
+        Evaluator left = bind(b.left(), positions);
+        Evaluator right = bind(b.right(), positions);
+        return switch (b.op()) {
+            case '+' -> totals -> left.eval(totals) + right.eval(totals);
+            case '-' -> totals -> left.eval(totals) - right.eval(totals);
+            case '*' -> totals -> left.eval(totals) * right.eval(totals);
+            default -> totals -> left.eval(totals) / right.eval(totals);
+        };
+    }
+
+    private static double apply(char op, double l, double r) {
+        return switch (op) {
+            case '+' -> l + r;
+            case '-' -> l - r;
+            case '*' -> l * r;
+            default -> l / r;
+        };
+    }
+
+    /**
+     * Recursive descent over the grammar below; kpiIds in a formula are letters, digits and underscores,
+     * not starting with a digit. Malformed input is an IllegalArgumentException whose message is shown to
+     * the client.
+     *
+     *   expression := term (('+' | '-') term)*
+     *   term       := unary (('*' | '/') unary)*
+     *   unary      := '-' unary | primary
+     *   primary    := number | kpiId | '(' expression ')'
+     */
+    private static final class Parser {
+        private final String source;
+        private final Set<String> references = new LinkedHashSet<>();
+        private int pos;
+
+        Parser(String source) {
+            if (source == null || source.isBlank()) {
+                throw new IllegalArgumentException("expression is required");
+            }
+            if (source.length() > MAX_LENGTH) {
+                throw new IllegalArgumentException("expression may be at most " + MAX_LENGTH + " characters");
+            }
+            this.source = source;
+        }
+
+        KpiExpression parse() {
+            Term root = expression();
+            skipSpaces();
+            if (pos < source.length()) throw error("Unexpected '" + source.charAt(pos) + "'");
+            return new KpiExpression(root, Collections.unmodifiableList(new ArrayList<>(references)));
+        }
+
+        private Term expression() {
+            Term left = term();
+            while (true) {
+                char op = peek();
+                if (op != '+' && op != '-') return left;
+                pos++;
+                left = new Binary(op, left, term());
+            }
+        }
+
+        private Term term() {
+            Term left = unary();
+            while (true) {
+                char op = peek();
+                if (op != '*' && op != '/') return left;
+                pos++;
+                left = new Binary(op, left, unary());
+            }
+        }
+
+        private Term unary() {
+            if (peek() == '-') {
+                pos++;
+                return new Neg(unary());
+            }
+            return primary();
+        }
+
+        private Term primary() {
+            char c = peek();
+            if (c == '(') {
+                pos++;
+                Term inner = expression();
+                if (peek() != ')') throw error("Missing ')'");
+                pos++;
+                return inner;
+            }
+            int start = pos;
+            if (Character.isDigit(c) || c == '.') {
+                while (pos < source.length() && (Character.isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) pos++;
+                try {
+                    return new Num(Double.parseDouble(source.substring(start, pos)));
+                } catch (NumberFormatException e) {
+                    throw error("Malformed number '" + source.substring(start, pos) + "'");
+                }
+            }
+            if (Character.isLetter(c) || c == '_') {
+                while (pos < source.length() && (Character.isLetterOrDigit(source.charAt(pos)) || source.charAt(pos) == '_')) pos++;
+                String kpiId = source.substring(start, pos);
+                references.add(kpiId);
+                return new Ref(kpiId);
+            }
+            throw error(pos < source.length() ? "Unexpected '" + c + "'" : "Unexpected end");
+        }
+
+        /** The next non-space character without consuming it, or 0 at the end. */
+        private char peek() {
+            skipSpaces();
+            return pos < source.length() ? source.charAt(pos) : 0;
+        }
+
+        private void skipSpaces() {
+            while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) pos++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " of expression");
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.soccerkpi;
+
+/**
+ * A complete storage backend. Handlers take the narrower interfaces they need; this is what gets configured
+ * per process (STORE_BACKEND) or injected with {@link Handlers#useStore(KpiStore)}.
+ */
+public interface KpiStore extends GameStore, KpiDefinitionStore, EventStore, SubscriptionStore {
+}
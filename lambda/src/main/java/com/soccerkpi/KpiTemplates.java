@@ -0,0 +1,89 @@
+package com.soccerkpi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves a game's KPI definitions from the template it was created with. A game item records a template id
+ * and version plus its own overrides; an override replaces the template's KPI with the same kpiId, or adds one.
+ *
+ * A stored version is never changed (a changed set is a new version), so a version read once stays correct
+ * for the life of the container and each is read at most once per container. "default" version 1 is
+ * {@link Handlers.DefaultKpis}, compiled in, so the games most clubs create never read a template at all.
+ */
+final class KpiTemplates {
+
+    static final String DEFAULT_ID = "default";
+    static final int DEFAULT_VERSION = 1;
+
+    private static final Handlers.KpiTemplate DEFAULT =
+            new Handlers.KpiTemplate(DEFAULT_ID, DEFAULT_VERSION, Handlers.DefaultKpis.defaultKpisForGame(null));
+
+    // the age bound never expires a correct entry, since versions are immutable; the size bound caps memory
+    private static final LruCache<String, Handlers.KpiTemplate> CACHE = new LruCache<>(256, 24 * 3600 * 1000L);
+
+    private KpiTemplates() {
+    }
+
+    static boolean isBuiltIn(String templateId, int version) {
+        return DEFAULT_ID.equals(templateId) && version == DEFAULT_VERSION;
+    }
+
+    /** The template version, from the cache when this container has read it before; null if there is none. */
+    static Handlers.KpiTemplate get(KpiDefinitionStore store, String templateId, int version) {
+        if (isBuiltIn(templateId, version)) return DEFAULT;
+        String key = templateId + "@" + version;
+        Handlers.KpiTemplate template = CACHE.get(key);
+        if (template == null) {
+            template = store.loadTemplate(templateId, version);
+            if (template != null) CACHE.put(key, template);
+        }
+        return template;
+    }
+
+    /** The definitions of a game created from a template, or null for a game that predates templates. */
+    static List<Handlers.KpiDefinition> forGame(KpiDefinitionStore store, Handlers.Game game) {
+        if (game == null || game.getKpiTemplateId() == null) return null;
+        int version = game.getKpiTemplateVersion() != null ? game.getKpiTemplateVersion() : DEFAULT_VERSION;
+        Handlers.KpiTemplate template = get(store, game.getKpiTemplateId(), version);
+        if (template == null) {
+            // creation checks the template exists and versions are never deleted, so this is a broken table
+            throw new IllegalStateException("Game " + game.getGameId() + " refers to missing KPI template "
+                    + game.getKpiTemplateId() + " version " + version);
+        }
+        return resolve(game.getGameId(), template, game.getKpiOverrides());
+    }
+
+    /** The template's KPIs for one game, in template order, with overrides replacing or following them. */
+    static List<Handlers.KpiDefinition> resolve(String gameId, Handlers.KpiTemplate template, List<Handlers.KpiDefinition> overrides) {
+        List<Handlers.KpiDefinition> kpis = template.getKpis();
+        List<Handlers.KpiDefinition> defs = new ArrayList<>(kpis.size() + (overrides != null ? overrides.size() : 0));
+        for (Handlers.KpiDefinition def : kpis) {
+            defs.add(def.forGame(gameId));
+        }
+        if (overrides != null) {
+            for (Handlers.KpiDefinition override : overrides) {
+                Handlers.KpiDefinition def = override.forGame(gameId);
+                int i = indexOf(defs, override.getKpiId());
+                if (i >= 0) {
+                    defs.set(i, def);
+                } else {
+                    defs.add(def);
+                }
+            }
+        }
+        return defs;
+    }
+
+    /** Forgets every template read so far, along with the other per-process caches in {@link Handlers#useStore}. */
+    static void clear() {
+        CACHE.clear();
+    }
+
+    private static int indexOf(List<Handlers.KpiDefinition> defs, String kpiId) {
+        for (int i = 0; i < defs.size(); i++) {
+            if (defs.get(i).getKpiId().equals(kpiId)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,178 @@
+package com.soccerkpi;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-bucket KPI columns for the timeline endpoint, filled in one pass over a game's events in eventTimestamp
+ * order. Each KPI is a single int array: a counter holds the sum of its deltas in each bucket, a toggle its
+ * state (1 or 0) at the end of each bucket. Buckets are whole multiples of the bucket size since the epoch;
+ * the first column is the bucket of the first event until {@link #startAt} moves it, e.g. to kickoff.
+ */
+final class KpiTimeline {
+
+    // a toggle bucket without an event of its own; carried forward from the previous bucket on output
+    private static final int UNSET = -1;
+
+    private static final class Series {
+        final boolean toggle;
+        int[] values;
+
+        Series(boolean toggle, int capacity) {
+            this.toggle = toggle;
+            this.values = new int[capacity];
+            if (toggle) Arrays.fill(values, UNSET);
+        }
+
+        void ensure(int length) {
+            if (length <= values.length) return;
+            int old = values.length;
+            values = Arrays.copyOf(values, Math.max(length, old * 2));
+            if (toggle) Arrays.fill(values, old, values.length, UNSET);
+        }
+    }
+
+    private final int bucketSeconds;
+    private final int maxBuckets;
+    private final Map<String, Series> series = new HashMap<>();
+    private long firstBucket;
+    private boolean anchored;
+    private int buckets;
+
+    KpiTimeline(int bucketSeconds, int maxBuckets) {
+        this.bucketSeconds = bucketSeconds;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Folds one event into its bucket. Returns false, without adding it, when that bucket would make the timeline
+     * longer than maxBuckets; as events arrive in order, the caller can stop reading there.
+     */
+    boolean add(Handlers.KpiEvent e) {
+        String kpiId = e.getKpiId();
+        String ts = e.getEventTimestamp();
+        if (kpiId == null || kpiId.isEmpty() || ts == null) return true;
+        Integer delta = e.getDelta();
+        Boolean toggleValue = e.getToggleValue();
+        if (delta == null && toggleValue == null) return true;
+
+        long bucket = Math.floorDiv(EventTimestamps.epochSecond(ts), bucketSeconds);
+        if (!anchored) {
+            firstBucket = bucket;
+            anchored = true;
+        }
+        // events arrive in eventTimestamp order, so only a store that does not keep it could go below zero
+        long offset = Math.max(0, bucket - firstBucket);
+        if (offset >= maxBuckets) return false;
+        int index = (int) offset;
+        buckets = Math.max(buckets, index + 1);
+
+        Series s = series.get(kpiId);
+        if (s == null) {
+            s = new Series(delta == null, Math.max(64, buckets));
+            series.put(kpiId, s);
+        }
+        s.ensure(index + 1);
+        if (!s.toggle && delta != null) {
+            s.values[index] += delta;
+        } else if (s.toggle && toggleValue != null) {
+            s.values[index] = toggleValue ? 1 : 0;
+        }
+        return true;
+    }
+
+    /**
+     * Makes the bucket holding {@code epochSecond} the first column. Earlier buckets are folded into it (counters
+     * sum, the last toggle state wins); if it is earlier than the first event, empty buckets are prepended.
+     * Returns false when that makes the timeline longer than maxBuckets.
+     */
+    boolean startAt(long epochSecond) {
+        long start = Math.floorDiv(epochSecond, bucketSeconds);
+        if (buckets == 0) {
+            firstBucket = start;
+            anchored = true;
+            return true;
+        }
+        if (start < firstBucket) {
+            long shift = firstBucket - start;
+            if (buckets + shift > maxBuckets) return false;
+            int n = (int) shift;
+            for (Series s : series.values()) {
+                s.ensure(buckets);
+                int[] moved = new int[buckets + n];
+                if (s.toggle) Arrays.fill(moved, 0, n, UNSET);
+                System.arraycopy(s.values, 0, moved, n, buckets);
+                s.values = moved;
+            }
+            buckets += n;
+        } else if (start > firstBucket) {
+            // a kickoff after the last event leaves everything in the first column
+            int n = (int) Math.min(start - firstBucket, buckets - 1);
+            for (Series s : series.values()) {
+                s.ensure(buckets);
+                int[] v = s.values;
+                if (!s.toggle) {
+                    for (int i = 0; i < n; i++) v[n] += v[i];
+                } else if (v[n] == UNSET) {
+                    // the bucket's own toggle, if it has one, is later than anything folded into it
+                    v[n] = lastSet(v, n);
+                }
+                System.arraycopy(v, n, v, 0, buckets - n);
+                Arrays.fill(v, buckets - n, buckets, s.toggle ? UNSET : 0);
+            }
+            buckets -= n;
+        }
+        firstBucket = start;
+        return true;
+    }
+
+    int buckets() {
+        return buckets;
+    }
+
+    /** The instant the first column begins at, or null for a timeline without events or a start. */
+    String start() {
+        if (!anchored) return null;
+        return Instant.ofEpochSecond(firstBucket * bucketSeconds).toString();
+    }
+
+    /**
+     * One series per counter and toggle, in definition order; KPIs without events are all zeros. Derived KPIs
+     * have no series: they are formulas over game totals, not per-minute counts.
+     */
+    Handlers.GameTimelineResponse toResponse(String gameId, List<Handlers.KpiDefinition> defs) {
+        List<Handlers.KpiTimelineSeries> out = new ArrayList<>(defs.size());
+        for (Handlers.KpiDefinition def : defs) {
+            if (def.getType() == Handlers.KpiType.DERIVED) continue;
+            boolean toggle = def.getType() == Handlers.KpiType.TOGGLE;
+            Series s = series.get(def.getKpiId());
+            int[] values = new int[buckets];
+            if (s != null && s.toggle == toggle) {
+                System.arraycopy(s.values, 0, values, 0, Math.min(buckets, s.values.length));
+                if (toggle) {
+                    int state = 0;
+                    for (int i = 0; i < buckets; i++) {
+                        if (i >= s.values.length || values[i] == UNSET) {
+                            values[i] = state;
+                        } else {
+                            state = values[i];
+                        }
+                    }
+                }
+            }
+            out.add(new Handlers.KpiTimelineSeries(def.getKpiId(), def.getLabel(), def.getType(), values));
+        }
+        return new Handlers.GameTimelineResponse(gameId, start(), bucketSeconds, buckets, out);
+    }
+
+    private static int lastSet(int[] v, int before) {
+        for (int i = before - 1; i >= 0; i--) {
+            if (v[i] != UNSET) return v[i];
+        }
+        return UNSET;
+    }
+}
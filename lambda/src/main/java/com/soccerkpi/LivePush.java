@@ -0,0 +1,8 @@
+package com.soccerkpi;
+
+/** Delivers messages to live-update connections: API Gateway WebSockets in AWS, {@link LocalLiveServer} locally. */
+public interface LivePush {
+
+    /** Sends one text message. Returns false if the connection no longer exists, so it can be unsubscribed. */
+    boolean send(String connectionId, String message);
+}
@@ -0,0 +1,109 @@
+package com.soccerkpi;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Turns newly stored events into one delta message per game and pushes it to that game's subscribers: counter
+ * deltas summed and the latest state of each toggle that changed. A viewer then costs one push per batch of
+ * taps instead of a summary read per poll. Used by the kpi_events stream consumer in AWS and by
+ * {@link LocalLiveServer}.
+ *
+ * Pushes are best effort. A connection that is gone is unsubscribed; any other failed send is only counted, so
+ * one bad connection never makes the stream batch retry and every other viewer receive the deltas twice.
+ */
+final class LiveUpdates {
+
+    /** What one {@link #publish} call did. */
+    record Result(int delivered, int gone, int failed) {
+    }
+
+    // each send blocks on one HTTP call (or socket write locally), so they run side by side
+    private static final ExecutorService SENDS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final SubscriptionStore subscriptions;
+    private final LivePush push;
+    private final int concurrency;
+
+    /** @param concurrency sends in flight at once, so a popular game does not burst past the push API's limits */
+    LiveUpdates(SubscriptionStore subscriptions, LivePush push, int concurrency) {
+        this.subscriptions = subscriptions;
+        this.push = push;
+        this.concurrency = concurrency;
+    }
+
+    /** Pushes each game's new events, in eventTimestamp order within a game, to the game's subscribers. */
+    Result publish(Map<String, List<Handlers.KpiEvent>> eventsByGame) throws InterruptedException {
+        int delivered = 0;
+        int gone = 0;
+        int failed = 0;
+        for (Map.Entry<String, List<Handlers.KpiEvent>> game : eventsByGame.entrySet()) {
+            List<String> connections = subscriptions.subscribers(game.getKey());
+            // nobody watching: nothing is serialized or sent
+            if (connections.isEmpty()) continue;
+            String message = message(game.getKey(), game.getValue());
+
+            Semaphore permits = new Semaphore(concurrency);
+            List<Future<Boolean>> sends = new ArrayList<>(connections.size());
+            for (String connectionId : connections) {
+                sends.add(SENDS.submit(InvocationMetrics.propagate(() -> {
+                    permits.acquire();
+                    try {
+                        boolean open = push.send(connectionId, message);
+                        if (!open) subscriptions.unsubscribe(connectionId);
+                        return open;
+                    } finally {
+                        permits.release();
+                    }
+                })));
+            }
+            for (Future<Boolean> send : sends) {
+                try {
+                    if (send.get()) delivered++;
+                    else gone++;
+                } catch (ExecutionException e) {
+                    failed++;
+                }
+            }
+        }
+        return new Result(delivered, gone, failed);
+    }
+
+    /** The delta message for one game's new events. */
+    static String message(String gameId, List<Handlers.KpiEvent> events) {
+        Map<String, Integer> counters = new LinkedHashMap<>();
+        Map<String, Boolean> toggles = new LinkedHashMap<>();
+        Map<String, String> toggleTimestamps = new HashMap<>();
+        for (Handlers.KpiEvent e : events) {
+            String kpiId = e.getKpiId();
+            if (kpiId == null || kpiId.isEmpty()) continue;
+            if (e.getDelta() != null) {
+                counters.merge(kpiId, e.getDelta(), Integer::sum);
+            } else if (e.getToggleValue() != null) {
+                // the newest toggle wins, as in the aggregate, even if shards delivered the events out of order
+                String ts = e.getEventTimestamp() != null ? e.getEventTimestamp() : "";
+                String seen = toggleTimestamps.get(kpiId);
+                if (seen == null || EventTimestamps.compare(ts, seen) >= 0) {
+                    toggles.put(kpiId, e.getToggleValue());
+                    toggleTimestamps.put(kpiId, ts);
+                }
+            }
+        }
+        try {
+            return Handlers.OBJECT_MAPPER.writeValueAsString(new Handlers.LiveUpdateMessage(gameId, counters, toggles));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the HTTP API from one JVM without API Gateway or Lambda, e.g. on a laptop at a venue without a reliable
+ * uplink. Each request is translated into the {@link APIGatewayV2HTTPEvent} API Gateway would send, with the
+ * routeKey and path parameters of the matching route, and handed to {@link Handlers#route}, so the handlers run
+ * unchanged. Every request gets its own virtual thread, which blocks on the store's I/O without holding a pool slot.
+ *
+ * The store is whatever {@link Handlers#store()} is: DynamoDB (set DYNAMODB_ENDPOINT for DynamoDB Local) or, with
+ * STORE_BACKEND=memory, the in-process store, which is kept for as long as the server runs.
+ *
+ *   STORE_BACKEND=memory java -cp target/lambda.jar com.soccerkpi.LocalApiServer
+ *
+ * SERVER_PORT picks the port (default 8080). With the in-memory store, LIVE_PORT also starts a
+ * {@link LocalLiveServer} for live dashboard updates.
+ */
+public final class LocalApiServer implements AutoCloseable {
+
+    private static final String[] CORS_PREFLIGHT_HEADERS = {
+            "Access-Control-Allow-Origin", "*",
+            "Access-Control-Allow-Headers", "*",
+            "Access-Control-Allow-Methods", "GET,POST,OPTIONS",
+            "Access-Control-Max-Age", "300"};
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle on, each keep-alive response then waits for
+        // the client's delayed ACK (~40 ms), which capped a laptop at a few hundred requests per second.
+        // Read once, when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /** One route of the API, split into path segments; "{name}" segments match any single segment. */
+    private record Route(String routeKey, String method, String[] segments) {
+        static Route parse(String routeKey) {
+            int space = routeKey.indexOf(' ');
+            return new Route(routeKey, routeKey.substring(0, space), split(routeKey.substring(space + 1)));
+        }
+
+        /** The path parameters if the request matches, otherwise null. */
+        Map<String, String> match(String requestMethod, String[] path) {
+            if (!method.equals(requestMethod) || path.length != segments.length) return null;
+            Map<String, String> params = null;
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if (segment.length() > 2 && segment.charAt(0) == '{' && segment.endsWith("}")) {
+                    if (path[i].isEmpty()) return null;
+                    if (params == null) params = new HashMap<>(2);
+                    params.put(segment.substring(1, segment.length() - 1), path[i]);
+                } else if (!segment.equals(path[i])) {
+                    return null;
+                }
+            }
+            return params != null ? params : Map.of();
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Route> routes = new ArrayList<>();
+    private final AtomicLong requestIds = new AtomicLong();
+
+    /** Starts serving on all interfaces; port 0 picks a free one (see {@link #port()}). */
+    public LocalApiServer(int port) throws IOException {
+        for (String routeKey : Handlers.routeKeys()) {
+            routes.add(Route.parse(routeKey));
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(requests);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LocalApiServer api = new LocalApiServer(envInt("SERVER_PORT", 8080));
+        System.out.println("HTTP API on http://localhost:" + api.port());
+        String livePort = System.getenv("LIVE_PORT");
+        if (livePort != null && !livePort.isEmpty()) {
+            if (Handlers.store() instanceof InMemoryKpiStore memory) {
+                LocalLiveServer live = new LocalLiveServer(memory, Integer.parseInt(livePort));
+                System.out.println("Live updates on ws://localhost:" + live.port() + "/?gameId=...");
+            } else {
+                System.out.println("LIVE_PORT ignored: live updates need STORE_BACKEND=memory");
+            }
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        requests.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+            if (method.equals("OPTIONS")) {
+                // API Gateway answers CORS preflights itself (cors_configuration), without invoking a handler
+                Headers headers = exchange.getResponseHeaders();
+                for (int i = 0; i < CORS_PREFLIGHT_HEADERS.length; i += 2) {
+                    headers.set(CORS_PREFLIGHT_HEADERS[i], CORS_PREFLIGHT_HEADERS[i + 1]);
+                }
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            APIGatewayV2HTTPEvent event = toEvent(exchange, method);
+            APIGatewayV2HTTPResponse response = Handlers.route(event, new LocalContext(event.getRequestContext().getRequestId()));
+            write(exchange, response);
+        }
+    }
+
+    private APIGatewayV2HTTPEvent toEvent(HttpExchange exchange, String method) throws IOException {
+        URI uri = exchange.getRequestURI();
+        String path = uri.getRawPath();
+        String[] segments = split(path);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = URLDecoder.decode(segments[i], StandardCharsets.UTF_8);
+        }
+
+        // like API Gateway, a request that matches no route gets the $default routeKey, which Handlers.route rejects
+        String routeKey = "$default";
+        Map<String, String> pathParameters = null;
+        for (Route route : routes) {
+            Map<String, String> params = route.match(method, segments);
+            if (params != null) {
+                routeKey = route.routeKey();
+                pathParameters = params.isEmpty() ? null : params;
+                break;
+            }
+        }
+
+        String requestId = "local-" + requestIds.incrementAndGet();
+        APIGatewayV2HTTPEvent.RequestContext.Http http = new APIGatewayV2HTTPEvent.RequestContext.Http();
+        http.setMethod(method);
+        http.setPath(path);
+        http.setProtocol(exchange.getProtocol());
+        http.setSourceIp(exchange.getRemoteAddress().getAddress().getHostAddress());
+        APIGatewayV2HTTPEvent.RequestContext context = new APIGatewayV2HTTPEvent.RequestContext();
+        context.setRequestId(requestId);
+        context.setRouteKey(routeKey);
+        context.setStage("$default");
+        context.setTimeEpoch(System.currentTimeMillis());
+        context.setHttp(http);
+
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setVersion("2.0");
+        event.setRouteKey(routeKey);
+        event.setRawPath(path);
+        event.setRawQueryString(uri.getRawQuery() != null ? uri.getRawQuery() : "");
+        event.setQueryStringParameters(queryParameters(uri.getRawQuery()));
+        event.setPathParameters(pathParameters);
+        event.setHeaders(headers(exchange.getRequestHeaders()));
+        event.setRequestContext(context);
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            if (body.length > 0 && BodyEncoding.forRequest(event) != BodyEncoding.JSON) {
+                // API Gateway passes binary media base64-encoded
+                event.setBody(Base64.getEncoder().encodeToString(body));
+                event.setIsBase64Encoded(true);
+            } else if (body.length > 0) {
+                event.setBody(new String(body, StandardCharsets.UTF_8));
+            }
+        }
+        return event;
+    }
+
+    private static void write(HttpExchange exchange, APIGatewayV2HTTPResponse response) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        if (response.getHeaders() != null) {
+            response.getHeaders().forEach(headers::set);
+        }
+        if (response.getMultiValueHeaders() != null) {
+            response.getMultiValueHeaders().forEach(headers::put);
+        }
+        String body = response.getBody();
+        byte[] bytes = body == null ? new byte[0]
+                : response.getIsBase64Encoded() ? Base64.getDecoder().decode(body)
+                : body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(response.getStatusCode(), bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /** Lower-cased names, repeated headers joined with commas, as in payload format 2.0. */
+    private static Map<String, String> headers(Headers requestHeaders) {
+        Map<String, String> out = new HashMap<>();
+        requestHeaders.forEach((name, values) -> out.put(name.toLowerCase(Locale.ROOT), String.join(",", values)));
+        return out;
+    }
+
+    /** Decoded query parameters, repeated ones joined with commas as API Gateway does; null without a query. */
+    private static Map<String, String> queryParameters(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) return null;
+        Map<String, String> out = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            out.merge(name, value, (a, b) -> a + "," + b);
+        }
+        return out;
+    }
+
+    private static String[] split(String path) {
+        String trimmed = path.startsWith("/") ? path.substring(1) : path;
+        if (trimmed.endsWith("/")) trimmed = trimmed.substring(0, trimmed.length() - 1);
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/", -1);
+    }
+
+    private static int envInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    /** The parts of a Lambda context the handlers read: the request id, and a logger for completeness. */
+    private record LocalContext(String requestId) implements Context {
+        private static final LambdaLogger LOGGER = new LambdaLogger() {
+            @Override
+            public void log(String message) {
+                System.out.print(message);
+            }
+
+            @Override
+            public void log(byte[] message) {
+                System.out.write(message, 0, message.length);
+            }
+        };
+
+        @Override
+        public String getAwsRequestId() {
+            return requestId;
+        }
+
+        @Override
+        public String getLogGroupName() {
+            return null;
+        }
+
+        @Override
+        public String getLogStreamName() {
+            return null;
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "local";
+        }
+
+        @Override
+        public String getFunctionVersion() {
+            return "$LATEST";
+        }
+
+        @Override
+        public String getInvokedFunctionArn() {
+            return null;
+        }
+
+        @Override
+        public CognitoIdentity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public ClientContext getClientContext() {
+            return null;
+        }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public int getMemoryLimitInMB() {
+            return (int) (Runtime.getRuntime().maxMemory() >> 20);
+        }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return LOGGER;
+        }
+    }
+}
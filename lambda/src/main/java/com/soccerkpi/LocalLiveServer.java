@@ -0,0 +1,260 @@
+package com.soccerkpi;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stands in for the live WebSocket API on a laptop or in tests. {@code ws://localhost:{port}/?gameId=...}
+ * subscribes a connection to one game, as $connect does in API Gateway, and events recorded in the
+ * {@link InMemoryKpiStore} are pushed through {@link LiveUpdates}, as the kpi_events stream consumer does in AWS.
+ *
+ * Only the part of RFC 6455 this needs is implemented: the upgrade handshake, unfragmented text frames to the
+ * client, and ping and close from it. Messages from clients are read and dropped, like the live API, which has
+ * no route for them.
+ */
+public final class LocalLiveServer implements LivePush, AutoCloseable {
+
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int OP_TEXT = 0x1;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+    // clients only send pings and closes, which RFC 6455 caps at 125 bytes; anything far larger is not ours
+    private static final int MAX_CLIENT_FRAME = 64 * 1024;
+
+    private static final class Connection {
+        final Socket socket;
+        final OutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+        }
+
+        synchronized void write(int opcode, byte[] payload) throws IOException {
+            out.write(0x80 | opcode);
+            int len = payload.length;
+            if (len < 126) {
+                out.write(len);
+            } else if (len <= 0xFFFF) {
+                out.write(126);
+                out.write(len >>> 8);
+                out.write(len);
+            } else {
+                out.write(127);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) ((long) len >>> shift));
+                }
+            }
+            out.write(payload);
+            out.flush();
+        }
+    }
+
+    private final InMemoryKpiStore store;
+    private final ServerSocket server;
+    private final LiveUpdates updates;
+    private final ExecutorService connectionThreads = Executors.newVirtualThreadPerTaskExecutor();
+    // one publisher keeps pushes in the order the events were stored, as the stream does per partition
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+    private final ConcurrentMap<String, Connection> connections = new ConcurrentHashMap<>();
+    private final AtomicLong connectionIds = new AtomicLong();
+    private volatile boolean closed;
+
+    /** Listens on the loopback interface; port 0 picks a free one (see {@link #port()}). */
+    public LocalLiveServer(InMemoryKpiStore store, int port) throws IOException {
+        this.store = store;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.updates = new LiveUpdates(store, this, 64);
+        // taps never wait for pushes, as in AWS, where the stream consumer runs apart from the writer
+        store.onEventsRecorded((gameId, events) -> {
+            if (!closed) publisher.execute(() -> publish(gameId, events));
+        });
+        connectionThreads.execute(this::acceptLoop);
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public boolean send(String connectionId, String message) {
+        Connection connection = connections.get(connectionId);
+        if (connection == null) return false;
+        try {
+            connection.write(OP_TEXT, message.getBytes(StandardCharsets.UTF_8));
+            return true;
+        } catch (IOException e) {
+            // a broken socket is as gone as a closed one
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        for (Connection connection : connections.values()) {
+            connection.socket.close();
+        }
+        publisher.shutdownNow();
+        connectionThreads.shutdownNow();
+    }
+
+    private void publish(String gameId, List<Handlers.KpiEvent> events) {
+        try {
+            updates.publish(Map.of(gameId, events));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                connectionThreads.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (closed) return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        String connectionId = null;
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            String requestLine = readLine(in);
+            String gameId = null;
+            String key = null;
+            for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().toLowerCase(Locale.ROOT).equals("sec-websocket-key")) {
+                    key = line.substring(colon + 1).trim();
+                }
+            }
+            if (requestLine != null) {
+                gameId = queryParam(requestLine, "gameId");
+            }
+            OutputStream out = socket.getOutputStream();
+            if (gameId == null || gameId.isEmpty() || key == null) {
+                out.write("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                return;
+            }
+            out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            Connection connection = new Connection(socket);
+            connectionId = "local-" + connectionIds.incrementAndGet();
+            connections.put(connectionId, connection);
+            store.subscribe(gameId, connectionId);
+            readFrames(in, connection);
+        } catch (IOException e) {
+            // the client went away; fall through and forget it
+        } finally {
+            if (connectionId != null) {
+                connections.remove(connectionId);
+                store.unsubscribe(connectionId);
+            }
+        }
+    }
+
+    /** Reads client frames until a close frame or end of stream, answering pings. */
+    private static void readFrames(InputStream in, Connection connection) throws IOException {
+        while (true) {
+            int b0 = in.read();
+            int b1 = in.read();
+            if (b0 < 0 || b1 < 0) return;
+            int opcode = b0 & 0x0F;
+            long len = b1 & 0x7F;
+            if (len == 126) {
+                len = readNumber(in, 2);
+            } else if (len == 127) {
+                len = readNumber(in, 8);
+            }
+            if (len > MAX_CLIENT_FRAME) return;
+            byte[] mask = (b1 & 0x80) != 0 ? in.readNBytes(4) : null;
+            byte[] payload = in.readNBytes((int) len);
+            if (payload.length < len) return;
+            if (mask != null) {
+                for (int i = 0; i < payload.length; i++) payload[i] ^= mask[i & 3];
+            }
+            if (opcode == OP_CLOSE) {
+                // echo the status code back, which completes the closing handshake
+                connection.write(OP_CLOSE, payload.length >= 2 ? new byte[]{payload[0], payload[1]} : new byte[0]);
+                return;
+            }
+            if (opcode == OP_PING) {
+                connection.write(OP_PONG, payload);
+            }
+        }
+    }
+
+    private static long readNumber(InputStream in, int bytes) throws IOException {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            int b = in.read();
+            if (b < 0) throw new IOException("Truncated frame header");
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    /** One CRLF-terminated header line in ISO-8859-1, without the terminator; null at end of stream. */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') break;
+            if (b != '\r') line.write(b);
+            if (line.size() > 8192) throw new IOException("Header line too long");
+        }
+        if (b < 0 && line.size() == 0) return null;
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    /** A query parameter of the request target in "GET /path?query HTTP/1.1", or null. */
+    private static String queryParam(String requestLine, String name) {
+        String[] parts = requestLine.split(" ");
+        if (parts.length < 2) return null;
+        int q = parts[1].indexOf('?');
+        if (q < 0) return null;
+        for (String pair : parts[1].substring(q + 1).split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String acceptKey(String key) {
+        try {
+            byte[] sha1 = MessageDigest.getInstance("SHA-1").digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(sha1);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
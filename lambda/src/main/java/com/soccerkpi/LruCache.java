@@ -0,0 +1,91 @@
+package com.soccerkpi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small size-bounded LRU cache with expire-after-write, used to keep per-game state in warm containers.
+ *
+ * Lambda runs one request per container at a time, but methods are synchronized so the same cache
+ * is safe when the handlers are hosted in a multi-threaded server.
+ */
+public class LruCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final long writtenAtNanos;
+
+        Entry(V value, long writtenAtNanos) {
+            this.value = value;
+            this.writtenAtNanos = writtenAtNanos;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxAgeNanos;
+    private final LinkedHashMap<K, Entry<V>> map;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxEntries    entries kept before the least recently used one is evicted; 0 disables the cache
+     * @param maxAgeMillis  entries older than this (since they were put) are treated as absent
+     */
+    public LruCache(int maxEntries, long maxAgeMillis) {
+        this.maxEntries = maxEntries;
+        this.maxAgeNanos = maxAgeMillis * 1_000_000L;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > LruCache.this.maxEntries;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> e = map.get(key);
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - e.writtenAtNanos > maxAgeNanos) {
+            map.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.value;
+    }
+
+    /** Stores a value, keeping the original write time if the key is already present and not expired. */
+    public synchronized void update(K key, V value) {
+        Entry<V> e = map.get(key);
+        long now = System.nanoTime();
+        long writtenAt = e != null && now - e.writtenAtNanos <= maxAgeNanos ? e.writtenAtNanos : now;
+        if (maxEntries > 0) map.put(key, new Entry<>(value, writtenAt));
+    }
+
+    public synchronized void put(K key, V value) {
+        if (maxEntries > 0) map.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    public synchronized void invalidate(K key) {
+        map.remove(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,138 @@
+package com.soccerkpi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-player KPI totals for the player summary, filled in one pass over a game's events in eventTimestamp order.
+ * Players and KPIs get dense ordinals as they first appear, and each event adds into {@code totals[player][kpi]}:
+ * a counter's deltas are summed, a toggle cell holds its latest state (1 or 0). Ordinals are assigned from the
+ * events themselves, so folding can start before the roster and definitions have been read; they only decide
+ * the order and labels of the output.
+ */
+final class PlayerKpiMatrix {
+
+    private final Map<String, Integer> playerOrdinals = new HashMap<>();
+    private final Map<String, Integer> kpiOrdinals = new HashMap<>();
+    private String[] playerIds = new String[32];
+    private String[] kpiIds = new String[16];
+    private boolean[] toggle = new boolean[16];
+    private int[][] totals = new int[32][];
+    private int players;
+    private int kpis;
+
+    /** Folds one event into its player's row; team-level events (no playerId) are skipped. */
+    void add(Handlers.KpiEvent e) {
+        String playerId = e.getPlayerId();
+        String kpiId = e.getKpiId();
+        if (playerId == null || kpiId == null || kpiId.isEmpty()) return;
+        Integer delta = e.getDelta();
+        Boolean toggleValue = e.getToggleValue();
+        if (delta == null && toggleValue == null) return;
+
+        int k = kpiOrdinal(kpiId, delta == null);
+        // the ordinal first: a new player may replace the totals array
+        int p = playerOrdinal(playerId);
+        int[] row = totals[p];
+        if (!toggle[k]) {
+            if (delta != null) row[k] += delta;
+        } else if (toggleValue != null) {
+            row[k] = toggleValue ? 1 : 0;
+        }
+    }
+
+    int players() {
+        return players;
+    }
+
+    /**
+     * One row per player with one value per counter and toggle, in definition order; derived KPIs are formulas
+     * over game totals and get no column. Rostered players come first, in
+     * roster order and with a row of zeros if no event credits them; players that events credit without being on
+     * the roster follow in the order they first appeared. A KPI whose events do not match its definition's type
+     * is reported as zeros, as in the timeline.
+     */
+    Handlers.PlayerSummaryResponse toResponse(String gameId, List<Handlers.Player> roster, List<Handlers.KpiDefinition> defs) {
+        List<Handlers.KpiDefinition> kpiColumns = new ArrayList<>(defs.size());
+        for (Handlers.KpiDefinition def : defs) {
+            if (def.getType() != Handlers.KpiType.DERIVED) {
+                kpiColumns.add(new Handlers.KpiDefinition(null, def.getKpiId(), def.getLabel(), def.getType()));
+            }
+        }
+        int[] columns = new int[kpiColumns.size()];
+        for (int d = 0; d < columns.length; d++) {
+            Handlers.KpiDefinition def = kpiColumns.get(d);
+            Integer k = kpiOrdinals.get(def.getKpiId());
+            boolean isToggle = def.getType() == Handlers.KpiType.TOGGLE;
+            columns[d] = k != null && toggle[k] == isToggle ? k : -1;
+        }
+
+        List<Handlers.PlayerKpiTotals> rows = new ArrayList<>(players + (roster != null ? roster.size() : 0));
+        boolean[] listed = new boolean[players];
+        if (roster != null) {
+            for (Handlers.Player player : roster) {
+                Integer p = playerOrdinals.get(player.getPlayerId());
+                if (p != null) listed[p] = true;
+                rows.add(new Handlers.PlayerKpiTotals(player.getPlayerId(), player.getName(), player.getNumber(), true,
+                        row(p, columns)));
+            }
+        }
+        for (int p = 0; p < players; p++) {
+            if (!listed[p]) {
+                rows.add(new Handlers.PlayerKpiTotals(playerIds[p], null, null, false, row(p, columns)));
+            }
+        }
+        return new Handlers.PlayerSummaryResponse(gameId, kpiColumns, rows);
+    }
+
+    private int[] row(Integer player, int[] columns) {
+        int[] values = new int[columns.length];
+        if (player == null) return values;
+        int[] row = totals[player];
+        for (int d = 0; d < columns.length; d++) {
+            if (columns[d] >= 0) values[d] = row[columns[d]];
+        }
+        return values;
+    }
+
+    private int playerOrdinal(String playerId) {
+        Integer p = playerOrdinals.get(playerId);
+        if (p == null) {
+            p = players++;
+            if (p == playerIds.length) {
+                playerIds = Arrays.copyOf(playerIds, p * 2);
+                totals = Arrays.copyOf(totals, p * 2);
+            }
+            playerIds[p] = playerId;
+            totals[p] = new int[toggle.length];
+            playerOrdinals.put(playerId, p);
+        }
+        return p;
+    }
+
+    /** The KPI's column; its first event decides whether it is a counter or a toggle. */
+    private int kpiOrdinal(String kpiId, boolean isToggle) {
+        // decoded items and parsed taps carry the DefaultKpis constants, so a reference scan usually finds the column
+        for (int i = 0; i < kpis; i++) {
+            if (kpiIds[i] == kpiId) return i;
+        }
+        Integer k = kpiOrdinals.get(kpiId);
+        if (k != null) return k;
+        k = kpis++;
+        if (k == toggle.length) {
+            int capacity = k * 2;
+            kpiIds = Arrays.copyOf(kpiIds, capacity);
+            toggle = Arrays.copyOf(toggle, capacity);
+            for (int p = 0; p < players; p++) {
+                totals[p] = Arrays.copyOf(totals[p], capacity);
+            }
+        }
+        kpiIds[k] = kpiId;
+        toggle[k] = isToggle;
+        kpiOrdinals.put(kpiId, k);
+        return k;
+    }
+}
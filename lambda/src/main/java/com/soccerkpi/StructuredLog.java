@@ -0,0 +1,215 @@
+package com.soccerkpi;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes one JSON log line per request without building a map or a String: fields are encoded as UTF-8
+ * straight into a buffer that is reused for every line and then written to stdout in one call.
+ *
+ * When the invocation has {@link InvocationMetrics}, the same line carries them in CloudWatch Embedded Metric
+ * Format: an "_aws" block declaring Latency, DynamoDbLatency, DynamoDbCalls, SerializationLatency and
+ * ColdStart with the handler as dimension, and the values as top-level fields. Everything in the block but
+ * the timestamp is constant and pre-encoded.
+ *
+ * Lines are serialized under a lock, which costs nothing in Lambda (one request per container at a time) and
+ * is no worse than println elsewhere, which locks the stream anyway. A ReentrantLock rather than synchronized
+ * keeps virtual threads from pinning their carrier while the write blocks.
+ */
+final class StructuredLog {
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    // long error messages grow the buffer; past this size it is dropped after the line instead of being kept
+    private static final int RETAINED_CAPACITY = 4096;
+
+    private static final byte[] EMF_HEAD = "\"_aws\":{\"Timestamp\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EMF_DECLARATION = (",\"CloudWatchMetrics\":[{\"Namespace\":"
+            + jsonString(InvocationMetrics.NAMESPACE) + ",\"Dimensions\":[[\"handler\"]],\"Metrics\":["
+            + "{\"Name\":\"Latency\",\"Unit\":\"Milliseconds\"},"
+            + "{\"Name\":\"DynamoDbLatency\",\"Unit\":\"Milliseconds\"},"
+            + "{\"Name\":\"DynamoDbCalls\",\"Unit\":\"Count\"},"
+            + "{\"Name\":\"SerializationLatency\",\"Unit\":\"Milliseconds\"},"
+            + "{\"Name\":\"ColdStart\",\"Unit\":\"Count\"}]}]}").getBytes(StandardCharsets.UTF_8);
+
+    private static byte[] buf = new byte[512];
+    private static int len;
+    private static boolean first;
+
+    private StructuredLog() {
+    }
+
+    static void write(PrintStream out, String requestId, String handler, String gameId, String status, int statusCode,
+                      long durationMs, String errorType, String errorMessage, InvocationMetrics metrics) {
+        LOCK.lock();
+        try {
+            len = 0;
+            first = true;
+            put((byte) '{');
+            field("requestId", requestId);
+            field("handler", handler);
+            if (gameId != null) field("gameId", gameId);
+            field("status", status);
+            field("statusCode", statusCode);
+            field("durationMs", durationMs);
+            if (errorType != null) field("errorType", errorType);
+            if (errorMessage != null) field("errorMessage", errorMessage);
+            if (metrics != null) metrics(metrics);
+            put((byte) '}');
+            put((byte) '\n');
+            out.write(buf, 0, len);
+            out.flush();
+            if (buf.length > RETAINED_CAPACITY) buf = new byte[512];
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static void metrics(InvocationMetrics metrics) {
+        millisField("Latency", metrics.elapsedNanos());
+        millisField("DynamoDbLatency", metrics.dynamoDbNanos());
+        field("DynamoDbCalls", metrics.dynamoDbCalls());
+        millisField("SerializationLatency", metrics.serializationNanos());
+        field("ColdStart", metrics.coldStart() ? 1 : 0);
+        put((byte) ',');
+        bytes(EMF_HEAD);
+        number(System.currentTimeMillis());
+        bytes(EMF_DECLARATION);
+    }
+
+    /** Milliseconds with microsecond precision, e.g. 12.345. */
+    private static void millisField(String name, long nanos) {
+        long micros = Math.max(0, nanos) / 1_000;
+        field(name, micros / 1_000);
+        int fraction = (int) (micros % 1_000);
+        put((byte) '.');
+        put((byte) ('0' + fraction / 100));
+        put((byte) ('0' + fraction / 10 % 10));
+        put((byte) ('0' + fraction % 10));
+    }
+
+    private static void field(String name, String value) {
+        name(name);
+        if (value == null) {
+            ascii("null");
+        } else {
+            put((byte) '"');
+            string(value);
+            put((byte) '"');
+        }
+    }
+
+    private static void field(String name, long value) {
+        name(name);
+        number(value);
+    }
+
+    private static void number(long value) {
+        if (value == Long.MIN_VALUE) {
+            ascii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        ensure(20);
+        int start = len;
+        do {
+            buf[len++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        // digits were written least significant first
+        for (int i = start, j = len - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+    }
+
+    private static void name(String name) {
+        if (!first) put((byte) ',');
+        first = false;
+        put((byte) '"');
+        ascii(name);
+        put((byte) '"');
+        put((byte) ':');
+    }
+
+    /** Appends a JSON string body (no quotes), escaping as required and encoding non-ASCII as UTF-8. */
+    private static void string(String s) {
+        ensure(s.length() * 3);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                put((byte) '\\');
+                put((byte) c);
+            } else if (c < 0x20) {
+                switch (c) {
+                    case '\n' -> ascii("\\n");
+                    case '\r' -> ascii("\\r");
+                    case '\t' -> ascii("\\t");
+                    default -> {
+                        ascii("\\u00");
+                        put(HEX[c >> 4]);
+                        put(HEX[c & 0xF]);
+                    }
+                }
+            } else if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xC0 | (c >> 6)));
+                put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                put((byte) (0xF0 | (cp >> 18)));
+                put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                put((byte) '?');   // unpaired surrogate: not encodable as UTF-8
+            } else {
+                put((byte) (0xE0 | (c >> 12)));
+                put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static void bytes(byte[] b) {
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, len, b.length);
+        len += b.length;
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\');
+            if (c >= 0x20) sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    private static void ascii(String s) {
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buf[len++] = (byte) s.charAt(i);
+        }
+    }
+
+    private static void put(byte b) {
+        ensure(1);
+        buf[len++] = b;
+    }
+
+    private static void ensure(int extra) {
+        if (len + extra > buf.length) {
+            byte[] grown = new byte[Math.max(buf.length * 2, len + extra)];
+            System.arraycopy(buf, 0, grown, 0, len);
+            buf = grown;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.soccerkpi;
+
+import java.util.List;
+
+/**
+ * Which open live-update connections watch which game. A connection watches exactly one game, chosen when it
+ * connects, and is removed when it disconnects or a push finds it gone.
+ */
+public interface SubscriptionStore {
+
+    void subscribe(String gameId, String connectionId);
+
+    /** Removes the connection; unknown ids are ignored. */
+    void unsubscribe(String connectionId);
+
+    /** The connections watching the game. May briefly miss a connection that has only just subscribed. */
+    List<String> subscribers(String gameId);
+}
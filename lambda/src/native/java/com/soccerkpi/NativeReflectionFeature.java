@@ -0,0 +1,48 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2WebSocketEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2WebSocketResponse;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.Record;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+
+/**
+ * Registers the classes Jackson and the runtime interface client reach by reflection in the native image.
+ *
+ * Every nested class of Handlers is registered: the request/response models (CreateGameRequest, KpiSummary,
+ * GameSummaryResponse, ...) are read and written by Jackson through their constructors, getters and setters,
+ * and Handlers itself is looked up by the runtime client from _HANDLER (e.g. Handlers::createGame). Walking the
+ * nested classes at build time keeps new models covered without maintaining a reflect-config.json by hand.
+ * Only compiled in the native profile.
+ */
+public class NativeReflectionFeature implements Feature {
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        register(Handlers.class);
+        register(APIGatewayV2HTTPEvent.class);
+        register(APIGatewayV2HTTPResponse.class);
+        // the live WebSocket routes and the kpi_events stream consumer
+        register(APIGatewayV2WebSocketEvent.class);
+        register(APIGatewayV2WebSocketResponse.class);
+        register(DynamodbEvent.class);
+        register(Record.class);
+        register(StreamRecord.class);
+        register(AttributeValue.class);
+    }
+
+    private static void register(Class<?> type) {
+        RuntimeReflection.register(type);
+        RuntimeReflection.register(type.getDeclaredConstructors());
+        RuntimeReflection.register(type.getDeclaredMethods());
+        RuntimeReflection.register(type.getDeclaredFields());
+        for (Class<?> nested : type.getDeclaredClasses()) {
+            register(nested);
+        }
+    }
+}
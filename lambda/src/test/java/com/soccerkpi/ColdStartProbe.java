@@ -0,0 +1,174 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reproducible local measurement of time-to-first-response for a fresh JVM.
+ *
+ * For every JAR given as label=path it starts N child JVMs (system property probe.runs, default 10). Each child
+ * initializes Handlers and serves one request, reporting class-init time and first-request time; the parent
+ * also measures spawn-to-first-response, which covers JVM start as a cold start does.
+ *
+ * Scenario (system property probe.scenario):
+ *   tap     (default) one counter tap through Handlers.recordKpiEvent against a stub DynamoDB endpoint served
+ *           by this process (DYNAMODB_ENDPOINT, so only builds that honour it can run this scenario)
+ *   health  Handlers.health, no DynamoDB; runs against any build, including ones from before DYNAMODB_ENDPOINT
+ *
+ *   java -cp target/test-classes:target/lambda.jar com.soccerkpi.ColdStartProbe before=/tmp/before/lambda.jar after=target/lambda.jar
+ *
+ * Environment variables of the parent (e.g. PRIME_ON_INIT=false) are passed through to the children.
+ * See scripts/measure-cold-start.sh.
+ */
+public class ColdStartProbe {
+
+    private static final String MARKER = "PROBE_FIRST_RESPONSE ";
+
+    private static final class Sample {
+        final long totalMs;
+        final double initMs;
+        final double firstRequestMs;
+
+        Sample(long totalMs, double initMs, double firstRequestMs) {
+            this.totalMs = totalMs;
+            this.initMs = initMs;
+            this.firstRequestMs = firstRequestMs;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && "--child".equals(args[0])) {
+            runChild();
+            return;
+        }
+        if (args.length == 0) {
+            System.err.println("usage: ColdStartProbe label=path/to/lambda.jar [label=path ...]");
+            System.exit(2);
+        }
+
+        int runs = Integer.getInteger("probe.runs", 10);
+        String scenario = System.getProperty("probe.scenario", "tap");
+        HttpServer stub = startStubDynamoDb();
+        try {
+            String probeClasses = new File(ColdStartProbe.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+            String javaBin = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            String endpoint = "http://localhost:" + stub.getAddress().getPort();
+
+            System.out.printf("scenario=%s%n", scenario);
+            System.out.printf("%-10s %5s %12s %12s %12s %14s%n", "build", "runs", "total p50", "total max", "init p50", "1st req p50");
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                String label = eq > 0 ? arg.substring(0, eq) : arg;
+                String jar = eq > 0 ? arg.substring(eq + 1) : arg;
+
+                List<Sample> samples = new ArrayList<>();
+                runChildJvm(javaBin, jar, probeClasses, endpoint, scenario); // discard: warms the OS page cache for the JAR
+                for (int i = 0; i < runs; i++) {
+                    samples.add(runChildJvm(javaBin, jar, probeClasses, endpoint, scenario));
+                }
+                List<Long> totals = new ArrayList<>();
+                List<Double> inits = new ArrayList<>();
+                List<Double> firsts = new ArrayList<>();
+                for (Sample s : samples) {
+                    totals.add(s.totalMs);
+                    inits.add(s.initMs);
+                    firsts.add(s.firstRequestMs);
+                }
+                Collections.sort(totals);
+                Collections.sort(inits);
+                Collections.sort(firsts);
+                System.out.printf("%-10s %5d %12d %12d %12.1f %14.1f%n", label, runs,
+                        totals.get(totals.size() / 2), totals.get(totals.size() - 1),
+                        inits.get(inits.size() / 2), firsts.get(firsts.size() / 2));
+            }
+        } finally {
+            stub.stop(0);
+        }
+    }
+
+    private static Sample runChildJvm(String javaBin, String jar, String probeClasses, String endpoint,
+                                      String scenario) throws Exception {
+        ProcessBuilder pb = new ProcessBuilder(javaBin, "-Dprobe.scenario=" + scenario,
+                "-cp", jar + File.pathSeparator + probeClasses, ColdStartProbe.class.getName(), "--child");
+        pb.redirectErrorStream(true);
+        Map<String, String> env = pb.environment();
+        env.put("DYNAMODB_ENDPOINT", endpoint);
+        env.put("AWS_REGION", "us-west-2");
+        env.put("AWS_ACCESS_KEY_ID", "probe");
+        env.put("AWS_SECRET_ACCESS_KEY", "probe");
+        env.put("GAMES_TABLE", "games");
+        env.put("KPI_DEFINITIONS_TABLE", "kpi_definitions");
+        env.put("KPI_TEMPLATES_TABLE", "kpi_templates");
+        env.put("KPI_EVENTS_TABLE", "kpi_events");
+        env.put("KPI_AGGREGATES_TABLE", "kpi_aggregates");
+
+        long start = System.nanoTime();
+        Process p = pb.start();
+        Sample sample = null;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.startsWith(MARKER)) {
+                    long total = (System.nanoTime() - start) / 1_000_000L;
+                    String[] parts = line.substring(MARKER.length()).split(" ");
+                    if (!"200".equals(parts[0])) {
+                        throw new IllegalStateException("Child returned " + parts[0]);
+                    }
+                    sample = new Sample(total, Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                }
+            }
+        }
+        p.waitFor();
+        if (sample == null) throw new IllegalStateException("Child exited without responding");
+        return sample;
+    }
+
+    private static void runChild() throws Exception {
+        long t0 = System.nanoTime();
+        Class.forName("com.soccerkpi.Handlers");
+        long t1 = System.nanoTime();
+
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setRequestContext(new APIGatewayV2HTTPEvent.RequestContext());
+        APIGatewayV2HTTPResponse response;
+        if ("health".equals(System.getProperty("probe.scenario"))) {
+            response = Handlers.health(event, new MockContext());
+        } else {
+            event.setPathParameters(Collections.singletonMap("gameId", "probe-game"));
+            event.setBody("{\"kpiId\":\"goals\",\"delta\":1}");
+            response = Handlers.recordKpiEvent(event, new MockContext());
+        }
+        long t2 = System.nanoTime();
+
+        System.out.println(MARKER + response.getStatusCode() + " " + (t1 - t0) / 1e6 + " " + (t2 - t1) / 1e6);
+        System.out.flush();
+    }
+
+    /** Answers every DynamoDB JSON-protocol call with an empty object: no item, no error. */
+    private static HttpServer startStubDynamoDb() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.0");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+}
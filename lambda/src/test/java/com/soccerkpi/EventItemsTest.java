@@ -0,0 +1,85 @@
+package com.soccerkpi;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the v1 and v2 kpi_events item layouts: every format decodes back to the event it was written from.
+ */
+class EventItemsTest {
+
+    private static final String TS = "2024-01-01T10:00:00.123Z";
+
+    private static Handlers.KpiEvent roundTrip(EventItems.Format format, Handlers.KpiEvent event) {
+        return EventItems.decode(EventItems.encode(format, "g1", event));
+    }
+
+    @Test
+    void every_format_round_trips_counters_and_toggles() {
+        for (EventItems.Format format : EventItems.Format.values()) {
+            Handlers.KpiEvent counter = roundTrip(format, new Handlers.KpiEvent(TS, "goals", -1, null, null));
+            assertEquals("goals", counter.getKpiId(), format.name());
+            assertEquals(-1, counter.getDelta(), format.name());
+            assertNull(counter.getToggleValue(), format.name());
+
+            Handlers.KpiEvent toggle = roundTrip(format, new Handlers.KpiEvent(TS, "momentum", null, true, null));
+            assertEquals("momentum", toggle.getKpiId(), format.name());
+            assertNull(toggle.getDelta(), format.name());
+            assertTrue(toggle.getToggleValue(), format.name());
+        }
+    }
+
+    @Test
+    void every_format_round_trips_the_player() {
+        for (EventItems.Format format : EventItems.Format.values()) {
+            Handlers.KpiEvent credited = roundTrip(format, new Handlers.KpiEvent(TS, "goals", 1, null, null, "p-9"));
+            assertEquals("p-9", credited.getPlayerId(), format.name());
+            assertEquals(1, credited.getDelta(), format.name());
+            assertNull(roundTrip(format, new Handlers.KpiEvent(TS, "goals", 1, null, null)).getPlayerId(), format.name());
+        }
+    }
+
+    @Test
+    void v2_uses_ordinals_and_keeps_unknown_kpis_as_strings() {
+        Map<String, AttributeValue> known = EventItems.encode(EventItems.Format.V2, "g1",
+                new Handlers.KpiEvent(TS, "shots_on_target", 1, null, null));
+        assertEquals("0", known.get(EventItems.KPI_ORDINAL).n());
+        assertFalse(known.containsKey("kpiId"));
+
+        Map<String, AttributeValue> custom = EventItems.encode(EventItems.Format.V2_PACKED, "g1",
+                new Handlers.KpiEvent(TS, "corners", 1, null, null));
+        assertEquals("corners", custom.get(EventItems.KPI_STRING).s());
+        assertFalse(custom.containsKey(EventItems.PACKED));
+        assertEquals("corners", EventItems.decode(custom).getKpiId());
+    }
+
+    @Test
+    void packed_items_hold_only_the_key_version_and_payload() {
+        Map<String, AttributeValue> item = EventItems.encode(EventItems.Format.V2_PACKED, "g1",
+                new Handlers.KpiEvent(TS, "red_card", null, false, null));
+        assertEquals(4, item.size());
+        assertEquals(2, item.get(EventItems.PACKED).b().asByteArray().length);
+        assertFalse(EventItems.decode(item).getToggleValue());
+    }
+
+    @Test
+    void v2_batch_events_recover_client_event_id_from_the_sort_key() {
+        String key = "2024-01-01T10:00:00Z#tablet-7";
+        Handlers.KpiEvent decoded = roundTrip(EventItems.Format.V2, new Handlers.KpiEvent(key, "goals", 1, null, "tablet-7"));
+        assertEquals("tablet-7", decoded.getClientEventId());
+        assertEquals(key, decoded.getEventTimestamp());
+    }
+
+    @Test
+    void aggregate_folds_mixed_layouts() {
+        Handlers.KpiAggregate agg = new Handlers.KpiAggregate();
+        agg.applyEvent(EventItems.encode(EventItems.Format.V1, "g1", new Handlers.KpiEvent("a", "goals", 1, null, null)));
+        agg.applyEvent(EventItems.encode(EventItems.Format.V2, "g1", new Handlers.KpiEvent("b", "goals", 1, null, null)));
+        agg.applyEvent(EventItems.encode(EventItems.Format.V2_PACKED, "g1", new Handlers.KpiEvent("c", "goals", 1, null, null)));
+        assertEquals(3, agg.counterTotals().get("goals"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.soccerkpi;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the eventTimestamp format and its ordering, including timestamps stored with fewer fraction digits.
+ */
+class EventTimestampsTest {
+
+    @Test
+    void event_timestamps_have_nine_fraction_digits_and_sort_in_time_order() {
+        Instant base = Instant.parse("2024-03-09T23:59:59Z");
+        long[] nanos = {0, 1, 999, 1_000, 120_000, 1_000_000, 123_000_000, 123_456_000, 123_456_789, 999_999_999};
+        String previous = null;
+        for (int s = 0; s < 3; s++) {
+            for (long n : nanos) {
+                Instant t = base.plusSeconds(s).plusNanos(n);
+                String ts = EventTimestamps.format(t);
+                assertEquals(30, ts.length(), ts);
+                assertEquals(t, Instant.parse(ts));
+                if (previous != null) assertTrue(previous.compareTo(ts) < 0, previous + " vs " + ts);
+                previous = ts;
+            }
+        }
+        Instant farFuture = Instant.parse("+10000-01-01T00:00:00Z");
+        assertEquals(farFuture.toString(), EventTimestamps.format(farFuture));
+    }
+
+    @Test
+    void timestamps_of_mixed_precision_compare_by_instant() {
+        // as Instant#toString wrote them before every timestamp had nine digits; string order gets these wrong
+        String whole = "2024-01-01T10:00:14Z";
+        String micros = "2024-01-01T10:00:14.123456Z";
+        String millis = "2024-01-01T10:00:14.5Z";
+        String fixed = EventTimestamps.format(Instant.parse("2024-01-01T10:00:14.000001Z"));
+
+        assertTrue(EventTimestamps.compare(whole, micros) < 0);
+        assertTrue(EventTimestamps.compare(micros, millis) < 0);
+        assertTrue(EventTimestamps.compare(whole, fixed) < 0);
+        assertTrue(EventTimestamps.compare(fixed, micros) < 0);
+        assertTrue(EventTimestamps.compare(whole + "#a", whole + "#b") < 0);
+        assertEquals(0, EventTimestamps.compare(micros, micros));
+    }
+}
@@ -0,0 +1,290 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the summary handlers overlap the definitions read with the aggregate or event read, and that polls
+ * are answered conditionally, compressed and in the format the client asks for.
+ */
+class GetGameSummaryHandlerTest {
+
+    private static final Context MOCK_CONTEXT = new MockContext();
+
+    /**
+     * Each read waits until the other one has started, so the handler only completes in time if both are in
+     * flight together.
+     */
+    private static final class RendezvousStore extends InMemoryKpiStore {
+        final CountDownLatch definitionsStarted = new CountDownLatch(1);
+        final CountDownLatch eventsStarted = new CountDownLatch(1);
+        volatile boolean overlapped = true;
+
+        @Override
+        public List<Handlers.KpiDefinition> loadDefinitions(String gameId) {
+            definitionsStarted.countDown();
+            if (!await(eventsStarted)) overlapped = false;
+            return super.loadDefinitions(gameId);
+        }
+
+        @Override
+        public Handlers.KpiAggregate loadAggregate(String gameId) {
+            eventsStarted.countDown();
+            if (!await(definitionsStarted)) overlapped = false;
+            return super.loadAggregate(gameId);
+        }
+
+        private static boolean await(CountDownLatch latch) {
+            try {
+                return latch.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private static APIGatewayV2HTTPEvent summaryRequest(String gameId) {
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setPathParameters(Collections.singletonMap("gameId", gameId));
+        return event;
+    }
+
+    @Test
+    void definitions_and_aggregate_are_read_concurrently() throws Exception {
+        RendezvousStore store = new RendezvousStore();
+        String gameId = "concurrent-" + UUID.randomUUID();
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 1, null, null));
+
+        APIGatewayV2HTTPResponse response = new Handlers.GetGameSummaryHandler(store, store)
+                .handleRequest(summaryRequest(gameId), MOCK_CONTEXT);
+
+        assertEquals(200, response.getStatusCode());
+        assertTrue(store.overlapped, "the second read only started after the first finished");
+        Handlers.GameSummaryResponse body = Handlers.OBJECT_MAPPER.readValue(response.getBody(), Handlers.GameSummaryResponse.class);
+        assertEquals(12, body.getKpis().size());
+    }
+
+    @Test
+    void failed_definitions_read_is_reported_with_its_own_exception() {
+        InMemoryKpiStore store = new InMemoryKpiStore() {
+            @Override
+            public List<Handlers.KpiDefinition> loadDefinitions(String gameId) {
+                throw new IllegalStateException("definitions unavailable");
+            }
+        };
+
+        APIGatewayV2HTTPResponse response = new Handlers.GetGameSummaryHandler(store, store)
+                .handleRequest(summaryRequest("failing-" + UUID.randomUUID()), MOCK_CONTEXT);
+
+        assertEquals(500, response.getStatusCode());
+        assertTrue(response.getBody().contains("definitions unavailable"), response.getBody());
+    }
+
+    @Test
+    void unchanged_summary_is_304_until_the_next_tap() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "etag-" + UUID.randomUUID();
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 1, null, null));
+        Handlers.GetGameSummaryHandler handler = new Handlers.GetGameSummaryHandler(store, store);
+
+        APIGatewayV2HTTPResponse first = handler.handleRequest(summaryRequest(gameId), MOCK_CONTEXT);
+        String etag = first.getHeaders().get("ETag");
+        assertNotNull(etag);
+
+        APIGatewayV2HTTPEvent poll = summaryRequest(gameId);
+        poll.setHeaders(Map.of("if-none-match", etag));
+        APIGatewayV2HTTPResponse unchanged = handler.handleRequest(poll, MOCK_CONTEXT);
+        assertEquals(304, unchanged.getStatusCode());
+        assertNull(unchanged.getBody());
+        assertEquals(etag, unchanged.getHeaders().get("ETag"));
+
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:00:05Z", "momentum", null, true, null));
+        APIGatewayV2HTTPResponse changed = handler.handleRequest(poll, MOCK_CONTEXT);
+        assertEquals(200, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().get("ETag"));
+    }
+
+    @Test
+    void summary_is_gzipped_when_the_client_accepts_it() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "gzip-" + UUID.randomUUID();
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        Handlers.GetGameSummaryHandler handler = new Handlers.GetGameSummaryHandler(store, store);
+        String plain = handler.handleRequest(summaryRequest(gameId), MOCK_CONTEXT).getBody();
+
+        APIGatewayV2HTTPEvent request = summaryRequest(gameId);
+        request.setHeaders(Map.of("accept-encoding", "gzip, deflate, br"));
+        APIGatewayV2HTTPResponse response = handler.handleRequest(request, MOCK_CONTEXT);
+
+        assertEquals("gzip", response.getHeaders().get("Content-Encoding"));
+        assertTrue(response.getIsBase64Encoded());
+        byte[] compressed = Base64.getDecoder().decode(response.getBody());
+        assertTrue(compressed.length < plain.length() / 2, compressed.length + " of " + plain.length());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(plain, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void summary_is_smile_encoded_when_the_client_asks_for_it() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "smile-" + UUID.randomUUID();
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 2, null, null));
+        Handlers.GetGameSummaryHandler handler = new Handlers.GetGameSummaryHandler(store, store);
+        APIGatewayV2HTTPResponse json = handler.handleRequest(summaryRequest(gameId), MOCK_CONTEXT);
+
+        APIGatewayV2HTTPEvent request = summaryRequest(gameId);
+        request.setHeaders(Map.of("accept", "application/x-jackson-smile, application/json;q=0.5"));
+        APIGatewayV2HTTPResponse smile = handler.handleRequest(request, MOCK_CONTEXT);
+
+        assertEquals(200, smile.getStatusCode());
+        assertEquals("application/x-jackson-smile", smile.getHeaders().get("Content-Type"));
+        assertTrue(smile.getIsBase64Encoded());
+        byte[] bytes = Base64.getDecoder().decode(smile.getBody());
+        assertTrue(bytes.length < json.getBody().length(), bytes.length + " of " + json.getBody().length());
+        Handlers.GameSummaryResponse decoded = BodyEncoding.SMILE.read(bytes, Handlers.GameSummaryResponse.class);
+        assertEquals(Handlers.OBJECT_MAPPER.readTree(json.getBody()), Handlers.OBJECT_MAPPER.valueToTree(decoded));
+        // a JSON ETag must not revalidate the Smile body, or a shared cache could hand out the wrong format
+        assertNotEquals(json.getHeaders().get("ETag"), smile.getHeaders().get("ETag"));
+    }
+
+    @Test
+    void finalized_summary_keeps_one_encoded_body_per_format() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "frozen-" + UUID.randomUUID();
+        store.putGame(new Handlers.Game(gameId, "A", "B", null, Handlers.Game.CREATED));
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 3, null, null));
+        assertEquals(200, new Handlers.FinalizeGameHandler(store, store, store).handleRequest(summaryRequest(gameId), MOCK_CONTEXT).getStatusCode());
+        Handlers.GetGameSummaryHandler handler = new Handlers.GetGameSummaryHandler(store, store);
+        String json = handler.handleRequest(summaryRequest(gameId), MOCK_CONTEXT).getBody();
+
+        APIGatewayV2HTTPEvent smileRequest = summaryRequest(gameId);
+        smileRequest.setHeaders(Map.of("accept", "application/x-jackson-smile"));
+        APIGatewayV2HTTPEvent cborRequest = summaryRequest(gameId);
+        cborRequest.setHeaders(Map.of("accept", "application/cbor"));
+        APIGatewayV2HTTPResponse smile = handler.handleRequest(smileRequest, MOCK_CONTEXT);
+        APIGatewayV2HTTPResponse cbor = handler.handleRequest(cborRequest, MOCK_CONTEXT);
+
+        assertEquals("application/cbor", cbor.getHeaders().get("Content-Type"));
+        assertNotEquals(smile.getBody(), cbor.getBody());
+        assertEquals(smile.getBody(), handler.handleRequest(smileRequest, MOCK_CONTEXT).getBody());
+        assertEquals(cbor.getBody(), handler.handleRequest(cborRequest, MOCK_CONTEXT).getBody());
+        for (APIGatewayV2HTTPResponse response : List.of(smile, cbor)) {
+            BodyEncoding encoding = response == smile ? BodyEncoding.SMILE : BodyEncoding.CBOR;
+            Handlers.GameSummaryResponse decoded = encoding.read(Base64.getDecoder().decode(response.getBody()), Handlers.GameSummaryResponse.class);
+            assertEquals(Handlers.OBJECT_MAPPER.readTree(json), Handlers.OBJECT_MAPPER.valueToTree(decoded));
+        }
+    }
+
+    @Test
+    void refused_binary_formats_fall_back_to_json() {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "refused-" + UUID.randomUUID();
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        APIGatewayV2HTTPEvent request = summaryRequest(gameId);
+        request.setHeaders(Map.of("accept", "application/cbor;q=0, application/json"));
+
+        APIGatewayV2HTTPResponse response = new Handlers.GetGameSummaryHandler(store, store).handleRequest(request, MOCK_CONTEXT);
+
+        assertEquals("application/json", response.getHeaders().get("Content-Type"));
+        assertNotEquals(Boolean.TRUE, response.getIsBase64Encoded());
+    }
+
+    @Test
+    void created_game_starts_with_an_aggregate_so_reads_never_fold_the_log() {
+        InMemoryKpiStore store = new InMemoryKpiStore() {
+            @Override
+            public Iterable<Handlers.KpiEvent> events(String gameId, String afterTimestamp) {
+                throw new AssertionError("summary read folded the event log");
+            }
+        };
+        APIGatewayV2HTTPResponse created = new Handlers.CreateGameHandler(store, store)
+                .handleRequest(new APIGatewayV2HTTPEvent(), MOCK_CONTEXT);
+        String gameId = created.getBody().replaceAll(".*\"gameId\":\"([^\"]+)\".*", "$1");
+
+        assertNotNull(store.loadAggregate(gameId));
+        APIGatewayV2HTTPResponse summary = new Handlers.GetGameSummaryHandler(store, store)
+                .handleRequest(summaryRequest(gameId), MOCK_CONTEXT);
+        assertEquals(200, summary.getStatusCode(), summary.getBody());
+    }
+
+    @Test
+    void tap_between_the_fold_and_the_store_of_a_missing_aggregate_is_kept() throws Exception {
+        String gameId = "legacy-" + UUID.randomUUID();
+        // a game created before CreateGame wrote an aggregate; the first tap lands while a poll folds the log
+        InMemoryKpiStore store = new InMemoryKpiStore() {
+            @Override
+            public boolean storeAggregateIfAbsent(String id, Handlers.KpiAggregate aggregate) {
+                recordEvent(id, new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 1, null, null));
+                return super.storeAggregateIfAbsent(id, aggregate);
+            }
+        };
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        Handlers.GetGameSummaryHandler handler = new Handlers.GetGameSummaryHandler(store, store);
+
+        assertEquals(200, handler.handleRequest(summaryRequest(gameId), MOCK_CONTEXT).getStatusCode());
+        APIGatewayV2HTTPResponse next = handler.handleRequest(summaryRequest(gameId), MOCK_CONTEXT);
+
+        Handlers.GameSummaryResponse body = Handlers.OBJECT_MAPPER.readValue(next.getBody(), Handlers.GameSummaryResponse.class);
+        Handlers.KpiSummary goals = body.getKpis().stream().filter(k -> k.getKpiId().equals("goals")).findFirst().orElseThrow();
+        assertEquals(1, goals.getTotal());
+    }
+
+    @Test
+    void batch_events_behind_the_cursor_are_stale_only_on_other_containers() {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "cursor-" + UUID.randomUUID();
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:00:00.000000000Z", "goals", 1, null, null));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:05:00.000000000Z", "goals", 1, null, null));
+        assertEquals(2, Handlers.summarizeFromEvents(store, gameId).counterTotals().get("goals"));
+
+        // written by another container: the cursor is already past its occurredAt, so the cached totals miss it
+        store.recordEvents(gameId, List.of(
+                new Handlers.KpiEvent("2024-01-01T10:01:00.000000000Z#c1", "goals", 1, null, "c1")));
+        assertEquals(2, Handlers.summarizeFromEvents(store, gameId).counterTotals().get("goals"));
+
+        // written through this container's batch handler: the cursor is dropped and the whole log read again
+        APIGatewayV2HTTPEvent batch = new APIGatewayV2HTTPEvent();
+        batch.setPathParameters(Collections.singletonMap("gameId", gameId));
+        batch.setBody("{\"events\":[{\"clientEventId\":\"c2\",\"occurredAt\":\"2024-01-01T10:02:00Z\",\"kpiId\":\"goals\",\"delta\":1}]}");
+        assertEquals(200, new Handlers.RecordKpiEventBatchHandler(store, store).handleRequest(batch, MOCK_CONTEXT).getStatusCode());
+        assertEquals(4, Handlers.summarizeFromEvents(store, gameId).counterTotals().get("goals"));
+    }
+
+    @Test
+    void aggregate_fingerprint_ignores_insertion_order() {
+        Handlers.KpiAggregate a = new Handlers.KpiAggregate();
+        a.putCounter("goals", 2);
+        a.putCounter("tackles_won", 5);
+        a.putToggle("momentum", true, "t1");
+        Handlers.KpiAggregate b = new Handlers.KpiAggregate();
+        b.putToggle("momentum", true, "t2");
+        b.putCounter("tackles_won", 5);
+        b.putCounter("goals", 2);
+
+        assertEquals(a.fingerprint(), b.fingerprint());
+        b.putCounter("goals", 3);
+        assertNotEquals(a.fingerprint(), b.fingerprint());
+    }
+}
@@ -0,0 +1,246 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory backend, directly and with the handlers injected with it.
+ */
+class InMemoryKpiStoreTest {
+
+    private static final Context MOCK_CONTEXT = new MockContext();
+
+    @Test
+    void concurrent_taps_are_all_counted() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        String timestamp = "2024-01-01T10:00:00Z";   // same key for every tap: none may be lost
+        for (int i = 0; i < 4_000; i++) {
+            pool.execute(() -> store.recordEvent("g1", new Handlers.KpiEvent(timestamp, "goals", 1, null, null)));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<Handlers.KpiSummary> summaries = store.loadAggregate("g1").toSummaries(List.of(
+                new Handlers.KpiDefinition("g1", "goals", "Goals", Handlers.KpiType.COUNTER)));
+        assertEquals(4_000, summaries.get(0).getTotal());
+
+        int logged = 0;
+        for (Handlers.KpiEvent ignored : store.events("g1", null)) logged++;
+        assertEquals(4_000, logged);
+    }
+
+    @Test
+    void batch_reports_duplicates_and_counts_them_once() {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        List<Handlers.KpiEvent> batch = List.of(
+                new Handlers.KpiEvent("2024-01-01T10:00:00Z#e1", "goals", 1, null, "e1"),
+                new Handlers.KpiEvent("2024-01-01T10:01:00Z#e2", "red_card", null, true, "e2"));
+
+        Map<String, Handlers.BatchEventResult> first = store.recordEvents("g1", batch);
+        Map<String, Handlers.BatchEventResult> replay = store.recordEvents("g1", batch);
+
+        assertEquals(Handlers.BatchEventResult.CREATED, first.get("2024-01-01T10:00:00Z#e1").getStatus());
+        assertEquals(Handlers.BatchEventResult.DUPLICATE, replay.get("2024-01-01T10:00:00Z#e1").getStatus());
+        assertEquals(Handlers.BatchEventResult.DUPLICATE, replay.get("2024-01-01T10:01:00Z#e2").getStatus());
+        List<Handlers.KpiSummary> summaries = store.loadAggregate("g1").toSummaries(List.of(
+                new Handlers.KpiDefinition("g1", "goals", "Goals", Handlers.KpiType.COUNTER),
+                new Handlers.KpiDefinition("g1", "red_card", "Red Card", Handlers.KpiType.TOGGLE)));
+        assertEquals(1, summaries.get(0).getTotal());
+        assertTrue(summaries.get(1).getValue());
+    }
+
+    @Test
+    void older_toggle_does_not_overwrite_newer_one() {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        store.recordEvent("g1", new Handlers.KpiEvent("2024-01-01T10:05:00Z", "red_card", null, true, null));
+        store.recordEvent("g1", new Handlers.KpiEvent("2024-01-01T10:03:00Z", "red_card", null, false, null));
+
+        List<Handlers.KpiSummary> summaries = store.loadAggregate("g1").toSummaries(List.of(
+                new Handlers.KpiDefinition("g1", "red_card", "Red Card", Handlers.KpiType.TOGGLE)));
+        assertTrue(summaries.get(0).getValue());
+    }
+
+    @Test
+    void events_after_cursor_are_in_timestamp_order() {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        store.recordEvent("g1", new Handlers.KpiEvent("2024-01-01T10:02:00Z", "goals", 1, null, null));
+        store.recordEvent("g1", new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 1, null, null));
+        store.recordEvent("g1", new Handlers.KpiEvent("2024-01-01T10:01:00Z", "goals", 1, null, null));
+
+        List<String> seen = new ArrayList<>();
+        store.events("g1", "2024-01-01T10:00:00Z").forEach(e -> seen.add(e.getEventTimestamp()));
+        assertEquals(List.of("2024-01-01T10:01:00Z", "2024-01-01T10:02:00Z"), seen);
+    }
+
+    @Test
+    void injected_handlers_create_tap_and_summarize_without_dynamodb() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+
+        APIGatewayV2HTTPEvent create = new APIGatewayV2HTTPEvent();
+        create.setBody("{\"homeTeam\":\"A\",\"awayTeam\":\"B\"}");
+        APIGatewayV2HTTPResponse created = new Handlers.CreateGameHandler(store, store).handleRequest(create, MOCK_CONTEXT);
+        assertEquals(200, created.getStatusCode());
+        String gameId = Handlers.OBJECT_MAPPER.readValue(created.getBody(), Handlers.CreateGameResponse.class).getGameId();
+
+        APIGatewayV2HTTPEvent tap = new APIGatewayV2HTTPEvent();
+        tap.setPathParameters(Collections.singletonMap("gameId", gameId));
+        tap.setBody("{\"kpiId\":\"goals\",\"delta\":1}");
+        assertEquals(200, new Handlers.RecordKpiEventHandler(store, store).handleRequest(tap, MOCK_CONTEXT).getStatusCode());
+        assertEquals(200, new Handlers.RecordKpiEventHandler(store, store).handleRequest(tap, MOCK_CONTEXT).getStatusCode());
+
+        APIGatewayV2HTTPEvent summary = new APIGatewayV2HTTPEvent();
+        summary.setPathParameters(Collections.singletonMap("gameId", gameId));
+        APIGatewayV2HTTPResponse response = new Handlers.GetGameSummaryHandler(store, store).handleRequest(summary, MOCK_CONTEXT);
+        assertEquals(200, response.getStatusCode());
+
+        Handlers.GameSummaryResponse body = Handlers.OBJECT_MAPPER.readValue(response.getBody(), Handlers.GameSummaryResponse.class);
+        assertEquals(12, body.getKpis().size());
+        Handlers.KpiSummary goals = body.getKpis().stream().filter(k -> "goals".equals(k.getKpiId())).findFirst().orElseThrow();
+        assertEquals(2, goals.getTotal());
+    }
+
+    @Test
+    void finalized_game_is_served_from_its_snapshot() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "final-1";
+        store.putGame(new Handlers.Game(gameId, "A", "B", null, Handlers.Game.CREATED));
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 1, null, null));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:01:00Z", "red_card", null, true, null));
+
+        APIGatewayV2HTTPEvent request = new APIGatewayV2HTTPEvent();
+        request.setPathParameters(Collections.singletonMap("gameId", gameId));
+        APIGatewayV2HTTPResponse finalized = new Handlers.FinalizeGameHandler(store, store, store).handleRequest(request, MOCK_CONTEXT);
+        assertEquals(200, finalized.getStatusCode());
+        assertEquals(Handlers.Game.FINAL, store.getGame(gameId).getStatus());
+        assertFalse(store.events(gameId, null).iterator().hasNext());
+        assertEquals(2, store.archivedEvents(gameId).size());
+
+        // late taps are refused, so the snapshot holds every event that was accepted
+        APIGatewayV2HTTPEvent tap = new APIGatewayV2HTTPEvent();
+        tap.setPathParameters(Collections.singletonMap("gameId", gameId));
+        tap.setBody("{\"kpiId\":\"goals\",\"delta\":1}");
+        assertEquals(409, new Handlers.RecordKpiEventHandler(store, store).handleRequest(tap, MOCK_CONTEXT).getStatusCode());
+        APIGatewayV2HTTPEvent batch = new APIGatewayV2HTTPEvent();
+        batch.setPathParameters(Collections.singletonMap("gameId", gameId));
+        batch.setBody("{\"events\":[{\"clientEventId\":\"late-1\",\"occurredAt\":\"2024-01-01T10:02:00Z\",\"kpiId\":\"goals\",\"delta\":1}]}");
+        assertEquals(409, new Handlers.RecordKpiEventBatchHandler(store, store).handleRequest(batch, MOCK_CONTEXT).getStatusCode());
+        assertFalse(store.events(gameId, null).iterator().hasNext());
+        APIGatewayV2HTTPResponse summary = new Handlers.GetGameSummaryHandler(store, store).handleRequest(request, MOCK_CONTEXT);
+        assertEquals(finalized.getBody(), summary.getBody());
+        Handlers.GameSummaryResponse body = Handlers.OBJECT_MAPPER.readValue(summary.getBody(), Handlers.GameSummaryResponse.class);
+        Handlers.KpiSummary goals = body.getKpis().stream().filter(k -> "goals".equals(k.getKpiId())).findFirst().orElseThrow();
+        assertEquals(1, goals.getTotal());
+
+        assertEquals(200, new Handlers.FinalizeGameHandler(store, store, store).handleRequest(request, MOCK_CONTEXT).getStatusCode());
+        assertEquals(409, new Handlers.RebuildGameSummaryHandler(store, store).handleRequest(request, MOCK_CONTEXT).getStatusCode());
+    }
+
+    @Test
+    void finalized_game_keeps_its_timeline_and_player_summary() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "final-archive";
+        Handlers.Game game = new Handlers.Game(gameId, "A", "B", "2024-01-01T10:00:00Z", Handlers.Game.CREATED);
+        game.setRoster(List.of(new Handlers.Player("p9", "Nine", 9)));
+        store.putGame(game);
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:00:30Z", "goals", 1, null, null, "p9"));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:02:10Z", "goals", 1, null, null, "p9"));
+
+        APIGatewayV2HTTPEvent request = new APIGatewayV2HTTPEvent();
+        request.setPathParameters(Collections.singletonMap("gameId", gameId));
+        assertEquals(200, new Handlers.FinalizeGameHandler(store, store, store).handleRequest(request, MOCK_CONTEXT).getStatusCode());
+        // the live log is gone and a late tap is refused
+        assertThrows(EventStore.GameClosedException.class, () ->
+                store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:03:00Z", "goals", 1, null, null, "p9")));
+
+        APIGatewayV2HTTPResponse timeline = new Handlers.GetGameTimelineHandler(store, store, store).handleRequest(request, MOCK_CONTEXT);
+        assertEquals(200, timeline.getStatusCode(), timeline.getBody());
+        Handlers.GameTimelineResponse series = Handlers.OBJECT_MAPPER.readValue(timeline.getBody(), Handlers.GameTimelineResponse.class);
+        int[] goals = series.getKpis().stream().filter(k -> "goals".equals(k.getKpiId())).findFirst().orElseThrow().getValues();
+        assertArrayEquals(new int[]{1, 0, 1}, goals);
+
+        APIGatewayV2HTTPResponse players = new Handlers.GetPlayerSummaryHandler(store, store, store).handleRequest(request, MOCK_CONTEXT);
+        assertEquals(200, players.getStatusCode(), players.getBody());
+        Handlers.PlayerSummaryResponse matrix = Handlers.OBJECT_MAPPER.readValue(players.getBody(), Handlers.PlayerSummaryResponse.class);
+        int goalsColumn = 0;
+        while (!"goals".equals(matrix.getKpis().get(goalsColumn).getKpiId())) goalsColumn++;
+        assertEquals("p9", matrix.getPlayers().get(0).getPlayerId());
+        assertEquals(2, matrix.getPlayers().get(0).getValues()[goalsColumn]);
+    }
+
+    @Test
+    void season_summary_merges_home_and_away_games_in_range() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String[][] fixtures = {
+                {"s1", "Rovers", "City", "2024-09-01T15:00:00Z"},
+                {"s2", "United", "rovers ", "2024-09-08T15:00:00Z"},
+                {"s3", "Rovers", "Town", "2025-03-01T15:00:00Z"},   // outside the range
+                {"s4", "City", "Town", "2024-09-15T15:00:00Z"}};    // another team's game
+        for (String[] f : fixtures) {
+            store.putGame(new Handlers.Game(f[0], f[1], f[2], f[3], Handlers.Game.CREATED));
+            store.putDefinitions(f[0], Handlers.DefaultKpis.defaultKpisForGame(f[0]));
+            store.recordEvent(f[0], new Handlers.KpiEvent(f[3], "goals", 1, null, null));
+        }
+        store.recordEvent("s2", new Handlers.KpiEvent("2024-09-08T15:10:00Z", "red_card", null, true, null));
+
+        APIGatewayV2HTTPEvent request = new APIGatewayV2HTTPEvent();
+        request.setPathParameters(Collections.singletonMap("team", "ROVERS"));
+        request.setQueryStringParameters(Map.of("from", "2024-08-01", "to", "2024-12-31"));
+        APIGatewayV2HTTPResponse response = new Handlers.GetTeamSeasonSummaryHandler(store, store, store).handleRequest(request, MOCK_CONTEXT);
+        assertEquals(200, response.getStatusCode());
+
+        Handlers.TeamSeasonSummaryResponse body = Handlers.OBJECT_MAPPER.readValue(response.getBody(), Handlers.TeamSeasonSummaryResponse.class);
+        assertEquals(List.of("s1", "s2"), body.getGameIds());
+        Map<String, Handlers.KpiSummary> byId = new HashMap<>();
+        body.getKpis().forEach(k -> byId.put(k.getKpiId(), k));
+        assertEquals(2, byId.get("goals").getTotal());
+        assertEquals(1, byId.get("red_card").getTotal());
+        assertTrue(byId.get("red_card").getValue());
+
+        request.setQueryStringParameters(Map.of("from", "last season"));
+        assertEquals(400, new Handlers.GetTeamSeasonSummaryHandler(store, store, store).handleRequest(request, MOCK_CONTEXT).getStatusCode());
+    }
+
+    @Test
+    void kickoffs_are_stored_as_utc_seconds_so_ranges_compare_in_time_order() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        APIGatewayV2HTTPEvent create = new APIGatewayV2HTTPEvent();
+        for (String bad : List.of("22/09/2024 15:00", "2024-09-22T15:00:00", "2024-09-22", "")) {
+            create.setBody("{\"homeTeam\":\"Rovers\",\"kickoffIso\":\"" + bad + "\"}");
+            assertEquals(400, new Handlers.CreateGameHandler(store, store).handleRequest(create, MOCK_CONTEXT).getStatusCode(), bad);
+        }
+
+        List<String> gameIds = new ArrayList<>();
+        for (String kickoff : List.of("2024-09-22T17:00:00+02:00", "2024-09-29T15:00:00.250Z")) {
+            create.setBody("{\"homeTeam\":\"Rovers\",\"awayTeam\":\"City\",\"kickoffIso\":\"" + kickoff + "\"}");
+            APIGatewayV2HTTPResponse created = new Handlers.CreateGameHandler(store, store).handleRequest(create, MOCK_CONTEXT);
+            assertEquals(200, created.getStatusCode(), created.getBody());
+            gameIds.add(Handlers.OBJECT_MAPPER.readValue(created.getBody(), Handlers.CreateGameResponse.class).getGameId());
+        }
+        assertEquals("2024-09-22T15:00:00Z", store.getGame(gameIds.get(0)).getKickoffIso());
+        assertEquals("2024-09-29T15:00:00Z", store.getGame(gameIds.get(1)).getKickoffIso());
+
+        // as text, "...15:00:00Z" sorts after "...15:00:00.000Z"; the bound is compared in the stored form
+        APIGatewayV2HTTPEvent request = new APIGatewayV2HTTPEvent();
+        request.setPathParameters(Collections.singletonMap("team", "rovers"));
+        request.setQueryStringParameters(Map.of("from", "2024-09-22T15:00:00.000Z", "to", "2024-09-29T15:00:00.000Z"));
+        APIGatewayV2HTTPResponse response = new Handlers.GetTeamSeasonSummaryHandler(store, store, store).handleRequest(request, MOCK_CONTEXT);
+        assertEquals(200, response.getStatusCode(), response.getBody());
+        assertEquals(gameIds, Handlers.OBJECT_MAPPER.readValue(response.getBody(), Handlers.TeamSeasonSummaryResponse.class).getGameIds());
+    }
+}
@@ -0,0 +1,107 @@
+package com.soccerkpi;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for folding raw events into a KpiAggregate and round-tripping it through its stored item form.
+ */
+class KpiAggregateTest {
+
+    private static Map<String, AttributeValue> counterEvent(String ts, String kpiId, int delta) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("eventTimestamp", AttributeValue.builder().s(ts).build());
+        item.put("kpiId", AttributeValue.builder().s(kpiId).build());
+        item.put("delta", AttributeValue.builder().n(Integer.toString(delta)).build());
+        return item;
+    }
+
+    private static Map<String, AttributeValue> toggleEvent(String ts, String kpiId, boolean value) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("eventTimestamp", AttributeValue.builder().s(ts).build());
+        item.put("kpiId", AttributeValue.builder().s(kpiId).build());
+        item.put("toggleValue", AttributeValue.builder().bool(value).build());
+        return item;
+    }
+
+    @Test
+    void folds_counters_and_keeps_latest_toggle() {
+        Handlers.KpiAggregate agg = new Handlers.KpiAggregate();
+        agg.applyEvent(counterEvent("2024-01-01T10:00:00Z", "goals", 1));
+        agg.applyEvent(counterEvent("2024-01-01T10:01:00Z", "goals", 1));
+        agg.applyEvent(counterEvent("2024-01-01T10:02:00Z", "goals", -1));
+        agg.applyEvent(toggleEvent("2024-01-01T10:05:00Z", "red_card", true));
+        agg.applyEvent(toggleEvent("2024-01-01T10:03:00Z", "red_card", false)); // older, must not win
+
+        List<Handlers.KpiSummary> summaries = agg.toSummaries(List.of(
+                new Handlers.KpiDefinition("g1", "goals", "Goals", Handlers.KpiType.COUNTER),
+                new Handlers.KpiDefinition("g1", "red_card", "Red Card", Handlers.KpiType.TOGGLE),
+                new Handlers.KpiDefinition("g1", "key_passes", "Key Passes", Handlers.KpiType.COUNTER)));
+
+        assertEquals(1, summaries.get(0).getTotal());
+        assertTrue(summaries.get(1).getValue());
+        assertEquals(0, summaries.get(2).getTotal());
+    }
+
+    @Test
+    void newest_toggle_wins_across_timestamp_precisions() {
+        Handlers.KpiAggregate agg = new Handlers.KpiAggregate();
+        agg.applyEvent(toggleEvent("2024-01-01T10:00:14.123456Z", "red_card", true));
+        agg.applyEvent(toggleEvent("2024-01-01T10:00:14Z", "red_card", false)); // older despite sorting later as a string
+        agg.applyEvent(toggleEvent("2024-01-01T10:00:14.000000000Z", "momentum", true));
+        agg.applyEvent(toggleEvent("2024-01-01T10:00:14.100Z", "momentum", false));
+
+        assertTrue(agg.toggleStates().get("red_card"));
+        assertFalse(agg.toggleStates().get("momentum"));
+    }
+
+    @Test
+    void item_round_trip_preserves_totals() {
+        Handlers.KpiAggregate agg = new Handlers.KpiAggregate();
+        agg.applyEvent(counterEvent("2024-01-01T10:00:00Z", "tackles_won", 1));
+        agg.applyEvent(toggleEvent("2024-01-01T10:01:00Z", "momentum", true));
+
+        Map<String, AttributeValue> item = agg.toItem("g1");
+        assertEquals("g1", item.get("gameId").s());
+        assertEquals("1", item.get("c#tackles_won").n());
+
+        Handlers.KpiAggregate restored = Handlers.KpiAggregate.fromItem(item);
+        List<Handlers.KpiSummary> summaries = restored.toSummaries(List.of(
+                new Handlers.KpiDefinition("g1", "tackles_won", "Tackles Won", Handlers.KpiType.COUNTER),
+                new Handlers.KpiDefinition("g1", "momentum", "Momentum (Winning)", Handlers.KpiType.TOGGLE)));
+        assertEquals(1, summaries.get(0).getTotal());
+        assertTrue(summaries.get(1).getValue());
+    }
+
+    @Test
+    void merge_sums_counters_and_keeps_newest_toggle_across_shards() {
+        Handlers.KpiAggregate shard0 = new Handlers.KpiAggregate();
+        shard0.applyEvent(counterEvent("2024-01-01T10:00:00Z", "goals", 1));
+        shard0.applyEvent(toggleEvent("2024-01-01T10:05:00Z", "red_card", true));
+        Handlers.KpiAggregate shard1 = new Handlers.KpiAggregate();
+        shard1.applyEvent(counterEvent("2024-01-01T10:01:00Z", "goals", 1));
+        shard1.applyEvent(toggleEvent("2024-01-01T10:03:00Z", "red_card", false)); // older, must not win
+
+        Handlers.KpiAggregate merged = new Handlers.KpiAggregate();
+        merged.merge(shard0);
+        merged.merge(shard1);
+
+        assertEquals(2, merged.counterTotals().get("goals"));
+        assertTrue(merged.toggleStates().get("red_card"));
+    }
+
+    @Test
+    void shard_zero_keeps_the_plain_game_id() {
+        assertEquals("g1", DynamoDbKpiStore.shardKey("g1", 0));
+        assertEquals("g1#3", DynamoDbKpiStore.shardKey("g1", 3));
+        assertEquals(0, DynamoDbKpiStore.shardOf("2024-01-01T10:00:00Z", 1));
+        String ts = "2024-01-01T10:00:00.123Z#abc";
+        assertEquals(DynamoDbKpiStore.shardOf(ts, 4), DynamoDbKpiStore.shardOf(ts, 4));
+    }
+}
@@ -0,0 +1,132 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KpiExpressionTest {
+
+    private static final Context MOCK_CONTEXT = new MockContext();
+
+    private static List<Handlers.KpiDefinition> defsWith(String expression) {
+        List<Handlers.KpiDefinition> defs = new ArrayList<>(Handlers.DefaultKpis.defaultKpisForGame("g"));
+        defs.add(new Handlers.KpiDefinition("g", "derived", "Derived", Handlers.KpiType.DERIVED, expression));
+        return defs;
+    }
+
+    private static Double evaluate(String expression, Handlers.KpiAggregate aggregate) {
+        List<Handlers.KpiSummary> summaries = aggregate.toSummaries(defsWith(expression));
+        return summaries.get(summaries.size() - 1).getResult();
+    }
+
+    @Test
+    void precedence_parentheses_and_unary_minus() {
+        Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+        aggregate.putCounter("goals", 2);
+        aggregate.putCounter("shots_on_target", 6);
+
+        assertEquals(14.0, evaluate("goals + shots_on_target * 2", aggregate));
+        assertEquals(16.0, evaluate("(goals + shots_on_target) * 2", aggregate));
+        assertEquals(-4.0, evaluate("goals - shots_on_target", aggregate));
+        assertEquals(-8.0, evaluate("-(goals + shots_on_target)", aggregate));
+        assertEquals(2.5, evaluate("10 / 2 / 2", aggregate));
+        assertEquals(0.25, evaluate("goals / (shots_on_target + 2)", aggregate));
+    }
+
+    @Test
+    void shot_accuracy_is_undefined_until_the_first_shot() {
+        Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+        String accuracy = "shots_on_target / (shots_on_target + shots_off_target)";
+
+        assertNull(evaluate(accuracy, aggregate));
+
+        aggregate.putCounter("shots_on_target", 3);
+        aggregate.putCounter("shots_off_target", 1);
+        assertEquals(0.75, evaluate(accuracy, aggregate));
+    }
+
+    @Test
+    void toggles_count_as_one_or_zero_and_summaries_keep_definition_order() {
+        Handlers.KpiAggregate aggregate = new Handlers.KpiAggregate();
+        aggregate.putCounter("fouls_committed", 4);
+        aggregate.putToggle("yellow_card", true, "2024-01-01T10:00:00Z");
+        List<Handlers.KpiDefinition> defs = defsWith("fouls_committed + 3 * yellow_card + 10 * red_card");
+
+        List<Handlers.KpiSummary> summaries = aggregate.toSummaries(defs);
+
+        assertEquals(defs.size(), summaries.size());
+        Handlers.KpiSummary derived = summaries.get(summaries.size() - 1);
+        assertEquals("derived", derived.getKpiId());
+        assertEquals(7.0, derived.getResult());
+        assertNull(derived.getTotal());
+        assertNull(derived.getValue());
+    }
+
+    @Test
+    void malformed_expressions_are_rejected_with_a_position() {
+        for (String bad : List.of("", "goals +", "(goals", "goals shots", "1.2.3", "goals % 2")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> KpiExpression.parse(bad), bad);
+            assertNotNull(e.getMessage());
+        }
+        assertEquals(List.of("goals", "shots_on_target"),
+                KpiExpression.parse("goals / (shots_on_target + goals)").references());
+    }
+
+    @Test
+    void template_formulas_must_read_counters_or_toggles_of_the_template() {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+
+        event.setBody("{\"templateId\":\"ratios\",\"version\":1,\"kpis\":["
+                + "{\"kpiId\":\"goals\",\"label\":\"Goals\",\"type\":\"COUNTER\"},"
+                + "{\"kpiId\":\"rate\",\"label\":\"Rate\",\"type\":\"DERIVED\",\"expression\":\"goals / shots\"}]}");
+        APIGatewayV2HTTPResponse unknown = new Handlers.CreateKpiTemplateHandler(store).handleRequest(event, MOCK_CONTEXT);
+        assertEquals(400, unknown.getStatusCode());
+        assertTrue(unknown.getBody().contains("refers to shots"), unknown.getBody());
+
+        event.setBody("{\"templateId\":\"ratios\",\"version\":1,\"kpis\":["
+                + "{\"kpiId\":\"goals\",\"label\":\"Goals\",\"type\":\"COUNTER\"},"
+                + "{\"kpiId\":\"rate\",\"label\":\"Rate\",\"type\":\"DERIVED\",\"expression\":\"goals * 2\"},"
+                + "{\"kpiId\":\"rate2\",\"label\":\"Rate 2\",\"type\":\"DERIVED\",\"expression\":\"rate * 2\"}]}");
+        assertEquals(400, new Handlers.CreateKpiTemplateHandler(store).handleRequest(event, MOCK_CONTEXT).getStatusCode());
+
+        event.setBody("{\"templateId\":\"ratios\",\"version\":1,\"kpis\":["
+                + "{\"kpiId\":\"goals\",\"label\":\"Goals\",\"type\":\"COUNTER\",\"expression\":\"1\"}]}");
+        assertEquals(400, new Handlers.CreateKpiTemplateHandler(store).handleRequest(event, MOCK_CONTEXT).getStatusCode());
+    }
+
+    @Test
+    void summary_handler_reports_a_derived_override() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        APIGatewayV2HTTPEvent create = new APIGatewayV2HTTPEvent();
+        create.setBody("{\"kpiOverrides\":[{\"kpiId\":\"shot_accuracy\",\"label\":\"Shot Accuracy\",\"type\":\"DERIVED\","
+                + "\"expression\":\"shots_on_target / (shots_on_target + shots_off_target)\"}]}");
+        APIGatewayV2HTTPResponse created = new Handlers.CreateGameHandler(store, store).handleRequest(create, MOCK_CONTEXT);
+        assertEquals(200, created.getStatusCode(), created.getBody());
+        String gameId = Handlers.OBJECT_MAPPER.readValue(created.getBody(), Handlers.CreateGameResponse.class).getGameId();
+
+        APIGatewayV2HTTPEvent tap = new APIGatewayV2HTTPEvent();
+        tap.setPathParameters(Collections.singletonMap("gameId", gameId));
+        for (String kpiId : List.of("shots_on_target", "shots_on_target", "shots_on_target", "shots_off_target")) {
+            tap.setBody("{\"kpiId\":\"" + kpiId + "\",\"delta\":1}");
+            assertEquals(200, new Handlers.RecordKpiEventHandler(store, store).handleRequest(tap, MOCK_CONTEXT).getStatusCode());
+        }
+
+        APIGatewayV2HTTPEvent request = new APIGatewayV2HTTPEvent();
+        request.setPathParameters(Collections.singletonMap("gameId", gameId));
+        APIGatewayV2HTTPResponse response = new Handlers.GetGameSummaryHandler(store, store).handleRequest(request, MOCK_CONTEXT);
+
+        assertEquals(200, response.getStatusCode(), response.getBody());
+        List<Handlers.KpiSummary> kpis = Handlers.OBJECT_MAPPER.readValue(response.getBody(), Handlers.GameSummaryResponse.class).getKpis();
+        Handlers.KpiSummary accuracy = kpis.get(kpis.size() - 1);
+        assertEquals("shot_accuracy", accuracy.getKpiId());
+        assertEquals(0.75, accuracy.getResult());
+    }
+}
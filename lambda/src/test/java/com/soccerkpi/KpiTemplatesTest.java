@@ -0,0 +1,146 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KpiTemplatesTest {
+
+    private static final Context MOCK_CONTEXT = new MockContext();
+
+    /** Counts the writes and template reads game creation makes. */
+    private static final class CountingStore extends InMemoryKpiStore {
+        final AtomicInteger games = new AtomicInteger();
+        final AtomicInteger definitionWrites = new AtomicInteger();
+        final AtomicInteger templateReads = new AtomicInteger();
+
+        @Override
+        public void createGame(Handlers.Game game) {
+            games.incrementAndGet();
+            super.createGame(game);
+        }
+
+        @Override
+        public void putDefinitions(String gameId, List<Handlers.KpiDefinition> defs) {
+            definitionWrites.incrementAndGet();
+            super.putDefinitions(gameId, defs);
+        }
+
+        @Override
+        public Handlers.KpiTemplate loadTemplate(String templateId, int version) {
+            templateReads.incrementAndGet();
+            return super.loadTemplate(templateId, version);
+        }
+    }
+
+    private static APIGatewayV2HTTPResponse createGame(InMemoryKpiStore store, String body) {
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setBody(body);
+        return new Handlers.CreateGameHandler(store, store).handleRequest(event, MOCK_CONTEXT);
+    }
+
+    private static APIGatewayV2HTTPResponse createTemplate(InMemoryKpiStore store, String body) {
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setBody(body);
+        return new Handlers.CreateKpiTemplateHandler(store).handleRequest(event, MOCK_CONTEXT);
+    }
+
+    private static String gameId(APIGatewayV2HTTPResponse created) throws Exception {
+        assertEquals(200, created.getStatusCode(), created.getBody());
+        return Handlers.OBJECT_MAPPER.readValue(created.getBody(), Handlers.CreateGameResponse.class).getGameId();
+    }
+
+    private static List<String> kpiIds(List<Handlers.KpiDefinition> defs) {
+        return defs.stream().map(Handlers.KpiDefinition::getKpiId).toList();
+    }
+
+    @Test
+    void default_game_is_one_write_and_resolves_to_the_default_kpis() throws Exception {
+        CountingStore store = new CountingStore();
+
+        String gameId = gameId(createGame(store, "{\"homeTeam\":\"A\",\"awayTeam\":\"B\"}"));
+
+        assertEquals(1, store.games.get());
+        assertEquals(0, store.definitionWrites.get());
+        assertEquals(0, store.templateReads.get());
+        List<Handlers.KpiDefinition> defs = store.loadDefinitions(gameId);
+        assertEquals(kpiIds(Handlers.DefaultKpis.defaultKpisForGame(gameId)), kpiIds(defs));
+        assertEquals(gameId, defs.get(0).getGameId());
+    }
+
+    @Test
+    void overrides_replace_template_kpis_and_add_new_ones() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+
+        APIGatewayV2HTTPResponse created = createGame(store, "{\"kpiOverrides\":["
+                + "{\"kpiId\":\"goals\",\"label\":\"Goals scored\",\"type\":\"COUNTER\"},"
+                + "{\"kpiId\":\"corners\",\"label\":\"Corners\",\"type\":\"COUNTER\"}]}");
+        String gameId = gameId(created);
+
+        List<Handlers.KpiDefinition> defs = store.loadDefinitions(gameId);
+        assertEquals(13, defs.size());
+        assertEquals(2, kpiIds(defs).indexOf("goals"));
+        assertEquals("Goals scored", defs.get(2).getLabel());
+        assertEquals("corners", defs.get(12).getKpiId());
+        Handlers.CreateGameResponse response = Handlers.OBJECT_MAPPER.readValue(created.getBody(), Handlers.CreateGameResponse.class);
+        assertEquals(kpiIds(defs), kpiIds(response.getKpis()));
+    }
+
+    @Test
+    void custom_template_is_read_once_and_versions_are_immutable() throws Exception {
+        // the template cache is per process, like the container's
+        KpiTemplates.clear();
+        CountingStore store = new CountingStore();
+        String template = "{\"templateId\":\"academy\",\"version\":1,\"kpis\":["
+                + "{\"kpiId\":\"goals\",\"label\":\"Goals\",\"type\":\"COUNTER\"},"
+                + "{\"kpiId\":\"possession\",\"label\":\"Possession\",\"type\":\"TOGGLE\"}]}";
+
+        assertEquals(200, createTemplate(store, template).getStatusCode());
+        assertEquals(409, createTemplate(store, template).getStatusCode());
+        assertEquals(409, createTemplate(store,
+                "{\"templateId\":\"default\",\"version\":1,\"kpis\":[{\"kpiId\":\"goals\",\"label\":\"Goals\",\"type\":\"COUNTER\"}]}")
+                .getStatusCode());
+
+        String first = gameId(createGame(store, "{\"kpiTemplateId\":\"academy\",\"kpiTemplateVersion\":1}"));
+        String second = gameId(createGame(store, "{\"kpiTemplateId\":\"academy\",\"kpiTemplateVersion\":1}"));
+
+        assertEquals(List.of("goals", "possession"), kpiIds(store.loadDefinitions(first)));
+        assertEquals(List.of("goals", "possession"), kpiIds(store.loadDefinitions(second)));
+        assertEquals(1, store.templateReads.get());
+        assertEquals(0, store.definitionWrites.get());
+    }
+
+    @Test
+    void unknown_template_and_incomplete_kpis_are_rejected() {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+
+        APIGatewayV2HTTPResponse unknown = createGame(store, "{\"kpiTemplateId\":\"nope\",\"kpiTemplateVersion\":3}");
+        assertEquals(400, unknown.getStatusCode());
+        assertTrue(unknown.getBody().contains("Unknown KPI template"), unknown.getBody());
+
+        APIGatewayV2HTTPResponse duplicate = createGame(store, "{\"kpiOverrides\":["
+                + "{\"kpiId\":\"corners\",\"label\":\"Corners\",\"type\":\"COUNTER\"},"
+                + "{\"kpiId\":\"corners\",\"label\":\"Corners\",\"type\":\"COUNTER\"}]}");
+        assertEquals(400, duplicate.getStatusCode());
+
+        APIGatewayV2HTTPResponse untyped = createTemplate(store,
+                "{\"templateId\":\"academy\",\"version\":1,\"kpis\":[{\"kpiId\":\"goals\",\"label\":\"Goals\"}]}");
+        assertEquals(400, untyped.getStatusCode());
+        assertTrue(untyped.getBody().contains("needs a label and a type"), untyped.getBody());
+    }
+
+    @Test
+    void games_from_before_templates_still_read_their_own_rows() {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        store.putGame(new Handlers.Game("legacy", "A", "B", null, Handlers.Game.CREATED));
+        store.putDefinitions("legacy", List.of(new Handlers.KpiDefinition("legacy", "goals", "Goals", Handlers.KpiType.COUNTER)));
+
+        assertEquals(List.of("goals"), kpiIds(store.loadDefinitions("legacy")));
+    }
+}
@@ -0,0 +1,128 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KpiTimelineTest {
+
+    private static final List<Handlers.KpiDefinition> DEFS = List.of(
+            new Handlers.KpiDefinition("g", "goals", "Goals", Handlers.KpiType.COUNTER),
+            new Handlers.KpiDefinition("g", "possession", "Possession", Handlers.KpiType.TOGGLE));
+
+    private static Handlers.KpiEvent counter(String ts, int delta) {
+        return new Handlers.KpiEvent(ts, "goals", delta, null, null);
+    }
+
+    private static Handlers.KpiEvent toggle(String ts, boolean on) {
+        return new Handlers.KpiEvent(ts, "possession", null, on, null);
+    }
+
+    private static int[] values(Handlers.GameTimelineResponse response, String kpiId) {
+        return response.getKpis().stream().filter(k -> k.getKpiId().equals(kpiId)).findFirst().orElseThrow().getValues();
+    }
+
+    @Test
+    void epoch_second_matches_instant_parse() {
+        for (String ts : List.of("2024-01-01T10:00:00Z", "2024-02-29T23:59:59.999Z", "1999-12-31T00:00:01.000001Z",
+                "2024-03-01T00:00:00Z#client-1", "1969-12-31T23:59:59Z", "0001-01-01T00:00:00Z")) {
+            int hash = ts.indexOf('#');
+            long expected = Instant.parse(hash < 0 ? ts : ts.substring(0, hash)).getEpochSecond();
+            assertEquals(expected, EventTimestamps.epochSecond(ts), ts);
+        }
+    }
+
+    @Test
+    void counters_sum_per_bucket_and_toggles_carry_forward() {
+        KpiTimeline timeline = new KpiTimeline(60, 100);
+        timeline.add(counter("2024-01-01T10:00:05Z", 1));
+        timeline.add(toggle("2024-01-01T10:00:30Z", true));
+        timeline.add(counter("2024-01-01T10:00:50Z", 1));
+        timeline.add(counter("2024-01-01T10:02:10Z#c1", 1));
+        timeline.add(counter("2024-01-01T10:02:20Z", -1));
+        timeline.add(toggle("2024-01-01T10:03:00Z", false));
+
+        Handlers.GameTimelineResponse response = timeline.toResponse("g", DEFS);
+
+        assertEquals("2024-01-01T10:00:00Z", response.getStart());
+        assertEquals(4, response.getBuckets());
+        assertArrayEquals(new int[]{2, 0, 0, 0}, values(response, "goals"));
+        assertArrayEquals(new int[]{1, 1, 1, 0}, values(response, "possession"));
+    }
+
+    @Test
+    void kickoff_before_first_event_prepends_empty_buckets() {
+        KpiTimeline timeline = new KpiTimeline(60, 100);
+        timeline.add(counter("2024-01-01T10:02:00Z", 1));
+        timeline.add(toggle("2024-01-01T10:02:30Z", true));
+
+        assertTrue(timeline.startAt(Instant.parse("2024-01-01T10:00:00Z").getEpochSecond()));
+        Handlers.GameTimelineResponse response = timeline.toResponse("g", DEFS);
+
+        assertEquals("2024-01-01T10:00:00Z", response.getStart());
+        assertArrayEquals(new int[]{0, 0, 1}, values(response, "goals"));
+        assertArrayEquals(new int[]{0, 0, 1}, values(response, "possession"));
+    }
+
+    @Test
+    void events_before_kickoff_fold_into_the_first_bucket() {
+        KpiTimeline timeline = new KpiTimeline(60, 100);
+        timeline.add(counter("2024-01-01T09:58:00Z", 1));
+        timeline.add(toggle("2024-01-01T09:59:00Z", true));
+        timeline.add(counter("2024-01-01T10:00:10Z", 1));
+        timeline.add(counter("2024-01-01T10:01:10Z", 1));
+
+        assertTrue(timeline.startAt(Instant.parse("2024-01-01T10:00:00Z").getEpochSecond()));
+        Handlers.GameTimelineResponse response = timeline.toResponse("g", DEFS);
+
+        assertEquals(2, response.getBuckets());
+        assertArrayEquals(new int[]{2, 1}, values(response, "goals"));
+        assertArrayEquals(new int[]{1, 1}, values(response, "possession"));
+    }
+
+    @Test
+    void timeline_longer_than_the_limit_is_refused() {
+        KpiTimeline timeline = new KpiTimeline(60, 10);
+        assertTrue(timeline.add(counter("2024-01-01T10:00:00Z", 1)));
+        assertFalse(timeline.add(counter("2024-01-01T10:10:00Z", 1)));
+        assertFalse(timeline.startAt(Instant.parse("2024-01-01T09:50:00Z").getEpochSecond()));
+    }
+
+    @Test
+    void handler_buckets_from_kickoff() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "timeline-1";
+        store.putGame(new Handlers.Game(gameId, "A", "B", "2024-01-01T10:00:00Z", Handlers.Game.CREATED));
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:00:20Z", "goals", 1, null, null));
+        store.recordEvent(gameId, new Handlers.KpiEvent("2024-01-01T10:09:40Z", "goals", 1, null, null));
+
+        APIGatewayV2HTTPEvent request = new APIGatewayV2HTTPEvent();
+        request.setPathParameters(Map.of("gameId", gameId));
+        request.setQueryStringParameters(Map.of("bucket", "5m"));
+        APIGatewayV2HTTPResponse response = new Handlers.GetGameTimelineHandler(store, store, store)
+                .handleRequest(request, new MockContext());
+
+        assertEquals(200, response.getStatusCode());
+        Handlers.GameTimelineResponse body = Handlers.OBJECT_MAPPER.readValue(response.getBody(), Handlers.GameTimelineResponse.class);
+        assertEquals(300, body.getBucketSeconds());
+        assertEquals(12, body.getKpis().size());
+        assertArrayEquals(new int[]{1, 1}, values(body, "goals"));
+    }
+
+    @Test
+    void bucket_parameter_accepts_seconds_and_minutes() {
+        assertEquals(60, Handlers.parseBucketSeconds(null));
+        assertEquals(90, Handlers.parseBucketSeconds("90"));
+        assertEquals(60, Handlers.parseBucketSeconds("60s"));
+        assertEquals(300, Handlers.parseBucketSeconds("5m"));
+        assertEquals(-1, Handlers.parseBucketSeconds("5s"));
+        assertEquals(-1, Handlers.parseBucketSeconds("soon"));
+    }
+}
@@ -0,0 +1,141 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveUpdatesTest {
+
+    /** Records what would have been pushed; connections in {@code gone} answer like a closed WebSocket. */
+    private static final class RecordingPush implements LivePush {
+        final Map<String, List<String>> sent = new ConcurrentHashMap<>();
+        final List<String> gone = new ArrayList<>();
+
+        @Override
+        public boolean send(String connectionId, String message) {
+            if (gone.contains(connectionId)) return false;
+            sent.computeIfAbsent(connectionId, c -> new ArrayList<>()).add(message);
+            return true;
+        }
+    }
+
+    @Test
+    void message_sums_counters_and_keeps_the_newest_toggle() throws Exception {
+        String message = LiveUpdates.message("g1", List.of(
+                new Handlers.KpiEvent("2024-01-01T10:00:01Z", "goals", 1, null, null),
+                new Handlers.KpiEvent("2024-01-01T10:00:03Z", "possession", null, true, null),
+                new Handlers.KpiEvent("2024-01-01T10:00:02Z", "possession", null, false, null),
+                new Handlers.KpiEvent("2024-01-01T10:00:04Z", "goals", 1, null, null),
+                // a whole-second timestamp is older than one later in that second, though it sorts after it as a string
+                new Handlers.KpiEvent("2024-01-01T10:00:05.250Z", "red_card", null, true, null),
+                new Handlers.KpiEvent("2024-01-01T10:00:05Z", "red_card", null, false, null)));
+
+        Handlers.LiveUpdateMessage parsed = Handlers.OBJECT_MAPPER.readValue(message, Handlers.LiveUpdateMessage.class);
+        assertEquals("kpiDelta", parsed.getType());
+        assertEquals(Map.of("goals", 2), parsed.getCounters());
+        assertEquals(Map.of("possession", true, "red_card", true), parsed.getToggles());
+    }
+
+    @Test
+    void publish_reaches_only_the_games_subscribers_and_drops_gone_connections() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        store.subscribe("g1", "c1");
+        store.subscribe("g1", "c2");
+        store.subscribe("g2", "c3");
+        RecordingPush push = new RecordingPush();
+        push.gone.add("c2");
+
+        LiveUpdates.Result result = new LiveUpdates(store, push, 4).publish(
+                Map.of("g1", List.of(new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 1, null, null))));
+
+        assertEquals(new LiveUpdates.Result(1, 1, 0), result);
+        assertEquals(1, push.sent.get("c1").size());
+        assertFalse(push.sent.containsKey("c3"));
+        assertEquals(List.of("c1"), store.subscribers("g1"));
+    }
+
+    @Test
+    void stream_consumer_pushes_inserted_events_of_sharded_partitions() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        store.subscribe("g1", "c1");
+        RecordingPush push = new RecordingPush();
+
+        DynamodbEvent event = new DynamodbEvent();
+        event.setRecords(List.of(
+                streamRecord("INSERT", "g1#2", "2024-01-01T10:00:00Z", "goals"),
+                // the re-put of an archived event is a MODIFY and must not count again
+                streamRecord("MODIFY", "g1", "2024-01-01T09:00:00Z", "goals")));
+        new Handlers.PushLiveUpdatesHandler(store, push).handleRequest(event, new MockContext());
+
+        Handlers.LiveUpdateMessage parsed = Handlers.OBJECT_MAPPER.readValue(push.sent.get("c1").get(0), Handlers.LiveUpdateMessage.class);
+        assertEquals("g1", parsed.getGameId());
+        assertEquals(Map.of("goals", 1), parsed.getCounters());
+    }
+
+    @Test
+    void local_server_pushes_recorded_taps_to_websocket_clients() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        try (LocalLiveServer server = new LocalLiveServer(store, 0)) {
+            BlockingQueue<String> received = new LinkedBlockingQueue<>();
+            WebSocket socket = HttpClient.newHttpClient().newWebSocketBuilder()
+                    .buildAsync(URI.create("ws://localhost:" + server.port() + "/?gameId=g1"), new WebSocket.Listener() {
+                        @Override
+                        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                            received.add(data.toString());
+                            webSocket.request(1);
+                            return null;
+                        }
+                    })
+                    .get(5, TimeUnit.SECONDS);
+
+            // the handshake completes before the server has subscribed the connection
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (store.subscribers("g1").isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            store.recordEvent("g1", new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 1, null, null));
+            store.recordEvent("g2", new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 1, null, null));
+
+            String message = received.poll(1, TimeUnit.SECONDS);
+            assertNotNull(message, "no push within a second");
+            Handlers.LiveUpdateMessage parsed = Handlers.OBJECT_MAPPER.readValue(message, Handlers.LiveUpdateMessage.class);
+            assertEquals("g1", parsed.getGameId());
+            assertEquals(Map.of("goals", 1), parsed.getCounters());
+
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").get(5, TimeUnit.SECONDS);
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!store.subscribers("g1").isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(store.subscribers("g1").isEmpty(), "closed connection is still subscribed");
+        }
+    }
+
+    private static DynamodbEvent.DynamodbStreamRecord streamRecord(String eventName, String partition, String ts, String kpiId) {
+        Map<String, AttributeValue> image = new HashMap<>();
+        image.put("gameId", new AttributeValue().withS(partition));
+        image.put("eventTimestamp", new AttributeValue().withS(ts));
+        image.put("kpiId", new AttributeValue().withS(kpiId));
+        image.put("delta", new AttributeValue().withN("1"));
+        DynamodbEvent.DynamodbStreamRecord record = new DynamodbEvent.DynamodbStreamRecord();
+        record.setEventName(eventName);
+        record.setDynamodb(new StreamRecord().withNewImage(image));
+        return record;
+    }
+}
@@ -0,0 +1,348 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives many concurrent games at once and reports latency percentiles per route, for capacity planning.
+ *
+ * Every game has trackers tapping KPIs and dashboards polling its summary. The schedule is open: each tracker
+ * and dashboard has its own timetable of intended send times (taps at exponential intervals, polls at a fixed
+ * period with a random phase), and every request is sent at its intended time on a fresh virtual thread,
+ * whether or not earlier ones have returned. Latency is measured from the intended send time. A backend that
+ * stalls therefore shows up in the percentiles instead of quietly slowing the generator down (no coordinated
+ * omission). Taps follow a match-like mix of the default KPIs: mostly passes, tackles and interceptions, few
+ * goals and cards, and an occasional undo.
+ *
+ * Configuration (system properties):
+ *   load.target      "inprocess" (default): Handlers.route in this JVM, on the configured store (STORE_BACKEND)
+ *                    or a base URL such as http://localhost:8080 (LocalApiServer) or the API Gateway URL
+ *   load.games       concurrent games (default 200)
+ *   load.trackers    tapping devices per game (default 3)
+ *   load.tapsPerMin  taps per tracker per minute (default 20)
+ *   load.dashboards  polling dashboards per game (default 24)
+ *   load.pollSeconds seconds between one dashboard's summary polls (default 10)
+ *   load.warmup      seconds run before recording starts (default 10)
+ *   load.duration    seconds recorded (default 60)
+ *   load.out         directory for one HdrHistogram percentile file (.hgrm) per route (default target/load-test)
+ *
+ *   java -Dload.games=200 -cp target/test-classes:target/lambda.jar:$HDR com.soccerkpi.LoadGenerator
+ *
+ * See scripts/load-test.sh.
+ */
+public class LoadGenerator {
+
+    /** Relative frequency of each KPI among taps; default KPIs not listed here get weight 1. */
+    private static final Map<String, Double> KPI_WEIGHTS = Map.ofEntries(
+            Map.entry("passes_completed", 40.0),
+            Map.entry("tackles_won", 10.0),
+            Map.entry("interceptions", 10.0),
+            Map.entry("key_passes", 8.0),
+            Map.entry("fouls_committed", 8.0),
+            Map.entry("shots_off_target", 6.0),
+            Map.entry("shots_on_target", 5.0),
+            Map.entry("goals", 1.0),
+            Map.entry("momentum", 3.0),
+            Map.entry("yellow_card", 1.5),
+            Map.entry("clean_sheet", 0.3),
+            Map.entry("red_card", 0.2));
+    // share of counter taps that are a -1 correcting a mis-tap
+    private static final double UNDO_SHARE = 0.03;
+
+    private static final String TAP = "POST /games/{gameId}/events";
+    private static final String SUMMARY = "GET /games/{gameId}/summary";
+
+    /** Something that answers requests: the handlers in this JVM or an HTTP endpoint. */
+    private interface Target {
+        /** Sends one request and returns its status code. */
+        int send(String routeKey, String gameId, String path, String body) throws Exception;
+    }
+
+    private static final class InProcessTarget implements Target {
+        private final AtomicLong requestIds = new AtomicLong();
+
+        @Override
+        public int send(String routeKey, String gameId, String path, String body) {
+            APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+            event.setRouteKey(routeKey);
+            event.setRawPath(path);
+            event.setBody(body);
+            if (gameId != null) event.setPathParameters(Map.of("gameId", gameId));
+            APIGatewayV2HTTPResponse response = Handlers.route(event, new MockContext("load-" + requestIds.incrementAndGet()));
+            return response.getStatusCode();
+        }
+    }
+
+    private static final class HttpTarget implements Target {
+        private final String baseUrl;
+        private final HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        HttpTarget(String baseUrl) {
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        }
+
+        @Override
+        public int send(String routeKey, String gameId, String path, String body) throws Exception {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+            if (body != null) {
+                request.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body));
+            } else {
+                request.GET();
+            }
+            return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+    }
+
+    /** Latencies and failures of one route; recorded from many threads, read once per phase. */
+    private static final class RouteStats {
+        // 1 µs to 1 min at 3 significant digits
+        final Recorder latencies = new Recorder(TimeUnit.MINUTES.toNanos(1), 3);
+        final AtomicLong errors = new AtomicLong();
+    }
+
+    /** One tracker or dashboard and the intended time of its next request. */
+    private static final class Stream {
+        final String gameId;
+        final boolean tapper;
+        final SplittableRandom random;
+        long nextNanos;
+
+        Stream(String gameId, boolean tapper, SplittableRandom random, long nextNanos) {
+            this.gameId = gameId;
+            this.tapper = tapper;
+            this.random = random;
+            this.nextNanos = nextNanos;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String targetName = System.getProperty("load.target", "inprocess");
+        int games = Integer.getInteger("load.games", 200);
+        int trackers = Integer.getInteger("load.trackers", 3);
+        double tapsPerMin = Double.parseDouble(System.getProperty("load.tapsPerMin", "20"));
+        int dashboards = Integer.getInteger("load.dashboards", 24);
+        double pollSeconds = Double.parseDouble(System.getProperty("load.pollSeconds", "10"));
+        int warmupSeconds = Integer.getInteger("load.warmup", 10);
+        int durationSeconds = Integer.getInteger("load.duration", 60);
+        File outDir = new File(System.getProperty("load.out", "target/load-test"));
+
+        PrintStream report = System.out;
+        boolean inProcess = "inprocess".equals(targetName);
+        if (inProcess) {
+            // every handler call writes a log line; at thousands per second printing them would be the bottleneck
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        Target target = inProcess ? new InProcessTarget() : new HttpTarget(targetName);
+
+        report.printf("target=%s games=%d trackers=%d tapsPerMin=%.1f dashboards=%d pollSeconds=%.1f%n",
+                targetName, games, trackers, tapsPerMin, dashboards, pollSeconds);
+        report.printf("offered load: %.0f taps/s, %.0f polls/s%n",
+                games * trackers * tapsPerMin / 60.0, games * dashboards / pollSeconds);
+
+        List<String> gameIds = createGames(target, games);
+        String[] kpiIds = kpiMix();
+        boolean[] toggles = toggleFlags(kpiIds);
+        double[] cumulative = cumulativeWeights(kpiIds);
+
+        Map<String, RouteStats> stats = new LinkedHashMap<>();
+        stats.put(TAP, new RouteStats());
+        stats.put(SUMMARY, new RouteStats());
+
+        long tapMeanNanos = (long) (60e9 / tapsPerMin);
+        long pollNanos = (long) (pollSeconds * 1e9);
+        SplittableRandom seed = new SplittableRandom(42);
+        long start = System.nanoTime();
+        PriorityQueue<Stream> schedule = new PriorityQueue<>((a, b) -> Long.compare(a.nextNanos, b.nextNanos));
+        for (String gameId : gameIds) {
+            for (int i = 0; i < trackers; i++) {
+                SplittableRandom random = seed.split();
+                schedule.add(new Stream(gameId, true, random, start + exponential(random, tapMeanNanos)));
+            }
+            for (int i = 0; i < dashboards; i++) {
+                SplittableRandom random = seed.split();
+                schedule.add(new Stream(gameId, false, random, start + random.nextLong(pollNanos)));
+            }
+        }
+
+        long recordFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = recordFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        boolean recording = false;
+        long lateSends = 0;
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                Stream stream = schedule.poll();
+                long intended = stream.nextNanos;
+                if (intended >= end) break;
+                long now = System.nanoTime();
+                if (intended > now) {
+                    LockSupport.parkNanos(intended - now);
+                } else if (recording && now - intended > TimeUnit.MILLISECONDS.toNanos(10)) {
+                    lateSends++;
+                }
+                if (!recording && intended >= recordFrom) {
+                    // drop what the warmup recorded, so the reported interval starts here
+                    for (RouteStats s : stats.values()) {
+                        s.latencies.reset();
+                        s.errors.set(0);
+                    }
+                    recording = true;
+                }
+
+                String routeKey;
+                String path;
+                String body;
+                if (stream.tapper) {
+                    routeKey = TAP;
+                    path = "/games/" + stream.gameId + "/events";
+                    body = tapBody(stream.random, kpiIds, toggles, cumulative);
+                    stream.nextNanos = intended + exponential(stream.random, tapMeanNanos);
+                } else {
+                    routeKey = SUMMARY;
+                    path = "/games/" + stream.gameId + "/summary";
+                    body = null;
+                    stream.nextNanos = intended + pollNanos;
+                }
+                schedule.add(stream);
+
+                RouteStats routeStats = stats.get(routeKey);
+                String gameId = stream.gameId;
+                requests.execute(() -> {
+                    int status;
+                    try {
+                        status = target.send(routeKey, gameId, path, body);
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    long latency = System.nanoTime() - intended;
+                    routeStats.latencies.recordValue(Math.min(latency, TimeUnit.MINUTES.toNanos(1)));
+                    if (status < 200 || status >= 300) routeStats.errors.incrementAndGet();
+                });
+            }
+            // closing the executor waits for requests still in flight, which are part of the interval
+        }
+        double seconds = (System.nanoTime() - recordFrom) / 1e9;
+
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create " + outDir);
+        }
+        report.printf("%n%-30s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "route", "requests", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<String, RouteStats> e : stats.entrySet()) {
+            Histogram h = e.getValue().latencies.getIntervalHistogram();
+            report.printf("%-30s %9d %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", e.getKey(), h.getTotalCount(),
+                    h.getTotalCount() / seconds, e.getValue().errors.get(),
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(95)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()));
+            File file = new File(outDir, e.getKey().replaceAll("[^A-Za-z0-9]+", "_").replaceAll("_+$", "") + ".hgrm");
+            try (PrintStream out = new PrintStream(file)) {
+                h.outputPercentileDistribution(out, 1e6);
+            }
+        }
+        if (lateSends > 0) {
+            report.printf("%n%d sends left more than 10 ms late: the generator itself is saturated, so latencies"
+                    + " include its queueing%n", lateSends);
+        }
+        report.printf("percentile distributions (ms) in %s%n", outDir.getPath());
+    }
+
+    private static List<String> createGames(Target target, int games) throws Exception {
+        List<String> ids = new ArrayList<>(games);
+        if (target instanceof InProcessTarget) {
+            for (int i = 0; i < games; i++) {
+                APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+                event.setRouteKey("POST /games");
+                event.setBody("{\"homeTeam\":\"Home " + i + "\",\"awayTeam\":\"Away " + i + "\"}");
+                APIGatewayV2HTTPResponse response = Handlers.route(event, new MockContext("load-setup-" + i));
+                ids.add(gameId(response.getStatusCode(), response.getBody()));
+            }
+            return ids;
+        }
+        HttpClient client = HttpClient.newHttpClient();
+        String base = ((HttpTarget) target).baseUrl;
+        for (int i = 0; i < games; i++) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "/games"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"homeTeam\":\"Home " + i + "\",\"awayTeam\":\"Away " + i + "\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            ids.add(gameId(response.statusCode(), response.body()));
+        }
+        return ids;
+    }
+
+    private static String gameId(int status, String body) throws Exception {
+        if (status != 200) throw new IllegalStateException("createGame returned " + status + ": " + body);
+        return Handlers.OBJECT_MAPPER.readValue(body, Handlers.CreateGameResponse.class).getGameId();
+    }
+
+    private static String[] kpiMix() {
+        return Handlers.DefaultKpis.defaultKpisForGame("load").stream()
+                .map(Handlers.KpiDefinition::getKpiId).toArray(String[]::new);
+    }
+
+    private static boolean[] toggleFlags(String[] kpiIds) {
+        List<Handlers.KpiDefinition> defs = Handlers.DefaultKpis.defaultKpisForGame("load");
+        boolean[] toggles = new boolean[kpiIds.length];
+        for (int i = 0; i < kpiIds.length; i++) {
+            toggles[i] = defs.get(i).getType() == Handlers.KpiType.TOGGLE;
+        }
+        return toggles;
+    }
+
+    private static double[] cumulativeWeights(String[] kpiIds) {
+        double[] cumulative = new double[kpiIds.length];
+        double sum = 0;
+        for (int i = 0; i < kpiIds.length; i++) {
+            sum += KPI_WEIGHTS.getOrDefault(kpiIds[i], 1.0);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static String tapBody(SplittableRandom random, String[] kpiIds, boolean[] toggles, double[] cumulative) {
+        double r = random.nextDouble();
+        int i = 0;
+        while (i < cumulative.length - 1 && cumulative[i] < r) i++;
+        if (toggles[i]) {
+            return "{\"kpiId\":\"" + kpiIds[i] + "\",\"toggleValue\":" + random.nextBoolean() + "}";
+        }
+        int delta = random.nextDouble() < UNDO_SHARE ? -1 : 1;
+        return "{\"kpiId\":\"" + kpiIds[i] + "\",\"delta\":" + delta + "}";
+    }
+
+    /** An exponentially distributed interval with the given mean, so taps arrive as a Poisson process. */
+    private static long exponential(SplittableRandom random, long meanNanos) {
+        return (long) (-Math.log(1.0 - random.nextDouble()) * meanNanos);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
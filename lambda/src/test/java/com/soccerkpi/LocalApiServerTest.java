@@ -0,0 +1,79 @@
+package com.soccerkpi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalApiServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private KpiStore previous;
+    private LocalApiServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        previous = Handlers.store();
+        Handlers.useStore(new InMemoryKpiStore());
+        server = new LocalApiServer(0);
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+        Handlers.useStore(previous);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path));
+        request.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void serves_a_game_from_creation_to_summary() throws Exception {
+        HttpResponse<String> created = send("POST", "/games", "{\"homeTeam\":\"A\",\"awayTeam\":\"B\"}");
+        assertEquals(200, created.statusCode(), created.body());
+        String gameId = Handlers.OBJECT_MAPPER.readValue(created.body(), Handlers.CreateGameResponse.class).getGameId();
+
+        assertEquals(200, send("POST", "/games/" + gameId + "/events", "{\"kpiId\":\"goals\",\"delta\":1}").statusCode());
+        assertEquals(200, send("POST", "/games/" + gameId + "/events", "{\"kpiId\":\"goals\",\"delta\":1}").statusCode());
+
+        HttpResponse<String> summary = send("GET", "/games/" + gameId + "/summary", null);
+        assertEquals(200, summary.statusCode());
+        assertEquals("application/json", summary.headers().firstValue("Content-Type").orElse(null));
+        Handlers.GameSummaryResponse body = Handlers.OBJECT_MAPPER.readValue(summary.body(), Handlers.GameSummaryResponse.class);
+        assertEquals(2, body.getKpis().stream().filter(k -> k.getKpiId().equals("goals")).findFirst().orElseThrow().getTotal());
+    }
+
+    @Test
+    void query_parameters_and_colon_routes_are_translated() throws Exception {
+        HttpResponse<String> created = send("POST", "/games", "{}");
+        String gameId = Handlers.OBJECT_MAPPER.readValue(created.body(), Handlers.CreateGameResponse.class).getGameId();
+
+        HttpResponse<String> batch = send("POST", "/games/" + gameId + "/events:batch",
+                "{\"events\":[{\"clientEventId\":\"e1\",\"occurredAt\":\"2024-01-01T10:00:00Z\",\"kpiId\":\"goals\",\"delta\":1}]}");
+        assertEquals(200, batch.statusCode(), batch.body());
+        assertTrue(batch.body().contains("CREATED"), batch.body());
+
+        HttpResponse<String> timeline = send("GET", "/games/" + gameId + "/timeline?bucket=5m", null);
+        assertEquals(200, timeline.statusCode(), timeline.body());
+        assertTrue(timeline.body().contains("\"bucketSeconds\":300"), timeline.body());
+    }
+
+    @Test
+    void unknown_routes_are_404_and_preflights_are_answered() throws Exception {
+        assertEquals(404, send("GET", "/games", null).statusCode());
+        assertEquals(404, send("DELETE", "/games/g1/summary", null).statusCode());
+
+        HttpResponse<String> preflight = send("OPTIONS", "/games", null);
+        assertEquals(204, preflight.statusCode());
+        assertEquals("*", preflight.headers().firstValue("Access-Control-Allow-Origin").orElse(null));
+    }
+}
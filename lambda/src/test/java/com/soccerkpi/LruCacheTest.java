@@ -0,0 +1,62 @@
+package com.soccerkpi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void evicts_least_recently_used_entry() {
+        LruCache<String, Integer> cache = new LruCache<>(2, 60_000);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void expires_entries_after_max_age() throws InterruptedException {
+        LruCache<String, Integer> cache = new LruCache<>(10, 20);
+        cache.put("a", 1);
+        Thread.sleep(40);
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void update_keeps_original_write_time() throws InterruptedException {
+        LruCache<String, Integer> cache = new LruCache<>(10, 60);
+        cache.put("a", 1);
+        Thread.sleep(40);
+        cache.update("a", 2);
+        Thread.sleep(40);
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void zero_capacity_disables_cache() {
+        LruCache<String, Integer> cache = new LruCache<>(0, 60_000);
+        cache.put("a", 1);
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void counts_hits_and_misses() {
+        LruCache<String, Integer> cache = new LruCache<>(10, 60_000);
+        cache.get("a");
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("a");
+
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+}
@@ -0,0 +1,153 @@
+package com.soccerkpi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Boots the native executable (mvn -Pnative verify) against a stubbed Lambda runtime API and checks that each
+ * handler answers one API Gateway invocation with a 200. The same stub server answers DynamoDB calls with empty
+ * results, so the handlers run end to end without AWS.
+ *
+ * native.image.path may also point at a wrapper script that starts the runtime interface client on a JVM.
+ */
+@EnabledIfSystemProperty(named = "native.image.path", matches = ".+")
+class NativeRuntimeIT {
+
+    private static final String RUNTIME_PREFIX = "/2018-06-01/runtime/";
+
+    @ParameterizedTest
+    @CsvSource({
+            "createGame,POST,/games,,{\"homeTeam\":\"A\"}",
+            "createKpiTemplate,POST,/kpi-templates,,'{\"templateId\":\"academy\",\"version\":1,\"kpis\":[{\"kpiId\":\"goals\",\"label\":\"Goals\",\"type\":\"COUNTER\"}]}'",
+            "getKpiDefinitions,GET,/games/g1/kpis,gameId=g1,",
+            "recordKpiEvent,POST,/games/g1/events,gameId=g1,'{\"kpiId\":\"goals\",\"delta\":1}'",
+            "recordKpiEventBatch,POST,/games/g1/events:batch,gameId=g1,'{\"events\":[{\"clientEventId\":\"e1\",\"occurredAt\":\"2024-01-01T10:00:00Z\",\"kpiId\":\"goals\",\"delta\":1}]}'",
+            "getGameSummary,GET,/games/g1/summary,gameId=g1,",
+            "rebuildGameSummary,POST,/games/g1/summary/rebuild,gameId=g1,",
+            "finalizeGame,POST,/games/g1/finalize,gameId=g1,",
+            "getGameTimeline,GET,/games/g1/timeline,gameId=g1,",
+            "getPlayerSummary,GET,/games/g1/players/summary,gameId=g1,",
+            "getTeamSeasonSummary,GET,/teams/Rovers/season-summary,team=Rovers,",
+            "health,GET,/health,,",
+            "route,GET,/games/g1/summary,gameId=g1,"
+    })
+    void handler_answers_invocation(String handler, String method, String path, String pathParam, String body) throws Exception {
+        String[] param = pathParam != null ? pathParam.split("=", 2) : null;
+        String event = "{\"version\":\"2.0\",\"routeKey\":\"" + method + " " + path + "\",\"rawPath\":\"" + path + "\","
+                + (param != null ? "\"pathParameters\":{\"" + param[0] + "\":\"" + param[1] + "\"}," : "")
+                + (body != null ? "\"body\":" + quote(body) + "," : "")
+                + "\"isBase64Encoded\":false,"
+                + "\"requestContext\":{\"requestId\":\"it-" + handler + "\",\"http\":{\"method\":\"" + method + "\",\"path\":\"" + path + "\"}}}";
+
+        CompletableFuture<String> response = new CompletableFuture<>();
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicBoolean delivered = new AtomicBoolean();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext(RUNTIME_PREFIX, exchange -> {
+            String uri = exchange.getRequestURI().getPath();
+            String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if (uri.endsWith("/invocation/next")) {
+                if (!delivered.compareAndSet(false, true)) {
+                    // one invocation per process; park further polls until the test tears down
+                    awaitQuietly(done);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().set("Lambda-Runtime-Aws-Request-Id", "it-" + handler);
+                exchange.getResponseHeaders().set("Lambda-Runtime-Deadline-Ms", Long.toString(System.currentTimeMillis() + 30_000));
+                exchange.getResponseHeaders().set("Lambda-Runtime-Invoked-Function-Arn", "arn:aws:lambda:us-west-2:000000000000:function:it");
+                exchange.getResponseHeaders().set("Lambda-Runtime-Trace-Id", "Root=1-00000000-000000000000000000000000");
+                // the runtime client's native HTTP layer expects these to be present, even if empty objects
+                exchange.getResponseHeaders().set("Lambda-Runtime-Client-Context", "{}");
+                exchange.getResponseHeaders().set("Lambda-Runtime-Cognito-Identity", "{}");
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                send(exchange, 200, event);
+            } else if (uri.endsWith("/response")) {
+                response.complete(requestBody);
+                send(exchange, 202, "{}");
+            } else {
+                response.completeExceptionally(new AssertionError(uri + ": " + requestBody));
+                send(exchange, 202, "{}");
+            }
+        });
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.0");
+            send(exchange, 200, "{}");
+        });
+        server.start();
+
+        String address = "127.0.0.1:" + server.getAddress().getPort();
+        ProcessBuilder pb = new ProcessBuilder(System.getProperty("native.image.path"), "com.soccerkpi.Handlers::" + handler);
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        Map<String, String> env = pb.environment();
+        env.put("AWS_LAMBDA_RUNTIME_API", address);
+        env.put("_HANDLER", "com.soccerkpi.Handlers::" + handler);
+        env.put("AWS_LAMBDA_FUNCTION_NAME", "it");
+        env.put("AWS_LAMBDA_FUNCTION_VERSION", "$LATEST");
+        env.put("AWS_LAMBDA_FUNCTION_MEMORY_SIZE", "256");
+        env.put("AWS_LAMBDA_LOG_GROUP_NAME", "/aws/lambda/it");
+        env.put("AWS_LAMBDA_LOG_STREAM_NAME", "it");
+        env.put("AWS_REGION", "us-west-2");
+        env.put("AWS_ACCESS_KEY_ID", "it");
+        env.put("AWS_SECRET_ACCESS_KEY", "it");
+        env.put("DYNAMODB_ENDPOINT", "http://" + address);
+        env.put("GAMES_TABLE", "games");
+        env.put("KPI_DEFINITIONS_TABLE", "kpi_definitions");
+        env.put("KPI_TEMPLATES_TABLE", "kpi_templates");
+        env.put("KPI_EVENTS_TABLE", "kpi_events");
+        env.put("KPI_AGGREGATES_TABLE", "kpi_aggregates");
+
+        Process process = pb.start();
+        try {
+            String result = response.get(60, TimeUnit.SECONDS);
+            assertTrue(result.contains("\"statusCode\":200"), handler + " returned " + result);
+        } finally {
+            done.countDown();
+            process.destroy();
+            if (!process.waitFor(5, TimeUnit.SECONDS)) process.destroyForcibly();
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
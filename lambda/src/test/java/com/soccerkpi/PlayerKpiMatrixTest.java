@@ -0,0 +1,139 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerKpiMatrixTest {
+
+    private static final Context MOCK_CONTEXT = new MockContext();
+
+    private static final List<Handlers.KpiDefinition> DEFS = List.of(
+            new Handlers.KpiDefinition("g", "goals", "Goals", Handlers.KpiType.COUNTER),
+            new Handlers.KpiDefinition("g", "tackles_won", "Tackles won", Handlers.KpiType.COUNTER),
+            new Handlers.KpiDefinition("g", "possession", "Possession", Handlers.KpiType.TOGGLE));
+
+    private static final List<Handlers.Player> ROSTER = List.of(
+            new Handlers.Player("p1", "Keeper", 1),
+            new Handlers.Player("p9", "Striker", 9),
+            new Handlers.Player("p4", "Defender", 4));
+
+    private static Handlers.KpiEvent counter(String playerId, String kpiId, int delta) {
+        return new Handlers.KpiEvent("2024-01-01T10:00:00Z", kpiId, delta, null, null, playerId);
+    }
+
+    private static Handlers.KpiEvent toggle(String playerId, boolean on) {
+        return new Handlers.KpiEvent("2024-01-01T10:00:00Z", "possession", null, on, null, playerId);
+    }
+
+    @Test
+    void rows_follow_the_roster_and_columns_the_definitions() {
+        PlayerKpiMatrix matrix = new PlayerKpiMatrix();
+        matrix.add(toggle("p9", true));
+        matrix.add(counter("p9", "goals", 1));
+        matrix.add(counter("p9", "goals", 1));
+        matrix.add(counter("p4", "tackles_won", 1));
+        matrix.add(counter("p9", "goals", -1));
+        matrix.add(toggle("p9", false));
+        matrix.add(toggle("p4", true));
+
+        Handlers.PlayerSummaryResponse response = matrix.toResponse("g", ROSTER, DEFS);
+
+        assertEquals(List.of("goals", "tackles_won", "possession"),
+                response.getKpis().stream().map(Handlers.KpiDefinition::getKpiId).toList());
+        assertNull(response.getKpis().get(0).getGameId());
+        List<Handlers.PlayerKpiTotals> players = response.getPlayers();
+        assertEquals(List.of("p1", "p9", "p4"), players.stream().map(Handlers.PlayerKpiTotals::getPlayerId).toList());
+        assertArrayEquals(new int[]{0, 0, 0}, players.get(0).getValues());
+        assertArrayEquals(new int[]{1, 0, 0}, players.get(1).getValues());
+        assertArrayEquals(new int[]{0, 1, 1}, players.get(2).getValues());
+        assertEquals("Striker", players.get(1).getName());
+        assertEquals(9, players.get(1).getNumber());
+    }
+
+    @Test
+    void team_events_are_skipped_and_unrostered_players_follow_the_roster() {
+        PlayerKpiMatrix matrix = new PlayerKpiMatrix();
+        matrix.add(new Handlers.KpiEvent("2024-01-01T10:00:00Z", "goals", 1, null, null));
+        matrix.add(counter("trialist", "goals", 1));
+        matrix.add(counter("p1", "goals", 1));
+
+        Handlers.PlayerSummaryResponse response = matrix.toResponse("g", ROSTER, DEFS);
+
+        assertEquals(2, matrix.players());
+        assertEquals(4, response.getPlayers().size());
+        Handlers.PlayerKpiTotals trialist = response.getPlayers().get(3);
+        assertEquals("trialist", trialist.getPlayerId());
+        assertFalse(trialist.isOnRoster());
+        assertArrayEquals(new int[]{1, 0, 0}, trialist.getValues());
+        assertTrue(response.getPlayers().get(0).isOnRoster());
+    }
+
+    @Test
+    void matrix_grows_past_its_initial_size() {
+        PlayerKpiMatrix matrix = new PlayerKpiMatrix();
+        for (int p = 0; p < 100; p++) {
+            for (int k = 0; k < 40; k++) {
+                matrix.add(counter("p" + p, "kpi" + k, 1));
+                matrix.add(counter("p" + p, "kpi" + k, 1));
+            }
+        }
+        List<Handlers.KpiDefinition> defs = List.of(
+                new Handlers.KpiDefinition(null, "kpi0", "First", Handlers.KpiType.COUNTER),
+                new Handlers.KpiDefinition(null, "kpi39", "Last", Handlers.KpiType.COUNTER));
+
+        Handlers.PlayerSummaryResponse response = matrix.toResponse("g", null, defs);
+
+        assertEquals(100, response.getPlayers().size());
+        for (Handlers.PlayerKpiTotals player : response.getPlayers()) {
+            assertArrayEquals(new int[]{2, 2}, player.getValues(), player.getPlayerId());
+        }
+    }
+
+    @Test
+    void handler_reports_taps_credited_to_rostered_players() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        APIGatewayV2HTTPEvent create = new APIGatewayV2HTTPEvent();
+        create.setBody("{\"homeTeam\":\"A\",\"awayTeam\":\"B\",\"roster\":[{\"playerId\":\"p9\",\"name\":\"Striker\",\"number\":9}]}");
+        APIGatewayV2HTTPResponse created = new Handlers.CreateGameHandler(store, store).handleRequest(create, MOCK_CONTEXT);
+        String gameId = Handlers.OBJECT_MAPPER.readValue(created.getBody(), Handlers.CreateGameResponse.class).getGameId();
+
+        APIGatewayV2HTTPEvent tap = new APIGatewayV2HTTPEvent();
+        tap.setPathParameters(Collections.singletonMap("gameId", gameId));
+        tap.setBody("{\"kpiId\":\"goals\",\"delta\":1,\"playerId\":\"p9\"}");
+        assertEquals(200, new Handlers.RecordKpiEventHandler(store, store).handleRequest(tap, MOCK_CONTEXT).getStatusCode());
+        tap.setBody("{\"kpiId\":\"goals\",\"delta\":1}");
+        assertEquals(200, new Handlers.RecordKpiEventHandler(store, store).handleRequest(tap, MOCK_CONTEXT).getStatusCode());
+
+        APIGatewayV2HTTPEvent request = new APIGatewayV2HTTPEvent();
+        request.setPathParameters(Collections.singletonMap("gameId", gameId));
+        APIGatewayV2HTTPResponse response = new Handlers.GetPlayerSummaryHandler(store, store, store)
+                .handleRequest(request, MOCK_CONTEXT);
+
+        assertEquals(200, response.getStatusCode(), response.getBody());
+        Handlers.PlayerSummaryResponse body = Handlers.OBJECT_MAPPER.readValue(response.getBody(), Handlers.PlayerSummaryResponse.class);
+        assertEquals(12, body.getKpis().size());
+        assertEquals(1, body.getPlayers().size());
+        int goals = body.getKpis().stream().map(Handlers.KpiDefinition::getKpiId).toList().indexOf("goals");
+        assertEquals(1, body.getPlayers().get(0).getValues()[goals]);
+        assertEquals("Striker", body.getPlayers().get(0).getName());
+    }
+
+    @Test
+    void roster_with_duplicate_players_is_rejected() {
+        APIGatewayV2HTTPEvent create = new APIGatewayV2HTTPEvent();
+        create.setBody("{\"roster\":[{\"playerId\":\"p9\"},{\"playerId\":\"p9\"}]}");
+        InMemoryKpiStore store = new InMemoryKpiStore();
+
+        APIGatewayV2HTTPResponse response = new Handlers.CreateGameHandler(store, store).handleRequest(create, MOCK_CONTEXT);
+
+        assertEquals(400, response.getStatusCode());
+        assertTrue(response.getBody().contains("Duplicate playerId"), response.getBody());
+    }
+}
@@ -0,0 +1,68 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for RecordKpiEventBatch request validation. Every event here is rejected before any write,
+ * so these tests do not hit DynamoDB.
+ */
+class RecordKpiEventBatchValidationTest {
+
+    private static final Context MOCK_CONTEXT = new MockContext();
+
+    private static APIGatewayV2HTTPEvent batchEvent(String body) {
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setRequestContext(new APIGatewayV2HTTPEvent.RequestContext());
+        event.setPathParameters(Collections.singletonMap("gameId", "test-game-id"));
+        event.setBody(body);
+        return event;
+    }
+
+    @Test
+    void batch_empty_events_returns_400() {
+        APIGatewayV2HTTPResponse response = Handlers.recordKpiEventBatch(batchEvent("{\"events\":[]}"), MOCK_CONTEXT);
+
+        assertEquals(400, response.getStatusCode());
+        assertTrue(response.getBody().contains("at least one event"));
+    }
+
+    @Test
+    void batch_over_limit_returns_400() {
+        StringBuilder body = new StringBuilder("{\"events\":[");
+        for (int i = 0; i <= Handlers.MAX_BATCH_EVENTS; i++) {
+            if (i > 0) body.append(',');
+            body.append("{\"clientEventId\":\"e").append(i).append("\",\"occurredAt\":\"2024-01-01T10:00:00Z\",\"kpiId\":\"goals\",\"delta\":1}");
+        }
+        body.append("]}");
+
+        APIGatewayV2HTTPResponse response = Handlers.recordKpiEventBatch(batchEvent(body.toString()), MOCK_CONTEXT);
+
+        assertEquals(400, response.getStatusCode());
+    }
+
+    @Test
+    void batch_reports_per_event_rejections() {
+        String body = "{\"events\":["
+                + "{\"occurredAt\":\"2024-01-01T10:00:00Z\",\"kpiId\":\"goals\",\"delta\":1},"
+                + "{\"clientEventId\":\"b\",\"kpiId\":\"goals\",\"delta\":1},"
+                + "{\"clientEventId\":\"c\",\"occurredAt\":\"yesterday\",\"kpiId\":\"goals\",\"delta\":1},"
+                + "{\"clientEventId\":\"d\",\"occurredAt\":\"2024-01-01T10:00:00Z\",\"kpiId\":\"goals\",\"delta\":5}"
+                + "]}";
+
+        APIGatewayV2HTTPResponse response = Handlers.recordKpiEventBatch(batchEvent(body), MOCK_CONTEXT);
+
+        assertEquals(200, response.getStatusCode());
+        assertTrue(response.getBody().contains("clientEventId is required"));
+        assertTrue(response.getBody().contains("occurredAt is required"));
+        assertTrue(response.getBody().contains("occurredAt must be an ISO-8601 instant"));
+        assertTrue(response.getBody().contains("delta must be 1 or -1"));
+        assertFalse(response.getBody().contains("\"CREATED\""));
+    }
+}
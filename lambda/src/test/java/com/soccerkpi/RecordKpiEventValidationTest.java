@@ -5,13 +5,14 @@ import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
 import org.junit.jupiter.api.Test;
 
+import java.util.Base64;
 import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
- * Tests for RecordKpiEvent request validation (null/empty body, missing gameId).
- * These tests do not hit DynamoDB; they only assert validation responses.
+ * Tests for RecordKpiEvent request validation (null/empty body, missing gameId) and body formats.
+ * These tests do not hit DynamoDB; they only assert validation responses or use the in-memory store.
  */
 class RecordKpiEventValidationTest {
 
@@ -58,4 +59,121 @@ class RecordKpiEventValidationTest {
         assertEquals(400, response.getStatusCode());
         assertTrue(response.getBody() != null && response.getBody().contains("gameId"));
     }
+
+    @Test
+    void recordKpiEvent_accepts_a_cbor_body() throws Exception {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        store.putDefinitions("cbor-game", Handlers.DefaultKpis.defaultKpisForGame("cbor-game"));
+        Handlers.RecordKpiEventRequest tap = new Handlers.RecordKpiEventRequest();
+        tap.setKpiId("goals");
+        tap.setDelta(1);
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setPathParameters(Collections.singletonMap("gameId", "cbor-game"));
+        event.setHeaders(Collections.singletonMap("content-type", "application/cbor"));
+        event.setBody(Base64.getEncoder().encodeToString(BodyEncoding.CBOR.write(tap)));
+        event.setIsBase64Encoded(true);
+
+        APIGatewayV2HTTPResponse response = new Handlers.RecordKpiEventHandler(store, store).handleRequest(event, MOCK_CONTEXT);
+
+        assertEquals(200, response.getStatusCode(), response.getBody());
+        assertEquals(1, store.loadAggregate("cbor-game").counterTotals().get("goals"));
+    }
+
+    @Test
+    void recordKpiEvent_only_accepts_kpis_of_the_game() {
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        String gameId = "kpi-check-" + System.nanoTime();
+        Handlers.RecordKpiEventHandler handler = new Handlers.RecordKpiEventHandler(store, store);
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setPathParameters(Collections.singletonMap("gameId", gameId));
+        event.setBody("{\"kpiId\":\"goals\",\"delta\":1}");
+        assertEquals(404, handler.handleRequest(event, MOCK_CONTEXT).getStatusCode());
+
+        store.putDefinitions(gameId, Handlers.DefaultKpis.defaultKpisForGame(gameId));
+        assertEquals(200, handler.handleRequest(event, MOCK_CONTEXT).getStatusCode());
+        String[][] rejected = {
+                {"{\"kpiId\":\"made_up\",\"delta\":1}", "Unknown kpiId"},
+                {"{\"kpiId\":\"" + "k".repeat(Handlers.MAX_KPI_ID_LENGTH + 1) + "\",\"delta\":1}", "kpiId must be 1 to"},
+                {"{\"kpiId\":\"goals\",\"toggleValue\":true}", "is a counter"},
+        };
+        for (String[] body : rejected) {
+            event.setBody(body[0]);
+            APIGatewayV2HTTPResponse response = handler.handleRequest(event, MOCK_CONTEXT);
+            assertEquals(400, response.getStatusCode(), body[0]);
+            assertTrue(response.getBody().contains(body[1]), response.getBody());
+        }
+        assertEquals(1, store.loadAggregate(gameId).counterTotals().size());
+    }
+
+    @Test
+    void readTapRequest_matches_databind_for_any_body_shape() throws Exception {
+        String[] bodies = {
+                "{\"kpiId\":\"goals\",\"delta\":1}",
+                "{\"kpiId\":\"red_card\",\"toggleValue\":false}",
+                "{\"playerId\":\"p-10\",\"kpiId\":\"goals\",\"delta\":1}",
+                "{\"kpiId\":\"goals\",\"delta\":1,\"playerId\":null}",
+                "{\"kpiId\":\"goals\",\"delta\":1,\"playerId\":\"p\\u002d10\"}",
+                " { \"delta\" : -1 ,\n\t\"kpiId\" : \"custom_kpi\" } ",
+                "{\"delta\":-1,\"kpiId\":\"goals\",\"extra\":{\"nested\":[1,2]}}",
+                "{\"kpiId\":\"go\\u0061ls\",\"delta\":1}",
+                "{\"kpiId\":\"goals\",\"delta\":\"1\"}",
+                "{\"kpiId\":\"goals\",\"delta\":1.0}",
+                "{\"kpiId\":\"goals\",\"delta\":2147483647}",
+                "{\"kpiId\":\"goals\",\"delta\":1,\"delta\":-1}",
+                "{\"kpiId\":null,\"toggleValue\":null}",
+                "{}",
+                "{\"kpiId\":\"goals\",\"delta\":01}",
+                "{\"kpiId\":\"goals\",\"delta\":2147483648}",
+                "{\"kpiId\":\"goals\",}",
+                "{\"kpiId\":\"goals\"",
+                "[1]"
+        };
+        for (String body : bodies) {
+            Handlers.RecordKpiEventRequest expected;
+            try {
+                expected = Handlers.OBJECT_MAPPER.readValue(body, Handlers.RecordKpiEventRequest.class);
+            } catch (Exception databindError) {
+                assertThrows(databindError.getClass(), () -> Handlers.readTapRequest(body), body);
+                continue;
+            }
+            Handlers.RecordKpiEventRequest actual = Handlers.readTapRequest(body);
+            assertEquals(expected.getKpiId(), actual.getKpiId(), body);
+            assertEquals(expected.getDelta(), actual.getDelta(), body);
+            assertEquals(expected.getToggleValue(), actual.getToggleValue(), body);
+            assertEquals(expected.getPlayerId(), actual.getPlayerId(), body);
+        }
+    }
+
+    @Test
+    void fast_path_matches_the_reader_on_escapes_unicode_and_unknown_fields() throws Exception {
+        String[] declined = {
+                "{\"kpiId\":\"go\\u0061ls\",\"delta\":1}",
+                "{\"kpiId\":\"goals\",\"delta\":1,\"playerId\":\"p\\\"10\\\\b\\n\"}",
+                "{\"kpiId\":\"goals\",\"delta\":-1,\"playerId\":\"jugadora-\\u00e9-\\ud83d\\udc4d\"}",
+                "{\"extra\":{\"nested\":[1,{\"deep\":null}]},\"kpiId\":\"goals\",\"delta\":1}",
+                "{\"kpiId\":\"goals\",\"delta\":1,\"unknown\":[true,false,1.5e3]}"
+        };
+        String[] accepted = {
+                "{\"kpiId\":\"goals\",\"delta\":-1,\"playerId\":\"jugadora-\u00f1-\ud83d\udc4d\"}",
+                "{\"kpiId\":\"t\u00e1ckles_\u7403\",\"toggleValue\":true}"
+        };
+        for (String body : declined) {
+            // escapes and unknown fields go to the regular reader rather than being read differently
+            assertNull(TapRequestParser.parse(body), body);
+            assertSameRequest(body, Handlers.readTapRequest(body));
+        }
+        for (String body : accepted) {
+            Handlers.RecordKpiEventRequest fast = TapRequestParser.parse(body);
+            assertNotNull(fast, body);
+            assertSameRequest(body, fast);
+        }
+    }
+
+    private static void assertSameRequest(String body, Handlers.RecordKpiEventRequest actual) throws Exception {
+        Handlers.RecordKpiEventRequest expected = Handlers.OBJECT_MAPPER.readValue(body, Handlers.RecordKpiEventRequest.class);
+        assertEquals(expected.getKpiId(), actual.getKpiId(), body);
+        assertEquals(expected.getDelta(), actual.getDelta(), body);
+        assertEquals(expected.getToggleValue(), actual.getToggleValue(), body);
+        assertEquals(expected.getPlayerId(), actual.getPlayerId(), body);
+    }
 }
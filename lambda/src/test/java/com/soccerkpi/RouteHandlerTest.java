@@ -0,0 +1,65 @@
+package com.soccerkpi;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RouteHandlerTest {
+
+    @Test
+    void route_dispatches_on_route_key() throws Exception {
+        KpiStore previous = Handlers.store();
+        InMemoryKpiStore store = new InMemoryKpiStore();
+        Handlers.useStore(store);
+        try {
+            store.putGame(new Handlers.Game("route-1", "A", "B", null, Handlers.Game.CREATED));
+            store.putDefinitions("route-1", Handlers.DefaultKpis.defaultKpisForGame("route-1"));
+
+            APIGatewayV2HTTPEvent request = new APIGatewayV2HTTPEvent();
+            request.setRouteKey("GET /games/{gameId}/kpis");
+            request.setRawPath("/games/route-1/kpis");
+            request.setPathParameters(Map.of("gameId", "route-1"));
+            APIGatewayV2HTTPResponse response = Handlers.route(request, new MockContext());
+
+            assertEquals(200, response.getStatusCode());
+            assertTrue(response.getBody().contains("\"kpis\""), response.getBody());
+        } finally {
+            Handlers.useStore(previous);
+        }
+    }
+
+    @Test
+    void unknown_route_key_is_404() {
+        APIGatewayV2HTTPEvent request = new APIGatewayV2HTTPEvent();
+        request.setRouteKey("DELETE /games/{gameId}");
+
+        assertEquals(404, Handlers.route(request, new MockContext()).getStatusCode());
+        assertEquals(404, Handlers.route(new APIGatewayV2HTTPEvent(), new MockContext()).getStatusCode());
+    }
+
+    @Test
+    void route_table_covers_every_http_route_in_terraform() throws Exception {
+        Path apiGateway = Path.of("../infra/api_gateway.tf");
+        assumeTrue(Files.exists(apiGateway), "infra/ is not next to lambda/");
+
+        Set<String> declared = new TreeSet<>();
+        Matcher m = Pattern.compile("route_key\\s*=\\s*\"([A-Z]+ /[^\"]*)\"").matcher(Files.readString(apiGateway));
+        while (m.find()) {
+            declared.add(m.group(1));
+        }
+
+        assertFalse(declared.isEmpty());
+        assertEquals(declared, new TreeSet<>(Handlers.routeKeys()));
+    }
+}
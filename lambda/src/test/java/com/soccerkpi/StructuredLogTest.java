@@ -0,0 +1,93 @@
+package com.soccerkpi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the hand-encoded log lines are valid single-line JSON, whatever the error message contains, and
+ * that the metric fields form a valid Embedded Metric Format document.
+ */
+class StructuredLogTest {
+
+    private static JsonNode writeAndParse(String gameId, String errorType, String errorMessage) throws Exception {
+        return writeAndParse(gameId, errorType, errorMessage, null);
+    }
+
+    private static JsonNode writeAndParse(String gameId, String errorType, String errorMessage, InvocationMetrics metrics) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        StructuredLog.write(out, "req-1", "recordKpiEvent", gameId, "error", 500, 12, errorType, errorMessage, metrics);
+        String line = bytes.toString(StandardCharsets.UTF_8);
+        assertTrue(line.endsWith("\n"));
+        assertEquals(line.length() - 1, line.indexOf('\n'), "exactly one line");
+        return Handlers.OBJECT_MAPPER.readTree(line);
+    }
+
+    @Test
+    void writes_all_fields() throws Exception {
+        JsonNode log = writeAndParse("g1", "Validation", "kpiId is required");
+        assertEquals("req-1", log.get("requestId").asText());
+        assertEquals("recordKpiEvent", log.get("handler").asText());
+        assertEquals("g1", log.get("gameId").asText());
+        assertEquals("error", log.get("status").asText());
+        assertEquals(500, log.get("statusCode").asInt());
+        assertEquals(12, log.get("durationMs").asLong());
+        assertEquals("Validation", log.get("errorType").asText());
+        assertEquals("kpiId is required", log.get("errorMessage").asText());
+    }
+
+    @Test
+    void omits_absent_optional_fields() throws Exception {
+        JsonNode log = writeAndParse(null, null, null);
+        assertFalse(log.has("gameId"));
+        assertFalse(log.has("errorType"));
+        assertFalse(log.has("errorMessage"));
+    }
+
+    @Test
+    void escapes_quotes_control_characters_and_unicode() throws Exception {
+        String message = "bad \"value\"\\ on\nline\t2 \u0001 café € 😀 " + "x".repeat(5000);
+        JsonNode log = writeAndParse("g1", "Exception", message);
+        assertEquals(message, log.get("errorMessage").asText());
+    }
+
+    @Test
+    void carries_invocation_metrics_as_embedded_metric_format() throws Exception {
+        InvocationMetrics.start();
+        InvocationMetrics metrics = InvocationMetrics.current();
+        metrics.addDynamoDbCall(2_500_000);
+        metrics.addDynamoDbCall(1_000);
+        InvocationMetrics.addSerialization(40_000);
+        JsonNode log = writeAndParse("g1", null, null, InvocationMetrics.finish());
+
+        assertEquals(2.501, log.get("DynamoDbLatency").asDouble(), 1e-9);
+        assertEquals(2, log.get("DynamoDbCalls").asInt());
+        assertEquals(0.040, log.get("SerializationLatency").asDouble(), 1e-9);
+        assertTrue(log.get("Latency").asDouble() >= 0);
+        assertTrue(log.get("ColdStart").asInt() == 0 || log.get("ColdStart").asInt() == 1);
+
+        JsonNode aws = log.get("_aws");
+        assertTrue(Math.abs(System.currentTimeMillis() - aws.get("Timestamp").asLong()) < 60_000);
+        JsonNode directive = aws.get("CloudWatchMetrics").get(0);
+        assertEquals(InvocationMetrics.NAMESPACE, directive.get("Namespace").asText());
+        assertEquals("handler", directive.get("Dimensions").get(0).get(0).asText());
+        for (JsonNode metric : directive.get("Metrics")) {
+            assertTrue(log.has(metric.get("Name").asText()), metric.get("Name").asText());
+        }
+        assertNull(InvocationMetrics.current());
+    }
+
+    @Test
+    void only_the_first_invocation_in_the_jvm_is_a_cold_start() {
+        InvocationMetrics.start();
+        InvocationMetrics.finish();
+        InvocationMetrics.start();
+        assertFalse(InvocationMetrics.finish().coldStart());
+    }
+}
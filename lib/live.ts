@@ -0,0 +1,83 @@
+/**
+ * A "kpiDelta" push from the live WebSocket API: counter deltas summed since the
+ * previous push, and the latest state of any toggle that changed
+ */
+export interface LiveUpdateMessage {
+  type: "kpiDelta";
+  gameId: string;
+  counters?: Record<string, number>;
+  toggles?: Record<string, boolean>;
+}
+
+interface LiveKpi {
+  kpiId: string;
+  total?: number;
+  value?: boolean;
+}
+
+interface LiveKpiDefinition {
+  kpiId: string;
+  type: string;
+  expression?: string | null;
+}
+
+// a kpiId in a formula, as the server's parser reads it: a letter or "_", then letters, digits or "_"
+const FORMULA_NAME = /[\p{L}_][\p{L}\p{Nd}_]*/gu;
+
+/**
+ * Get the live WebSocket URL for a game, or null when live updates are not configured
+ */
+export function getLiveUrl(gameId: string): string | null {
+  const url = process.env.NEXT_PUBLIC_LIVE_URL;
+  if (!url) return null;
+  return `${url.replace(/\/$/, "")}?gameId=${encodeURIComponent(gameId)}`;
+}
+
+/**
+ * Apply a push to summary KPIs, returning new objects only for the KPIs it touches
+ */
+export function applyLiveUpdate<T extends LiveKpi>(
+  kpis: T[],
+  message: LiveUpdateMessage
+): T[] {
+  const counters = message.counters ?? {};
+  const toggles = message.toggles ?? {};
+  return kpis.map((kpi) => {
+    if (kpi.kpiId in counters && typeof kpi.total === "number") {
+      return { ...kpi, total: kpi.total + counters[kpi.kpiId] };
+    }
+    if (kpi.kpiId in toggles) {
+      return { ...kpi, value: toggles[kpi.kpiId] };
+    }
+    return kpi;
+  });
+}
+
+/**
+ * The kpiIds that the game's derived KPIs are computed from. Only the server
+ * evaluates formulas, so a push that changes one of these makes a result stale
+ */
+export function derivedInputs(defs: LiveKpiDefinition[]): Set<string> {
+  const inputs = new Set<string>();
+  for (const def of defs) {
+    if (def.type !== "DERIVED" || !def.expression) continue;
+    for (const name of def.expression.match(FORMULA_NAME) ?? []) {
+      inputs.add(name);
+    }
+  }
+  return inputs;
+}
+
+/**
+ * True when a push changes a KPI that a derived result is computed from
+ */
+export function touchesDerived(
+  message: LiveUpdateMessage,
+  inputs: Set<string>
+): boolean {
+  if (inputs.size === 0) return false;
+  return (
+    Object.keys(message.counters ?? {}).some((kpiId) => inputs.has(kpiId)) ||
+    Object.keys(message.toggles ?? {}).some((kpiId) => inputs.has(kpiId))
+  );
+}
@@ -1,16 +1,27 @@
 import { useRouter } from "next/router";
-import { useEffect, useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import axios from "axios";
+import {
+  applyLiveUpdate,
+  derivedInputs,
+  getLiveUrl,
+  LiveUpdateMessage,
+  touchesDerived,
+} from "../../../lib/live";
 
 const API_BASE = process.env.NEXT_PUBLIC_API_BASE_URL;
+// while pushes arrive, the summary is only re-read to repair a missed or repeated delta
+const LIVE_RESYNC_SEC = 60;
+const MAX_RECONNECT_DELAY_MS = 30000;
 
-type KpiType = "COUNTER" | "TOGGLE";
+type KpiType = "COUNTER" | "TOGGLE" | "DERIVED";
 
 interface KpiSummary {
   kpiId: string;
   label: string;
   total?: number;
   value?: boolean;
+  result?: number; // derived KPIs; absent while undefined
 }
 
 interface GameSummaryResponse {
@@ -18,6 +29,12 @@ interface GameSummaryResponse {
   kpis: KpiSummary[];
 }
 
+interface KpiDefinition {
+  kpiId: string;
+  type: KpiType;
+  expression?: string | null;
+}
+
 export default function Dashboard() {
   const router = useRouter();
   const { gameId } = router.query as { gameId?: string };
@@ -26,14 +43,79 @@ export default function Dashboard() {
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState<string | null>(null);
   const [pollIntervalSec, setPollIntervalSec] = useState(10);
+  const [live, setLive] = useState(false);
+  // pushes carry counter and toggle deltas only; a derived result is re-read when one of its inputs moves
+  const derivedInputsRef = useRef<Set<string>>(new Set());
+  const resyncRef = useRef<(() => void) | null>(null);
+
+  useEffect(() => {
+    const url = gameId ? getLiveUrl(gameId) : null;
+    if (!url) return;
+
+    derivedInputsRef.current = new Set();
+    axios
+      .get<{ kpis: KpiDefinition[] }>(`${API_BASE}/games/${gameId}/kpis`)
+      .then((res) => {
+        derivedInputsRef.current = derivedInputs(res.data.kpis);
+      })
+      .catch(() => {
+        // derived results then catch up at the next resync
+      });
+
+    let socket: WebSocket | null = null;
+    let reconnectTimer: ReturnType<typeof setTimeout> | undefined;
+    let attempts = 0;
+    let closed = false;
+
+    const connect = () => {
+      socket = new WebSocket(url);
+      socket.onopen = () => {
+        attempts = 0;
+        setLive(true);
+      };
+      socket.onmessage = (event) => {
+        const message = JSON.parse(event.data) as LiveUpdateMessage;
+        if (message.type !== "kpiDelta" || message.gameId !== gameId) return;
+        setSummary((current) =>
+          current ? { ...current, kpis: applyLiveUpdate(current.kpis, message) } : current
+        );
+        if (touchesDerived(message, derivedInputsRef.current)) {
+          resyncRef.current?.();
+        }
+      };
+      socket.onclose = () => {
+        setLive(false);
+        if (closed) return;
+        // polling carries on meanwhile; back off so a dead API is not hammered
+        const delay = Math.min(MAX_RECONNECT_DELAY_MS, 1000 * 2 ** attempts++);
+        reconnectTimer = setTimeout(connect, delay);
+      };
+    };
+
+    connect();
+
+    return () => {
+      closed = true;
+      clearTimeout(reconnectTimer);
+      socket?.close();
+    };
+  }, [gameId]);
 
   useEffect(() => {
     if (!gameId || !API_BASE) return;
 
     let cancelled = false;
+    let inFlight = false;
+    let again = false;
 
     const loadSummary = async () => {
       if (!gameId || !API_BASE) return;
+      // one read at a time, so an older response never replaces a newer one
+      if (inFlight) {
+        again = true;
+        return;
+      }
+      inFlight = true;
       try {
         setLoading(true);
         const res = await axios.get<GameSummaryResponse>(
@@ -48,18 +130,29 @@ export default function Dashboard() {
           setError(e?.response?.data?.message || "Failed to load summary");
         }
       } finally {
+        inFlight = false;
         if (!cancelled) setLoading(false);
       }
+      if (again && !cancelled) {
+        again = false;
+        loadSummary();
+      }
     };
 
+    // an unchanged summary costs a 304, since the browser revalidates it with its ETag
+    resyncRef.current = loadSummary;
     loadSummary();
-    const interval = setInterval(loadSummary, pollIntervalSec * 1000);
+    const interval = setInterval(
+      loadSummary,
+      (live ? LIVE_RESYNC_SEC : pollIntervalSec) * 1000
+    );
 
     return () => {
       cancelled = true;
+      resyncRef.current = null;
       clearInterval(interval);
     };
-  }, [gameId, pollIntervalSec]);
+  }, [gameId, pollIntervalSec, live]);
 
   if (!API_BASE) {
     return (
@@ -81,10 +174,12 @@ export default function Dashboard() {
           </p>
         </div>
         <div className="flex items-center gap-2 text-xs text-slate-300">
+          {live && <span className="text-emerald-400">● Live</span>}
           <span>Refresh every</span>
           <select
             className="bg-slate-800 border border-slate-600 rounded px-2 py-1"
             value={pollIntervalSec}
+            disabled={live}
             onChange={(e) => setPollIntervalSec(Number(e.target.value))}
           >
             <option value={5}>5s</option>
@@ -116,6 +211,10 @@ export default function Dashboard() {
                 <td className="px-3 py-2 text-right font-semibold">
                   {typeof kpi.total === "number"
                     ? kpi.total
+                    : typeof kpi.result === "number"
+                    ? kpi.result.toFixed(2)
+                    : kpi.value === undefined
+                    ? "—"
                     : kpi.value
                     ? "YES"
                     : "NO"}
@@ -4,7 +4,7 @@ import axios from "axios";
 
 const API_BASE = process.env.NEXT_PUBLIC_API_BASE_URL;
 
-type KpiType = "COUNTER" | "TOGGLE";
+type KpiType = "COUNTER" | "TOGGLE" | "DERIVED";
 
 interface KpiDefinition {
   gameId: string;
@@ -31,7 +31,8 @@ export default function TrackGame() {
         const res = await axios.get<{ kpis: KpiDefinition[] }>(
           `${API_BASE}/games/${gameId}/kpis`
         );
-        setKpis(res.data.kpis);
+        // derived KPIs are computed from the others, so there is nothing to tap
+        setKpis(res.data.kpis.filter((k) => k.type !== "DERIVED"));
       } catch (e: any) {
         setError(
           e?.response?.data?.message || "Failed to load KPI definitions"